@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2016-2026 Jumin Rubin
+ * LinkedIn: https://www.linkedin.com/in/juminrubin/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jrtech.common.xsutils.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.List;
+
+import org.jrtech.common.xsutils.JrxXmlModelUtil;
+import org.jrtech.common.xsutils.XmlCorpusGenerator;
+import org.jrtech.common.xsutils.model.JrxDeclaration;
+import org.jrtech.common.xsutils.model.JrxElementGroup;
+import org.jrtech.common.xsutils.model.JrxTerm;
+
+/**
+ * The bundled SWIFT schemas and sample messages, and the synthetic messages generated from them.
+ *
+ */
+final class BenchmarkMessages {
+
+    /**
+     * The SWIFTNet InterAct envelope, importing the other SWIFTNet schemas.
+     */
+    static final String SWINT_SCHEMA = "schema/SwInt.xsd";
+
+    /**
+     * Scale of the bundled sample message, enveloped in SWIFTNet InterAct.
+     */
+    static final String SAMPLE_SCALE = "sample";
+
+    /**
+     * Seed of the synthetic messages, the same messages are measured in every run.
+     */
+    static final long SEED = 20160101L;
+
+    private BenchmarkMessages() {
+    }
+
+    static URL getResource(String resourceName) {
+        URL url = BenchmarkMessages.class.getClassLoader().getResource(resourceName);
+        if (url == null)
+            throw new IllegalStateException("Resource not found: " + resourceName);
+
+        return url;
+    }
+
+    /**
+     * @param message
+     *            name of the message, e.g. setr.004
+     * @return the bundled schema of the message
+     */
+    static URL getSchemaUrl(String message) {
+        return getResource("schema/" + message + ".001.03.xsd");
+    }
+
+    static String getNamespaceUri(String message) {
+        return "urn:swift:xsd:" + message + ".001.03";
+    }
+
+    /**
+     * Add the schemas of the message and its envelope.
+     *
+     * @param util
+     * @param message
+     * @throws Exception
+     */
+    static void addSchemas(JrxXmlModelUtil util, String message) throws Exception {
+        util.addSchema(getResource(SWINT_SCHEMA));
+        util.addSchema(getSchemaUrl(message));
+    }
+
+    /**
+     * @param util
+     *            has the schemas of the message
+     * @param message
+     * @param scale
+     *            {@link #SAMPLE_SCALE} or the target size of a synthetic message in bytes, with the suffix k or m
+     * @return the message as bytes
+     * @throws Exception
+     */
+    static byte[] getMessage(JrxXmlModelUtil util, String message, String scale) throws Exception {
+        if (SAMPLE_SCALE.equals(scale))
+            return read(getResource("data/" + message + ".xml"));
+
+        XmlCorpusGenerator generator = XmlCorpusGenerator.newInstance(util, getNamespaceUri(message), "Document");
+        generator.setSeed(SEED);
+        generator.setTargetSize(parseSize(scale));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        generator.generate(outputStream, 0);
+
+        return outputStream.toByteArray();
+    }
+
+    static long parseSize(String scale) {
+        String lowerScale = scale.toLowerCase();
+        if (lowerScale.endsWith("k"))
+            return Long.parseLong(lowerScale.substring(0, lowerScale.length() - 1)) * 1024;
+        if (lowerScale.endsWith("m"))
+            return Long.parseLong(lowerScale.substring(0, lowerScale.length() - 1)) * 1024 * 1024;
+
+        return Long.parseLong(lowerScale);
+    }
+
+    /**
+     * Collect the term and its descendants in document order.
+     *
+     * @param jrxTerm
+     * @param jrxTerms
+     */
+    static void collectTerms(JrxTerm<?> jrxTerm, List<JrxTerm<?>> jrxTerms) {
+        jrxTerms.add(jrxTerm);
+
+        JrxElementGroup jrxGroup = null;
+        if (jrxTerm instanceof JrxDeclaration) {
+            jrxGroup = ((JrxDeclaration<?>) jrxTerm).getChildrenBlock();
+        } else if (jrxTerm instanceof JrxElementGroup) {
+            jrxGroup = (JrxElementGroup) jrxTerm;
+        }
+        if (jrxGroup == null)
+            return;
+
+        for (JrxTerm<?> jrxChildTerm : jrxGroup.getElements()) {
+            collectTerms(jrxChildTerm, jrxTerms);
+        }
+    }
+
+    private static byte[] read(URL url) throws IOException {
+        InputStream inputStream = url.openStream();
+        try {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int length;
+            while ((length = inputStream.read(buffer)) > 0) {
+                outputStream.write(buffer, 0, length);
+            }
+            return outputStream.toByteArray();
+        } finally {
+            inputStream.close();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2016-2026 Jumin Rubin
+ * LinkedIn: https://www.linkedin.com/in/juminrubin/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jrtech.common.xsutils.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jrtech.common.xmlutils.XmlUtils;
+import org.jrtech.common.xsutils.CacheableJrxXmlModelUtil;
+import org.jrtech.common.xsutils.CompiledSchemaSet;
+import org.jrtech.common.xsutils.JrxXmlModelUtil;
+import org.jrtech.common.xsutils.SchemaRegistry;
+import org.jrtech.common.xsutils.XmlValidationError;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of processing messages by several threads sharing the schemas: parse, conversion, enrichment and
+ * validation of a message per invocation. The number of threads is 4 unless given with <code>-t</code>.
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class ConcurrentBenchmark {
+
+    /**
+     * The schemas and the message shared by all threads.
+     */
+    @State(Scope.Benchmark)
+    public static class SharedSchemas {
+
+        @Param({ "setr.004", "setr.010" })
+        private String message;
+
+        @Param({ BenchmarkMessages.SAMPLE_SCALE, "256k" })
+        private String scale;
+
+        private SchemaRegistry schemaRegistry;
+
+        private CompiledSchemaSet compiledSchemaSet;
+
+        private byte[] messageBytes;
+
+        @Setup
+        public void setUp() throws Exception {
+            schemaRegistry = SchemaRegistry.newInstance();
+            CacheableJrxXmlModelUtil util = CacheableJrxXmlModelUtil.newInstance(schemaRegistry);
+            BenchmarkMessages.addSchemas(util, message);
+            compiledSchemaSet = CompiledSchemaSet.compile(schemaRegistry);
+            messageBytes = BenchmarkMessages.getMessage(util, message, scale);
+        }
+    }
+
+    /**
+     * The model util of a thread, taking the schemas from the shared registry.
+     */
+    @State(Scope.Thread)
+    public static class ThreadUtil {
+
+        private JrxXmlModelUtil util;
+
+        @Setup
+        public void setUp(SharedSchemas sharedSchemas) throws Exception {
+            util = CacheableJrxXmlModelUtil.newInstance(sharedSchemas.schemaRegistry);
+            BenchmarkMessages.addSchemas(util, sharedSchemas.message);
+        }
+    }
+
+    @Benchmark
+    public List<XmlValidationError> processWithCacheableUtil(SharedSchemas sharedSchemas, ThreadUtil threadUtil)
+            throws Exception {
+        return process(threadUtil.util, sharedSchemas.messageBytes);
+    }
+
+    /**
+     * A new session of the compiled schema set per message.
+     */
+    @Benchmark
+    public List<XmlValidationError> processWithSession(SharedSchemas sharedSchemas) throws Exception {
+        return process(sharedSchemas.compiledSchemaSet.newSession(), sharedSchemas.messageBytes);
+    }
+
+    private static List<XmlValidationError> process(JrxXmlModelUtil util, byte[] messageBytes) throws Exception {
+        return util.validateDocument(util.enrichJrxDocument(util.convertXmlToJrxModel(XmlUtils.createDocumentNS(
+                new ByteArrayInputStream(messageBytes)))));
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2016-2026 Jumin Rubin
+ * LinkedIn: https://www.linkedin.com/in/juminrubin/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jrtech.common.xsutils.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.jrtech.common.xmlutils.XmlUtils;
+import org.jrtech.common.xsutils.JrxXmlModelUtil;
+import org.jrtech.common.xsutils.XmlValidationError;
+import org.jrtech.common.xsutils.labels.XmlTagLabelUtil;
+import org.jrtech.common.xsutils.model.JrxDocument;
+import org.jrtech.common.xsutils.model.JrxElement;
+import org.jrtech.common.xsutils.model.JrxTerm;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.w3c.dom.Document;
+
+/**
+ * Benchmarks of processing a message by a single thread: conversion, enrichment, validation and tag labels.
+ * <p>
+ * Conversion and enrichment modify the XML document, hence every invocation parses the message again. The cost of
+ * the conversion is the one of {@link #parseAndConvert()} less the one of {@link #parse()}, the cost of the enrichment
+ * is the one of {@link #parseConvertAndEnrich()} less the one of {@link #parseAndConvert()}. The validation and the tag
+ * labels work on a message enriched once.
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class DocumentBenchmark {
+
+    @Param({ "setr.004", "setr.010" })
+    private String message;
+
+    /**
+     * The bundled sample message, or synthetic messages of the given size.
+     */
+    @Param({ BenchmarkMessages.SAMPLE_SCALE, "16k", "256k", "4m" })
+    private String scale;
+
+    private JrxXmlModelUtil util;
+
+    private byte[] messageBytes;
+
+    private JrxDocument jrxEnrichedDoc;
+
+    private List<JrxTerm<?>> jrxTerms;
+
+    private XmlTagLabelUtil labelUtil;
+
+    @Setup
+    public void setUp() throws Exception {
+        util = JrxXmlModelUtil.newInstance();
+        BenchmarkMessages.addSchemas(util, message);
+        messageBytes = BenchmarkMessages.getMessage(util, message, scale);
+
+        jrxEnrichedDoc = util.enrichJrxDocument(util.convertXmlToJrxModel(parse()));
+        jrxTerms = new ArrayList<JrxTerm<?>>();
+        BenchmarkMessages.collectTerms(jrxEnrichedDoc.getRootElement(), jrxTerms);
+
+        // Labels for every second element name, the others fall back to the name
+        Map<String, String> labelCatalog = new HashMap<String, String>();
+        boolean labelled = false;
+        for (JrxTerm<?> jrxTerm : jrxTerms) {
+            if (!(jrxTerm instanceof JrxElement))
+                continue;
+
+            String simpleName = ((JrxElement) jrxTerm).getSimpleName();
+            if (!labelCatalog.containsKey(XmlTagLabelUtil.ELEMENT_PREFIX + simpleName)) {
+                labelled = !labelled;
+                if (labelled)
+                    labelCatalog.put(XmlTagLabelUtil.ELEMENT_PREFIX + simpleName, "Label of " + simpleName);
+            }
+        }
+        XmlTagLabelUtil.registerNamespaceLabelCatalog(BenchmarkMessages.getNamespaceUri(message), labelCatalog);
+        labelUtil = new XmlTagLabelUtil(null);
+    }
+
+    @Benchmark
+    public Document parse() throws Exception {
+        return XmlUtils.createDocumentNS(new ByteArrayInputStream(messageBytes));
+    }
+
+    @Benchmark
+    public JrxDocument parseAndConvert() throws Exception {
+        return util.convertXmlToJrxModel(parse());
+    }
+
+    @Benchmark
+    public JrxDocument parseConvertAndEnrich() throws Exception {
+        return util.enrichJrxDocument(util.convertXmlToJrxModel(parse()));
+    }
+
+    @Benchmark
+    public List<XmlValidationError> validate() throws Exception {
+        return util.validateDocument(jrxEnrichedDoc);
+    }
+
+    @Benchmark
+    public void getTagLabels(Blackhole blackhole) {
+        for (JrxTerm<?> jrxTerm : jrxTerms) {
+            blackhole.consume(labelUtil.getTagLabel(jrxTerm));
+        }
+    }
+}
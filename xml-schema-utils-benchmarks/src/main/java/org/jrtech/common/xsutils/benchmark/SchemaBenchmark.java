@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2016-2026 Jumin Rubin
+ * LinkedIn: https://www.linkedin.com/in/juminrubin/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jrtech.common.xsutils.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jrtech.common.xsutils.CacheableJrxXmlModelUtil;
+import org.jrtech.common.xsutils.CompiledSchemaSet;
+import org.jrtech.common.xsutils.JrxXmlModelUtil;
+import org.jrtech.common.xsutils.SchemaRegistry;
+import org.jrtech.common.xsutils.model.JrxDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of loading the bundled SWIFT schemas and of creating a skeleton message from them.
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SchemaBenchmark {
+
+    @Param({ "setr.004", "setr.010" })
+    private String message;
+
+    private SchemaRegistry schemaRegistry;
+
+    private CacheableJrxXmlModelUtil cacheableUtil;
+
+    @Setup
+    public void setUp() throws Exception {
+        schemaRegistry = SchemaRegistry.newInstance();
+        cacheableUtil = CacheableJrxXmlModelUtil.newInstance(schemaRegistry);
+        BenchmarkMessages.addSchemas(cacheableUtil, message);
+    }
+
+    /**
+     * Parse the schemas of the message and its envelope with XSOM.
+     */
+    @Benchmark
+    public JrxXmlModelUtil addSchema() throws Exception {
+        JrxXmlModelUtil util = JrxXmlModelUtil.newInstance();
+        BenchmarkMessages.addSchemas(util, message);
+
+        return util;
+    }
+
+    /**
+     * Take the schemas from a registry which has loaded them before.
+     */
+    @Benchmark
+    public JrxXmlModelUtil addSchemaFromRegistry() throws Exception {
+        JrxXmlModelUtil util = CacheableJrxXmlModelUtil.newInstance(schemaRegistry);
+        BenchmarkMessages.addSchemas(util, message);
+
+        return util;
+    }
+
+    @Benchmark
+    public CompiledSchemaSet compileSchemaSet() throws Exception {
+        return CompiledSchemaSet.compile(BenchmarkMessages.getResource(BenchmarkMessages.SWINT_SCHEMA),
+                BenchmarkMessages.getSchemaUrl(message));
+    }
+
+    /**
+     * Create the enriched skeleton message, with the schema taken from the registry.
+     */
+    @Benchmark
+    public JrxDocument convertXsdToJrxDoc() throws Exception {
+        return cacheableUtil.convertXsdToJrxDoc(BenchmarkMessages.getSchemaUrl(message), "Doc", "Document");
+    }
+}
@@ -17,16 +17,20 @@
 package org.jrtech.common.xsutils;
 
 import java.net.URL;
-import java.util.concurrent.TimeUnit;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 import org.xml.sax.SAXException;
 
-import com.google.common.cache.LoadingCache;
 import com.sun.xml.xsom.XSSchema;
+import com.sun.xml.xsom.XSSchemaSet;
 
 /**
  * The class <code>CacheableJrxXmlModelUtil</code> is a version of JrxXmlModelUtil with schema caching mechanism to
  * reduce I/O processing of the XSD loading.
+ * <p>
+ * Schemas are kept in a {@link SchemaRegistry}, by default the one shared by all instances.
  * 
  */
 public class CacheableJrxXmlModelUtil extends JrxXmlModelUtil {
@@ -35,88 +39,104 @@ public class CacheableJrxXmlModelUtil extends JrxXmlModelUtil {
 
 	public static final String XSD_URL_CACHE_NAME = "xsdUrlCache";
 
-	private static LoadingCache<String, XSSchema> schemaCache = null;
-
-	private static LoadingCache<String, String[]> schemaUrlCache = null;
+	private final SchemaRegistry schemaRegistry;
 
 	public static CacheableJrxXmlModelUtil newInstance() {
 		return new CacheableJrxXmlModelUtil();
 	}
 
+	public static CacheableJrxXmlModelUtil newInstance(SchemaRegistry schemaRegistry) {
+		return new CacheableJrxXmlModelUtil(schemaRegistry);
+	}
+
 	protected CacheableJrxXmlModelUtil() {
+		this(SchemaRegistry.getDefault());
+	}
+
+	protected CacheableJrxXmlModelUtil(SchemaRegistry schemaRegistry) {
 		super();
+		this.schemaRegistry = schemaRegistry;
+	}
+
+	public SchemaRegistry getSchemaRegistry() {
+		return schemaRegistry;
 	}
 
 	@Override
 	public String[] addSchema(URL xmlSchemaUrl) throws SAXException {
-		String[] namespaceUriArray = getSchemaUrlCache().getIfPresent(xmlSchemaUrl.toString());
-		if (namespaceUriArray == null) {
-			namespaceUriArray = super.addSchema(xmlSchemaUrl);
-			getSchemaUrlCache().put(xmlSchemaUrl.toString(), namespaceUriArray);
-			for (String namespaceUri : namespaceUriArray) {
-				XSSchema xsSchema = super.getSchema(namespaceUri);
-				getSchemaCache().put(namespaceUri, xsSchema);
+		String[] namespaceUriArray = schemaRegistry.loadSchemas(xmlSchemaUrl);
+		for (String namespaceUri : namespaceUriArray) {
+			XSSchema xsSchema = schemaRegistry.getSchema(namespaceUri);
+			if (xsSchema != null) {
+				super.addSchema(xsSchema);
 			}
 		}
 
 		return namespaceUriArray;
 	}
 
+	/**
+	 * Load the XML schemas from the given URLs in parallel through the registry, see
+	 * {@link SchemaRegistry#loadSchemas(Collection, ExecutorService)}. The schemas are added once all of them have been
+	 * loaded.
+	 */
 	@Override
-	public String addSchema(XSSchema xsSchema) {
-		String namespaceUri = xsSchema.getTargetNamespace();
-		if (!getSchemaCache().asMap().containsKey(namespaceUri)) {
-			getSchemaCache().put(namespaceUri, xsSchema);
+	public List<SchemaRegistry.Entry> addSchemas(Collection<URL> xmlSchemaUrls, ExecutorService executor)
+			throws SAXException {
+		List<SchemaRegistry.Entry> entryList = schemaRegistry.loadSchemas(xmlSchemaUrls, executor);
+		for (SchemaRegistry.Entry entry : entryList) {
+			for (String namespaceUri : entry.getNamespaceUris()) {
+				XSSchema xsSchema = schemaRegistry.getSchema(namespaceUri);
+				if (xsSchema != null) {
+					super.addSchema(xsSchema);
+				}
+			}
 		}
 
+		return entryList;
+	}
+
+	/**
+	 * Load the schema set from the registry, so that documents created from the same schema reuse the cached
+	 * enriched skeleton document.
+	 */
+	@Override
+	protected XSSchemaSet loadSchemaSet(URL xmlSchemaUrl) throws SAXException {
+		return schemaRegistry.getEntry(xmlSchemaUrl).getSchemaSet();
+	}
+
+	@Override
+	protected boolean isSchemaSetCached() {
+		return true;
+	}
+
+	@Override
+	public String addSchema(XSSchema xsSchema) {
+		schemaRegistry.registerSchema(xsSchema);
+
 		return super.addSchema(xsSchema);
 	}
 
+	/**
+	 * Retrieve the schema from this instance or else from the registry. A schema of the registry is not added to this
+	 * instance, so that the lookup is safe from the worker threads of a parallel validation.
+	 */
 	@Override
 	public XSSchema getSchema(String namespaceUri) {
 		XSSchema xsSchema = super.getSchema(namespaceUri);
 		if (xsSchema != null)
 			return xsSchema;
 
-		xsSchema = getSchemaCache().getIfPresent(namespaceUri);
-		if (xsSchema != null) {
-			super.addSchema(xsSchema);
-		}
-
-		return xsSchema;
+		return schemaRegistry.getSchema(namespaceUri);
 	}
 
 	@Override
 	protected boolean hasSchemas() {
-		return getSchemaCache().size() > 0;
+		return super.hasSchemas() || schemaRegistry.hasSchemas();
 	}
 
 	@Override
 	protected boolean hasSchema(String namespaceUri) {
-		return getSchemaCache().asMap().containsKey(namespaceUri);
-	}
-
-	protected static LoadingCache<String, XSSchema> getSchemaCache() {
-		if (schemaCache != null) {
-			return schemaCache;
-		}
-		
-		synchronized (schemaCache) {
-			schemaCache = CacheUtil.createCache(200, 300, TimeUnit.SECONDS);
-		}
-		
-		return schemaCache;
-	}
-	
-	protected static LoadingCache<String, String[]> getSchemaUrlCache() {
-		if (schemaUrlCache != null) {
-			return schemaUrlCache;
-		}
-		
-		synchronized (schemaUrlCache) {
-			schemaUrlCache = CacheUtil.createCache(200, 300, TimeUnit.SECONDS);
-		}
-		
-		return schemaUrlCache;
+		return super.hasSchema(namespaceUri) || schemaRegistry.hasSchema(namespaceUri);
 	}
 }
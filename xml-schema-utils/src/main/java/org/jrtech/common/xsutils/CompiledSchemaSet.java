@@ -0,0 +1,299 @@
+/*
+ * Copyright (c) 2016-2026 Jumin Rubin
+ * LinkedIn: https://www.linkedin.com/in/juminrubin/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jrtech.common.xsutils;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.xml.sax.SAXException;
+
+import com.sun.xml.xsom.XSContentType;
+import com.sun.xml.xsom.XSElementDecl;
+import com.sun.xml.xsom.XSModelGroup;
+import com.sun.xml.xsom.XSModelGroupDecl;
+import com.sun.xml.xsom.XSParticle;
+import com.sun.xml.xsom.XSSchema;
+import com.sun.xml.xsom.XSSchemaSet;
+import com.sun.xml.xsom.XSSimpleType;
+import com.sun.xml.xsom.XSTerm;
+import com.sun.xml.xsom.XSType;
+
+/**
+ * The class <code>CompiledSchemaSet</code> is an immutable set of parsed XML schemas, one per target namespace, meant
+ * to be shared by all threads of the JVM.
+ * <p>
+ * The schemas are compiled when the set is created: the content model indexes and simple type validators of all
+ * declarations are built and the lazily computed parts of the XSOM components are resolved, so that the schemas are
+ * only read afterwards. The set holds the indexes and validators, they stay in the caches of {@link ContentModelIndex}
+ * and {@link SimpleTypeValidator} as long as the set is referenced, also under memory pressure. The mutable state of processing a document stays in the sessions created by
+ * {@link #newSession()}, which are cheap to create, are not thread-safe and share the schemas without any locking.
+ * Adding schemas creates a new set, see {@link #withSchemaSets(Collection)}.
+ *
+ */
+public final class CompiledSchemaSet {
+
+    private static final CompiledSchemaSet EMPTY_SET = new CompiledSchemaSet(
+            Collections.<String, XSSchema> emptyMap(), Collections.<ContentModelIndex> emptyList(),
+            Collections.<SimpleTypeValidator> emptyList());
+
+    private final Map<String, XSSchema> schemaMap;
+
+    // Held to keep them cached, see the class comment
+    private final List<ContentModelIndex> contentModelIndexes;
+
+    private final List<SimpleTypeValidator> simpleTypeValidators;
+
+    private CompiledSchemaSet(Map<String, XSSchema> schemaMap, List<ContentModelIndex> contentModelIndexes,
+            List<SimpleTypeValidator> simpleTypeValidators) {
+        this.schemaMap = schemaMap;
+        this.contentModelIndexes = contentModelIndexes;
+        this.simpleTypeValidators = simpleTypeValidators;
+    }
+
+    /**
+     * @return the set without any schema
+     */
+    public static CompiledSchemaSet empty() {
+        return EMPTY_SET;
+    }
+
+    /**
+     * Parse and compile the XML schemas from the given URLs. The first schema of a namespace wins, as with
+     * {@link JrxXmlModelUtil#addSchema(URL)}.
+     *
+     * @param xmlSchemaUrls
+     * @return the compiled set
+     * @throws SAXException
+     */
+    public static CompiledSchemaSet compile(URL... xmlSchemaUrls) throws SAXException {
+        List<XSSchemaSet> schemaSetList = new ArrayList<XSSchemaSet>();
+        for (URL xmlSchemaUrl : xmlSchemaUrls) {
+            schemaSetList.add(JrxXmlModelUtil.parseSchemaSet(xmlSchemaUrl));
+        }
+
+        return EMPTY_SET.withSchemaSets(schemaSetList);
+    }
+
+    /**
+     * Compile the schemas currently registered in the given registry. Schemas loaded into the registry later are not
+     * part of the set.
+     *
+     * @param schemaRegistry
+     * @return the compiled set
+     */
+    public static CompiledSchemaSet compile(SchemaRegistry schemaRegistry) {
+        List<XSSchema> schemaList = new ArrayList<XSSchema>();
+        for (String namespaceUri : schemaRegistry.getNamespaceUris()) {
+            XSSchema xsSchema = schemaRegistry.getSchema(namespaceUri);
+            if (xsSchema != null)
+                schemaList.add(xsSchema);
+        }
+
+        return EMPTY_SET.withSchemas(schemaList);
+    }
+
+    /**
+     * @param schemaSets
+     * @return a new set with the schemas of this set and those of the given schema sets in namespaces not yet covered
+     */
+    public CompiledSchemaSet withSchemaSets(Collection<XSSchemaSet> schemaSets) {
+        List<XSSchema> schemaList = new ArrayList<XSSchema>();
+        for (XSSchemaSet schemaSet : schemaSets) {
+            Iterator<XSSchema> it = schemaSet.iterateSchema();
+            while (it.hasNext()) {
+                schemaList.add(it.next());
+            }
+        }
+
+        return withSchemas(schemaList);
+    }
+
+    /**
+     * @param xsSchemas
+     * @return a new set with the schemas of this set and the given schemas in namespaces not yet covered
+     */
+    public CompiledSchemaSet withSchemas(Collection<XSSchema> xsSchemas) {
+        Map<String, XSSchema> schemaMap = new LinkedHashMap<String, XSSchema>(this.schemaMap);
+        List<XSSchema> addedSchemaList = new ArrayList<XSSchema>();
+        for (XSSchema xsSchema : xsSchemas) {
+            if (!schemaMap.containsKey(xsSchema.getTargetNamespace())) {
+                schemaMap.put(xsSchema.getTargetNamespace(), xsSchema);
+                addedSchemaList.add(xsSchema);
+            }
+        }
+        if (addedSchemaList.isEmpty())
+            return this;
+
+        SchemaCompiler schemaCompiler = new SchemaCompiler();
+        schemaCompiler.compile(addedSchemaList);
+
+        List<ContentModelIndex> contentModelIndexes = new ArrayList<ContentModelIndex>(this.contentModelIndexes);
+        contentModelIndexes.addAll(schemaCompiler.contentModelIndexes);
+        List<SimpleTypeValidator> simpleTypeValidators = new ArrayList<SimpleTypeValidator>(
+                this.simpleTypeValidators);
+        simpleTypeValidators.addAll(schemaCompiler.simpleTypeValidators);
+
+        return new CompiledSchemaSet(Collections.unmodifiableMap(schemaMap), contentModelIndexes,
+                simpleTypeValidators);
+    }
+
+    /**
+     * @param namespaceUri
+     * @return the schema of the namespace, or null when the set does not contain it
+     */
+    public XSSchema getSchema(String namespaceUri) {
+        return schemaMap.get(namespaceUri);
+    }
+
+    public boolean hasSchema(String namespaceUri) {
+        return schemaMap.containsKey(namespaceUri);
+    }
+
+    public boolean isEmpty() {
+        return schemaMap.isEmpty();
+    }
+
+    /**
+     * @return the target namespace URI of all schemas in the order they were added
+     */
+    public Set<String> getNamespaceUris() {
+        return schemaMap.keySet();
+    }
+
+    /**
+     * @return the schemas per target namespace, unmodifiable
+     */
+    Map<String, XSSchema> getSchemaMap() {
+        return schemaMap;
+    }
+
+    /**
+     * Create a session processing documents with the schemas of this set. A session is a {@link JrxXmlModelUtil}
+     * holding the state of the documents it processes, to be used by a single thread at a time.
+     *
+     * @return the new session
+     */
+    public JrxXmlModelUtil newSession() {
+        return JrxXmlModelUtil.newInstance(this);
+    }
+
+    @Override
+    public String toString() {
+        return "CompiledSchemaSet" + schemaMap.keySet();
+    }
+
+    /**
+     * Walks through the declarations of the schemas, building everything the processing otherwise builds on first
+     * use.
+     */
+    private static class SchemaCompiler {
+
+        private final Map<Object, Boolean> visitedMap = new IdentityHashMap<Object, Boolean>();
+
+        private final List<ContentModelIndex> contentModelIndexes = new ArrayList<ContentModelIndex>();
+
+        private final List<SimpleTypeValidator> simpleTypeValidators = new ArrayList<SimpleTypeValidator>();
+
+        private void compile(Collection<XSSchema> xsSchemas) {
+            for (XSSchema xsSchema : xsSchemas) {
+                for (XSType xsType : xsSchema.getTypes().values()) {
+                    compileType(xsType);
+                }
+                for (XSElementDecl xsElement : xsSchema.getElementDecls().values()) {
+                    compileElement(xsElement);
+                }
+                for (XSModelGroupDecl xsModelGroupDecl : xsSchema.getModelGroupDecls().values()) {
+                    compileModelGroup(xsModelGroupDecl.getModelGroup());
+                }
+            }
+        }
+
+        private boolean visit(Object xsComponent) {
+            return xsComponent != null && visitedMap.put(xsComponent, Boolean.TRUE) == null;
+        }
+
+        private void compileElement(XSElementDecl xsElement) {
+            if (!visit(xsElement))
+                return;
+
+            // Computed and kept by XSOM on first call
+            if (xsElement.isGlobal())
+                xsElement.getSubstitutables();
+            compileType(xsElement.getType());
+        }
+
+        private void compileType(XSType xsType) {
+            if (!visit(xsType))
+                return;
+
+            if (xsType.isSimpleType()) {
+                compileSimpleType(xsType.asSimpleType());
+            } else {
+                XSContentType xsContentType = xsType.asComplexType().getContentType();
+                if (xsContentType.asSimpleType() != null) {
+                    compileSimpleType(xsContentType.asSimpleType());
+                } else if (xsContentType.asParticle() != null) {
+                    compileParticle(xsContentType.asParticle());
+                }
+            }
+        }
+
+        private void compileSimpleType(XSSimpleType xsSimpleType) {
+            SimpleTypeValidator simpleTypeValidator = SimpleTypeValidator.getInstance(xsSimpleType);
+            if (simpleTypeValidator != null)
+                simpleTypeValidators.add(simpleTypeValidator);
+            if (xsSimpleType.isList()) {
+                compileType(xsSimpleType.asList().getItemType());
+            } else if (xsSimpleType.isUnion()) {
+                for (int i = 0; i < xsSimpleType.asUnion().getMemberSize(); i++) {
+                    compileType(xsSimpleType.asUnion().getMember(i));
+                }
+            }
+        }
+
+        private void compileParticle(XSParticle xsParticle) {
+            XSTerm xsTerm = xsParticle.getTerm();
+            if (xsTerm.isElementDecl()) {
+                compileElement(xsTerm.asElementDecl());
+            } else if (xsTerm.isModelGroupDecl()) {
+                compileModelGroup(xsTerm.asModelGroupDecl().getModelGroup());
+            } else if (xsTerm.isModelGroup()) {
+                compileModelGroup(xsTerm.asModelGroup());
+            }
+        }
+
+        private void compileModelGroup(XSModelGroup xsModelGroup) {
+            if (!visit(xsModelGroup))
+                return;
+
+            ContentModelIndex contentModelIndex = ContentModelIndex.getInstance(xsModelGroup);
+            if (contentModelIndex != null)
+                contentModelIndexes.add(contentModelIndex);
+            for (XSParticle xsChildParticle : xsModelGroup.getChildren()) {
+                compileParticle(xsChildParticle);
+            }
+        }
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ * Copyright (c) 2016-2026 Jumin Rubin
+ * LinkedIn: https://www.linkedin.com/in/juminrubin/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jrtech.common.xsutils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.sun.xml.xsom.XSElementDecl;
+import com.sun.xml.xsom.XSModelGroup;
+import com.sun.xml.xsom.XSModelGroupDecl;
+import com.sun.xml.xsom.XSParticle;
+import com.sun.xml.xsom.XSTerm;
+
+/**
+ * The class <code>ContentModelIndex</code> is an immutable lookup table of the element particles reachable from a
+ * model group, i.e. the content model of a complex type.
+ * <p>
+ * The index is compiled once per model group and kept while the owning schema set is referenced and the memory
+ * allows it, so that locating a child element by name does not walk the XSOM model groups again. The traversal order
+ * is the same as {@link JrxXmlModelUtil#getXsParticlePathFromParentBlockByElementName(XSModelGroup, String)}: nested
+ * model groups are followed, model group declarations are not.
+ *
+ */
+public final class ContentModelIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ContentModelIndex.class);
+
+    // Soft values, as the indexes refer to their key
+    private static final LoadingCache<XSModelGroup, ContentModelIndex> INDEX_CACHE = CacheBuilder.newBuilder()
+            .weakKeys().softValues().build(new CacheLoader<XSModelGroup, ContentModelIndex>() {
+                @Override
+                public ContentModelIndex load(XSModelGroup xsModelGroup) {
+                    PhaseRecorder.countParticleLookupMiss();
+                    return new ContentModelIndex(xsModelGroup);
+                }
+            });
+
+    private final XSModelGroup xsModelGroup;
+
+    private final Map<String, Entry> nameEntryMap;
+
+    private final Map<String, XSParticle> directNameParticleMap;
+
+    private final Map<XSElementDecl, XSParticle> directDeclarationParticleMap;
+
+    private final Map<XSElementDecl, XSParticle> lastDirectDeclarationParticleMap;
+
+    private final Map<XSElementDecl, Boolean> declarationMap;
+
+    /**
+     * Get the index of the given model group, compiling it on first use.
+     *
+     * @param xsModelGroup
+     * @return the index, or null when no model group is given
+     */
+    public static ContentModelIndex getInstance(XSModelGroup xsModelGroup) {
+        if (xsModelGroup == null)
+            return null;
+
+        PhaseRecorder.countParticleLookup();
+        return INDEX_CACHE.getUnchecked(xsModelGroup);
+    }
+
+    private ContentModelIndex(XSModelGroup xsModelGroup) {
+        this.xsModelGroup = xsModelGroup;
+
+        Map<String, Entry> nameEntryMap = new HashMap<String, Entry>();
+        Map<String, XSParticle> directNameParticleMap = new HashMap<String, XSParticle>();
+        Map<XSElementDecl, XSParticle> directDeclarationParticleMap = new IdentityHashMap<XSElementDecl, XSParticle>();
+        Map<XSElementDecl, XSParticle> lastDirectDeclarationParticleMap = new IdentityHashMap<XSElementDecl, XSParticle>();
+        Map<XSElementDecl, Boolean> declarationMap = new IdentityHashMap<XSElementDecl, Boolean>();
+
+        for (XSParticle xsChildParticle : xsModelGroup.getChildren()) {
+            XSTerm xsChildTerm = xsChildParticle.getTerm();
+            if (xsChildTerm instanceof XSElementDecl) {
+                XSElementDecl xsChildElement = xsChildTerm.asElementDecl();
+                if (!directNameParticleMap.containsKey(xsChildElement.getName()))
+                    directNameParticleMap.put(xsChildElement.getName(), xsChildParticle);
+                if (!directDeclarationParticleMap.containsKey(xsChildElement))
+                    directDeclarationParticleMap.put(xsChildElement, xsChildParticle);
+                lastDirectDeclarationParticleMap.put(xsChildElement, xsChildParticle);
+            }
+        }
+
+        XSParticle[] xsChildParticles = xsModelGroup.getChildren();
+        for (int i = 0; i < xsChildParticles.length; i++) {
+            List<XSParticle> xsParentPath = new ArrayList<XSParticle>();
+            collect(xsChildParticles[i], i, xsParentPath, xsModelGroup.getCompositor() == XSModelGroup.CHOICE,
+                    nameEntryMap, declarationMap);
+        }
+
+        this.nameEntryMap = Collections.unmodifiableMap(nameEntryMap);
+        this.directNameParticleMap = Collections.unmodifiableMap(directNameParticleMap);
+        this.directDeclarationParticleMap = Collections.unmodifiableMap(directDeclarationParticleMap);
+        this.lastDirectDeclarationParticleMap = Collections.unmodifiableMap(lastDirectDeclarationParticleMap);
+        this.declarationMap = Collections.unmodifiableMap(declarationMap);
+    }
+
+    private static void collect(XSParticle xsChildParticle, int childIndex, List<XSParticle> xsParentPath,
+            boolean inChoice, Map<String, Entry> nameEntryMap, Map<XSElementDecl, Boolean> declarationMap) {
+        XSTerm xsChildTerm = xsChildParticle.getTerm();
+        if (xsChildTerm instanceof XSElementDecl) {
+            XSElementDecl xsChildElement = xsChildTerm.asElementDecl();
+            declarationMap.put(xsChildElement, Boolean.TRUE);
+            if (!nameEntryMap.containsKey(xsChildElement.getName())) {
+                List<XSParticle> xsPath = new ArrayList<XSParticle>(xsParentPath);
+                xsPath.add(xsChildParticle);
+                nameEntryMap.put(xsChildElement.getName(),
+                        new Entry(xsPath.toArray(new XSParticle[xsPath.size()]), childIndex, inChoice));
+            }
+        } else if (xsChildTerm instanceof XSModelGroup) {
+            XSModelGroup xsChildModelGroup = xsChildTerm.asModelGroup();
+            xsParentPath.add(xsChildParticle);
+            boolean childInChoice = inChoice || xsChildModelGroup.getCompositor() == XSModelGroup.CHOICE;
+            for (XSParticle xsGrandChildParticle : xsChildModelGroup.getChildren()) {
+                collect(xsGrandChildParticle, childIndex, xsParentPath, childInChoice, nameEntryMap, declarationMap);
+            }
+            xsParentPath.remove(xsParentPath.size() - 1);
+        } else if (xsChildTerm instanceof XSModelGroupDecl) {
+            // Not yet supported!
+        } else {
+            log.info("Unhandled XSTerm: " + xsChildTerm);
+        }
+    }
+
+    public XSModelGroup getModelGroup() {
+        return xsModelGroup;
+    }
+
+    /**
+     * @param simpleTagName
+     * @return the first element with the given name in document order, or null when the content model does not
+     *         contain it
+     */
+    public Entry getEntry(String simpleTagName) {
+        return nameEntryMap.get(simpleTagName);
+    }
+
+    public boolean containsElement(String simpleTagName) {
+        return nameEntryMap.containsKey(simpleTagName);
+    }
+
+    public boolean containsElement(XSElementDecl xsElementDecl) {
+        return declarationMap.containsKey(xsElementDecl);
+    }
+
+    /**
+     * @param simpleTagName
+     * @return the first particle with the given element name among the direct children of the model group
+     */
+    public XSParticle getDirectParticle(String simpleTagName) {
+        return directNameParticleMap.get(simpleTagName);
+    }
+
+    /**
+     * @param xsElementDecl
+     * @return the first particle of the element declaration among the direct children of the model group
+     */
+    public XSParticle getDirectParticle(XSElementDecl xsElementDecl) {
+        return directDeclarationParticleMap.get(xsElementDecl);
+    }
+
+    /**
+     * @param xsElementDecl
+     * @return the last particle of the element declaration among the direct children of the model group
+     */
+    public XSParticle getLastDirectParticle(XSElementDecl xsElementDecl) {
+        return lastDirectDeclarationParticleMap.get(xsElementDecl);
+    }
+
+    /**
+     * @param simpleTagName
+     * @return the particle path from the model group down to the element, empty when the element is not found
+     */
+    public XSParticle[] getParticlePath(String simpleTagName) {
+        Entry entry = nameEntryMap.get(simpleTagName);
+        if (entry == null)
+            return new XSParticle[] {};
+
+        return entry.getParticlePath();
+    }
+
+    /**
+     * @param simpleTagName
+     * @return index of the direct child particle of the model group which contains the element, -1 when the element
+     *         is not found
+     */
+    public int getChildIndex(String simpleTagName) {
+        Entry entry = nameEntryMap.get(simpleTagName);
+        if (entry == null)
+            return -1;
+
+        return entry.getChildIndex();
+    }
+
+    public int size() {
+        return nameEntryMap.size();
+    }
+
+    /**
+     * The class <code>Entry</code> describes a single element reachable from the indexed model group.
+     *
+     */
+    public static final class Entry {
+
+        private final XSParticle[] xsParticlePath;
+
+        private final int childIndex;
+
+        private final boolean choiceMember;
+
+        private Entry(XSParticle[] xsParticlePath, int childIndex, boolean choiceMember) {
+            this.xsParticlePath = xsParticlePath;
+            this.childIndex = childIndex;
+            this.choiceMember = choiceMember;
+        }
+
+        public XSParticle getParticle() {
+            return xsParticlePath[xsParticlePath.length - 1];
+        }
+
+        public XSElementDecl getElementDeclaration() {
+            return getParticle().getTerm().asElementDecl();
+        }
+
+        /**
+         * @return copy of the particle path, the last particle is the element itself
+         */
+        public XSParticle[] getParticlePath() {
+            return xsParticlePath.clone();
+        }
+
+        /**
+         * @return true when the element is a direct child of the indexed model group
+         */
+        public boolean isDirect() {
+            return xsParticlePath.length == 1;
+        }
+
+        /**
+         * @return index of the direct child particle of the indexed model group, i.e. of the first particle on the
+         *         path
+         */
+        public int getChildIndex() {
+            return childIndex;
+        }
+
+        /**
+         * @return true when the indexed model group or any nested group on the path is a choice
+         */
+        public boolean isChoiceMember() {
+            return choiceMember;
+        }
+
+        public int getMinOccurs() {
+            return getParticle().getMinOccurs().intValue();
+        }
+
+        /**
+         * @return maximum occurrences, -1 for unbounded
+         */
+        public int getMaxOccurs() {
+            return getParticle().getMaxOccurs().intValue();
+        }
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2016-2026 Jumin Rubin
+ * LinkedIn: https://www.linkedin.com/in/juminrubin/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jrtech.common.xsutils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jrtech.common.xsutils.model.JrxChoiceGroup;
+import org.jrtech.common.xsutils.model.JrxDocument;
+import org.jrtech.common.xsutils.model.JrxElement;
+import org.jrtech.common.xsutils.model.JrxElementGroup;
+import org.jrtech.common.xsutils.model.JrxTerm;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * The class <code>IncrementalValidationContext</code> keeps the validation result of every element of a Jrx document
+ * between two runs of {@link JrxXmlModelUtil#revalidate(JrxDocument)}.
+ * <p>
+ * A cached result is used as long as the element is not dirty, see {@link JrxTerm#isDirty()}. Modifications of the
+ * Jrx model mark the terms dirty by themselves, modifications made directly on the XML document have to be marked,
+ * see {@link #markDirty(JrxDocument, Node)}. The context is attached to the XML document as user data, hence it lives
+ * as long as the document unless it is detached before. A run holds the lock of the context.
+ *
+ */
+class IncrementalValidationContext {
+
+    private static final String USER_DATA_KEY = IncrementalValidationContext.class.getName();
+
+    // Guards attaching and detaching the contexts
+    private static final Object ATTACHMENT_LOCK = new Object();
+
+    private final Map<JrxElement, ElementState> elementStateMap = new IdentityHashMap<JrxElement, ElementState>();
+
+    // The document has been enriched and validated once
+    private boolean initialized;
+
+    private IncrementalValidationContext() {
+    }
+
+    /**
+     * @param jrxDocument
+     * @return the context attached to the XML document, null when the document has not been validated incrementally
+     */
+    static IncrementalValidationContext get(JrxDocument jrxDocument) {
+        Document xmlDocument = jrxDocument.getXmlDocument();
+        if (xmlDocument == null)
+            return null;
+
+        return (IncrementalValidationContext) xmlDocument.getUserData(USER_DATA_KEY);
+    }
+
+    /**
+     * Get the context attached to the XML document of the Jrx document, attaching a new one if there is none.
+     *
+     * @param jrxDocument
+     * @return the context, null when the Jrx document has no XML document
+     */
+    static IncrementalValidationContext attach(JrxDocument jrxDocument) {
+        Document xmlDocument = jrxDocument.getXmlDocument();
+        if (xmlDocument == null)
+            return null;
+
+        synchronized (ATTACHMENT_LOCK) {
+            IncrementalValidationContext context = get(jrxDocument);
+            if (context == null) {
+                context = new IncrementalValidationContext();
+                xmlDocument.setUserData(USER_DATA_KEY, context, null);
+            }
+
+            return context;
+        }
+    }
+
+    /**
+     * Remove the context from the XML document of the Jrx document, the next run validates the whole document again.
+     *
+     * @param jrxDocument
+     * @return true when a context was attached
+     */
+    static boolean detach(JrxDocument jrxDocument) {
+        Document xmlDocument = jrxDocument.getXmlDocument();
+        if (xmlDocument == null)
+            return false;
+
+        synchronized (ATTACHMENT_LOCK) {
+            return xmlDocument.setUserData(USER_DATA_KEY, null, null) != null;
+        }
+    }
+
+    /**
+     * Mark the Jrx element of the given XML node dirty, or the closest enclosing one when the node is not an element
+     * of the Jrx model, e.g. a text node or an attribute.
+     *
+     * @param jrxDocument
+     * @param xmlNode
+     * @return the element marked dirty, null when the node is not part of the Jrx document
+     */
+    static JrxElement markDirty(JrxDocument jrxDocument, Node xmlNode) {
+        if (xmlNode instanceof Attr) {
+            xmlNode = ((Attr) xmlNode).getOwnerElement();
+        }
+
+        while (xmlNode != null) {
+            if (xmlNode instanceof Element) {
+                JrxElement jrxElement = jrxDocument.get((Element) xmlNode);
+                if (jrxElement != null) {
+                    jrxElement.markDirty();
+                    return jrxElement;
+                }
+            }
+            xmlNode = xmlNode.getParentNode();
+        }
+
+        return null;
+    }
+
+    boolean isInitialized() {
+        return initialized;
+    }
+
+    void setInitialized() {
+        initialized = true;
+    }
+
+    /**
+     * @param jrxElement
+     * @return the cached result of {@link JrxXmlModelUtil#validateElement(JrxElement, String)}, null when the element
+     *         is dirty or has not been validated yet
+     */
+    List<XmlValidationError> getValidationResult(JrxElement jrxElement) {
+        if (jrxElement.isDirty())
+            return null;
+
+        ElementState state = elementStateMap.get(jrxElement);
+        return state == null ? null : state.validationResult;
+    }
+
+    /**
+     * Cache the validation result of the element and mark it, together with the groups of its children block, as
+     * validated.
+     *
+     * @param jrxElement
+     * @param validationResult
+     */
+    void putValidationResult(JrxElement jrxElement, List<XmlValidationError> validationResult) {
+        getState(jrxElement).validationResult = Collections.unmodifiableList(new ArrayList<XmlValidationError>(
+                validationResult));
+
+        jrxElement.clearDirty();
+        clearDirty(jrxElement.getChildrenBlock());
+    }
+
+    private static void clearDirty(JrxElementGroup jrxElementGroup) {
+        if (jrxElementGroup == null)
+            return;
+
+        jrxElementGroup.clearDirty();
+        if (jrxElementGroup instanceof JrxChoiceGroup) {
+            JrxTerm<?> jrxSelection = ((JrxChoiceGroup) jrxElementGroup).getSelection();
+            if (jrxSelection instanceof JrxElementGroup) {
+                clearDirty((JrxElementGroup) jrxSelection);
+            }
+        } else {
+            for (JrxTerm<?> jrxTerm : jrxElementGroup.getElements()) {
+                if (jrxTerm instanceof JrxElementGroup) {
+                    clearDirty((JrxElementGroup) jrxTerm);
+                }
+            }
+        }
+    }
+
+    /**
+     * Same as {@link JrxElement#isEmpty()}, the text content of an element which is not dirty is only read once.
+     *
+     * @param jrxElement
+     * @return true when the element does not have any text content
+     */
+    boolean isEmpty(JrxElement jrxElement) {
+        ElementState state = elementStateMap.get(jrxElement);
+        if (state != null && state.empty != null && !jrxElement.isDirty()) {
+            return state.empty.booleanValue();
+        }
+
+        boolean empty = jrxElement.isEmpty();
+        getState(jrxElement).empty = Boolean.valueOf(empty);
+
+        return empty;
+    }
+
+    private ElementState getState(JrxElement jrxElement) {
+        ElementState state = elementStateMap.get(jrxElement);
+        if (state == null) {
+            state = new ElementState();
+            elementStateMap.put(jrxElement, state);
+        }
+
+        return state;
+    }
+
+    /**
+     * Remove the cached state of elements which are not part of the document anymore. It is done when the cache has
+     * grown to twice the number of elements in the document.
+     *
+     * @param jrxDocument
+     */
+    void purge(JrxDocument jrxDocument) {
+        if (elementStateMap.size() <= 2 * jrxDocument.getElements().size())
+            return;
+
+        Set<JrxElement> jrxElements = Collections.newSetFromMap(new IdentityHashMap<JrxElement, Boolean>());
+        jrxElements.addAll(jrxDocument.getElements());
+        elementStateMap.keySet().retainAll(jrxElements);
+    }
+
+    int size() {
+        return elementStateMap.size();
+    }
+
+    private static class ElementState {
+
+        private List<XmlValidationError> validationResult;
+
+        private Boolean empty;
+    }
+}
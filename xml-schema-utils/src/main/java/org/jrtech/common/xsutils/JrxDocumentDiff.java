@@ -0,0 +1,619 @@
+/*
+ * Copyright (c) 2016-2026 Jumin Rubin
+ * LinkedIn: https://www.linkedin.com/in/juminrubin/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jrtech.common.xsutils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import javax.xml.XMLConstants;
+
+import org.jrtech.common.xsutils.model.JrxChoiceGroup;
+import org.jrtech.common.xsutils.model.JrxDocument;
+import org.jrtech.common.xsutils.model.JrxElement;
+import org.jrtech.common.xsutils.model.JrxElementGroup;
+import org.jrtech.common.xsutils.model.JrxGroup;
+import org.jrtech.common.xsutils.model.JrxTerm;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * The class <code>JrxDocumentDiff</code> compares an original and a revised Jrx document and produces the edit
+ * script turning the original into the revised one, as a list of added, removed and changed paths.
+ * <p>
+ * Each document is reduced once to a tree of its non-empty elements, each with a content hash of its subtree, so that
+ * identical subtrees are skipped with a single comparison. Empty elements, e.g. the optional elements added by the
+ * enrichment, are ignored, as are the namespace declarations and the whitespace around values.
+ * <p>
+ * The children of two matched elements are aligned per schema position, see {@link JrxTerm#getScopedNameHashCode()},
+ * and by element name where the positions differ. Repeated elements are aligned by their key fields when configured,
+ * see {@link #setKeyFields(String, String...)}, then by identical content and finally by their order. A configured
+ * instance may be used by several threads.
+ *
+ */
+public class JrxDocumentDiff {
+
+    public enum ChangeType {
+        ADDED, REMOVED, CHANGED
+    }
+
+    /**
+     * A single entry of the edit script.
+     */
+    public static final class Change {
+
+        private final ChangeType type;
+
+        private final String path;
+
+        private final JrxElement originalElement;
+
+        private final JrxElement revisedElement;
+
+        private final String originalValue;
+
+        private final String revisedValue;
+
+        Change(ChangeType type, String path, JrxElement originalElement, JrxElement revisedElement,
+                String originalValue, String revisedValue) {
+            this.type = type;
+            this.path = path;
+            this.originalElement = originalElement;
+            this.revisedElement = revisedElement;
+            this.originalValue = originalValue;
+            this.revisedValue = revisedValue;
+        }
+
+        public ChangeType getType() {
+            return type;
+        }
+
+        /**
+         * @return path of the element or attribute, e.g. <code>/Document/SbcptOrdr/OwnrId[2]/BICOrBEI</code>, in the
+         *         revised document unless removed. Repeated siblings have their position among the siblings of the same
+         *         name.
+         */
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * @return the element in the original document, for an attribute its owner, null when added
+         */
+        public JrxElement getOriginalElement() {
+            return originalElement;
+        }
+
+        /**
+         * @return the element in the revised document, for an attribute its owner, null when removed
+         */
+        public JrxElement getRevisedElement() {
+            return revisedElement;
+        }
+
+        /**
+         * @return the original value of a simple element or attribute, null otherwise
+         */
+        public String getOriginalValue() {
+            return originalValue;
+        }
+
+        /**
+         * @return the revised value of a simple element or attribute, null otherwise
+         */
+        public String getRevisedValue() {
+            return revisedValue;
+        }
+
+        @Override
+        public String toString() {
+            switch (type) {
+            case ADDED:
+                return "+ " + path + (revisedValue == null ? "" : " = '" + revisedValue + "'");
+            case REMOVED:
+                return "- " + path + (originalValue == null ? "" : " = '" + originalValue + "'");
+            default:
+                return "~ " + path + ": '" + originalValue + "' -> '" + revisedValue + "'";
+            }
+        }
+    }
+
+    private static final HashFunction CONTENT_HASH_FUNCTION = Hashing.murmur3_128();
+
+    private static final String ATTRIBUTE_PREFIX = "@";
+
+    private static final String PATH_SEPARATOR = "/";
+
+    private final Map<String, String[]> keyFieldMap = new HashMap<String, String[]>();
+
+    public static JrxDocumentDiff newInstance() {
+        return new JrxDocumentDiff();
+    }
+
+    /**
+     * Align the repeated elements of the given name by the values of the given fields. Elements with the same key
+     * values are compared with each other, the others are reported as removed and added.
+     *
+     * @param elementName
+     *            simple name of the repeated element, e.g. <code>OwnrId</code>
+     * @param keyFieldPaths
+     *            paths of the key fields relative to the element, e.g. <code>Id/Prtry/Id</code>, or
+     *            <code>@name</code> for an attribute; none to remove the key fields
+     */
+    public void setKeyFields(String elementName, String... keyFieldPaths) {
+        if (keyFieldPaths == null || keyFieldPaths.length == 0) {
+            keyFieldMap.remove(elementName);
+        } else {
+            keyFieldMap.put(elementName, keyFieldPaths.clone());
+        }
+    }
+
+    /**
+     * @param elementName
+     * @return the key fields of the element, empty when none are configured
+     */
+    public List<String> getKeyFields(String elementName) {
+        String[] keyFieldPaths = keyFieldMap.get(elementName);
+        if (keyFieldPaths == null)
+            return Collections.emptyList();
+
+        return Collections.unmodifiableList(Arrays.asList(keyFieldPaths));
+    }
+
+    /**
+     * Compare the given documents.
+     *
+     * @param originalDocument
+     *            may be null, i.e. the revised document is added
+     * @param revisedDocument
+     *            may be null, i.e. the original document is removed
+     * @return the edit script, empty when the documents are equal
+     */
+    public List<Change> compare(JrxDocument originalDocument, JrxDocument revisedDocument) {
+        List<Change> changes = new ArrayList<Change>();
+
+        DiffNode originalRoot = buildRootNode(originalDocument);
+        DiffNode revisedRoot = buildRootNode(revisedDocument);
+        if (originalRoot != null && revisedRoot != null && originalRoot.name.equals(revisedRoot.name)) {
+            compareNodes(originalRoot, PATH_SEPARATOR + originalRoot.name, revisedRoot, PATH_SEPARATOR
+                    + revisedRoot.name, changes);
+            return changes;
+        }
+
+        if (originalRoot != null)
+            changes.add(new Change(ChangeType.REMOVED, PATH_SEPARATOR + originalRoot.name, originalRoot.jrxElement,
+                    null, originalRoot.value, null));
+        if (revisedRoot != null)
+            changes.add(new Change(ChangeType.ADDED, PATH_SEPARATOR + revisedRoot.name, null, revisedRoot.jrxElement,
+                    null, revisedRoot.value));
+
+        return changes;
+    }
+
+    private void compareNodes(DiffNode originalNode, String originalPath, DiffNode revisedNode, String revisedPath,
+            List<Change> changes) {
+        if (originalNode.contentHash == revisedNode.contentHash)
+            return;
+
+        TreeSet<String> attributeNames = new TreeSet<String>(originalNode.attributeMap.keySet());
+        attributeNames.addAll(revisedNode.attributeMap.keySet());
+        for (String attributeName : attributeNames) {
+            String originalValue = originalNode.attributeMap.get(attributeName);
+            String revisedValue = revisedNode.attributeMap.get(attributeName);
+            if (originalValue == null) {
+                changes.add(new Change(ChangeType.ADDED, revisedPath + PATH_SEPARATOR + ATTRIBUTE_PREFIX
+                        + attributeName, null, revisedNode.jrxElement, null, revisedValue));
+            } else if (revisedValue == null) {
+                changes.add(new Change(ChangeType.REMOVED, originalPath + PATH_SEPARATOR + ATTRIBUTE_PREFIX
+                        + attributeName, originalNode.jrxElement, null, originalValue, null));
+            } else if (!originalValue.equals(revisedValue)) {
+                changes.add(new Change(ChangeType.CHANGED, revisedPath + PATH_SEPARATOR + ATTRIBUTE_PREFIX
+                        + attributeName, originalNode.jrxElement, revisedNode.jrxElement, originalValue,
+                        revisedValue));
+            }
+        }
+
+        if (originalNode.value == null ? revisedNode.value != null : !originalNode.value.equals(revisedNode.value)) {
+            changes.add(new Change(ChangeType.CHANGED, revisedPath, originalNode.jrxElement, revisedNode.jrxElement,
+                    originalNode.value, revisedNode.value));
+        }
+
+        compareChildren(originalNode, originalPath, revisedNode, revisedPath, changes);
+    }
+
+    private void compareChildren(DiffNode originalNode, String originalPath, DiffNode revisedNode,
+            String revisedPath, List<Change> changes) {
+        Map<DiffNode, String> originalPathMap = getChildPaths(originalNode, originalPath);
+        Map<DiffNode, String> revisedPathMap = getChildPaths(revisedNode, revisedPath);
+
+        // Align per schema position, then the remaining ones per name
+        Map<Long, List<DiffNode>> originalSlotMap = groupBySlot(originalNode.children);
+        Map<Long, List<DiffNode>> revisedSlotMap = groupBySlot(revisedNode.children);
+        List<DiffNode> unmatchedOriginals = new ArrayList<DiffNode>();
+        for (Map.Entry<Long, List<DiffNode>> slotEntry : originalSlotMap.entrySet()) {
+            List<DiffNode> revisedSlot = revisedSlotMap.remove(slotEntry.getKey());
+            if (revisedSlot == null) {
+                unmatchedOriginals.addAll(slotEntry.getValue());
+            } else {
+                alignSiblings(slotEntry.getValue(), originalPathMap, revisedSlot, revisedPathMap, changes);
+            }
+        }
+        List<DiffNode> unmatchedRevisions = new ArrayList<DiffNode>();
+        for (List<DiffNode> revisedSlot : revisedSlotMap.values()) {
+            unmatchedRevisions.addAll(revisedSlot);
+        }
+        if (unmatchedOriginals.isEmpty() && unmatchedRevisions.isEmpty())
+            return;
+
+        Map<String, List<DiffNode>> originalNameMap = groupByName(unmatchedOriginals);
+        Map<String, List<DiffNode>> revisedNameMap = groupByName(unmatchedRevisions);
+        for (Map.Entry<String, List<DiffNode>> nameEntry : originalNameMap.entrySet()) {
+            List<DiffNode> revisedSiblings = revisedNameMap.remove(nameEntry.getKey());
+            alignSiblings(nameEntry.getValue(), originalPathMap, revisedSiblings == null ? Collections
+                    .<DiffNode> emptyList() : revisedSiblings, revisedPathMap, changes);
+        }
+        for (List<DiffNode> revisedSiblings : revisedNameMap.values()) {
+            alignSiblings(Collections.<DiffNode> emptyList(), originalPathMap, revisedSiblings, revisedPathMap,
+                    changes);
+        }
+    }
+
+    /**
+     * Align siblings of the same schema position or name: by key fields, by identical content, then by order.
+     */
+    private void alignSiblings(List<DiffNode> originals, Map<DiffNode, String> originalPathMap,
+            List<DiffNode> revisions, Map<DiffNode, String> revisedPathMap, List<Change> changes) {
+        DiffNode[] matches = new DiffNode[originals.size()];
+        boolean[] revisionMatched = new boolean[revisions.size()];
+
+        if (originals.size() == 1 && revisions.size() == 1) {
+            matches[0] = revisions.get(0);
+            revisionMatched[0] = true;
+        } else if (!originals.isEmpty() && !revisions.isEmpty()) {
+            String[] keyFieldPaths = keyFieldMap.get(originals.get(0).getSimpleName());
+            if (keyFieldPaths != null) {
+                Map<String, Queue<Integer>> keyIndexMap = new HashMap<String, Queue<Integer>>();
+                for (int i = 0; i < revisions.size(); i++) {
+                    String key = revisions.get(i).getKey(keyFieldPaths);
+                    if (key != null)
+                        enqueue(keyIndexMap, key, i);
+                }
+                for (int i = 0; i < originals.size(); i++) {
+                    String key = originals.get(i).getKey(keyFieldPaths);
+                    if (key != null)
+                        match(i, keyIndexMap.get(key), originals, revisions, matches, revisionMatched);
+                }
+            }
+
+            Map<Long, Queue<Integer>> hashIndexMap = new HashMap<Long, Queue<Integer>>();
+            for (int i = 0; i < revisions.size(); i++) {
+                if (!revisionMatched[i])
+                    enqueue(hashIndexMap, revisions.get(i).contentHash, i);
+            }
+            for (int i = 0; i < originals.size(); i++) {
+                if (matches[i] == null)
+                    match(i, hashIndexMap.get(originals.get(i).contentHash), originals, revisions, matches,
+                            revisionMatched);
+            }
+
+            // By order, except elements of different keys
+            int revisionIndex = 0;
+            for (int i = 0; i < originals.size(); i++) {
+                if (matches[i] != null || (keyFieldPaths != null && originals.get(i).getKey(keyFieldPaths) != null))
+                    continue;
+                while (revisionIndex < revisions.size() && (revisionMatched[revisionIndex] || (keyFieldPaths != null
+                        && revisions.get(revisionIndex).getKey(keyFieldPaths) != null)))
+                    revisionIndex++;
+                if (revisionIndex == revisions.size())
+                    break;
+                matches[i] = revisions.get(revisionIndex);
+                revisionMatched[revisionIndex] = true;
+            }
+        }
+
+        for (int i = 0; i < originals.size(); i++) {
+            DiffNode originalNode = originals.get(i);
+            if (matches[i] == null) {
+                changes.add(new Change(ChangeType.REMOVED, originalPathMap.get(originalNode),
+                        originalNode.jrxElement, null, originalNode.value, null));
+            } else {
+                compareNodes(originalNode, originalPathMap.get(originalNode), matches[i], revisedPathMap.get(
+                        matches[i]), changes);
+            }
+        }
+        for (int i = 0; i < revisions.size(); i++) {
+            if (!revisionMatched[i]) {
+                DiffNode revisedNode = revisions.get(i);
+                changes.add(new Change(ChangeType.ADDED, revisedPathMap.get(revisedNode), null,
+                        revisedNode.jrxElement, null, revisedNode.value));
+            }
+        }
+    }
+
+    private static void match(int originalIndex, Queue<Integer> revisionIndexes, List<DiffNode> originals,
+            List<DiffNode> revisions, DiffNode[] matches, boolean[] revisionMatched) {
+        if (revisionIndexes == null)
+            return;
+
+        while (!revisionIndexes.isEmpty()) {
+            int revisionIndex = revisionIndexes.poll();
+            if (!revisionMatched[revisionIndex]) {
+                matches[originalIndex] = revisions.get(revisionIndex);
+                revisionMatched[revisionIndex] = true;
+                return;
+            }
+        }
+    }
+
+    private static <K> void enqueue(Map<K, Queue<Integer>> indexMap, K key, int index) {
+        Queue<Integer> indexes = indexMap.get(key);
+        if (indexes == null) {
+            indexes = new ArrayDeque<Integer>();
+            indexMap.put(key, indexes);
+        }
+        indexes.add(index);
+    }
+
+    private static Map<Long, List<DiffNode>> groupBySlot(List<DiffNode> nodes) {
+        Map<Long, List<DiffNode>> slotMap = new LinkedHashMap<Long, List<DiffNode>>();
+        for (DiffNode node : nodes) {
+            Long slot = node.jrxElement.getScopedNameHashCode();
+            List<DiffNode> slotNodes = slotMap.get(slot);
+            if (slotNodes == null) {
+                slotNodes = new ArrayList<DiffNode>();
+                slotMap.put(slot, slotNodes);
+            }
+            slotNodes.add(node);
+        }
+
+        return slotMap;
+    }
+
+    private static Map<String, List<DiffNode>> groupByName(List<DiffNode> nodes) {
+        Map<String, List<DiffNode>> nameMap = new LinkedHashMap<String, List<DiffNode>>();
+        for (DiffNode node : nodes) {
+            List<DiffNode> nameNodes = nameMap.get(node.name);
+            if (nameNodes == null) {
+                nameNodes = new ArrayList<DiffNode>();
+                nameMap.put(node.name, nameNodes);
+            }
+            nameNodes.add(node);
+        }
+
+        return nameMap;
+    }
+
+    private static Map<DiffNode, String> getChildPaths(DiffNode parentNode, String parentPath) {
+        Map<String, Integer> nameCountMap = new HashMap<String, Integer>();
+        for (DiffNode childNode : parentNode.children) {
+            Integer count = nameCountMap.get(childNode.name);
+            nameCountMap.put(childNode.name, count == null ? 1 : count + 1);
+        }
+
+        Map<DiffNode, String> pathMap = new IdentityHashMap<DiffNode, String>();
+        Map<String, Integer> nameIndexMap = new HashMap<String, Integer>();
+        for (DiffNode childNode : parentNode.children) {
+            String path = parentPath + PATH_SEPARATOR + childNode.name;
+            if (nameCountMap.get(childNode.name) > 1) {
+                Integer index = nameIndexMap.get(childNode.name);
+                index = index == null ? 1 : index + 1;
+                nameIndexMap.put(childNode.name, index);
+                path = path + "[" + index + "]";
+            }
+            pathMap.put(childNode, path);
+        }
+
+        return pathMap;
+    }
+
+    private static DiffNode buildRootNode(JrxDocument jrxDocument) {
+        if (jrxDocument == null || jrxDocument.getRootElement() == null)
+            return null;
+
+        DiffNode rootNode = buildNode(jrxDocument.getRootElement());
+        if (rootNode == null)
+            rootNode = new DiffNode(jrxDocument.getRootElement(), null, Collections.<String, String> emptyMap(),
+                    Collections.<DiffNode> emptyList());
+
+        return rootNode;
+    }
+
+    /**
+     * @return the node of the element, null when the element and its descendants have neither value nor attribute
+     */
+    private static DiffNode buildNode(JrxElement jrxElement) {
+        List<JrxElement> jrxChildElements = new ArrayList<JrxElement>();
+        collectChildElements(jrxElement.getChildrenBlock(), jrxChildElements);
+
+        List<DiffNode> children = new ArrayList<DiffNode>();
+        for (JrxElement jrxChildElement : jrxChildElements) {
+            DiffNode childNode = buildNode(jrxChildElement);
+            if (childNode != null)
+                children.add(childNode);
+        }
+
+        Element xmlElement = jrxElement.getXmlElement();
+        String value = null;
+        Map<String, String> attributeMap = Collections.emptyMap();
+        if (xmlElement != null) {
+            if (children.isEmpty())
+                value = getText(xmlElement);
+            attributeMap = getAttributes(xmlElement);
+        }
+
+        if (children.isEmpty() && value == null && attributeMap.isEmpty())
+            return null;
+
+        return new DiffNode(jrxElement, value, attributeMap, children);
+    }
+
+    private static void collectChildElements(JrxElementGroup jrxElementGroup, List<JrxElement> jrxChildElements) {
+        if (jrxElementGroup == null)
+            return;
+
+        List<JrxTerm<?>> jrxTerms = jrxElementGroup.getElements();
+        if (jrxElementGroup instanceof JrxChoiceGroup) {
+            JrxTerm<?> jrxSelection = ((JrxChoiceGroup) jrxElementGroup).getSelection();
+            jrxTerms = jrxSelection == null ? Collections.<JrxTerm<?>> emptyList() : Collections
+                    .<JrxTerm<?>> singletonList(jrxSelection);
+        }
+
+        for (JrxTerm<?> jrxTerm : jrxTerms) {
+            if (jrxTerm instanceof JrxElement) {
+                jrxChildElements.add((JrxElement) jrxTerm);
+            } else if (jrxTerm instanceof JrxGroup) {
+                collectChildElements(((JrxGroup) jrxTerm).getChildrenBlock(), jrxChildElements);
+            } else if (jrxTerm instanceof JrxElementGroup) {
+                collectChildElements((JrxElementGroup) jrxTerm, jrxChildElements);
+            }
+        }
+    }
+
+    /**
+     * @return the trimmed text of the element itself, null when empty
+     */
+    private static String getText(Element xmlElement) {
+        StringBuilder sb = null;
+        for (Node xmlChild = xmlElement.getFirstChild(); xmlChild != null; xmlChild = xmlChild.getNextSibling()) {
+            if (xmlChild.getNodeType() == Node.TEXT_NODE || xmlChild.getNodeType() == Node.CDATA_SECTION_NODE) {
+                if (sb == null)
+                    sb = new StringBuilder();
+                sb.append(xmlChild.getNodeValue());
+            }
+        }
+        if (sb == null)
+            return null;
+
+        String text = sb.toString().trim();
+        return text.isEmpty() ? null : text;
+    }
+
+    private static Map<String, String> getAttributes(Element xmlElement) {
+        NamedNodeMap xmlAttrs = xmlElement.getAttributes();
+        if (xmlAttrs == null || xmlAttrs.getLength() == 0)
+            return Collections.emptyMap();
+
+        Map<String, String> attributeMap = null;
+        for (int i = 0; i < xmlAttrs.getLength(); i++) {
+            Attr xmlAttr = (Attr) xmlAttrs.item(i);
+            if (xmlAttr.getNodeName().startsWith(XMLConstants.XMLNS_ATTRIBUTE))
+                continue;
+            if (attributeMap == null)
+                attributeMap = new TreeMap<String, String>();
+            attributeMap.put(xmlAttr.getNodeName(), xmlAttr.getNodeValue());
+        }
+
+        return attributeMap == null ? Collections.<String, String> emptyMap() : attributeMap;
+    }
+
+    /**
+     * An element with its non-empty children and the hash of its content.
+     */
+    private static final class DiffNode {
+
+        private final JrxElement jrxElement;
+
+        private final String name;
+
+        private final String value;
+
+        private final Map<String, String> attributeMap;
+
+        private final List<DiffNode> children;
+
+        private final long contentHash;
+
+        DiffNode(JrxElement jrxElement, String value, Map<String, String> attributeMap, List<DiffNode> children) {
+            this.jrxElement = jrxElement;
+            this.name = jrxElement.getName();
+            this.value = value;
+            this.attributeMap = attributeMap;
+            this.children = children;
+
+            Hasher hasher = CONTENT_HASH_FUNCTION.newHasher();
+            hasher.putUnencodedChars(name).putInt(children.size());
+            hasher.putBoolean(value != null);
+            if (value != null)
+                hasher.putInt(value.length()).putUnencodedChars(value);
+            hasher.putInt(attributeMap.size());
+            for (Map.Entry<String, String> attributeEntry : attributeMap.entrySet()) {
+                hasher.putInt(attributeEntry.getKey().length()).putUnencodedChars(attributeEntry.getKey());
+                hasher.putInt(attributeEntry.getValue().length()).putUnencodedChars(attributeEntry.getValue());
+            }
+            for (DiffNode childNode : children) {
+                hasher.putLong(childNode.contentHash);
+            }
+            this.contentHash = hasher.hash().asLong();
+        }
+
+        String getSimpleName() {
+            return jrxElement.getSimpleName();
+        }
+
+        /**
+         * @return the values of the key fields, null when any of them is missing
+         */
+        String getKey(String[] keyFieldPaths) {
+            StringBuilder sb = new StringBuilder();
+            for (String keyFieldPath : keyFieldPaths) {
+                String keyValue = getFieldValue(keyFieldPath.split(PATH_SEPARATOR));
+                if (keyValue == null)
+                    return null;
+                sb.append(keyValue.length()).append(':').append(keyValue);
+            }
+
+            return sb.toString();
+        }
+
+        private String getFieldValue(String[] fieldPathSegments) {
+            DiffNode node = this;
+            for (int i = 0; i < fieldPathSegments.length; i++) {
+                String segment = fieldPathSegments[i];
+                if (i == fieldPathSegments.length - 1 && segment.startsWith(ATTRIBUTE_PREFIX))
+                    return node.attributeMap.get(segment.substring(ATTRIBUTE_PREFIX.length()));
+
+                DiffNode childNode = null;
+                for (DiffNode candidateNode : node.children) {
+                    if (candidateNode.getSimpleName().equals(segment)) {
+                        childNode = candidateNode;
+                        break;
+                    }
+                }
+                if (childNode == null)
+                    return null;
+                node = childNode;
+            }
+
+            return node.value;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) 2016-2026 Jumin Rubin
+ * LinkedIn: https://www.linkedin.com/in/juminrubin/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jrtech.common.xsutils;
+
+/**
+ * The interface <code>JrxMetricsSink</code> receives the metrics of the processing phases of
+ * {@link JrxXmlModelUtil}, see {@link JrxXmlModelUtil#setMetricsSink(JrxMetricsSink)}.
+ * <p>
+ * The metrics are delivered on the processing thread at the end of each phase. A sink shared by several instances is
+ * called concurrently and has to be thread-safe. It should return quickly, e.g. by updating counters, and its
+ * exceptions are logged without failing the processing.
+ *
+ */
+public interface JrxMetricsSink {
+
+    void record(JrxPhaseMetrics phaseMetrics);
+}
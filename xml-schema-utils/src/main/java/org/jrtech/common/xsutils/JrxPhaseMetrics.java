@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2016-2026 Jumin Rubin
+ * LinkedIn: https://www.linkedin.com/in/juminrubin/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jrtech.common.xsutils;
+
+/**
+ * The class <code>JrxPhaseMetrics</code> holds the metrics of a single processing phase of a document, as delivered
+ * to a {@link JrxMetricsSink}.
+ * <p>
+ * Phases may nest, e.g. the conversion of the skeleton document while creating a document from its schema. The wall
+ * time and the allocation of the outer phase include the inner one, its counters do not.
+ *
+ */
+public final class JrxPhaseMetrics {
+
+    public enum Phase {
+        /**
+         * {@link JrxXmlModelUtil#convertXmlToJrxModel(org.w3c.dom.Document)}
+         */
+        CONVERSION,
+        /**
+         * {@link JrxXmlModelUtil#enrichJrxDocument(org.jrtech.common.xsutils.model.JrxDocument)}, also as first step of
+         * the validation
+         */
+        ENRICHMENT,
+        /**
+         * The validation of an enriched document, sequential, parallel or incremental
+         */
+        VALIDATION,
+        /**
+         * {@link JrxXmlModelUtil#convertXsdToJrxDoc(java.net.URL, String, String)}
+         */
+        CREATION
+    }
+
+    private final Phase phase;
+
+    private final String messageType;
+
+    private final long elapsedNanos;
+
+    private final long allocatedBytes;
+
+    private final long nodeCount;
+
+    private final long schemaLookupCount;
+
+    private final long schemaLookupNanos;
+
+    private final long particleLookupCount;
+
+    private final long particleLookupMissCount;
+
+    private final long facetLookupCount;
+
+    private final long facetLookupMissCount;
+
+    private final int validationErrorCount;
+
+    JrxPhaseMetrics(Phase phase, String messageType, long elapsedNanos, long allocatedBytes, long nodeCount,
+            long schemaLookupCount, long schemaLookupNanos, long particleLookupCount, long particleLookupMissCount,
+            long facetLookupCount, long facetLookupMissCount, int validationErrorCount) {
+        this.phase = phase;
+        this.messageType = messageType;
+        this.elapsedNanos = elapsedNanos;
+        this.allocatedBytes = allocatedBytes;
+        this.nodeCount = nodeCount;
+        this.schemaLookupCount = schemaLookupCount;
+        this.schemaLookupNanos = schemaLookupNanos;
+        this.particleLookupCount = particleLookupCount;
+        this.particleLookupMissCount = particleLookupMissCount;
+        this.facetLookupCount = facetLookupCount;
+        this.facetLookupMissCount = facetLookupMissCount;
+        this.validationErrorCount = validationErrorCount;
+    }
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    /**
+     * @return the root element of the document in the form <code>{namespace URI}local name</code>, null when the
+     *         phase failed before the root element was known
+     */
+    public String getMessageType() {
+        return messageType;
+    }
+
+    /**
+     * @return wall time of the phase
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return bytes allocated by the processing thread during the phase, -1 when the JVM does not measure it
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * @return number of elements converted, enriched or validated
+     */
+    public long getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * @return number of schemas retrieved by namespace or URL
+     */
+    public long getSchemaLookupCount() {
+        return schemaLookupCount;
+    }
+
+    /**
+     * @return wall time spent retrieving schemas, included in {@link #getElapsedNanos()}
+     */
+    public long getSchemaLookupNanos() {
+        return schemaLookupNanos;
+    }
+
+    /**
+     * @return number of lookups of a {@link ContentModelIndex}
+     */
+    public long getParticleLookupCount() {
+        return particleLookupCount;
+    }
+
+    /**
+     * @return number of {@link ContentModelIndex} lookups which had to compile the index
+     */
+    public long getParticleLookupMissCount() {
+        return particleLookupMissCount;
+    }
+
+    /**
+     * @return number of lookups of a {@link SimpleTypeValidator}
+     */
+    public long getFacetLookupCount() {
+        return facetLookupCount;
+    }
+
+    /**
+     * @return number of {@link SimpleTypeValidator} lookups which had to compile the facets
+     */
+    public long getFacetLookupMissCount() {
+        return facetLookupMissCount;
+    }
+
+    /**
+     * @return number of validation errors found, 0 for the other phases
+     */
+    public int getValidationErrorCount() {
+        return validationErrorCount;
+    }
+
+    @Override
+    public String toString() {
+        return "JrxPhaseMetrics [phase=" + phase + ", messageType=" + messageType + ", elapsedNanos=" + elapsedNanos
+                + ", allocatedBytes=" + allocatedBytes + ", nodeCount=" + nodeCount + ", schemaLookupCount="
+                + schemaLookupCount + ", schemaLookupNanos=" + schemaLookupNanos + ", particleLookupCount="
+                + particleLookupCount + ", particleLookupMissCount=" + particleLookupMissCount
+                + ", facetLookupCount=" + facetLookupCount + ", facetLookupMissCount=" + facetLookupMissCount
+                + ", validationErrorCount=" + validationErrorCount + "]";
+    }
+}
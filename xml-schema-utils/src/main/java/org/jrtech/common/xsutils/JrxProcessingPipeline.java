@@ -0,0 +1,534 @@
+/*
+ * Copyright (c) 2016-2026 Jumin Rubin
+ * LinkedIn: https://www.linkedin.com/in/juminrubin/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jrtech.common.xsutils;
+
+import java.io.Closeable;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+import org.jrtech.common.xmlutils.XmlUtils;
+import org.jrtech.common.xsutils.model.JrxDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+
+/**
+ * The class <code>JrxProcessingPipeline</code> processes a stream of XML documents in the stages {@link Stage#PARSE},
+ * {@link Stage#CONVERT}, {@link Stage#ENRICH} and {@link Stage#VALIDATE}. Every stage has its own worker threads and
+ * reads from a bounded queue, so that the stages of different documents overlap. When a queue is full the upstream
+ * stage waits, and {@link #submit(Object, InputStream)} blocks the producer until there is room again.
+ * <p>
+ * {@link JrxXmlModelUtil} is not thread-safe, hence every worker of the convert, enrich and validate stages gets its
+ * own instance from the util factory. The instances shall share their schemas, e.g. through
+ * {@link CacheableJrxXmlModelUtil#newInstance(SchemaRegistry)}. Lazy enrichment is not supported, because it defers
+ * the enrichment to the thread that reads the document.
+ * <p>
+ * A document is handled by one stage at a time. The result, with the processing time of each stage, is delivered to
+ * the {@link ResultHandler} on the thread of the validate stage, or on the thread of the stage that failed. Results
+ * are delivered in completion order, which is not the submission order when a stage has several workers.
+ *
+ * @param <K>
+ *            type of the key identifying a submitted document
+ */
+public class JrxProcessingPipeline<K> implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(JrxProcessingPipeline.class);
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 16;
+
+    public enum Stage {
+        PARSE, CONVERT, ENRICH, VALIDATE
+    }
+
+    /**
+     * Receives the results of the pipeline. The handler is called from the worker threads, concurrently when the
+     * validate stage has several workers. A slow handler holds back the pipeline.
+     *
+     * @param <K>
+     */
+    public interface ResultHandler<K> {
+
+        void handleResult(Result<K> result);
+    }
+
+    private static final Result<Object> END_OF_INPUT = new Result<Object>(null, null);
+
+    private final Supplier<? extends JrxXmlModelUtil> utilFactory;
+
+    private final ResultHandler<K> resultHandler;
+
+    private final Map<Stage, Integer> parallelismMap = new EnumMap<Stage, Integer>(Stage.class);
+
+    private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+
+    private final ReadWriteLock submitLock = new ReentrantReadWriteLock();
+
+    private volatile boolean started;
+
+    private volatile boolean closed;
+
+    private final Map<Stage, StageWorkers> stageMap = new EnumMap<Stage, StageWorkers>(Stage.class);
+
+    private final CountDownLatch termination = new CountDownLatch(1);
+
+    protected JrxProcessingPipeline(Supplier<? extends JrxXmlModelUtil> utilFactory,
+            ResultHandler<K> resultHandler) {
+        if (utilFactory == null || resultHandler == null) {
+            throw new IllegalArgumentException("The util factory and the result handler are mandatory.");
+        }
+
+        this.utilFactory = utilFactory;
+        this.resultHandler = resultHandler;
+        for (Stage stage : Stage.values()) {
+            parallelismMap.put(stage, 1);
+        }
+    }
+
+    public static <K> JrxProcessingPipeline<K> newInstance(Supplier<? extends JrxXmlModelUtil> utilFactory,
+            ResultHandler<K> resultHandler) {
+        return new JrxProcessingPipeline<K>(utilFactory, resultHandler);
+    }
+
+    public int getParallelism(Stage stage) {
+        return parallelismMap.get(stage);
+    }
+
+    /**
+     * @param stage
+     * @param parallelism
+     *            number of worker threads of the stage, default 1
+     */
+    public void setParallelism(Stage stage, int parallelism) {
+        checkNotStarted();
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("The parallelism must be positive: " + parallelism);
+        }
+
+        parallelismMap.put(stage, parallelism);
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * @param queueCapacity
+     *            number of documents waiting in front of each stage, default {@value #DEFAULT_QUEUE_CAPACITY}
+     */
+    public void setQueueCapacity(int queueCapacity) {
+        checkNotStarted();
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("The queue capacity must be positive: " + queueCapacity);
+        }
+
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Create the model utils of the workers and start the worker threads.
+     *
+     * @throws IllegalStateException
+     *             if the pipeline has been started already or a model util is in lazy enrichment mode
+     */
+    public synchronized void start() {
+        checkNotStarted();
+        if (closed) {
+            throw new IllegalStateException("The pipeline has been closed.");
+        }
+
+        Map<Stage, List<JrxXmlModelUtil>> utilMap = new EnumMap<Stage, List<JrxXmlModelUtil>>(Stage.class);
+        for (Stage stage : Stage.values()) {
+            List<JrxXmlModelUtil> utilList = new ArrayList<JrxXmlModelUtil>();
+            for (int i = 0; i < getParallelism(stage); i++) {
+                JrxXmlModelUtil util = null;
+                if (stage != Stage.PARSE) {
+                    util = utilFactory.get();
+                    if (util.isLazyEnrichment()) {
+                        throw new IllegalStateException("Lazy enrichment is not supported by the pipeline.");
+                    }
+                }
+                utilList.add(util);
+            }
+            utilMap.put(stage, utilList);
+        }
+
+        for (Stage stage : Stage.values()) {
+            stageMap.put(stage, new StageWorkers(stage, getParallelism(stage)));
+        }
+        for (Stage stage : Stage.values()) {
+            stageMap.get(stage).start(utilMap.get(stage));
+        }
+        started = true;
+    }
+
+    public boolean isStarted() {
+        return started;
+    }
+
+    public void submit(K key, InputStream xmlStream) throws InterruptedException {
+        submit(key, () -> XmlUtils.createDocumentNS(xmlStream));
+    }
+
+    public void submit(K key, String xmlString) throws InterruptedException {
+        submit(key, () -> XmlUtils.createDocumentNS(xmlString));
+    }
+
+    public void submit(K key, URL xmlUrl) throws InterruptedException {
+        submit(key, () -> XmlUtils.openDocumentNS(xmlUrl));
+    }
+
+    /**
+     * Submit a document which has been parsed already, the parse stage only passes it on.
+     *
+     * @param key
+     * @param xmlDocument
+     * @throws InterruptedException
+     */
+    public void submit(K key, Document xmlDocument) throws InterruptedException {
+        submit(key, () -> xmlDocument);
+    }
+
+    /**
+     * Submit a document, waiting for room in the queue of the parse stage.
+     *
+     * @param key
+     * @param xmlSource
+     * @throws InterruptedException
+     * @throws IllegalStateException
+     *             if the pipeline has not been started or has been closed
+     */
+    protected void submit(K key, XmlSource xmlSource) throws InterruptedException {
+        if (!started) {
+            throw new IllegalStateException("The pipeline has not been started.");
+        }
+
+        submitLock.readLock().lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("The pipeline has been closed.");
+            }
+            stageMap.get(Stage.PARSE).queue.put(new Result<K>(key, xmlSource));
+        } finally {
+            submitLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param stage
+     * @return number of documents waiting for the given stage
+     */
+    public int getQueueSize(Stage stage) {
+        StageWorkers stageWorkers = stageMap.get(stage);
+
+        return stageWorkers == null ? 0 : stageWorkers.queue.size();
+    }
+
+    /**
+     * Stop accepting documents. The documents submitted already are still processed, see
+     * {@link #awaitTermination(long, TimeUnit)}.
+     *
+     * @throws InterruptedException
+     */
+    public void shutdown() throws InterruptedException {
+        submitLock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        } finally {
+            submitLock.writeLock().unlock();
+        }
+
+        if (started) {
+            stageMap.get(Stage.PARSE).endOfInput();
+        } else {
+            termination.countDown();
+        }
+    }
+
+    public boolean isShutdown() {
+        return closed;
+    }
+
+    /**
+     * Wait until all submitted documents have been delivered after {@link #shutdown()}.
+     *
+     * @param timeout
+     * @param unit
+     * @return true if the pipeline has terminated, false if the timeout elapsed before
+     * @throws InterruptedException
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return termination.await(timeout, unit);
+    }
+
+    /**
+     * Shut down the pipeline and wait until all submitted documents have been delivered.
+     */
+    @Override
+    public void close() {
+        try {
+            shutdown();
+            termination.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void checkNotStarted() {
+        if (started) {
+            throw new IllegalStateException("The pipeline has been started already.");
+        }
+    }
+
+    private void process(Stage stage, JrxXmlModelUtil util, Result<K> result) throws Exception {
+        switch (stage) {
+        case PARSE:
+            result.xmlDocument = result.xmlSource.parse();
+            result.xmlSource = null;
+            break;
+        case CONVERT:
+            result.jrxDocument = util.convertXmlToJrxModel(result.xmlDocument);
+            break;
+        case ENRICH:
+            util.enrichJrxDocument(result.jrxDocument);
+            break;
+        case VALIDATE:
+            // The document has been enriched already, hence not validateDocument
+            result.validationErrors = result.jrxDocument == null ? new ArrayList<XmlValidationError>() : util
+                    .validateElement(result.jrxDocument.getRootElement(), "/");
+            break;
+        }
+    }
+
+    private void deliver(Result<K> result) {
+        try {
+            resultHandler.handleResult(result);
+        } catch (Throwable e) {
+            log.warn("Result handler failed for document: " + result.getKey(), e);
+        }
+    }
+
+    /**
+     * Deferred parsing of a submitted document.
+     */
+    protected interface XmlSource {
+
+        Document parse() throws Exception;
+    }
+
+    /**
+     * The worker threads of a stage, reading from the queue in front of the stage.
+     */
+    private class StageWorkers {
+
+        private final Stage stage;
+
+        private final int parallelism;
+
+        private final BlockingQueue<Result<K>> queue;
+
+        private final AtomicInteger runningWorkers;
+
+        StageWorkers(Stage stage, int parallelism) {
+            this.stage = stage;
+            this.parallelism = parallelism;
+            this.queue = new ArrayBlockingQueue<Result<K>>(queueCapacity);
+            this.runningWorkers = new AtomicInteger(parallelism);
+        }
+
+        void start(List<JrxXmlModelUtil> utilList) {
+            for (int i = 0; i < parallelism; i++) {
+                JrxXmlModelUtil util = utilList.get(i);
+                Thread thread = new Thread(() -> run(util), "jrx-pipeline-" + stage.name().toLowerCase() + "-" + i);
+                thread.setDaemon(true);
+                thread.start();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        void endOfInput() throws InterruptedException {
+            for (int i = 0; i < parallelism; i++) {
+                queue.put((Result<K>) END_OF_INPUT);
+            }
+        }
+
+        /**
+         * Process the documents until the end of input. A failure of a document, including an {@link Error}, is
+         * delivered as the result of that document and the worker goes on with the next one. The last worker hands
+         * on the end of input also when it has been interrupted, so that the pipeline still terminates.
+         *
+         * @param util
+         */
+        private void run(JrxXmlModelUtil util) {
+            boolean interrupted = false;
+            try {
+                Result<K> result = queue.take();
+                while (result != END_OF_INPUT) {
+                    long startTime = System.nanoTime();
+                    try {
+                        process(stage, util, result);
+                        result.stageNanos[stage.ordinal()] = System.nanoTime() - startTime;
+                    } catch (Throwable e) {
+                        result.stageNanos[stage.ordinal()] = System.nanoTime() - startTime;
+                        result.failedStage = stage;
+                        result.failure = e;
+                    }
+
+                    if (result.failure != null || stage == Stage.VALIDATE) {
+                        deliver(result);
+                    } else {
+                        stageMap.get(Stage.values()[stage.ordinal() + 1]).queue.put(result);
+                    }
+                    result = queue.take();
+                }
+            } catch (InterruptedException e) {
+                log.warn("Pipeline worker interrupted: " + Thread.currentThread().getName());
+                interrupted = true;
+            } finally {
+                if (runningWorkers.decrementAndGet() == 0) {
+                    interrupted |= handOnEndOfInput();
+                }
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        /**
+         * Signal the end of input to the next stage, or the termination after the validate stage. The interrupt
+         * status is cleared while waiting for room in the next queue.
+         *
+         * @return true if the thread has been interrupted
+         */
+        private boolean handOnEndOfInput() {
+            if (stage == Stage.VALIDATE) {
+                termination.countDown();
+                return false;
+            }
+
+            boolean interrupted = Thread.interrupted();
+            while (true) {
+                try {
+                    stageMap.get(Stage.values()[stage.ordinal() + 1]).endOfInput();
+                    return interrupted;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * The outcome of a submitted document. Either the validation errors or the failure are set.
+     *
+     * @param <K>
+     */
+    public static final class Result<K> {
+
+        private final K key;
+
+        private XmlSource xmlSource;
+
+        private Document xmlDocument;
+
+        private JrxDocument jrxDocument;
+
+        private List<XmlValidationError> validationErrors;
+
+        private Stage failedStage;
+
+        private Throwable failure;
+
+        private final long[] stageNanos = new long[Stage.values().length];
+
+        private Result(K key, XmlSource xmlSource) {
+            this.key = key;
+            this.xmlSource = xmlSource;
+        }
+
+        public K getKey() {
+            return key;
+        }
+
+        public Document getXmlDocument() {
+            return xmlDocument;
+        }
+
+        public JrxDocument getJrxDocument() {
+            return jrxDocument;
+        }
+
+        /**
+         * @return the validation errors, null if the document failed
+         */
+        public List<XmlValidationError> getValidationErrors() {
+            return validationErrors == null ? null : Collections.unmodifiableList(validationErrors);
+        }
+
+        public boolean isValid() {
+            return failure == null && validationErrors.isEmpty();
+        }
+
+        /**
+         * @return the stage which threw the failure, null if the document has been processed completely
+         */
+        public Stage getFailedStage() {
+            return failedStage;
+        }
+
+        /**
+         * @return the exception or error thrown by the failed stage, null if the document has been processed
+         *         completely
+         */
+        public Throwable getFailure() {
+            return failure;
+        }
+
+        /**
+         * @param stage
+         * @return processing time of the stage in nanoseconds, not including the time waiting in the queue; 0 if
+         *         the stage has not been reached
+         */
+        public long getStageNanos(Stage stage) {
+            return stageNanos[stage.ordinal()];
+        }
+
+        public long getTotalNanos() {
+            long totalNanos = 0;
+            for (long nanos : stageNanos) {
+                totalNanos += nanos;
+            }
+
+            return totalNanos;
+        }
+    }
+}
@@ -0,0 +1,856 @@
+/*
+ * Copyright (c) 2016-2026 Jumin Rubin
+ * LinkedIn: https://www.linkedin.com/in/juminrubin/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jrtech.common.xsutils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+import javax.xml.XMLConstants;
+import javax.xml.xpath.XPathExpressionException;
+
+import org.jrtech.common.xsutils.model.JrxAttribute;
+import org.jrtech.common.xsutils.model.JrxChoiceGroup;
+import org.jrtech.common.xsutils.model.JrxDocument;
+import org.jrtech.common.xsutils.model.JrxElement;
+import org.jrtech.common.xsutils.model.JrxElementGroup;
+import org.jrtech.common.xsutils.model.JrxGroup;
+import org.jrtech.common.xsutils.model.JrxTerm;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.sun.xml.xsom.XSComplexType;
+import com.sun.xml.xsom.XSElementDecl;
+import com.sun.xml.xsom.XSModelGroup;
+import com.sun.xml.xsom.XSModelGroupDecl;
+import com.sun.xml.xsom.XSParticle;
+import com.sun.xml.xsom.XSTerm;
+import com.sun.xml.xsom.XSType;
+
+/**
+ * The class <code>JrxXPath</code> is a compiled XPath expression which is evaluated on the Jrx model directly instead
+ * of the XML document.
+ * <p>
+ * The supported subset consists of location paths made of the child and descendant axes in abbreviated syntax
+ * (<code>/</code>, <code>//</code>, <code>.</code>), name tests (<code>name</code>, <code>prefix:name</code>,
+ * <code>prefix:*</code>, <code>*</code>), a trailing attribute step (<code>@name</code>) and the predicates
+ * <code>[n]</code>, <code>[last()]</code>, <code>[@name]</code> and <code>[@name='value']</code>. The result is the
+ * same as the one of the XML document in document order, for all the XML elements that are part of the Jrx model.
+ * <p>
+ * Descendant steps do not enter an element when its schema declaration shows that the searched element cannot occur
+ * below it. This is only done when the document contains no element which is placed where the schema does not allow
+ * it, since such an element may occur anywhere. Whether it does is kept per document until its structure changes, see
+ * {@link JrxDocument#getStructureModificationCount()}.
+ *
+ */
+public final class JrxXPath {
+
+    private static final Cache<String, Optional<JrxXPath>> EXPRESSION_CACHE = CacheBuilder.newBuilder()
+            .maximumSize(1000).build();
+
+    private static final LoadingCache<XSType, ReachableElements> REACHABLE_ELEMENTS_CACHE = CacheBuilder
+            .newBuilder().weakKeys().build(new CacheLoader<XSType, ReachableElements>() {
+                @Override
+                public ReachableElements load(XSType xsType) {
+                    return new ReachableElements(xsType);
+                }
+            });
+
+    // Weak keys compare the documents by identity
+    private static final Cache<JrxDocument, UnexpectedElements> UNEXPECTED_ELEMENTS_CACHE = CacheBuilder.newBuilder()
+            .weakKeys().build();
+
+    private static final Comparator<JrxElement> DOCUMENT_ORDER = new Comparator<JrxElement>() {
+        @Override
+        public int compare(JrxElement jrxElement, JrxElement jrxOtherElement) {
+            if (jrxElement == jrxOtherElement)
+                return 0;
+
+            short position = jrxElement.getXmlElement().compareDocumentPosition(jrxOtherElement.getXmlElement());
+            return (position & (Node.DOCUMENT_POSITION_FOLLOWING | Node.DOCUMENT_POSITION_CONTAINED_BY)) != 0 ? -1
+                    : 1;
+        }
+    };
+
+    private final String expression;
+
+    private final boolean absolute;
+
+    private final Step[] steps;
+
+    private final NameTest attributeTest;
+
+    private JrxXPath(String expression, boolean absolute, Step[] steps, NameTest attributeTest) {
+        this.expression = expression;
+        this.absolute = absolute;
+        this.steps = steps;
+        this.attributeTest = attributeTest;
+    }
+
+    /**
+     * Compile the expression, or get it from the cache when it has been compiled before with the same namespaces.
+     *
+     * @param expression
+     * @param namespaces
+     *            prefix and namespace URI pairs, e.g. {{"Doc", "urn:swift:xsd:setr.004.001.03"}}, may be null
+     * @return the compiled expression, or null when the expression is not part of the supported subset
+     * @throws XPathExpressionException
+     *             when a prefix of the expression is not declared
+     */
+    public static JrxXPath compile(String expression, String[][] namespaces) throws XPathExpressionException {
+        StringBuilder keyBuilder = new StringBuilder(expression);
+        if (namespaces != null) {
+            for (String[] namespace : namespaces) {
+                keyBuilder.append('\u0000').append(namespace[0]).append('=').append(namespace[1]);
+            }
+        }
+
+        try {
+            return EXPRESSION_CACHE.get(keyBuilder.toString(), () -> Optional.ofNullable(new Parser(expression,
+                    namespaces).parse())).orElse(null);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof XPathExpressionException)
+                throw (XPathExpressionException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    public String getExpression() {
+        return expression;
+    }
+
+    /**
+     * @return true when the expression selects attributes, see {@link #evaluateAttributes(JrxDocument)}
+     */
+    public boolean isAttributeExpression() {
+        return attributeTest != null;
+    }
+
+    public List<JrxElement> evaluate(JrxDocument jrxDocument) {
+        return selectElements(jrxDocument, null);
+    }
+
+    /**
+     * @param jrxContextElement
+     *            context of a relative expression, an absolute expression starts at the document of the element
+     */
+    public List<JrxElement> evaluate(JrxElement jrxContextElement) {
+        return selectElements(jrxContextElement.getOwnerDocument(), jrxContextElement);
+    }
+
+    public List<JrxAttribute> evaluateAttributes(JrxDocument jrxDocument) {
+        return selectAttributes(selectElements(jrxDocument, null));
+    }
+
+    public List<JrxAttribute> evaluateAttributes(JrxElement jrxContextElement) {
+        return selectAttributes(selectElements(jrxContextElement.getOwnerDocument(), jrxContextElement));
+    }
+
+    private List<JrxElement> selectElements(JrxDocument jrxDocument, JrxElement jrxContextElement) {
+        // A null element in the context stands for the document node
+        List<JrxElement> jrxContext = new ArrayList<JrxElement>();
+        if (absolute || jrxContextElement == null) {
+            if (jrxDocument == null || jrxDocument.getRootElement() == null)
+                return new ArrayList<JrxElement>();
+            jrxContext.add(null);
+        } else {
+            if (jrxContextElement.getXmlElement() == null)
+                return new ArrayList<JrxElement>();
+            jrxContext.add(jrxContextElement);
+        }
+
+        boolean prune = false;
+        for (Step step : steps) {
+            if (step.pruneTest != null) {
+                prune = !hasUnexpectedElements(jrxDocument);
+                break;
+            }
+        }
+
+        boolean nested = false;
+        for (Step step : steps) {
+            List<JrxElement> jrxResult = new ArrayList<JrxElement>();
+            for (JrxElement jrxContextNode : jrxContext) {
+                step.select(jrxDocument, jrxContextNode, jrxResult, prune);
+            }
+
+            if (step.axis != Axis.CHILD && step.axis != Axis.SELF) {
+                nested = true;
+            }
+            if (nested && jrxContext.size() > 1) {
+                // Context nodes may contain each other
+                jrxResult = sortInDocumentOrder(jrxResult);
+            }
+            jrxContext = jrxResult;
+        }
+
+        // The document node itself is not an element
+        jrxContext.removeIf(jrxElement -> jrxElement == null);
+
+        return jrxContext;
+    }
+
+    /**
+     * @return true when the document contains an element without schema declaration below an element with schema
+     *         declaration and without wildcard, i.e. an element which is not allowed at its position, or an element
+     *         which is not linked to its parent
+     */
+    static boolean hasUnexpectedElements(JrxDocument jrxDocument) {
+        int structureModificationCount = jrxDocument.getStructureModificationCount();
+        UnexpectedElements unexpectedElements = UNEXPECTED_ELEMENTS_CACHE.getIfPresent(jrxDocument);
+        if (unexpectedElements == null
+                || unexpectedElements.structureModificationCount != structureModificationCount) {
+            unexpectedElements = new UnexpectedElements(structureModificationCount,
+                    findUnexpectedElement(jrxDocument));
+            UNEXPECTED_ELEMENTS_CACHE.put(jrxDocument, unexpectedElements);
+        }
+
+        return unexpectedElements.found;
+    }
+
+    private static boolean findUnexpectedElement(JrxDocument jrxDocument) {
+        for (JrxElement jrxElement : jrxDocument.getElements()) {
+            if (jrxElement.getXsdDeclaration() != null)
+                continue;
+
+            JrxElement jrxParentElement = jrxElement.getParentElement();
+            if (jrxParentElement == null) {
+                if (jrxElement != jrxDocument.getRootElement())
+                    return true;
+            } else if (jrxParentElement.getXsdDeclaration() != null) {
+                XSType xsParentType = jrxParentElement.getXsdDeclaration().getType();
+                if (xsParentType == null || !REACHABLE_ELEMENTS_CACHE.getUnchecked(xsParentType).anyElement)
+                    return true;
+            }
+        }
+
+        return false;
+    }
+
+    private List<JrxAttribute> selectAttributes(List<JrxElement> jrxElements) {
+        List<JrxAttribute> jrxAttributeList = new ArrayList<JrxAttribute>();
+        for (JrxElement jrxElement : jrxElements) {
+            if (jrxElement == null)
+                continue;
+
+            NamedNodeMap xmlAttrs = jrxElement.getXmlElement().getAttributes();
+            for (int i = 0; i < xmlAttrs.getLength(); i++) {
+                Attr xmlAttr = (Attr) xmlAttrs.item(i);
+                if (XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(xmlAttr.getNamespaceURI())
+                        || !attributeTest.matches(xmlAttr))
+                    continue;
+
+                JrxAttribute jrxAttr = JrxXmlModelUtil.getAttribute(jrxElement, xmlAttr.getName());
+                if (jrxAttr != null) {
+                    jrxAttributeList.add(jrxAttr);
+                }
+            }
+        }
+
+        return jrxAttributeList;
+    }
+
+    private static List<JrxElement> sortInDocumentOrder(List<JrxElement> jrxElements) {
+        Map<JrxElement, Boolean> jrxElementMap = new IdentityHashMap<JrxElement, Boolean>();
+        List<JrxElement> jrxUniqueElements = new ArrayList<JrxElement>(jrxElements.size());
+        boolean documentNode = false;
+        for (JrxElement jrxElement : jrxElements) {
+            if (jrxElement == null) {
+                documentNode = true;
+            } else if (jrxElementMap.put(jrxElement, Boolean.TRUE) == null) {
+                jrxUniqueElements.add(jrxElement);
+            }
+        }
+        Collections.sort(jrxUniqueElements, DOCUMENT_ORDER);
+        if (documentNode) {
+            // The document node precedes all elements
+            jrxUniqueElements.add(0, null);
+        }
+
+        return jrxUniqueElements;
+    }
+
+    /**
+     * Collect the child elements of the element, or the root element for the document node, which are backed by an
+     * XML element.
+     */
+    private static List<JrxElement> getChildElements(JrxDocument jrxDocument, JrxElement jrxElement) {
+        List<JrxElement> jrxChildElements = new ArrayList<JrxElement>();
+        if (jrxElement == null) {
+            JrxElement jrxRootElement = jrxDocument.getRootElement();
+            if (jrxRootElement.getXmlElement() != null) {
+                jrxChildElements.add(jrxRootElement);
+            }
+        } else {
+            collectChildElements(jrxElement.getChildrenBlock(), jrxChildElements);
+            if (jrxChildElements.size() > 1 && !isInDocumentOrder(jrxElement.getXmlElement(), jrxChildElements)) {
+                return sortInDocumentOrder(jrxElement.getXmlElement(), jrxChildElements);
+            }
+        }
+
+        return jrxChildElements;
+    }
+
+    private static boolean isInDocumentOrder(Element xmlParentElement, List<JrxElement> jrxChildElements) {
+        int i = 0;
+        for (Node xmlChild = xmlParentElement.getFirstChild(); xmlChild != null && i < jrxChildElements.size();
+                xmlChild = xmlChild.getNextSibling()) {
+            if (xmlChild == jrxChildElements.get(i).getXmlElement()) {
+                i++;
+            }
+        }
+
+        return i == jrxChildElements.size();
+    }
+
+    /**
+     * Order the child elements as their XML elements. The enrichment may have inserted an XML element at another
+     * position than its place in the model.
+     */
+    private static List<JrxElement> sortInDocumentOrder(Element xmlParentElement, List<JrxElement> jrxChildElements) {
+        Map<Node, JrxElement> jrxElementMap = new IdentityHashMap<Node, JrxElement>();
+        for (JrxElement jrxChildElement : jrxChildElements) {
+            jrxElementMap.put(jrxChildElement.getXmlElement(), jrxChildElement);
+        }
+
+        List<JrxElement> jrxSortedElements = new ArrayList<JrxElement>(jrxChildElements.size());
+        for (Node xmlChild = xmlParentElement.getFirstChild(); xmlChild != null; xmlChild = xmlChild
+                .getNextSibling()) {
+            JrxElement jrxChildElement = jrxElementMap.remove(xmlChild);
+            if (jrxChildElement != null) {
+                jrxSortedElements.add(jrxChildElement);
+            }
+        }
+        if (!jrxElementMap.isEmpty()) {
+            // Not a child of the XML element
+            for (JrxElement jrxChildElement : jrxChildElements) {
+                if (jrxElementMap.containsKey(jrxChildElement.getXmlElement())) {
+                    jrxSortedElements.add(jrxChildElement);
+                }
+            }
+        }
+
+        return jrxSortedElements;
+    }
+
+    private static void collectChildElements(JrxElementGroup jrxElementGroup, List<JrxElement> jrxChildElements) {
+        if (jrxElementGroup == null)
+            return;
+
+        if (jrxElementGroup instanceof JrxChoiceGroup) {
+            collectChildElement(((JrxChoiceGroup) jrxElementGroup).getSelection(), jrxChildElements);
+        } else {
+            for (JrxTerm<?> jrxTerm : jrxElementGroup.getElements()) {
+                collectChildElement(jrxTerm, jrxChildElements);
+            }
+        }
+    }
+
+    private static void collectChildElement(JrxTerm<?> jrxTerm, List<JrxElement> jrxChildElements) {
+        if (jrxTerm instanceof JrxElement) {
+            if (((JrxElement) jrxTerm).getXmlElement() != null) {
+                jrxChildElements.add((JrxElement) jrxTerm);
+            }
+        } else if (jrxTerm instanceof JrxGroup) {
+            collectChildElements(((JrxGroup) jrxTerm).getChildrenBlock(), jrxChildElements);
+        } else if (jrxTerm instanceof JrxElementGroup) {
+            collectChildElements((JrxElementGroup) jrxTerm, jrxChildElements);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+
+    /**
+     * Result of {@link JrxXPath#hasUnexpectedElements(JrxDocument)} for a state of the document structure.
+     */
+    private static final class UnexpectedElements {
+
+        private final int structureModificationCount;
+
+        private final boolean found;
+
+        UnexpectedElements(int structureModificationCount, boolean found) {
+            this.structureModificationCount = structureModificationCount;
+            this.found = found;
+        }
+    }
+
+    private enum Axis {
+        CHILD, DESCENDANT, DESCENDANT_OR_SELF, SELF
+    }
+
+    private static final class Step {
+
+        private final Axis axis;
+
+        private final NameTest nameTest;
+
+        private final List<Predicate> predicates;
+
+        // Name searched below the selected nodes, null when unknown
+        private final NameTest pruneTest;
+
+        Step(Axis axis, NameTest nameTest, List<Predicate> predicates, NameTest pruneTest) {
+            this.axis = axis;
+            this.nameTest = nameTest;
+            this.predicates = predicates;
+            this.pruneTest = pruneTest;
+        }
+
+        void select(JrxDocument jrxDocument, JrxElement jrxContextNode, List<JrxElement> jrxResult, boolean prune) {
+            switch (axis) {
+            case SELF:
+                jrxResult.add(jrxContextNode);
+                break;
+            case CHILD:
+                List<JrxElement> jrxCandidates = new ArrayList<JrxElement>();
+                for (JrxElement jrxChildElement : getChildElements(jrxDocument, jrxContextNode)) {
+                    if (nameTest.matches(jrxChildElement.getXmlElement())) {
+                        jrxCandidates.add(jrxChildElement);
+                    }
+                }
+                jrxResult.addAll(filter(jrxCandidates));
+                break;
+            case DESCENDANT_OR_SELF:
+                // Any node, the following step tests the names
+                jrxResult.add(jrxContextNode);
+                collectDescendants(jrxDocument, jrxContextNode, jrxResult, prune);
+                break;
+            case DESCENDANT:
+                List<JrxElement> jrxDescendants = new ArrayList<JrxElement>();
+                collectDescendants(jrxDocument, jrxContextNode, jrxDescendants, prune);
+                jrxResult.addAll(filter(jrxDescendants));
+                break;
+            }
+        }
+
+        private void collectDescendants(JrxDocument jrxDocument, JrxElement jrxElement, List<JrxElement> jrxResult,
+                boolean prune) {
+            for (JrxElement jrxChildElement : getChildElements(jrxDocument, jrxElement)) {
+                boolean mayOccurBelow = !prune || pruneTest == null || pruneTest.mayOccurBelow(jrxChildElement);
+                if (axis == Axis.DESCENDANT) {
+                    if (nameTest.matches(jrxChildElement.getXmlElement())) {
+                        jrxResult.add(jrxChildElement);
+                    }
+                } else if (!mayOccurBelow) {
+                    // The following step does not find anything below the element
+                    continue;
+                } else {
+                    jrxResult.add(jrxChildElement);
+                }
+
+                if (mayOccurBelow) {
+                    collectDescendants(jrxDocument, jrxChildElement, jrxResult, prune);
+                }
+            }
+        }
+
+        private List<JrxElement> filter(List<JrxElement> jrxCandidates) {
+            for (Predicate predicate : predicates) {
+                jrxCandidates = predicate.filter(jrxCandidates);
+            }
+
+            return jrxCandidates;
+        }
+    }
+
+    private static final class NameTest {
+
+        // Null for any namespace
+        private final String namespaceUri;
+
+        // Null for any name
+        private final String localName;
+
+        private final boolean anyNamespace;
+
+        NameTest(String namespaceUri, String localName, boolean anyNamespace) {
+            this.namespaceUri = namespaceUri;
+            this.localName = localName;
+            this.anyNamespace = anyNamespace;
+        }
+
+        boolean matches(Node xmlNode) {
+            if (localName != null) {
+                String xmlLocalName = xmlNode.getLocalName() == null ? xmlNode.getNodeName() : xmlNode
+                        .getLocalName();
+                if (!localName.equals(xmlLocalName))
+                    return false;
+            }
+
+            if (anyNamespace)
+                return true;
+
+            String xmlNamespaceUri = xmlNode.getNamespaceURI();
+            return namespaceUri == null ? xmlNamespaceUri == null || xmlNamespaceUri.isEmpty() : namespaceUri
+                    .equals(xmlNamespaceUri);
+        }
+
+        /**
+         * @return false when the schema declaration of the element shows that no matching element can occur below it
+         */
+        boolean mayOccurBelow(JrxElement jrxElement) {
+            if (localName == null)
+                return true;
+
+            XSElementDecl xsElementDecl = jrxElement.getXsdDeclaration();
+            if (xsElementDecl == null)
+                return true;
+
+            XSType xsType = xsElementDecl.getType();
+            if (xsType == null)
+                return true;
+
+            return REACHABLE_ELEMENTS_CACHE.getUnchecked(xsType).mayContain(anyNamespace ? null : namespaceUri,
+                    localName);
+        }
+    }
+
+    private static final class Predicate {
+
+        // Positive for a position, 0 for last(), -1 for an attribute test
+        private final int position;
+
+        private final NameTest attributeTest;
+
+        private final String attributeValue;
+
+        Predicate(int position, NameTest attributeTest, String attributeValue) {
+            this.position = position;
+            this.attributeTest = attributeTest;
+            this.attributeValue = attributeValue;
+        }
+
+        List<JrxElement> filter(List<JrxElement> jrxCandidates) {
+            if (position > 0) {
+                return jrxCandidates.size() < position ? new ArrayList<JrxElement>() : new ArrayList<JrxElement>(
+                        jrxCandidates.subList(position - 1, position));
+            }
+
+            if (position == 0) {
+                return jrxCandidates.isEmpty() ? jrxCandidates : new ArrayList<JrxElement>(jrxCandidates.subList(
+                        jrxCandidates.size() - 1, jrxCandidates.size()));
+            }
+
+            List<JrxElement> jrxResult = new ArrayList<JrxElement>();
+            for (JrxElement jrxCandidate : jrxCandidates) {
+                if (hasAttribute(jrxCandidate.getXmlElement())) {
+                    jrxResult.add(jrxCandidate);
+                }
+            }
+
+            return jrxResult;
+        }
+
+        private boolean hasAttribute(Element xmlElement) {
+            NamedNodeMap xmlAttrs = xmlElement.getAttributes();
+            for (int i = 0; i < xmlAttrs.getLength(); i++) {
+                Attr xmlAttr = (Attr) xmlAttrs.item(i);
+                if (XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(xmlAttr.getNamespaceURI())
+                        || !attributeTest.matches(xmlAttr))
+                    continue;
+
+                if (attributeValue == null || attributeValue.equals(xmlAttr.getValue()))
+                    return true;
+            }
+
+            return false;
+        }
+    }
+
+    /**
+     * The names of the elements which can occur anywhere below an element of a type. Substitution groups and derived
+     * types are included; a wildcard allows any element.
+     */
+    private static final class ReachableElements {
+
+        private final Set<String> qualifiedNames = new HashSet<String>();
+
+        private final Set<String> localNames = new HashSet<String>();
+
+        private boolean anyElement;
+
+        ReachableElements(XSType xsType) {
+            collectType(xsType, Collections.newSetFromMap(new IdentityHashMap<XSType, Boolean>()));
+        }
+
+        boolean mayContain(String namespaceUri, String localName) {
+            if (anyElement)
+                return true;
+
+            if (namespaceUri == null)
+                return localNames.contains(localName);
+
+            return qualifiedNames.contains(qualify(namespaceUri, localName));
+        }
+
+        private void collectType(XSType xsType, Set<XSType> visitedTypes) {
+            for (XSType xsSubstitutable : xsType.listSubstitutables()) {
+                if (!visitedTypes.add(xsSubstitutable))
+                    continue;
+
+                XSComplexType xsComplexType = xsSubstitutable.asComplexType();
+                if (xsComplexType == null)
+                    continue;
+
+                XSParticle xsParticle = xsComplexType.getContentType().asParticle();
+                if (xsParticle != null) {
+                    collectTerm(xsParticle.getTerm(), visitedTypes);
+                }
+            }
+        }
+
+        private void collectTerm(XSTerm xsTerm, Set<XSType> visitedTypes) {
+            if (xsTerm.isElementDecl()) {
+                for (XSElementDecl xsElementDecl : xsTerm.asElementDecl().getSubstitutables()) {
+                    localNames.add(xsElementDecl.getName());
+                    qualifiedNames.add(qualify(xsElementDecl.getTargetNamespace(), xsElementDecl.getName()));
+                    collectType(xsElementDecl.getType(), visitedTypes);
+                }
+            } else if (xsTerm.isModelGroup()) {
+                for (XSParticle xsChildParticle : xsTerm.asModelGroup().getChildren()) {
+                    collectTerm(xsChildParticle.getTerm(), visitedTypes);
+                }
+            } else if (xsTerm.isModelGroupDecl()) {
+                XSModelGroupDecl xsModelGroupDecl = xsTerm.asModelGroupDecl();
+                XSModelGroup xsModelGroup = xsModelGroupDecl.getModelGroup();
+                for (XSParticle xsChildParticle : xsModelGroup.getChildren()) {
+                    collectTerm(xsChildParticle.getTerm(), visitedTypes);
+                }
+            } else {
+                // Wildcard
+                anyElement = true;
+            }
+        }
+
+        private static String qualify(String namespaceUri, String localName) {
+            return (namespaceUri == null ? "" : namespaceUri) + "}" + localName;
+        }
+    }
+
+    /**
+     * Parser of the supported subset. Returns null as soon as the expression leaves the subset.
+     */
+    private static final class Parser {
+
+        private final String expression;
+
+        private final String[][] namespaces;
+
+        private int pos;
+
+        Parser(String expression, String[][] namespaces) {
+            this.expression = expression;
+            this.namespaces = namespaces;
+        }
+
+        JrxXPath parse() throws XPathExpressionException {
+            if (expression == null || expression.isEmpty())
+                return null;
+
+            List<Step> steps = new ArrayList<Step>();
+            NameTest attributeTest = null;
+
+            boolean absolute = expression.charAt(0) == '/';
+            boolean descendant = false;
+            if (absolute) {
+                pos++;
+                if (consume('/')) {
+                    descendant = true;
+                } else if (pos == expression.length()) {
+                    // The document node only
+                    return null;
+                }
+            }
+
+            while (true) {
+                if (pos >= expression.length())
+                    return null;
+
+                char chr = expression.charAt(pos);
+                if (chr == '@') {
+                    pos++;
+                    attributeTest = parseNameTest(true);
+                    if (attributeTest == null || pos != expression.length())
+                        return null;
+                    if (descendant) {
+                        steps.add(new Step(Axis.DESCENDANT_OR_SELF, null, Collections.<Predicate> emptyList(),
+                                null));
+                    }
+                    break;
+                }
+
+                if (chr == '.') {
+                    pos++;
+                    if (pos < expression.length() && expression.charAt(pos) == '.')
+                        return null;
+                    steps.add(new Step(descendant ? Axis.DESCENDANT_OR_SELF : Axis.SELF, null, Collections
+                            .<Predicate> emptyList(), null));
+                } else {
+                    NameTest nameTest = parseNameTest(false);
+                    if (nameTest == null)
+                        return null;
+
+                    List<Predicate> predicates = new ArrayList<Predicate>();
+                    boolean positional = false;
+                    while (pos < expression.length() && expression.charAt(pos) == '[') {
+                        Predicate predicate = parsePredicate();
+                        if (predicate == null)
+                            return null;
+                        positional |= predicate.position >= 0;
+                        predicates.add(predicate);
+                    }
+
+                    if (descendant && positional) {
+                        // Positions are counted among the children of every node
+                        steps.add(new Step(Axis.DESCENDANT_OR_SELF, null, Collections.<Predicate> emptyList(),
+                                nameTest));
+                        steps.add(new Step(Axis.CHILD, nameTest, predicates, null));
+                    } else if (descendant) {
+                        steps.add(new Step(Axis.DESCENDANT, nameTest, predicates, nameTest));
+                    } else {
+                        steps.add(new Step(Axis.CHILD, nameTest, predicates, null));
+                    }
+                }
+
+                if (pos == expression.length())
+                    break;
+
+                if (!consume('/'))
+                    return null;
+                descendant = consume('/');
+            }
+
+            return new JrxXPath(expression, absolute, steps.toArray(new Step[steps.size()]), attributeTest);
+        }
+
+        private Predicate parsePredicate() throws XPathExpressionException {
+            int end = expression.indexOf(']', pos);
+            if (end < 0)
+                return null;
+
+            String predicateText = expression.substring(pos + 1, end);
+            pos = end + 1;
+
+            if (predicateText.equals("last()"))
+                return new Predicate(0, null, null);
+
+            if (!predicateText.isEmpty() && predicateText.chars().allMatch(Character::isDigit)) {
+                int position = Integer.parseInt(predicateText);
+                return position > 0 ? new Predicate(position, null, null) : null;
+            }
+
+            if (!predicateText.startsWith("@"))
+                return null;
+
+            String attributeName = predicateText.substring(1);
+            String attributeValue = null;
+            int equalsIndex = predicateText.indexOf('=');
+            if (equalsIndex >= 0) {
+                attributeName = predicateText.substring(1, equalsIndex);
+                String literal = predicateText.substring(equalsIndex + 1);
+                if (literal.length() < 2 || (literal.charAt(0) != '\'' && literal.charAt(0) != '"')
+                        || literal.charAt(literal.length() - 1) != literal.charAt(0))
+                    return null;
+                attributeValue = literal.substring(1, literal.length() - 1);
+                if (attributeValue.indexOf(literal.charAt(0)) >= 0)
+                    return null;
+            }
+
+            NameTest attributeTest = toNameTest(attributeName, true);
+            return attributeTest == null ? null : new Predicate(-1, attributeTest, attributeValue);
+        }
+
+        private NameTest parseNameTest(boolean attribute) throws XPathExpressionException {
+            int start = pos;
+            while (pos < expression.length() && expression.charAt(pos) != '/' && expression.charAt(pos) != '[') {
+                pos++;
+            }
+
+            return toNameTest(expression.substring(start, pos), attribute);
+        }
+
+        private NameTest toNameTest(String name, boolean attribute) throws XPathExpressionException {
+            if (name.equals("*"))
+                return new NameTest(null, null, true);
+
+            int colonIndex = name.indexOf(':');
+            String prefix = colonIndex < 0 ? null : name.substring(0, colonIndex);
+            String localName = colonIndex < 0 ? name : name.substring(colonIndex + 1);
+            if ((prefix != null && !isNCName(prefix)) || (!localName.equals("*") && !isNCName(localName)))
+                return null;
+            if (prefix == null && localName.equals("*"))
+                return null;
+
+            String namespaceUri = null;
+            if (prefix != null) {
+                namespaceUri = resolvePrefix(prefix);
+            }
+
+            return new NameTest(namespaceUri, localName.equals("*") ? null : localName, false);
+        }
+
+        private String resolvePrefix(String prefix) throws XPathExpressionException {
+            if (namespaces != null) {
+                for (String[] namespace : namespaces) {
+                    if (prefix.equals(namespace[0]))
+                        return namespace[1];
+                }
+            }
+
+            throw new XPathExpressionException("Undeclared namespace prefix: " + prefix + " in: " + expression);
+        }
+
+        private boolean consume(char chr) {
+            if (pos < expression.length() && expression.charAt(pos) == chr) {
+                pos++;
+                return true;
+            }
+
+            return false;
+        }
+
+        private static boolean isNCName(String name) {
+            if (name.isEmpty() || !(Character.isLetter(name.charAt(0)) || name.charAt(0) == '_'))
+                return false;
+
+            for (int i = 1; i < name.length(); i++) {
+                char chr = name.charAt(i);
+                if (!(Character.isLetterOrDigit(chr) || chr == '_' || chr == '-' || chr == '.'))
+                    return false;
+            }
+
+            return true;
+        }
+    }
+}
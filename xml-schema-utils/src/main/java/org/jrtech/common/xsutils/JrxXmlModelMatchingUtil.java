@@ -21,15 +21,20 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
 import org.jrtech.common.xsutils.model.JrxChoiceGroup;
 import org.jrtech.common.xsutils.model.JrxDeclaration;
+import org.jrtech.common.xsutils.model.JrxDocument;
 import org.jrtech.common.xsutils.model.JrxElement;
 import org.jrtech.common.xsutils.model.JrxElementGroup;
 import org.jrtech.common.xsutils.model.JrxTerm;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import com.sun.xml.xsom.XSComplexType;
 import com.sun.xml.xsom.XSElementDecl;
 import com.sun.xml.xsom.XSModelGroup;
@@ -41,6 +46,11 @@ import com.sun.xml.xsom.XSType;
 
 /**
  * The Xml Element content matching based on Schema.
+ * <p>
+ * The schema side of the matching, i.e. the particles of a model group and the index of their element names, only
+ * depends on the schema. It is compiled once per model group, respectively per choice particle, and kept while the
+ * schema component is in use and the memory allows it. A matching call then only assigns the existing terms to the
+ * compiled particles.
  *
  */
 public class JrxXmlModelMatchingUtil implements Serializable {
@@ -49,6 +59,23 @@ public class JrxXmlModelMatchingUtil implements Serializable {
 
     private static final Logger log = LoggerFactory.getLogger(JrxXmlModelMatchingUtil.class);
 
+    // Soft values, as the tables refer to their key
+    private static final LoadingCache<XSModelGroup, MatchingTable> MODEL_GROUP_TABLE_CACHE = CacheBuilder
+            .newBuilder().weakKeys().softValues().build(new CacheLoader<XSModelGroup, MatchingTable>() {
+                @Override
+                public MatchingTable load(XSModelGroup xsModelGroup) {
+                    return new MatchingTable(retrieveParticles(xsModelGroup).toArray(new XSParticle[] {}));
+                }
+            });
+
+    private static final LoadingCache<XSParticle, MatchingTable> CHOICE_PARTICLE_TABLE_CACHE = CacheBuilder
+            .newBuilder().weakKeys().softValues().build(new CacheLoader<XSParticle, MatchingTable>() {
+                @Override
+                public MatchingTable load(XSParticle xsChoiceParticle) {
+                    return new MatchingTable(new XSParticle[] { xsChoiceParticle });
+                }
+            });
+
     private XSParticle[] leftValueArray;
 
     private Map<String, Integer> leftValueIndexTable;
@@ -65,6 +92,32 @@ public class JrxXmlModelMatchingUtil implements Serializable {
         return performMatching(jrxElement.getChildrenBlock());
     }
 
+    /**
+     * Match the children of an element of each document, see {@link #performMatching(JrxElement)}. The compiled
+     * matching tables are shared by all documents of the same type.
+     * 
+     * @param jrxDocuments
+     * @param elementSelector
+     *            selects the element to match from a document, e.g. the root element
+     * @return the matching per document in the order of the documents, null where no element has been selected or
+     *         the matching could not be performed
+     */
+    public static List<JrxXmlModelMatchingUtil> match(List<JrxDocument> jrxDocuments,
+            Function<JrxDocument, JrxElement> elementSelector) {
+        List<JrxXmlModelMatchingUtil> result = new ArrayList<JrxXmlModelMatchingUtil>(jrxDocuments.size());
+        for (JrxDocument jrxDocument : jrxDocuments) {
+            JrxElement jrxElement = jrxDocument == null ? null : elementSelector.apply(jrxDocument);
+            JrxXmlModelMatchingUtil matchingUtil = getInstance();
+            if (jrxElement != null && matchingUtil.performMatching(jrxElement)) {
+                result.add(matchingUtil);
+            } else {
+                result.add(null);
+            }
+        }
+
+        return result;
+    }
+
     @SuppressWarnings({ "unchecked", "unused" })
     private boolean buildMatchingTable(XSModelGroup xsModelGroup) {
         // Jumin: This method is not yet used but preserve for future feature.
@@ -72,18 +125,11 @@ public class JrxXmlModelMatchingUtil implements Serializable {
             return false;
         }
 
-        leftValueArray = retrieveParticles(xsModelGroup).toArray(new XSParticle[] {});
-        rightExistingParticleArray = new List[leftValueArray.length];
-        for (int i = 0; i < rightExistingParticleArray.length; i++) {
-            rightExistingParticleArray[i] = new ArrayList<JrxTerm<?>>();
-        }
-        rightNewParticleArray = new XSParticle[leftValueArray.length];
-        leftValueIndexTable = indexValueList(leftValueArray);
+        useMatchingTable(MODEL_GROUP_TABLE_CACHE.getUnchecked(xsModelGroup));
 
         return true;
     }
 
-    @SuppressWarnings("unchecked")
     private boolean buildMatchingTable(JrxElementGroup jrxElementGroup) {
         if (jrxElementGroup == null) {
             return false;
@@ -96,21 +142,26 @@ public class JrxXmlModelMatchingUtil implements Serializable {
 
         if (XSModelGroup.CHOICE.equals(xsModelGroup.getCompositor())) {
             XSParticle xsModelGroupParticle = retrieveParticleOfChoiceElementGroup((JrxChoiceGroup) jrxElementGroup);
-            if (xsModelGroupParticle != null) {
-                leftValueArray = new XSParticle[] { xsModelGroupParticle };
+            if (xsModelGroupParticle == null) {
+                return false;
             }
+            useMatchingTable(CHOICE_PARTICLE_TABLE_CACHE.getUnchecked(xsModelGroupParticle));
         } else {
-            leftValueArray = retrieveParticles(xsModelGroup).toArray(new XSParticle[] {});
+            useMatchingTable(MODEL_GROUP_TABLE_CACHE.getUnchecked(xsModelGroup));
         }
 
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void useMatchingTable(MatchingTable matchingTable) {
+        leftValueArray = matchingTable.particles;
+        leftValueIndexTable = matchingTable.nameIndexTable;
         rightExistingParticleArray = new List[leftValueArray.length];
         for (int i = 0; i < rightExistingParticleArray.length; i++) {
             rightExistingParticleArray[i] = new ArrayList<JrxTerm<?>>();
         }
         rightNewParticleArray = new XSParticle[leftValueArray.length];
-        leftValueIndexTable = indexValueList(leftValueArray);
-
-        return true;
     }
 
     private XSParticle retrieveParticleOfChoiceElementGroup(JrxChoiceGroup jrxChoiceGroup) {
@@ -182,7 +233,7 @@ public class JrxXmlModelMatchingUtil implements Serializable {
         return true;
     }
 
-    private List<XSParticle> retrieveParticles(XSModelGroup xsModelGroup) {
+    private static List<XSParticle> retrieveParticles(XSModelGroup xsModelGroup) {
         if (xsModelGroup == null) {
             return null;
         }
@@ -212,7 +263,7 @@ public class JrxXmlModelMatchingUtil implements Serializable {
         return jrxParticleList;
     }
 
-    private Map<String, Integer> indexValueList(XSParticle[] valueArray) {
+    private static Map<String, Integer> indexValueList(XSParticle[] valueArray) {
         if (valueArray == null) {
             return null;
         }
@@ -243,7 +294,7 @@ public class JrxXmlModelMatchingUtil implements Serializable {
         return result;
     }
 
-    private List<XSElementDecl> retrieveElementsFromModelGroup(XSModelGroup xsModelGroup) {
+    private static List<XSElementDecl> retrieveElementsFromModelGroup(XSModelGroup xsModelGroup) {
         if (xsModelGroup == null) {
             return null;
         }
@@ -274,7 +325,7 @@ public class JrxXmlModelMatchingUtil implements Serializable {
         return jrxTermList;
     }
 
-    private List<XSElementDecl> retrieveElementsFromModelGroupDecl(XSModelGroupDecl xsModelGroupDecl) {
+    private static List<XSElementDecl> retrieveElementsFromModelGroupDecl(XSModelGroupDecl xsModelGroupDecl) {
         if (xsModelGroupDecl == null) {
             return null;
         }
@@ -290,6 +341,10 @@ public class JrxXmlModelMatchingUtil implements Serializable {
         return rightExistingParticleArray;
     }
 
+    /**
+     * @return the particles of the compiled matching table, shared by all matchings of the model group and therefore
+     *         not to be modified
+     */
     public XSParticle[] getSchemaParticleArray() {
         return leftValueArray;
     }
@@ -356,10 +411,11 @@ public class JrxXmlModelMatchingUtil implements Serializable {
                 nestedElementGroupCheckAgainstResolvedParticles = true;
             }
             if (nestedElementGroupCheckAgainstResolvedParticles) {
-                List<XSParticle> xsSubSubParticleList = retrieveParticles(jrxSubElementGroup.getXsdDeclaration());
+                XSParticle[] xsSubSubParticles = MODEL_GROUP_TABLE_CACHE.getUnchecked(jrxSubElementGroup
+                        .getXsdDeclaration()).particles;
                 int matchCount = 0;
-                for (int i = 0; i < xsSubSubParticleList.size(); i++) {
-                    XSParticle xsSubSubParticle = xsSubSubParticleList.get(i);
+                for (int i = 0; i < xsSubSubParticles.length; i++) {
+                    XSParticle xsSubSubParticle = xsSubSubParticles[i];
                     if (xsSubSubParticle.getTerm() instanceof XSElementDecl) {
                         XSElementDecl xsSubSubElementDecl = xsSubSubParticle.getTerm().asElementDecl();
                         if (leftValueIndexTable.containsKey(xsSubSubElementDecl.getName())) {
@@ -374,7 +430,7 @@ public class JrxXmlModelMatchingUtil implements Serializable {
                     }
                 }
 
-                if (matchCount == xsSubSubParticleList.size()) {
+                if (matchCount == xsSubSubParticles.length) {
                     // all sub declarations matched
                     if (log.isDebugEnabled()) {
                         log.debug("FMS Element sub group matched! -> " + parentDeclaration.getName());
@@ -421,4 +477,19 @@ public class JrxXmlModelMatchingUtil implements Serializable {
 
         return null;
     }
+
+    /**
+     * The compiled schema side of a matching: the particles and the index of the element names to the particles.
+     */
+    private static final class MatchingTable {
+
+        private final XSParticle[] particles;
+
+        private final Map<String, Integer> nameIndexTable;
+
+        private MatchingTable(XSParticle[] particles) {
+            this.particles = particles;
+            this.nameIndexTable = indexValueList(particles);
+        }
+    }
 }
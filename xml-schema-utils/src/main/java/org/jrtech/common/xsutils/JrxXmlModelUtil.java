@@ -16,16 +16,35 @@
  */
 package org.jrtech.common.xsutils;
 
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 import javax.xml.XMLConstants;
 import javax.xml.parsers.SAXParserFactory;
@@ -37,7 +56,9 @@ import org.jrtech.common.xsutils.model.JrxChoiceGroup;
 import org.jrtech.common.xsutils.model.JrxChoiceGroupUtil;
 import org.jrtech.common.xsutils.model.JrxDeclaration;
 import org.jrtech.common.xsutils.model.JrxDocument;
+import org.jrtech.common.xsutils.model.JrxDocumentCodec;
 import org.jrtech.common.xsutils.model.JrxElement;
+import org.jrtech.common.xsutils.model.JrxElementEnricher;
 import org.jrtech.common.xsutils.model.JrxElementGroup;
 import org.jrtech.common.xsutils.model.JrxGroup;
 import org.jrtech.common.xsutils.model.JrxTerm;
@@ -51,22 +72,24 @@ import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.sun.xml.xsom.XSAttributeUse;
 import com.sun.xml.xsom.XSComplexType;
 import com.sun.xml.xsom.XSContentType;
 import com.sun.xml.xsom.XSDeclaration;
 import com.sun.xml.xsom.XSElementDecl;
-import com.sun.xml.xsom.XSFacet;
 import com.sun.xml.xsom.XSModelGroup;
 import com.sun.xml.xsom.XSModelGroup.Compositor;
 import com.sun.xml.xsom.XSModelGroupDecl;
 import com.sun.xml.xsom.XSParticle;
-import com.sun.xml.xsom.XSRestrictionSimpleType;
 import com.sun.xml.xsom.XSSchema;
 import com.sun.xml.xsom.XSSchemaSet;
 import com.sun.xml.xsom.XSSimpleType;
 import com.sun.xml.xsom.XSTerm;
 import com.sun.xml.xsom.XSType;
+import com.sun.xml.xsom.parser.JAXPParser;
+import com.sun.xml.xsom.parser.XMLParser;
 import com.sun.xml.xsom.parser.XSOMParser;
 import com.sun.xml.xsom.util.DomAnnotationParserFactory;
 
@@ -78,6 +101,10 @@ public class JrxXmlModelUtil {
 
     private static final Logger log = LoggerFactory.getLogger(JrxXmlModelUtil.class);
 
+    // Schemas shared with other sessions, never modified
+    private final CompiledSchemaSet compiledSchemaSet;
+
+    // Schemas added to this instance in namespaces not covered by the compiled schema set
     private Map<String, XSSchema> xsSchemaMap = new HashMap<String, XSSchema>();
 
     private Map<String, String> namespaceMap = new HashMap<String, String>();
@@ -90,14 +117,86 @@ public class JrxXmlModelUtil {
 
     private boolean toStringWithValue = false;
 
+    // Enriched skeleton documents per root element and options, see convertXsdToJrxDoc. The prototypes are never
+    // handed out, only their clones. Soft values, as the prototypes refer to their key.
+    private static final Cache<XSElementDecl, ConcurrentMap<DocumentPrototypeKey, DocumentPrototype>>
+            DOCUMENT_PROTOTYPE_CACHE = CacheBuilder.newBuilder().weakKeys().softValues().build();
+
+    private boolean lazyEnrichment = false;
+
+    private final JrxElementEnricher lazyEnricher = new JrxElementEnricher() {
+        @Override
+        public void enrich(JrxElement jrxElement) throws Exception {
+            enrichJrxElement(jrxElement);
+            enrichJrxElementRecursive(jrxElement);
+        }
+    };
+
+    /**
+     * Default minimum number of terms in a subtree for the parallel validation to split it.
+     */
+    public static final int DEFAULT_PARALLEL_VALIDATION_THRESHOLD = 1000;
+
+    /**
+     * Indentation of the pretty formatted text representation of the JRX model.
+     */
+    public static final String DEFAULT_INDENT = "    ";
+
+    private int parallelValidationThreshold = DEFAULT_PARALLEL_VALIDATION_THRESHOLD;
+
+    private final Object parallelValidationLock = new Object();
+
+    // Parallel validation run of the current thread, bound to the worker threads by the forked tasks
+    private final ThreadLocal<ParallelValidationContext> parallelValidationContext =
+            new ThreadLocal<ParallelValidationContext>();
+
+    private final ThreadLocal<IncrementalValidationContext> incrementalValidationContext =
+            new ThreadLocal<IncrementalValidationContext>();
+
+    private JrxMetricsSink metricsSink;
+
     public static JrxXmlModelUtil newInstance() {
         return new JrxXmlModelUtil();
     }
 
+    /**
+     * Create a session sharing the schemas of the given compiled schema set. Sessions of the same set may be used by
+     * different threads concurrently, each session by one thread at a time.
+     * 
+     * @param compiledSchemaSet
+     * @return the new session
+     * @see CompiledSchemaSet#newSession()
+     */
+    public static JrxXmlModelUtil newInstance(CompiledSchemaSet compiledSchemaSet) {
+        return new JrxXmlModelUtil(compiledSchemaSet);
+    }
+
     public JrxXmlModelUtil() {
+        this(CompiledSchemaSet.empty());
+    }
+
+    protected JrxXmlModelUtil(CompiledSchemaSet compiledSchemaSet) {
+        this.compiledSchemaSet = compiledSchemaSet;
         xsd2XmlUtil = XsdToXmlUtil.getInstance();
     }
 
+    /**
+     * @return the compiled schema set shared by this instance, empty when it was not created for one
+     */
+    public CompiledSchemaSet getCompiledSchemaSet() {
+        return compiledSchemaSet;
+    }
+
+    /**
+     * Compile the schemas of this instance, those of its compiled schema set as well as the ones added to it, into a
+     * set to be shared by other sessions.
+     * 
+     * @return the compiled set
+     */
+    public CompiledSchemaSet compileSchemaSet() {
+        return compiledSchemaSet.withSchemas(new ArrayList<XSSchema>(xsSchemaMap.values()));
+    }
+
     /**
      * Add XML schema from the given URL for further processes. One or more XML schemas should be provided to allow the
      * element schema matching.
@@ -108,15 +207,60 @@ public class JrxXmlModelUtil {
      * @throws SAXException
      */
     public String[] addSchema(URL xmlSchemaUrl) throws SAXException {
-        XSOMParser xsomParser = new XSOMParser(SAXParserFactory.newInstance());
-        xsomParser.setAnnotationParser(new DomAnnotationParserFactory());
-        xsomParser.parse(xmlSchemaUrl);
+        return addSchemaSet(parseSchemaSet(xmlSchemaUrl));
+    }
 
-        XSSchemaSet schemaSet = xsomParser.getResult();
-        if (schemaSet == null) {
-            throw new SchemaNotAvailableException();
+    /**
+     * Add XML schema from the given URL, building it from the given snapshot file when the snapshot matches the XML
+     * schema documents. Otherwise the XML schema is parsed and the snapshot is written again, see
+     * {@link SchemaSnapshot}.
+     * <p>
+     * 
+     * @param xmlSchemaUrl
+     * @param snapshotFile
+     * @return array of target namespace URI
+     * @throws SAXException
+     */
+    public String[] addSchema(URL xmlSchemaUrl, File snapshotFile) throws SAXException {
+        return addSchemaSet(SchemaSnapshot.parseSchemaSet(xmlSchemaUrl, snapshotFile));
+    }
+
+    /**
+     * Add the XML schemas from the given URLs, parsed in parallel by the common fork/join pool.
+     * 
+     * @param xmlSchemaUrls
+     * @return the entries of the schema sets in the order of the URLs
+     * @throws SAXException
+     * @see #addSchemas(Collection, ExecutorService)
+     */
+    public List<SchemaRegistry.Entry> addSchemas(Collection<URL> xmlSchemaUrls) throws SAXException {
+        return addSchemas(xmlSchemaUrls, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Add the XML schemas from the given URLs. The schemas are parsed in parallel by the given executor, each one by
+     * its own XSOM parser, and are added once all of them have been parsed. When any of them fails, none is added.
+     * 
+     * @param xmlSchemaUrls
+     * @param executor
+     *            runs the parses
+     * @return the entries of the schema sets in the order of the URLs, each one with its own load time
+     * @throws SAXException
+     *             the first failure in the order of the URLs
+     */
+    public List<SchemaRegistry.Entry> addSchemas(Collection<URL> xmlSchemaUrls, ExecutorService executor)
+            throws SAXException {
+        List<SchemaRegistry.Entry> entryList = SchemaRegistry.loadEntries(xmlSchemaUrls, executor,
+                xmlSchemaUrl -> SchemaRegistry.parseEntry(xmlSchemaUrl, null));
+
+        for (SchemaRegistry.Entry entry : entryList) {
+            addSchemaSet(entry.getSchemaSet());
         }
 
+        return entryList;
+    }
+
+    private String[] addSchemaSet(XSSchemaSet schemaSet) {
         StringBuffer namespaceUriBuffer = new StringBuffer();
         // Load all namespaces in XSD
         Iterator<XSSchema> it = schemaSet.iterateSchema();
@@ -132,6 +276,44 @@ public class JrxXmlModelUtil {
         return namespaceUriBuffer.toString().split(",");
     }
 
+    /**
+     * Parse the XML schema from the given URL with a dedicated XSOM parser.
+     * <p>
+     * 
+     * @param xmlSchemaUrl
+     * @return the parsed schema set, never null
+     * @throws SAXException
+     * @throws SchemaNotAvailableException
+     *             when the parser does not produce any result
+     */
+    protected static XSSchemaSet parseSchemaSet(URL xmlSchemaUrl) throws SAXException {
+        return parseSchemaSet(xmlSchemaUrl, new JAXPParser(SAXParserFactory.newInstance()));
+    }
+
+    /**
+     * Parse the XML schema from the given URL with a dedicated XSOM parser reading the XML documents with the given
+     * parser.
+     * 
+     * @param xmlSchemaUrl
+     * @param xmlParser
+     * @return the parsed schema set, never null
+     * @throws SAXException
+     * @throws SchemaNotAvailableException
+     *             when the parser does not produce any result
+     */
+    static XSSchemaSet parseSchemaSet(URL xmlSchemaUrl, XMLParser xmlParser) throws SAXException {
+        XSOMParser xsomParser = new XSOMParser(xmlParser);
+        xsomParser.setAnnotationParser(new DomAnnotationParserFactory());
+        xsomParser.parse(xmlSchemaUrl);
+
+        XSSchemaSet schemaSet = xsomParser.getResult();
+        if (schemaSet == null) {
+            throw new SchemaNotAvailableException();
+        }
+
+        return schemaSet;
+    }
+
     /**
      * Add XML schema for further processes. One or more XML schemas should be provided to allow the element schema
      * matching.
@@ -144,7 +326,7 @@ public class JrxXmlModelUtil {
      */
     public String addSchema(XSSchema xsSchema) {
         String namespace = xsSchema.getTargetNamespace();
-        if (!xsSchemaMap.containsKey(namespace)) {
+        if (!compiledSchemaSet.hasSchema(namespace) && !xsSchemaMap.containsKey(namespace)) {
             xsSchemaMap.put(namespace, xsSchema);
         }
         return namespace;
@@ -158,7 +340,11 @@ public class JrxXmlModelUtil {
         if (isRootInNamespace(jrxElement)) {
             // Root element in the schema definition. Get the element
             // declaration directly from schema.
+            PhaseRecorder recorder = metricsSink != null ? PhaseRecorder.current() : null;
+            long lookupStartNanos = recorder != null ? System.nanoTime() : 0L;
             XSSchema xsSchema = getSchema(jrxElement.getNamespaceUri());
+            if (recorder != null)
+                recorder.countSchemaLookup(System.nanoTime() - lookupStartNanos);
 
             if (xsSchema == null) {
                 log.warn("No Schema available for Namespace URI: " + jrxElement.getNamespaceUri() + " -> "
@@ -259,224 +445,228 @@ public class JrxXmlModelUtil {
     }
 
     public String convertDocumentToString(JrxDocument jrxDocument, boolean prettyFormat) {
-        StringBuffer sb = new StringBuffer();
+        return convertJrxElementToString(jrxDocument.getRootElement(), prettyFormat);
+    }
 
-        JrxElement jrxRootElement = jrxDocument.getRootElement();
-        sb.append(convertJrxElementToString(jrxRootElement));
+    /**
+     * Write the text representation of the JRX document, as given by {@link #convertDocumentToString(JrxDocument)},
+     * to the writer. The model is walked directly, the text is not built in memory.
+     *
+     * @param jrxDocument
+     * @param writer
+     * @param indent
+     *            string written once per nesting level at the start of every line, null to write the document on a
+     *            single line
+     * @throws IOException
+     */
+    public void writeDocument(JrxDocument jrxDocument, Writer writer, String indent) throws IOException {
+        writeJrxElement(jrxDocument.getRootElement(), writer, indent);
+    }
 
-        String text = sb.toString();
+    /**
+     * Write the text representation of the JRX document to the stream, encoded in UTF-8.
+     *
+     * @see #writeDocument(JrxDocument, Writer, String)
+     */
+    public void writeDocument(JrxDocument jrxDocument, OutputStream outputStream, String indent) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        writeDocument(jrxDocument, writer, indent);
+        writer.flush();
+    }
 
-        if (prettyFormat) {
-            text = prettyFormat(text);
+    /**
+     * Write the text representation of the JRX element and its descendants to the writer.
+     *
+     * @see #writeDocument(JrxDocument, Writer, String)
+     */
+    public void writeJrxElement(JrxElement jrxElement, Writer writer, String indent) throws IOException {
+        if (indent == null) {
+            appendJrxElement(jrxElement, writer);
+            return;
         }
 
-        return text;
+        PrettyFormatWriter prettyFormatWriter = new PrettyFormatWriter(writer, indent);
+        appendJrxElement(jrxElement, prettyFormatWriter);
+        prettyFormatWriter.finish();
     }
 
-    public static String prettyFormat(String text) {
-        String formattedText = "";
-        int pos = 0;
-        int strLen = text.length();
-        String indentStr = "    ";
-        String newLine = "\n";
-        char chr;
-
-        for (int i = 0; i < strLen; i++) {
-            chr = text.charAt(i);
-
-            // if (chr == '}' || chr == ']') {
-            if (chr == '}') {
-                formattedText = formattedText + newLine;
-                pos = pos - 1;
-
-                for (int j = 0; j < pos; j++) {
-                    formattedText = formattedText + indentStr;
-                }
-            }
-
-            formattedText = formattedText + chr;
-
-            // if (chr == '{' || chr == '[' || chr == ',') {
-            if (chr == '{' || chr == ',') {
-                formattedText = formattedText + newLine;
+    /**
+     * Write the JRX document in the compact binary format of {@link JrxDocumentCodec}. The schema declarations are not
+     * written, they are attached again by {@link #decodeDocument(InputStream)}.
+     *
+     * @param jrxDocument
+     * @param outputStream
+     *            stream to write to, neither flushed nor closed
+     * @throws IOException
+     */
+    public void encodeDocument(JrxDocument jrxDocument, OutputStream outputStream) throws IOException {
+        JrxDocumentCodec.encode(jrxDocument, outputStream);
+    }
 
-                // if (chr == '{' || chr == '[') {
-                if (chr == '{') {
-                    pos = pos + 1;
-                }
+    /**
+     * Read a JRX document written by {@link #encodeDocument(JrxDocument, OutputStream)}. The schema declarations are
+     * taken from the schemas of this instance, see {@link #getSchema(String)}, which must be loaded from the same XML
+     * schemas as the ones of the written document. Elements whose enrichment was pending are enriched lazily by this
+     * instance.
+     *
+     * @param inputStream
+     *            stream to read from, positioned after the document when it supports {@link InputStream#mark(int)}
+     * @return the document
+     * @throws IOException
+     *             when the stream does not contain a valid document or a schema is not available
+     */
+    public JrxDocument decodeDocument(InputStream inputStream) throws IOException {
+        return JrxDocumentCodec.decode(inputStream, this::getSchema, lazyEnricher);
+    }
 
-                for (int k = 0; k < pos; k++) {
-                    formattedText = formattedText + indentStr;
-                }
-            }
+    public static String prettyFormat(String text) {
+        StringWriter stringWriter = new StringWriter(text.length() * 2);
+        PrettyFormatWriter prettyFormatWriter = new PrettyFormatWriter(stringWriter, DEFAULT_INDENT);
+        try {
+            prettyFormatWriter.write(text);
+            prettyFormatWriter.finish();
+        } catch (IOException e) {
+            // Not thrown by StringWriter
+            throw new UncheckedIOException(e);
         }
-        formattedText = formattedText.replaceAll("\\{\\s+\\}", "{}");
 
-        return formattedText;
+        return stringWriter.toString();
     }
 
-    private String convertJrxElementGroupToString(JrxElementGroup jrxElementGroup) {
-        StringBuffer sb = new StringBuffer();
-
+    private void appendJrxElementGroup(JrxElementGroup jrxElementGroup, Writer writer) throws IOException {
         if (jrxElementGroup == null)
-            return "";
+            return;
 
         if (jrxElementGroup instanceof JrxChoiceGroup) {
             JrxChoiceGroup jrxChoiceGroup = (JrxChoiceGroup) jrxElementGroup;
-            sb.append(jrxChoiceGroup.getName());
+            writer.write(String.valueOf(jrxChoiceGroup.getName()));
         } else if (XSModelGroup.ALL.equals(jrxElementGroup.getCompositor())) {
-            sb.append("[").append(jrxElementGroup.getCompositor().name()).append("]");
+            writer.append("[").append(jrxElementGroup.getCompositor().name()).append("]");
         }
         if (jrxElementGroup.isRepetitive()) {
             if (jrxElementGroup.isMandatory()) {
-                sb.append("+");
+                writer.write("+");
             } else {
-                sb.append("*");
+                writer.write("*");
             }
         } else {
             if (!jrxElementGroup.isMandatory()) {
-                sb.append("?");
+                writer.write("?");
             }
         }
 
         if (jrxElementGroup instanceof JrxChoiceGroup) {
             // show selection
-            sb.append("(");
+            writer.write("(");
             JrxChoiceGroup jrxChoiceGroup = (JrxChoiceGroup) jrxElementGroup;
             JrxTerm<?> jrxTerm = jrxChoiceGroup.getSelection();
             if (jrxTerm != null) {
                 if (jrxTerm instanceof JrxElement) {
-                    sb.append(convertJrxElementToString((JrxElement) jrxTerm));
+                    appendJrxElement((JrxElement) jrxTerm, writer);
                 } else {
-                    sb.append(convertJrxElementGroupToString((JrxElementGroup) jrxTerm));
+                    appendJrxElementGroup((JrxElementGroup) jrxTerm, writer);
                 }
             }
-            sb.append(")");
+            writer.write(")");
         } else {
-            sb.append("{");
+            writer.write("{");
             for (int i = 0; i < jrxElementGroup.getElements().size(); i++) {
                 if (i > 0)
-                    sb.append(",");
-                JrxTerm<?> jrxSubTerm = jrxElementGroup.getElements().get(i);
-                if (jrxSubTerm instanceof JrxElement) {
-                    sb.append(convertJrxElementToString((JrxElement) jrxSubTerm));
-                } else if (jrxSubTerm instanceof JrxGroup) {
-                    sb.append(convertJrxGroupToString((JrxGroup) jrxSubTerm));
-                } else {
-                    sb.append(convertJrxElementGroupToString((JrxElementGroup) jrxSubTerm));
-                }
+                    writer.write(",");
+                appendJrxTerm(jrxElementGroup.getElements().get(i), writer);
             }
-            sb.append("}");
+            writer.write("}");
         }
+    }
 
-        return sb.toString();
+    private void appendJrxTerm(JrxTerm<?> jrxTerm, Writer writer) throws IOException {
+        if (jrxTerm instanceof JrxElement) {
+            appendJrxElement((JrxElement) jrxTerm, writer);
+        } else if (jrxTerm instanceof JrxGroup) {
+            appendJrxGroup((JrxGroup) jrxTerm, writer);
+        } else {
+            appendJrxElementGroup((JrxElementGroup) jrxTerm, writer);
+        }
     }
 
     public String convertJrxElementToString(JrxElement jrxElement, boolean prettyFormat) {
-        String text = convertJrxElementToString(jrxElement);
-
-        if (prettyFormat) {
-            text = prettyFormat(text);
+        StringWriter stringWriter = new StringWriter();
+        try {
+            writeJrxElement(jrxElement, stringWriter, prettyFormat ? DEFAULT_INDENT : null);
+        } catch (IOException e) {
+            // Not thrown by StringWriter
+            throw new UncheckedIOException(e);
         }
-        return text;
-    }
 
-    private String convertJrxElementToString(JrxElement jrxElement) {
-        StringBuffer sb = new StringBuffer();
+        return stringWriter.toString();
+    }
 
-        sb.append(jrxElement.getName());
+    private void appendJrxElement(JrxElement jrxElement, Writer writer) throws IOException {
+        writer.write(String.valueOf(jrxElement.getName()));
         if (jrxElement.isRepetitive()) {
             if (isElementMandatory(jrxElement)) {
-                sb.append("+");
+                writer.write("+");
             } else {
-                sb.append("*");
+                writer.write("*");
             }
         } else {
             if (!isElementMandatory(jrxElement)) {
-                sb.append("?");
+                writer.write("?");
             }
         }
 
         // Attributes
         if (jrxElement.getAttributeList().size() > 0)
-            sb.append("(");
+            writer.write("(");
         for (int i = 0; i < jrxElement.getAttributeList().size(); i++) {
             if (i > 0)
-                sb.append(",");
-            sb.append("@").append(jrxElement.getAttributeList().get(i));
+                writer.write(",");
+            writer.append("@").append(String.valueOf(jrxElement.getAttributeList().get(i)));
         }
         if (jrxElement.getAttributeList().size() > 0)
-            sb.append(")");
+            writer.write(")");
 
         // Sub-Element
-        sb.append(convertJrxElementGroupToString(jrxElement.getChildrenBlock()));
+        appendJrxElementGroup(jrxElement.getChildrenBlock(), writer);
 
         if (toStringWithValue) {
             if (jrxElement.isLeaf()) {
-                sb.append(":'")
+                writer.append(":'")
                         .append(jrxElement.getXmlElement() == null ? "" : jrxElement.getXmlElement().getTextContent()
                                 .trim()).append("'");
             }
         }
-
-        return sb.toString();
     }
 
-    private String convertJrxGroupToString(JrxGroup jrxGroup) {
-        StringBuffer sb = new StringBuffer();
-
-        sb.append(jrxGroup.getName());
+    private void appendJrxGroup(JrxGroup jrxGroup, Writer writer) throws IOException {
+        writer.write(String.valueOf(jrxGroup.getName()));
         if (jrxGroup.isRepetitive()) {
             if (jrxGroup.isMandatory()) {
-                sb.append("+");
+                writer.write("+");
             } else {
-                sb.append("*");
+                writer.write("*");
             }
         } else {
             if (!jrxGroup.isMandatory()) {
-                sb.append("?");
+                writer.write("?");
             }
         }
 
-        sb.append("{");
+        writer.write("{");
 
         // Sub-Element
         if (jrxGroup.getChildrenBlock() != null) {
-            boolean isChoice = false;
+            String separator = ",";
             if (XSModelGroup.Compositor.CHOICE.equals(jrxGroup.getChildrenBlock().getCompositor())) {
-                // sb.append("(");
-                isChoice = true;
+                separator = "|";
             }
             for (int i = 0; i < jrxGroup.getChildrenBlock().getElements().size(); i++) {
-                JrxTerm<?> jrxSubTerm = jrxGroup.getChildrenBlock().getElements().get(i);
-                if (jrxSubTerm instanceof JrxElement) {
-                    sb.append(convertJrxElementToString((JrxElement) jrxSubTerm));
-                } else if (jrxSubTerm instanceof JrxGroup) {
-                    sb.append(convertJrxGroupToString((JrxGroup) jrxSubTerm));
-                } else {
-                    sb.append(convertJrxElementGroupToString((JrxElementGroup) jrxSubTerm));
-                }
-                if (isChoice) {
-                    sb.append("|");
-                } else {
-                    sb.append(",");
-                }
-            }
-            char lastChar = sb.charAt(sb.length() - 1);
-            if (lastChar == ',' || lastChar == '|') {
-                sb.deleteCharAt(sb.length() - 1);
+                if (i > 0)
+                    writer.write(separator);
+                appendJrxTerm(jrxGroup.getChildrenBlock().getElements().get(i), writer);
             }
-            // if (isChoice) {
-            // sb.append(")");
-            // }
-        }
-        char lastChar = sb.charAt(sb.length() - 1);
-        if (lastChar == ',' || lastChar == '|') {
-            sb.deleteCharAt(sb.length() - 1);
         }
-        sb.append("}");
-
-        return sb.toString();
+        writer.write("}");
     }
 
     /**
@@ -499,13 +689,21 @@ public class JrxXmlModelUtil {
             return null;
         }
 
-        JrxDocument jrxDoc = new JrxDocument();
-        jrxDoc.setXmlDocument(xmlDocument);
-        JrxElement jrxRootElement = convertXmlToJrxModel(xmlRoot, null);
-        jrxRootElement.setOwnerDocument(jrxDoc);
-        jrxDoc.setRootElement(jrxRootElement);
+        PhaseRecorder recorder = startPhase(JrxPhaseMetrics.Phase.CONVERSION, (String) null);
+        try {
+            JrxDocument jrxDoc = new JrxDocument();
+            jrxDoc.setXmlDocument(xmlDocument);
+            JrxElement jrxRootElement = convertXmlToJrxModel(xmlRoot, null);
+            if (recorder != null)
+                recorder.setMessageType(getMessageType(jrxRootElement.getNamespaceUri(), jrxRootElement
+                        .getSimpleName()));
+            jrxRootElement.setOwnerDocument(jrxDoc);
+            jrxDoc.setRootElement(jrxRootElement);
 
-        return jrxDoc;
+            return jrxDoc;
+        } finally {
+            finishPhase(recorder, null);
+        }
     }
 
     /**
@@ -523,6 +721,9 @@ public class JrxXmlModelUtil {
             return null;
         }
 
+        if (metricsSink != null)
+            countNode();
+
         String simpleTagName = XmlUtils.getSimpleTagName(xmlElement.getNodeName());
 		
         JrxElement jrxElement = null;
@@ -668,32 +869,28 @@ public class JrxXmlModelUtil {
                 if (jrxChildElement.getXsdDeclaration() != null) {
                     XSModelGroup xsModelGroup = jrxElementGroup.getXsdDeclaration();
                     if (xsModelGroup != null) {
-                        XSParticle[] xsChildParticles = xsModelGroup.getChildren();
-                        for (XSParticle xsChildParticle : xsChildParticles) {
-                            if (xsChildParticle.getTerm().equals(jrxChildElement.getXsdDeclaration())) {
-                                // Update multiplicities
-                                jrxChildElement.setMinOccurs(xsChildParticle.getMinOccurs());
-                                jrxChildElement.setMaxOccurs(xsChildParticle.getMaxOccurs());
-                            }
+                        XSParticle xsChildParticle = ContentModelIndex.getInstance(xsModelGroup).getLastDirectParticle(
+                                jrxChildElement.getXsdDeclaration());
+                        if (xsChildParticle != null) {
+                            // Update multiplicities
+                            jrxChildElement.setMinOccurs(xsChildParticle.getMinOccurs());
+                            jrxChildElement.setMaxOccurs(xsChildParticle.getMaxOccurs());
                         }
                     }
                 }
             } else {
-                XSParticle[] xsChildParticles = new XSParticle[] {};
-                XSModelGroup xsModelGroup = jrxElementGroup.getXsdDeclaration();
-                if (xsModelGroup != null) {
-                    xsChildParticles = xsModelGroup.getChildren();
-                }
+                ContentModelIndex xsContentModelIndex = ContentModelIndex.getInstance(jrxElementGroup
+                        .getXsdDeclaration());
                 // copy as child elements
                 for (Element xmlSubElement : xmlSubElementList) {
                     JrxElement jrxChildElement = convertXmlToJrxModel(xmlSubElement, jrxElement);
-                    if (jrxChildElement.getXsdDeclaration() != null) {
-                        for (XSParticle xsChildParticle : xsChildParticles) {
-                            if (xsChildParticle.getTerm().equals(jrxChildElement.getXsdDeclaration())) {
-                                // Update multiplicities
-                                jrxChildElement.setMinOccurs(xsChildParticle.getMinOccurs());
-                                jrxChildElement.setMaxOccurs(xsChildParticle.getMaxOccurs());
-                            }
+                    if (jrxChildElement.getXsdDeclaration() != null && xsContentModelIndex != null) {
+                        XSParticle xsChildParticle = xsContentModelIndex.getLastDirectParticle(jrxChildElement
+                                .getXsdDeclaration());
+                        if (xsChildParticle != null) {
+                            // Update multiplicities
+                            jrxChildElement.setMinOccurs(xsChildParticle.getMinOccurs());
+                            jrxChildElement.setMaxOccurs(xsChildParticle.getMaxOccurs());
                         }
                     }
                 }
@@ -765,6 +962,10 @@ public class JrxXmlModelUtil {
      * @return XML Schema for the namespace.
      */
     public XSSchema getSchema(String namespaceUri) {
+        XSSchema xsSchema = compiledSchemaSet.getSchema(namespaceUri);
+        if (xsSchema != null)
+            return xsSchema;
+
         return xsSchemaMap.get(namespaceUri);
     }
 
@@ -802,12 +1003,45 @@ public class JrxXmlModelUtil {
 
         // Enrich with missing elements
         JrxElement jrxRootElement = jrxDocument.getRootElement();
-        jrxRootElement = enrichJrxElement(jrxRootElement);
-        jrxRootElement = enrichJrxElementRecursive(jrxRootElement);
+        PhaseRecorder recorder = startPhase(JrxPhaseMetrics.Phase.ENRICHMENT, jrxRootElement);
+        try {
+            jrxRootElement = enrichJrxElement(jrxRootElement);
+            jrxRootElement = enrichJrxElementRecursive(jrxRootElement);
+        } finally {
+            finishPhase(recorder, null);
+        }
 
         return jrxDocument;
     }
 
+    public boolean isLazyEnrichment() {
+        return lazyEnrichment;
+    }
+
+    /**
+     * In lazy enrichment mode, {@link #enrichJrxDocument(JrxDocument)} and
+     * {@link #enrichJrxElementRecursive(JrxElement)} only enrich the given element and its children block. Each child
+     * element is enriched when it is visited, see {@link JrxElement#ensureEnriched()}, so that the effort scales with
+     * the part of the document actually visited. The validation visits the whole document. The XML document only
+     * contains the optional elements of the visited part. The documentation and appinfo of the schema declarations are
+     * always read on first access.
+     * 
+     * @param lazyEnrichment
+     */
+    public void setLazyEnrichment(boolean lazyEnrichment) {
+        this.lazyEnrichment = lazyEnrichment;
+    }
+
+    private void enrichChildElementRecursive(JrxElement jrxChildElement) throws Exception {
+        if (lazyEnrichment) {
+            jrxChildElement.setPendingEnricher(lazyEnricher);
+            return;
+        }
+
+        enrichJrxElement(jrxChildElement);
+        enrichJrxElementRecursive(jrxChildElement);
+    }
+
     public JrxElement enrichJrxElementRecursive(JrxElement jrxElement) throws Exception {
         if (jrxElement == null) {
             return null;
@@ -841,9 +1075,7 @@ public class JrxXmlModelUtil {
             addChoiceElement(jrxElement, 0);
             JrxTerm<?> jrxChoiceSelectionTerm = ((JrxChoiceGroup) jrxChildrenBlock).getSelection();
             if (jrxChoiceSelectionTerm != null && jrxChoiceSelectionTerm instanceof JrxElement) {
-                JrxElement jrxChoiceSelection = (JrxElement) jrxChoiceSelectionTerm;
-                jrxChoiceSelection = enrichJrxElement(jrxChoiceSelection);
-                jrxChoiceSelection = enrichJrxElementRecursive(jrxChoiceSelection);
+                enrichChildElementRecursive((JrxElement) jrxChoiceSelectionTerm);
             }
         }
     }
@@ -864,17 +1096,14 @@ public class JrxXmlModelUtil {
         for (int i = 0; i < jrxElementGroup.getElements().size(); i++) {
             JrxTerm<?> jrxChildTerm = jrxElementGroup.getElements().get(i);
             if (jrxChildTerm instanceof JrxElement) {
-                JrxElement jrxChildElement = (JrxElement) jrxChildTerm;
-                enrichJrxElement(jrxChildElement);
-                enrichJrxElementRecursive(jrxChildElement);
+                enrichChildElementRecursive((JrxElement) jrxChildTerm);
             } else if (jrxChildTerm instanceof JrxChoiceGroup) {
                 JrxChoiceGroup jrxChildChoiceGroup = (JrxChoiceGroup) jrxChildTerm;
                 if (jrxChildChoiceGroup.getElements().size() > 0
                         && jrxChildChoiceGroup.getElements().get(0) instanceof JrxElement) {
                     JrxTerm<?> jrxChoiceSelectionTerm = jrxChildChoiceGroup.getSelection();
                     if (jrxChoiceSelectionTerm instanceof JrxElement) {
-                        enrichJrxElement((JrxElement) jrxChoiceSelectionTerm);
-                        enrichJrxElementRecursive((JrxElement) jrxChoiceSelectionTerm);
+                        enrichChildElementRecursive((JrxElement) jrxChoiceSelectionTerm);
                     }
                 }
             } else if (jrxChildTerm instanceof JrxGroup) {
@@ -904,7 +1133,10 @@ public class JrxXmlModelUtil {
         if (jrxElement == null) {
             return null;
         }
-        
+
+        if (metricsSink != null)
+            countNode();
+
         XSElementDecl xsElement = jrxElement.getXsdDeclaration();
         if (xsElement == null) {
             return jrxElement;
@@ -1377,9 +1609,7 @@ public class JrxXmlModelUtil {
         } else {
             jrxElement.setName(xmlElement.getTagName());
         }
-        Map<String, String> namespace = new HashMap<String, String>();
-        namespace.put(namespacePrefix, namespaceUri);
-        jrxElement.setNamespace(namespace);
+        jrxElement.setNamespace(Collections.singletonMap(namespacePrefix, namespaceUri));
 
         JrxElement jrxParentElement = null;
         if (jrxParentDeclaration instanceof JrxElement) {
@@ -1620,21 +1850,11 @@ public class JrxXmlModelUtil {
     }
 
     public static int countTermWithSameName(JrxElementGroup jrxScopingElementGroup, String elementName) {
-        int count = 0;
-
-        for (JrxTerm<?> jrxTerm : jrxScopingElementGroup.getElements()) {
-            if (jrxTerm instanceof JrxDeclaration<?> && ((JrxDeclaration<?>) jrxTerm).getName().equals(elementName)) {
-                count++;
-            } else if (jrxTerm instanceof JrxChoiceGroup && ((JrxChoiceGroup) jrxTerm).getName().equals(elementName)) {
-                count++;
-            }
-        }
-
-        return count;
+        return jrxScopingElementGroup.countTermsWithSameName(elementName);
     }
 
     public static int countTermWithSameSchemaDefinition(JrxElementGroup jrxScopingElementGroup, XSTerm xsTerm) {
-        return getTermsWithSameSchemaDefinition(jrxScopingElementGroup, xsTerm).length;
+        return jrxScopingElementGroup.countTermsWithSameSchemaDefinition(xsTerm);
     }
 
     public static int countElementWithSameSchemaDefinition(JrxElementGroup jrxScopingElementGroup,
@@ -1650,18 +1870,8 @@ public class JrxXmlModelUtil {
      * @return Array of JrxTerm in a proper sequence
      */
     public static JrxTerm<?>[] getTermsWithSameSchemaDefinition(JrxElementGroup jrxScopingElementGroup, XSTerm xsTerm) {
-        if (xsTerm == null)
-            return new JrxTerm<?>[] {}; // return only empty array, never NULL
-
-        List<JrxTerm<?>> jrxTermList = new ArrayList<JrxTerm<?>>();
-
-        for (JrxTerm<?> jrxTerm : jrxScopingElementGroup.getElements()) {
-            if (jrxTerm.getXsdDeclaration() != null && jrxTerm.getXsdDeclaration().equals(xsTerm)) {
-                jrxTermList.add(jrxTerm);
-            }
-        }
-
-        return jrxTermList.toArray(new JrxTerm<?>[] {});
+        // return only empty array, never NULL
+        return jrxScopingElementGroup.getTermsWithSameSchemaDefinition(xsTerm).toArray(new JrxTerm<?>[] {});
     }
 
     public static int getElementWithSameNameIndex(JrxElementGroup jrxElementGroup, JrxDeclaration<?> jrxDeclaration) {
@@ -2016,6 +2226,50 @@ public class JrxXmlModelUtil {
         return jrxElementList;
     }
 
+    /**
+     * Get the elements matching the XPath expression by walking the JRX model, see {@link JrxXPath} for the supported
+     * subset. Other expressions, and documents containing elements which are not allowed by the schema, are evaluated
+     * on the XML document by {@link #getElementListByXPath(JrxDocument, String[][], String)}.
+     *
+     * @param jrxDocument
+     * @param namespaces
+     *            prefix and namespace URI pairs used by the expression, may be null
+     * @param xPathExpression
+     * @return the matching elements in document order
+     * @throws Exception
+     */
+    public List<JrxElement> getElementListByNativeXPath(JrxDocument jrxDocument, String[][] namespaces,
+            String xPathExpression) throws Exception {
+        if (jrxDocument.getXmlDocument() == null) {
+            return null;
+        }
+
+        JrxXPath jrxXPath = JrxXPath.compile(xPathExpression, namespaces);
+        if (jrxXPath == null || jrxXPath.isAttributeExpression() || JrxXPath.hasUnexpectedElements(jrxDocument)) {
+            return getElementListByXPath(jrxDocument, namespaces, xPathExpression);
+        }
+
+        return jrxXPath.evaluate(jrxDocument);
+    }
+
+    /**
+     * @see #getElementListByNativeXPath(JrxDocument, String[][], String)
+     */
+    public List<JrxElement> getElementListByNativeXPath(JrxElement jrxParentElement, String[][] namespaces,
+            String xPathExpression) throws Exception {
+        if (jrxParentElement.getXmlElement() == null) {
+            return null;
+        }
+
+        JrxXPath jrxXPath = JrxXPath.compile(xPathExpression, namespaces);
+        if (jrxXPath == null || jrxXPath.isAttributeExpression()
+                || JrxXPath.hasUnexpectedElements(jrxParentElement.getOwnerDocument())) {
+            return getElementListByXPath(jrxParentElement, namespaces, xPathExpression);
+        }
+
+        return jrxXPath.evaluate(jrxParentElement);
+    }
+
     public void addChoiceHelperElement(JrxDocument jrxDocument) {
         addChoiceHelperElement(jrxDocument.getRootElement());
     }
@@ -2286,30 +2540,44 @@ public class JrxXmlModelUtil {
         return removed;
     }
 
+    /**
+     * Create a new document with the given root element, enriched with all elements of the schema.
+     * <p>
+     * The schema is parsed on each call, unless {@link #loadSchemaSet(URL)} is backed by a cache, see
+     * {@link #isSchemaSetCached()}. In that case the enriched document is built once per root element declaration,
+     * namespace prefix, registered namespaces and schemas, and enrichment ignore list. Further calls return a deep
+     * clone of it, see {@link JrxDocument#deepClone()}.
+     * 
+     * @param schemaUrl
+     * @param namespacePrefix
+     * @param rootElement
+     * @return the new document, null when the root element is not declared
+     * @throws Exception
+     */
     public JrxDocument convertXsdToJrxDoc(URL schemaUrl, String namespacePrefix, String rootElement) throws Exception {
-        // Init XSOM Parser
-        XSOMParser xsomParser = new XSOMParser(SAXParserFactory.newInstance());
-        xsomParser.setAnnotationParser(new DomAnnotationParserFactory());
-        xsomParser.parse(schemaUrl);
-
-        XSSchemaSet xsSchemaSet = xsomParser.getResult();
-        if (xsSchemaSet == null) {
-            throw new SchemaNotAvailableException();
-        }
+        PhaseRecorder recorder = startPhase(JrxPhaseMetrics.Phase.CREATION, (String) null);
+        try {
+            long lookupStartNanos = recorder != null ? System.nanoTime() : 0L;
+            XSSchemaSet xsSchemaSet = loadSchemaSet(schemaUrl);
+            if (recorder != null)
+                recorder.countSchemaLookup(System.nanoTime() - lookupStartNanos);
+
+            // Load all namespaces in XSD
+            Iterator<XSSchema> it = xsSchemaSet.iterateSchema();
+            XSSchema xsDefaultSchema = null;
+            while (it.hasNext()) {
+                XSSchema xsSchema = it.next();
+                String nameSpace = xsSchema.getTargetNamespace();
+                if (nameSpace.equals(XMLConstants.W3C_XML_SCHEMA_NS_URI))
+                    continue;
+                xsDefaultSchema = xsSchema;
+                break;
+            }
 
-        // Load all namespaces in XSD
-        Iterator<XSSchema> it = xsSchemaSet.iterateSchema();
-        XSSchema xsDefaultSchema = null;
-        while (it.hasNext()) {
-            XSSchema xsSchema = (XSSchema) it.next();
-            String nameSpace = xsSchema.getTargetNamespace();
-            if (nameSpace.equals(XMLConstants.W3C_XML_SCHEMA_NS_URI))
-                continue;
-            xsDefaultSchema = xsSchema;
-            break;
+            return convertXsdToJrxDoc(xsSchemaSet, xsDefaultSchema, namespacePrefix, rootElement);
+        } finally {
+            finishPhase(recorder, null);
         }
-
-        return convertXsdToJrxDoc(xsSchemaSet, xsDefaultSchema, namespacePrefix, rootElement);
     }
 
     private JrxDocument convertXsdToJrxDoc(XSSchemaSet xsSchemaSet, XSSchema xsSchema, String namespacePrefix,
@@ -2341,12 +2609,54 @@ public class JrxXmlModelUtil {
             return null;
         }
 
+        PhaseRecorder recorder = metricsSink != null ? PhaseRecorder.current() : null;
+        if (recorder != null)
+            recorder.setMessageType(getMessageType(xsRootElement.getTargetNamespace(), xsRootElement.getName()));
+
+        if (!isSchemaSetCached()) {
+            // The root element declaration is new on every call, a prototype would never be used again
+            addSchema(xsSchema);
+            return newSkeletonDocument(xsRootElement, namespacePrefix);
+        }
+
+        DocumentPrototypeKey prototypeKey = getDocumentPrototypeKey(namespacePrefix);
+        addSchema(xsSchema);
+
+        ConcurrentMap<DocumentPrototypeKey, DocumentPrototype> prototypeMap = DOCUMENT_PROTOTYPE_CACHE.get(
+                xsRootElement, () -> new ConcurrentHashMap<DocumentPrototypeKey, DocumentPrototype>());
+        DocumentPrototype prototype = prototypeMap.get(prototypeKey);
+        if (prototype == null) {
+            Map<String, String> previousNamespaceMap = new HashMap<String, String>(namespaceMap);
+            Map<String, String> previousNoNamespaceNodeMap = new HashMap<String, String>(noNamespaceNodeMap);
+
+            JrxDocument jrxDoc = newSkeletonDocument(xsRootElement, namespacePrefix);
+            // The prototype is complete, also in lazy enrichment mode
+            ensureEnriched(jrxDoc.getRootElement());
+
+            DocumentPrototype newPrototype = new DocumentPrototype(jrxDoc, getAddedEntries(previousNamespaceMap,
+                    namespaceMap), getAddedEntries(previousNoNamespaceNodeMap, noNamespaceNodeMap));
+            prototype = prototypeMap.putIfAbsent(prototypeKey, newPrototype);
+            if (prototype == null) {
+                prototype = newPrototype;
+            }
+        }
+
+        // Register the namespaces found while building the prototype, as if the document had been converted
+        namespaceMap.putAll(prototype.namespaceMap);
+        noNamespaceNodeMap.putAll(prototype.noNamespaceNodeMap);
+
+        return prototype.newDocument();
+    }
+
+    /**
+     * Create the document with the given root element and enrich it.
+     */
+    private JrxDocument newSkeletonDocument(XSElementDecl xsRootElement, String namespacePrefix) throws Exception {
         String namespaceURI = xsRootElement.getTargetNamespace();
         Document xmlDoc = XmlUtils.newDocumentNS(xsRootElement.getName(), namespacePrefix, namespaceURI);
 
         registerNamespacePrefixes(xmlDoc);
 
-        addSchema(xsSchema);
         JrxDocument jrxDoc = convertXmlToJrxModel(xmlDoc);
 
         JrxElement jrxRootElement = jrxDoc.getRootElement();
@@ -2356,6 +2666,164 @@ public class JrxXmlModelUtil {
         return jrxDoc;
     }
 
+    /**
+     * Load the schema set of {@link #convertXsdToJrxDoc(URL, String, String)}.
+     * 
+     * @param xmlSchemaUrl
+     * @return the schema set, never null
+     * @throws SAXException
+     */
+    protected XSSchemaSet loadSchemaSet(URL xmlSchemaUrl) throws SAXException {
+        return parseSchemaSet(xmlSchemaUrl);
+    }
+
+    /**
+     * @return true when {@link #loadSchemaSet(URL)} returns the same schema set for the same URL, so that the
+     *         enriched skeleton documents of {@link #convertXsdToJrxDoc(URL, String, String)} are kept for reuse
+     */
+    protected boolean isSchemaSetCached() {
+        return false;
+    }
+
+    /**
+     * @param namespacePrefix
+     * @return key of all settings the enriched skeleton document depends on, besides its root element
+     */
+    private DocumentPrototypeKey getDocumentPrototypeKey(String namespacePrefix) {
+        Map<String, XSSchema> schemaMap = new TreeMap<String, XSSchema>(xsSchemaMap);
+        schemaMap.putAll(compiledSchemaSet.getSchemaMap());
+
+        return new DocumentPrototypeKey(getClass().getName(), namespacePrefix, new TreeMap<String, String>(
+                namespaceMap), schemaMap, new TreeSet<String>(enrichmentIgnoreList));
+    }
+
+    private static Map<String, String> getAddedEntries(Map<String, String> previousMap, Map<String, String> map) {
+        Map<String, String> addedMap = new HashMap<String, String>();
+        for (Entry<String, String> entry : map.entrySet()) {
+            if (!previousMap.containsKey(entry.getKey())
+                    || !Objects.equals(previousMap.get(entry.getKey()), entry.getValue())) {
+                addedMap.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        return addedMap;
+    }
+
+    /**
+     * Run the pending enrichment of all elements of the given subtree.
+     * 
+     * @param jrxTerm
+     */
+    private static void ensureEnriched(JrxTerm<?> jrxTerm) {
+        if (jrxTerm instanceof JrxChoiceGroup) {
+            ensureEnriched(((JrxChoiceGroup) jrxTerm).getSelection());
+        } else if (jrxTerm instanceof JrxElementGroup) {
+            List<JrxTerm<?>> jrxTerms = ((JrxElementGroup) jrxTerm).getElements();
+            for (int i = 0; i < jrxTerms.size(); i++) {
+                ensureEnriched(jrxTerms.get(i));
+            }
+        } else if (jrxTerm instanceof JrxDeclaration<?>) {
+            if (jrxTerm instanceof JrxElement) {
+                ((JrxElement) jrxTerm).ensureEnriched();
+            }
+            ensureEnriched(((JrxDeclaration<?>) jrxTerm).getChildrenBlock());
+        }
+    }
+
+    /**
+     * The class <code>DocumentPrototype</code> is an enriched skeleton document together with the namespaces
+     * registered while converting it.
+     *
+     */
+    private static class DocumentPrototype {
+
+        private final JrxDocument jrxDocument;
+
+        private final Map<String, String> namespaceMap;
+
+        private final Map<String, String> noNamespaceNodeMap;
+
+        private DocumentPrototype(JrxDocument jrxDocument, Map<String, String> namespaceMap,
+                Map<String, String> noNamespaceNodeMap) {
+            this.jrxDocument = jrxDocument;
+            this.namespaceMap = namespaceMap;
+            this.noNamespaceNodeMap = noNamespaceNodeMap;
+        }
+
+        private JrxDocument newDocument() {
+            synchronized (jrxDocument) {
+                return jrxDocument.deepClone();
+            }
+        }
+    }
+
+    /**
+     * The class <code>DocumentPrototypeKey</code> holds the settings a {@link DocumentPrototype} depends on. The
+     * schemas are compared by identity.
+     *
+     */
+    private static class DocumentPrototypeKey {
+
+        private final String utilClassName;
+
+        private final String namespacePrefix;
+
+        private final Map<String, String> namespaceMap;
+
+        private final List<String> schemaNamespaces;
+
+        private final List<XSSchema> schemas;
+
+        private final Set<String> enrichmentIgnoreList;
+
+        private final int hashCode;
+
+        private DocumentPrototypeKey(String utilClassName, String namespacePrefix, Map<String, String> namespaceMap,
+                Map<String, XSSchema> schemaMap, Set<String> enrichmentIgnoreList) {
+            this.utilClassName = utilClassName;
+            this.namespacePrefix = namespacePrefix;
+            this.namespaceMap = namespaceMap;
+            this.schemaNamespaces = new ArrayList<String>(schemaMap.keySet());
+            this.schemas = new ArrayList<XSSchema>(schemaMap.values());
+            this.enrichmentIgnoreList = enrichmentIgnoreList;
+
+            int hashCode = Objects.hash(utilClassName, namespacePrefix, namespaceMap, schemaNamespaces,
+                    enrichmentIgnoreList);
+            for (XSSchema xsSchema : schemas) {
+                hashCode = 31 * hashCode + System.identityHashCode(xsSchema);
+            }
+            this.hashCode = hashCode;
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+
+            if (!(obj instanceof DocumentPrototypeKey))
+                return false;
+
+            DocumentPrototypeKey other = (DocumentPrototypeKey) obj;
+            if (hashCode != other.hashCode || !utilClassName.equals(other.utilClassName)
+                    || !Objects.equals(namespacePrefix, other.namespacePrefix)
+                    || !namespaceMap.equals(other.namespaceMap) || !schemaNamespaces.equals(other.schemaNamespaces)
+                    || !enrichmentIgnoreList.equals(other.enrichmentIgnoreList))
+                return false;
+
+            for (int i = 0; i < schemas.size(); i++) {
+                if (schemas.get(i) != other.schemas.get(i))
+                    return false;
+            }
+
+            return true;
+        }
+    }
+
     private void registerNamespacePrefixes(Document xmlDoc) {
         Element xmlRootElement = xmlDoc.getDocumentElement();
 
@@ -2562,6 +3030,14 @@ public class JrxXmlModelUtil {
         return jrxChoiceGroup;
 	}
 	
+    /**
+     * @param xsChoiceModelGroup
+     * @return the name {@link #assignNameToChoiceGroup(JrxChoiceGroup)} gives to a choice group of the model group
+     */
+    static String getChoiceGroupName(XSModelGroup xsChoiceModelGroup) {
+        return "[" + getLabel(xsChoiceModelGroup) + "]";
+    }
+
     private static String getLabel(XSModelGroupDecl xsModelGroupDecl) {
         if (xsModelGroupDecl == null)
             return "";
@@ -2631,16 +3107,117 @@ public class JrxXmlModelUtil {
         }
 
         JrxElement jrxRootElement = jrxDocument.getRootElement();
-        return validateElement(jrxRootElement, "/");
+        PhaseRecorder recorder = startPhase(JrxPhaseMetrics.Phase.VALIDATION, jrxRootElement);
+        List<XmlValidationError> validationResult = null;
+        try {
+            validationResult = validateElement(jrxRootElement, "/");
+            return validationResult;
+        } finally {
+            finishPhase(recorder, validationResult);
+        }
     }
 
-    public List<XmlValidationError> validateElement(JrxElement jrxElement, String path) {
-        List<XmlValidationError> validationResult = new ArrayList<XmlValidationError>();
+    /**
+     * Validate the document like {@link #validateDocument(JrxDocument)}, reusing the result of the previous call for
+     * all elements which have not been modified since.
+     * <p>
+     * The first call enriches and validates the whole document and attaches the cached results to the XML document.
+     * The following calls only validate the modified elements again, together with the occurrence and mandatory
+     * constraints of their ancestors. Modifications through the Jrx model are tracked, the document is not enriched
+     * again. Modifications made directly on the XML document, e.g. a new text content, have to be marked with
+     * {@link #markDirty(JrxDocument, Node)}. Runs on the same document are serialized.
+     * 
+     * @param jrxDocument
+     * @return the complete list of validation error in document order
+     * @throws Exception
+     */
+    public List<XmlValidationError> revalidate(JrxDocument jrxDocument) throws Exception {
+        if (jrxDocument == null || jrxDocument.getXmlDocument() == null) {
+            return validateDocument(jrxDocument);
+        }
+
+        IncrementalValidationContext context = IncrementalValidationContext.attach(jrxDocument);
+        synchronized (context) {
+            if (context.isInitialized()) {
+                context.purge(jrxDocument);
+            } else {
+                enrichJrxDocument(jrxDocument);
+            }
+
+            incrementalValidationContext.set(context);
+            PhaseRecorder recorder = startPhase(JrxPhaseMetrics.Phase.VALIDATION, jrxDocument.getRootElement());
+            List<XmlValidationError> validationResult = null;
+            try {
+                validationResult = validateElement(jrxDocument.getRootElement(), "/");
+                context.setInitialized();
+                return validationResult;
+            } finally {
+                finishPhase(recorder, validationResult);
+                incrementalValidationContext.remove();
+            }
+        }
+    }
+
+    /**
+     * Mark the Jrx element of an XML node modified directly on the XML document, so that
+     * {@link #revalidate(JrxDocument)} validates it again. A node which is not an element of the Jrx model, e.g. a
+     * text node or an attribute, marks its closest enclosing element.
+     * 
+     * @param jrxDocument
+     * @param xmlNode
+     *            the modified node
+     * @return the element marked dirty, null when the node is not part of the Jrx document
+     */
+    public JrxElement markDirty(JrxDocument jrxDocument, Node xmlNode) {
+        if (jrxDocument == null)
+            return null;
+
+        return IncrementalValidationContext.markDirty(jrxDocument, xmlNode);
+    }
+
+    /**
+     * Drop the validation results kept by {@link #revalidate(JrxDocument)} for the document. The next call validates
+     * the whole document again.
+     * 
+     * @param jrxDocument
+     * @return true when results were kept for the document
+     */
+    public boolean detachIncrementalValidation(JrxDocument jrxDocument) {
+        if (jrxDocument == null)
+            return false;
+
+        return IncrementalValidationContext.detach(jrxDocument);
+    }
 
+    public List<XmlValidationError> validateElement(JrxElement jrxElement, String path) {
         if (jrxElement == null) {
             return null;
         }
 
+        IncrementalValidationContext context = incrementalValidationContext.get();
+        if (context == null) {
+            return validateElementAndChildren(jrxElement, path);
+        }
+
+        List<XmlValidationError> cachedResult = context.getValidationResult(jrxElement);
+        if (cachedResult != null) {
+            return new ArrayList<XmlValidationError>(cachedResult);
+        }
+
+        List<XmlValidationError> validationResult = validateElementAndChildren(jrxElement, path);
+        context.putValidationResult(jrxElement, validationResult);
+
+        return validationResult;
+    }
+
+    private List<XmlValidationError> validateElementAndChildren(JrxElement jrxElement, String path) {
+        if (metricsSink != null)
+            countNode();
+
+        jrxElement.ensureEnriched();
+
+        List<XmlValidationError> validationResult = new ArrayList<XmlValidationError>();
+
         String currentPath = path + jrxElement.getName() + "/";
 
         for (JrxAttribute jrxAttribute : jrxElement.getAttributeList()) {
@@ -2668,15 +3245,138 @@ public class JrxXmlModelUtil {
                 validationResult.addAll(validateTerm(jrxElement, jrxChoiceGroup.getSelection(), currentPath));
             }
         } else {
-            for (int i = 0; i < jrxElement.getChildrenBlock().getElements().size(); i++) {
-                JrxTerm<?> jrxChildTerm = jrxElement.getChildrenBlock().getElements().get(i);
-                validationResult.addAll(validateTerm(jrxElement, jrxChildTerm, currentPath));
+            ParallelValidationContext context = parallelValidationContext.get();
+            if (context != null && context.isForkable(jrxElement)) {
+                validationResult.addAll(context.validateTerms(this, jrxElement, jrxElement.getChildrenBlock()
+                        .getElements(), currentPath));
+            } else {
+                for (int i = 0; i < jrxElement.getChildrenBlock().getElements().size(); i++) {
+                    JrxTerm<?> jrxChildTerm = jrxElement.getChildrenBlock().getElements().get(i);
+                    validationResult.addAll(validateTerm(jrxElement, jrxChildTerm, currentPath));
+                }
             }
         }
 
         return validationResult;
     }
 
+    /**
+     * Validate the document like {@link #validateDocument(JrxDocument)}, splitting large subtrees into tasks of the
+     * common fork/join pool.
+     * 
+     * @param jrxDocument
+     * @return list of validation error in document order
+     * @throws Exception
+     */
+    public List<XmlValidationError> validateDocumentInParallel(JrxDocument jrxDocument) throws Exception {
+        return validateDocumentInParallel(jrxDocument, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Validate the document like {@link #validateDocument(JrxDocument)}, splitting large subtrees into tasks of the
+     * given fork/join pool.
+     * 
+     * @param jrxDocument
+     * @param pool
+     * @return list of validation error in document order
+     * @throws Exception
+     */
+    public List<XmlValidationError> validateDocumentInParallel(JrxDocument jrxDocument, ForkJoinPool pool)
+            throws Exception {
+        jrxDocument = enrichJrxDocument(jrxDocument);
+        if (jrxDocument == null) {
+            return new ArrayList<XmlValidationError>();
+        }
+
+        PhaseRecorder recorder = startPhase(JrxPhaseMetrics.Phase.VALIDATION, jrxDocument.getRootElement());
+        List<XmlValidationError> validationResult = null;
+        try {
+            validationResult = validateElementInParallel(jrxDocument.getRootElement(), "/", pool);
+            return validationResult;
+        } finally {
+            finishPhase(recorder, validationResult);
+        }
+    }
+
+    /**
+     * Validate the element like {@link #validateElement(JrxElement, String)}. Sibling subtrees with at least
+     * {@link #getParallelValidationThreshold()} terms are validated as separate tasks of the given pool. The result
+     * is identical to the sequential validation.
+     * <p>
+     * The pending enrichment of the subtree is run before the validation is split. The element must not be modified
+     * during the validation. Parallel runs on the same instance are serialized.
+     * 
+     * @param jrxElement
+     * @param path
+     * @param pool
+     * @return list of validation error in document order
+     */
+    public List<XmlValidationError> validateElementInParallel(final JrxElement jrxElement, final String path,
+            ForkJoinPool pool) {
+        if (jrxElement == null) {
+            return null;
+        }
+
+        // The enrichment modifies the XML document, hence it must not run in the forked tasks
+        ensureEnriched(jrxElement);
+
+        synchronized (parallelValidationLock) {
+            ParallelValidationContext context = new ParallelValidationContext(pool, parallelValidationThreshold);
+            if (context.prepare(jrxElement) < parallelValidationThreshold) {
+                return validateElement(jrxElement, path);
+            }
+
+            return pool.invoke(new RecursiveTask<List<XmlValidationError>>() {
+                private static final long serialVersionUID = -2219645103426387413L;
+
+                @Override
+                protected List<XmlValidationError> compute() {
+                    ParallelValidationContext previousContext = bindParallelValidationContext(context);
+                    PhaseRecorder previousRecorder = PhaseRecorder.bind(context.getRecorder());
+                    try {
+                        return validateElement(jrxElement, path);
+                    } finally {
+                        PhaseRecorder.bind(previousRecorder);
+                        bindParallelValidationContext(previousContext);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Bind the given parallel validation run to the current thread.
+     * 
+     * @param context
+     *            may be null
+     * @return the run bound before, to be bound again afterwards
+     */
+    ParallelValidationContext bindParallelValidationContext(ParallelValidationContext context) {
+        ParallelValidationContext boundContext = parallelValidationContext.get();
+        if (context == null) {
+            parallelValidationContext.remove();
+        } else {
+            parallelValidationContext.set(context);
+        }
+
+        return boundContext;
+    }
+
+    public int getParallelValidationThreshold() {
+        return parallelValidationThreshold;
+    }
+
+    /**
+     * @param parallelValidationThreshold
+     *            minimum number of terms in a subtree for the parallel validation to split it, at least 1
+     */
+    public void setParallelValidationThreshold(int parallelValidationThreshold) {
+        if (parallelValidationThreshold < 1) {
+            throw new IllegalArgumentException("Parallel validation threshold must be at least 1.");
+        }
+        this.parallelValidationThreshold = parallelValidationThreshold;
+    }
+
     protected List<XmlValidationError> validateTerm(JrxElement jrxParentElement, JrxTerm<?> jrxTerm,
             String parentPath) {
         List<XmlValidationError> validationResult = new ArrayList<XmlValidationError>();
@@ -2693,7 +3393,7 @@ public class JrxXmlModelUtil {
                         XmlValidationMessage.ERROR_NODE_INVALID_CHILD, jrxChildElement.getName(), jrxParentElement
                                 .getName()));
             } else if (isElementMandatory(jrxChildElement)) {
-                if (jrxChildElement.isEmpty()) {
+                if (isElementEmpty(jrxChildElement)) {
                     validationResult.add(new XmlValidationError(jrxChildElement,
                             XmlValidationMessage.ERROR_NODE_MANDATORY, jrxChildElement.getName()));
                 } else {
@@ -2701,7 +3401,7 @@ public class JrxXmlModelUtil {
                     validationResult.addAll(validateElementContents(jrxChildElement.getXsdDeclaration().getType(),
                             jrxChildElement, parentPath));
                 }
-            } else if (!jrxChildElement.isEmpty()) {
+            } else if (!isElementEmpty(jrxChildElement)) {
                 int occurences = countTermWithSameSchemaDefinition(jrxChildElement.getParentBlock(),
                         jrxChildElement.getXsdDeclaration());
 
@@ -2789,27 +3489,9 @@ public class JrxXmlModelUtil {
         if (xsSimpleType == null || !xsSimpleType.isRestriction())
             return validationResult;
 
-        XSRestrictionSimpleType xsRestrictionSimpleType = xsSimpleType.asRestriction();
-        // retrieve enumeration
-        List<? extends XSFacet> facets = xsRestrictionSimpleType.getFacets(XSFacet.FACET_ENUMERATION);
-
-        if (facets != null && facets.size() > 0) {
-
-            StringBuilder enumText = new StringBuilder();
-            // Enumeration
-            boolean found = false;
-            for (XSFacet facet : facets) {
-                enumText.append(facet.getValue().value).append(",");
-
-                if (!found && value.equals(facet.getValue().value)) {
-                    found = true;
-                }
-            }
-            if (!found) {
-                validationResult.add(new XmlValidationError(context,
-                        XmlValidationMessage.ERROR_INVALID_CONTENT_ALLOWED_VALUE, value, enumText.substring(0,
-                                enumText.length() - 1)));
-            }
+        SimpleTypeValidator validator = SimpleTypeValidator.getInstance(xsSimpleType);
+        if (validator.hasEnumeration()) {
+            validationResult.addAll(validator.validateEnumeration(context, value));
         } else {
             // handle other restrictions such as xs:pattern, xs:minLength, xs:maxLength and set them as
             // constraints to the widget
@@ -3016,16 +3698,22 @@ public class JrxXmlModelUtil {
             return null;
         }
 
+        ContentModelIndex xsContentModelIndex = ContentModelIndex.getInstance(xsStartModelGroup);
+        if (!xsContentModelIndex.containsElement(simpleTagName))
+            return null;
+        if (xsContentModelIndex.getDirectParticle(simpleTagName) != null)
+            return jrxStartElementGroup;
+
         List<JrxElementGroup> jrxPendingChildElementGroupToScan = new ArrayList<JrxElementGroup>();
 
         XSParticle[] xsChildParticles = xsStartModelGroup.getChildren();
         for (XSParticle xsChildParticle : xsChildParticles) {
             XSTerm xsChildTerm = xsChildParticle.getTerm();
             if (xsChildTerm instanceof XSElementDecl) {
-                XSElementDecl xsChildElement = xsChildTerm.asElementDecl();
-                if (xsChildElement.getName().equals(simpleTagName))
-                    return jrxStartElementGroup;
+                // Direct children have been resolved by the index
             } else if (xsChildTerm instanceof XSModelGroup) {
+                if (!ContentModelIndex.getInstance(xsChildTerm.asModelGroup()).containsElement(simpleTagName))
+                    continue;
                 // Search the related child JrxElementGroup
                 for (JrxTerm<?> jrxChildTerm : jrxStartElementGroup.getElements()) {
                     if (xsChildTerm.equals(jrxChildTerm.getXsdDeclaration())) {
@@ -3054,16 +3742,23 @@ public class JrxXmlModelUtil {
             String simpleTagName) {
         XSModelGroup xsStartModelGroup = jrxParentElementGroup.getXsdDeclaration();
 
+        ContentModelIndex xsContentModelIndex = ContentModelIndex.getInstance(xsStartModelGroup);
+        if (!xsContentModelIndex.containsElement(simpleTagName))
+            return null;
+        XSParticle xsDirectParticle = xsContentModelIndex.getDirectParticle(simpleTagName);
+        if (xsDirectParticle != null)
+            return xsDirectParticle;
+
         List<JrxElementGroup> jrxPendingChildElementGroupToScan = new ArrayList<JrxElementGroup>();
 
         XSParticle[] xsChildParticles = xsStartModelGroup.getChildren();
         for (XSParticle xsChildParticle : xsChildParticles) {
             XSTerm xsChildTerm = xsChildParticle.getTerm();
             if (xsChildTerm instanceof XSElementDecl) {
-                XSElementDecl xsChildElement = xsChildTerm.asElementDecl();
-                if (xsChildElement.getName().equals(simpleTagName))
-                    return xsChildParticle;
+                // Direct children have been resolved by the index
             } else if (xsChildTerm instanceof XSModelGroup) {
+                if (!ContentModelIndex.getInstance(xsChildTerm.asModelGroup()).containsElement(simpleTagName))
+                    continue;
                 // Search the related child JrxElementGroup
                 for (JrxTerm<?> jrxChildTerm : jrxParentElementGroup.getElements()) {
                     if (xsChildTerm.equals(jrxChildTerm.getXsdDeclaration())) {
@@ -3090,44 +3785,30 @@ public class JrxXmlModelUtil {
 
     public static XSParticle[] getXsParticlePathFromParentBlockByElementName(XSModelGroup xsStartModelGroup,
             String simpleTagName) {
-
-        XSParticle[] xsChildParticles = xsStartModelGroup.getChildren();
-        for (XSParticle xsChildParticle : xsChildParticles) {
-            XSTerm xsChildTerm = xsChildParticle.getTerm();
-            if (xsChildTerm instanceof XSElementDecl) {
-                XSElementDecl xsChildElement = xsChildTerm.asElementDecl();
-                if (xsChildElement.getName().equals(simpleTagName))
-                    return new XSParticle[] { xsChildParticle };
-            } else if (xsChildTerm instanceof XSModelGroup) {
-                XSParticle[] xsSubParticlePath = getXsParticlePathFromParentBlockByElementName(
-                        xsChildTerm.asModelGroup(), simpleTagName);
-                if (xsSubParticlePath.length > 0) {
-                    return (XSParticle[]) ArrayUtils.insert(0, xsSubParticlePath, xsChildParticle);
-                }
-            } else if (xsChildTerm instanceof XSModelGroupDecl) {
-                // Not yet supported!
-            } else {
-                log.info("Unhandled XSTerm: " + xsChildTerm);
-            }
-        }
-
-        return new XSParticle[] {};
+        return ContentModelIndex.getInstance(xsStartModelGroup).getParticlePath(simpleTagName);
     }
 
     public static XSParticle getXsElementParticleFromParentBlockByXsElementDeclaration(
             JrxElementGroup jrxParentElementGroup, XSElementDecl xsElementDecl) {
         XSModelGroup xsStartModelGroup = jrxParentElementGroup.getXsdDeclaration();
 
+        ContentModelIndex xsContentModelIndex = ContentModelIndex.getInstance(xsStartModelGroup);
+        if (!xsContentModelIndex.containsElement(xsElementDecl))
+            return null;
+        XSParticle xsDirectParticle = xsContentModelIndex.getDirectParticle(xsElementDecl);
+        if (xsDirectParticle != null)
+            return xsDirectParticle;
+
         List<JrxElementGroup> jrxPendingChildElementGroupToScan = new ArrayList<JrxElementGroup>();
 
         XSParticle[] xsChildParticles = xsStartModelGroup.getChildren();
         for (XSParticle xsChildParticle : xsChildParticles) {
             XSTerm xsChildTerm = xsChildParticle.getTerm();
             if (xsChildTerm instanceof XSElementDecl) {
-                XSElementDecl xsChildElement = xsChildTerm.asElementDecl();
-                if (xsChildElement.equals(xsElementDecl))
-                    return xsChildParticle;
+                // Direct children have been resolved by the index
             } else if (xsChildTerm instanceof XSModelGroup) {
+                if (!ContentModelIndex.getInstance(xsChildTerm.asModelGroup()).containsElement(xsElementDecl))
+                    continue;
                 // Search the related child JrxElementGroup
                 for (JrxTerm<?> jrxChildTerm : jrxParentElementGroup.getElements()) {
                     if (xsChildTerm.equals(jrxChildTerm.getXsdDeclaration())) {
@@ -3259,11 +3940,59 @@ public class JrxXmlModelUtil {
     }
 
     protected boolean hasSchemas() {
-        return !xsSchemaMap.isEmpty();
+        return !compiledSchemaSet.isEmpty() || !xsSchemaMap.isEmpty();
     }
 
     protected boolean hasSchema(String namespaceUri) {
-        return xsSchemaMap.containsKey(namespaceUri);
+        return compiledSchemaSet.hasSchema(namespaceUri) || xsSchemaMap.containsKey(namespaceUri);
+    }
+
+    public JrxMetricsSink getMetricsSink() {
+        return metricsSink;
+    }
+
+    /**
+     * Record the metrics of the conversion, enrichment, validation and creation of documents by this instance, see
+     * {@link JrxPhaseMetrics}. Without a sink, which is the default, nothing is measured.
+     * 
+     * @param metricsSink
+     *            receives the metrics of each phase, null to stop recording
+     */
+    public void setMetricsSink(JrxMetricsSink metricsSink) {
+        this.metricsSink = metricsSink;
+    }
+
+    private PhaseRecorder startPhase(JrxPhaseMetrics.Phase phase, JrxElement jrxRootElement) {
+        if (metricsSink == null || jrxRootElement == null)
+            return null;
+
+        return startPhase(phase, getMessageType(jrxRootElement.getNamespaceUri(), jrxRootElement.getSimpleName()));
+    }
+
+    private PhaseRecorder startPhase(JrxPhaseMetrics.Phase phase, String messageType) {
+        JrxMetricsSink sink = metricsSink;
+        if (sink == null)
+            return null;
+
+        return PhaseRecorder.start(sink, phase, messageType);
+    }
+
+    private static void finishPhase(PhaseRecorder recorder, List<XmlValidationError> validationResult) {
+        if (recorder != null)
+            recorder.finish(validationResult == null ? 0 : validationResult.size());
+    }
+
+    private static void countNode() {
+        PhaseRecorder recorder = PhaseRecorder.current();
+        if (recorder != null)
+            recorder.countNode();
+    }
+
+    private static String getMessageType(String namespaceUri, String localName) {
+        if (namespaceUri == null || namespaceUri.length() == 0)
+            return localName;
+
+        return "{" + namespaceUri + "}" + localName;
     }
 
     public void clearEnrichmentIgnoreList() {
@@ -3363,6 +4092,11 @@ public class JrxXmlModelUtil {
     }
 
     public boolean isElementEmpty(JrxElement jrxElement) {
+        IncrementalValidationContext context = incrementalValidationContext.get();
+        if (context != null) {
+            return context.isEmpty(jrxElement);
+        }
+
         return jrxElement.isEmpty();
     }
 
@@ -3372,64 +4106,7 @@ public class JrxXmlModelUtil {
 
     protected List<XmlValidationError> validateXmlValueAgainstPatternAndLength(JrxElement context, String value,
             XSSimpleType xsSimpleType) {
-        List<XmlValidationError> validationResult = new ArrayList<XmlValidationError>();
-
-        XSRestrictionSimpleType xsRestrictionSimpleType = xsSimpleType.asRestriction();
-
-        List<? extends XSFacet> facetPattern = xsRestrictionSimpleType.getFacets(XSFacet.FACET_PATTERN);
-        if (facetPattern != null && facetPattern.size() == 1) { // if pattern found
-            String pattern = facetPattern.get(0).getValue().value;
-            if (!value.matches(pattern)) {
-                validationResult.add(new XmlValidationError(context,
-                        XmlValidationMessage.ERROR_INVALID_CONTENT_PATTERN, value, pattern));
-            }
-
-        }
-
-        // minLength and maxLength
-        XSFacet maxLengthFacet = xsRestrictionSimpleType.getFacet(XSFacet.FACET_MAXLENGTH);
-        XSFacet minLengthFacet = xsRestrictionSimpleType.getFacet(XSFacet.FACET_MINLENGTH);
-
-        if (minLengthFacet != null) { // if minLength/maxLength provided
-            int minLength = Integer.parseInt(minLengthFacet.getValue().value);
-
-            if (value.length() < minLength) {
-                validationResult.add(new XmlValidationError(context,
-                        XmlValidationMessage.ERROR_INVALID_CONTENT_MIN_LENGTH, value, String.valueOf(minLength)));
-            }
-        }
-        if (maxLengthFacet != null) { // if minLength/maxLength provided
-            int maxLength = Integer.parseInt(maxLengthFacet.getValue().value);
-
-            if (value.length() > maxLength) {
-                validationResult.add(new XmlValidationError(context,
-                        XmlValidationMessage.ERROR_INVALID_CONTENT_MAX_LENGTH, value, String.valueOf(maxLength)));
-            }
-        }
-
-        XSFacet minInclusiveFacet = xsRestrictionSimpleType.getFacet(XSFacet.FACET_MINEXCLUSIVE);
-
-        if (minInclusiveFacet != null) { // if minLength/maxLength provided
-            int minInclusive = Integer.parseInt(minInclusiveFacet.getValue().value);
-
-            if (Float.parseFloat(value) < minInclusive) {
-                validationResult.add(new XmlValidationError(context,
-                        XmlValidationMessage.ERROR_INVALID_CONTENT_SMALL_VALUE, String.valueOf(minInclusive)));
-            }
-        }
-
-        XSFacet fractionDigitsFacet = xsRestrictionSimpleType.getFacet(XSFacet.FACET_FRACTIONDIGITS);
-
-        if (fractionDigitsFacet != null) { // if minLength/maxLength provided
-            int fractionDigits = Integer.parseInt(fractionDigitsFacet.getValue().value);
-
-            if (value.indexOf('.') > -1 && value.substring(value.indexOf('.') + 1).length() > fractionDigits) {
-                validationResult.add(new XmlValidationError(context,
-                        XmlValidationMessage.ERROR_INVALID_CONTENT_DECIMAL_PLACE, String.valueOf(fractionDigits)));
-            }
-        }
-
-        return validationResult;
+        return SimpleTypeValidator.getInstance(xsSimpleType).validatePatternAndLength(context, value);
     }
 
     /**
@@ -3445,18 +4122,7 @@ public class JrxXmlModelUtil {
         if (jrxParentElement == null || jrxParentElement.getChildrenBlock() == null)
             return null;
 
-        String endingTagName = ":" + simpleTagName;
-        for (JrxTerm<?> jrxTerm : jrxParentElement.getChildrenBlock().getElements()) {
-            if (!(jrxTerm instanceof JrxElement))
-                continue;
-
-            JrxElement jrxElement = (JrxElement) jrxTerm;
-            if (jrxElement.getSimpleName().equals(simpleTagName) || jrxElement.getName().endsWith(endingTagName)) {
-                return jrxElement;
-            }
-        }
-
-        return null;
+        return jrxParentElement.getChildrenBlock().getChildElement(simpleTagName);
     }
 
     /**
@@ -3564,6 +4230,7 @@ public class JrxXmlModelUtil {
             return;
 
         jrxParentElement.getChildrenBlock().getElements().remove(jrxElement);
+        jrxParentElement.getChildrenBlock().markDirty();
         jrxParentElement.getXmlElement().removeChild(jrxElement.getXmlElement());
     }
 
@@ -3598,6 +4265,25 @@ public class JrxXmlModelUtil {
         return jrxAttributeList;
     }
 
+    /**
+     * Get the attributes matching the XPath expression by walking the JRX model, see {@link JrxXPath} for the
+     * supported subset. Other expressions, and documents containing elements which are not allowed by the schema, are
+     * evaluated on the XML document by {@link #getAttributeListByXPath(JrxDocument, String[][], String)}.
+     */
+    public List<JrxAttribute> getAttributeListByNativeXPath(JrxDocument jrxDocument, String[][] namespaces,
+            String xPathExpression) throws Exception {
+        if (jrxDocument.getXmlDocument() == null) {
+            return null;
+        }
+
+        JrxXPath jrxXPath = JrxXPath.compile(xPathExpression, namespaces);
+        if (jrxXPath == null || !jrxXPath.isAttributeExpression() || JrxXPath.hasUnexpectedElements(jrxDocument)) {
+            return getAttributeListByXPath(jrxDocument, namespaces, xPathExpression);
+        }
+
+        return jrxXPath.evaluateAttributes(jrxDocument);
+    }
+
     public static JrxAttribute getAttribute(JrxElement jrxElement, String attributeName) {
         if (jrxElement == null || attributeName == null || "".equals(attributeName)) {
             return null;
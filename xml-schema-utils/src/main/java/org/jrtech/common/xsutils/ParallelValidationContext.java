@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2016-2026 Jumin Rubin
+ * LinkedIn: https://www.linkedin.com/in/juminrubin/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jrtech.common.xsutils;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import org.jrtech.common.xsutils.model.JrxChoiceGroup;
+import org.jrtech.common.xsutils.model.JrxDeclaration;
+import org.jrtech.common.xsutils.model.JrxElement;
+import org.jrtech.common.xsutils.model.JrxElementGroup;
+import org.jrtech.common.xsutils.model.JrxTerm;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+/**
+ * The class <code>ParallelValidationContext</code> holds the state of a single parallel validation run of
+ * {@link JrxXmlModelUtil}.
+ * <p>
+ * Before the run the subtree size of every term is measured once. During the run, the children of an element whose
+ * subtree reaches the threshold are split into chunks of consecutive siblings. The chunks are validated as fork/join
+ * tasks and their results are concatenated in sibling order, which gives the same result as the sequential
+ * validation.
+ *
+ */
+class ParallelValidationContext {
+
+    private final ForkJoinPool pool;
+
+    private final int threshold;
+
+    private final Map<JrxTerm<?>, Integer> subtreeSizeMap = new IdentityHashMap<JrxTerm<?>, Integer>();
+
+    // Metrics of the validation phase, bound to the worker threads
+    private final PhaseRecorder recorder;
+
+    ParallelValidationContext(ForkJoinPool pool, int threshold) {
+        this.pool = pool;
+        this.threshold = threshold;
+        this.recorder = PhaseRecorder.current();
+    }
+
+    ForkJoinPool getPool() {
+        return pool;
+    }
+
+    int getThreshold() {
+        return threshold;
+    }
+
+    PhaseRecorder getRecorder() {
+        return recorder;
+    }
+
+    /**
+     * Measure the subtree sizes below the given element and build the state which is otherwise built on first read,
+     * as it is not safe from several threads: the DOM implementation expands deferred nodes on first read and the
+     * element groups index their children on first lookup. The pending enrichment has to be run before.
+     *
+     * @param jrxElement
+     * @return number of terms in the subtree including the element itself
+     */
+    int prepare(JrxElement jrxElement) {
+        if (jrxElement.getXmlElement() != null) {
+            expandNode(jrxElement.getXmlElement());
+        }
+
+        return measure(jrxElement);
+    }
+
+    private static void expandNode(Node xmlNode) {
+        NamedNodeMap xmlAttrs = xmlNode.getAttributes();
+        if (xmlAttrs != null) {
+            for (int i = 0; i < xmlAttrs.getLength(); i++) {
+                xmlAttrs.item(i).getNodeValue();
+            }
+        }
+
+        for (Node xmlChild = xmlNode.getFirstChild(); xmlChild != null; xmlChild = xmlChild.getNextSibling()) {
+            xmlChild.getNodeValue();
+            expandNode(xmlChild);
+        }
+    }
+
+    private int measure(JrxTerm<?> jrxTerm) {
+        if (jrxTerm == null)
+            return 0;
+
+        int size = 0;
+        if (jrxTerm instanceof JrxChoiceGroup) {
+            size = measure(((JrxChoiceGroup) jrxTerm).getSelection());
+        } else if (jrxTerm instanceof JrxElementGroup) {
+            ((JrxElementGroup) jrxTerm).prepareChildIndex();
+            for (JrxTerm<?> jrxChildTerm : ((JrxElementGroup) jrxTerm).getElements()) {
+                size += measure(jrxChildTerm);
+            }
+        } else if (jrxTerm instanceof JrxDeclaration<?>) {
+            size = 1 + measure(((JrxDeclaration<?>) jrxTerm).getChildrenBlock());
+        }
+        subtreeSizeMap.put(jrxTerm, size);
+
+        return size;
+    }
+
+    private int getSubtreeSize(JrxTerm<?> jrxTerm) {
+        Integer size = subtreeSizeMap.get(jrxTerm);
+
+        return size == null ? 1 : size.intValue();
+    }
+
+    /**
+     * @param jrxElement
+     * @return true when the children of the element shall be validated as separate tasks
+     */
+    boolean isForkable(JrxElement jrxElement) {
+        return getSubtreeSize(jrxElement) >= threshold;
+    }
+
+    List<XmlValidationError> validateTerms(JrxXmlModelUtil util, JrxElement jrxParentElement,
+            List<JrxTerm<?>> jrxTerms, String parentPath) {
+        List<TermChunkValidationTask> taskList = new ArrayList<TermChunkValidationTask>();
+
+        int fromIndex = 0;
+        int chunkSize = 0;
+        for (int i = 0; i < jrxTerms.size(); i++) {
+            chunkSize += getSubtreeSize(jrxTerms.get(i));
+            if (chunkSize >= threshold || i == jrxTerms.size() - 1) {
+                taskList.add(new TermChunkValidationTask(util, jrxParentElement, jrxTerms.subList(fromIndex, i + 1),
+                        parentPath, this));
+                fromIndex = i + 1;
+                chunkSize = 0;
+            }
+        }
+
+        if (taskList.size() == 1) {
+            return taskList.get(0).compute();
+        }
+
+        if (ForkJoinTask.getPool() == pool) {
+            ForkJoinTask.invokeAll(taskList);
+        } else {
+            // Caller thread does not belong to the pool, e.g. the root task has been run by the invoking thread
+            for (TermChunkValidationTask task : taskList) {
+                pool.execute(task);
+            }
+        }
+
+        List<XmlValidationError> validationResult = new ArrayList<XmlValidationError>();
+        for (TermChunkValidationTask task : taskList) {
+            validationResult.addAll(task.join());
+        }
+
+        return validationResult;
+    }
+
+    private static class TermChunkValidationTask extends RecursiveTask<List<XmlValidationError>> {
+
+        private static final long serialVersionUID = 3360145617307562871L;
+
+        private final JrxXmlModelUtil util;
+
+        private final JrxElement jrxParentElement;
+
+        private final List<JrxTerm<?>> jrxTerms;
+
+        private final String parentPath;
+
+        private final ParallelValidationContext context;
+
+        TermChunkValidationTask(JrxXmlModelUtil util, JrxElement jrxParentElement, List<JrxTerm<?>> jrxTerms,
+                String parentPath, ParallelValidationContext context) {
+            this.util = util;
+            this.jrxParentElement = jrxParentElement;
+            this.jrxTerms = jrxTerms;
+            this.parentPath = parentPath;
+            this.context = context;
+        }
+
+        @Override
+        protected List<XmlValidationError> compute() {
+            ParallelValidationContext previousContext = util.bindParallelValidationContext(context);
+            PhaseRecorder previousRecorder = PhaseRecorder.bind(context.getRecorder());
+            try {
+                List<XmlValidationError> validationResult = new ArrayList<XmlValidationError>();
+                for (JrxTerm<?> jrxTerm : jrxTerms) {
+                    validationResult.addAll(util.validateTerm(jrxParentElement, jrxTerm, parentPath));
+                }
+
+                return validationResult;
+            } finally {
+                PhaseRecorder.bind(previousRecorder);
+                util.bindParallelValidationContext(previousContext);
+            }
+        }
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2016-2026 Jumin Rubin
+ * LinkedIn: https://www.linkedin.com/in/juminrubin/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jrtech.common.xsutils;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The class <code>PhaseRecorder</code> collects the metrics of a processing phase while it runs, see
+ * {@link JrxPhaseMetrics}.
+ * <p>
+ * The recorder of the running phase is bound to the processing thread, so that the static lookups of
+ * {@link ContentModelIndex} and {@link SimpleTypeValidator} are attributed to it. Worker threads of a parallel
+ * validation bind the recorder of the phase they work for. As long as no phase is recorded anywhere, a lookup only
+ * reads a counter.
+ *
+ */
+final class PhaseRecorder {
+
+    private static final Logger log = LoggerFactory.getLogger(PhaseRecorder.class);
+
+    private static final ThreadLocal<PhaseRecorder> CURRENT = new ThreadLocal<PhaseRecorder>();
+
+    // Number of phases being recorded by any thread
+    private static final AtomicInteger ACTIVE_COUNT = new AtomicInteger();
+
+    private static final com.sun.management.ThreadMXBean ALLOCATION_MX_BEAN = getAllocationMXBean();
+
+    private final JrxMetricsSink sink;
+
+    private final JrxPhaseMetrics.Phase phase;
+
+    private String messageType;
+
+    private final PhaseRecorder previous;
+
+    private final long startNanos;
+
+    private final long startAllocatedBytes;
+
+    private final LongAdder nodeCount = new LongAdder();
+
+    private final LongAdder schemaLookupCount = new LongAdder();
+
+    private final LongAdder schemaLookupNanos = new LongAdder();
+
+    private final LongAdder particleLookupCount = new LongAdder();
+
+    private final LongAdder particleLookupMissCount = new LongAdder();
+
+    private final LongAdder facetLookupCount = new LongAdder();
+
+    private final LongAdder facetLookupMissCount = new LongAdder();
+
+    private PhaseRecorder(JrxMetricsSink sink, JrxPhaseMetrics.Phase phase, String messageType) {
+        this.sink = sink;
+        this.phase = phase;
+        this.messageType = messageType;
+        this.previous = CURRENT.get();
+        this.startAllocatedBytes = getAllocatedBytes();
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Start recording a phase on the current thread.
+     *
+     * @param sink
+     *            receives the metrics at the end of the phase
+     * @param phase
+     * @param messageType
+     *            see {@link JrxPhaseMetrics#getMessageType()}, may be set later
+     * @return the recorder, to be finished by the same thread
+     */
+    static PhaseRecorder start(JrxMetricsSink sink, JrxPhaseMetrics.Phase phase, String messageType) {
+        PhaseRecorder recorder = new PhaseRecorder(sink, phase, messageType);
+        CURRENT.set(recorder);
+        ACTIVE_COUNT.incrementAndGet();
+
+        return recorder;
+    }
+
+    /**
+     * @return the recorder of the phase running on the current thread, null when none is
+     */
+    static PhaseRecorder current() {
+        if (ACTIVE_COUNT.get() == 0)
+            return null;
+
+        return CURRENT.get();
+    }
+
+    /**
+     * Bind the given recorder to the current thread.
+     *
+     * @param recorder
+     *            may be null
+     * @return the recorder bound before, to be bound again afterwards
+     */
+    static PhaseRecorder bind(PhaseRecorder recorder) {
+        PhaseRecorder boundRecorder = CURRENT.get();
+        if (recorder == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(recorder);
+        }
+
+        return boundRecorder;
+    }
+
+    static void countParticleLookup() {
+        PhaseRecorder recorder = current();
+        if (recorder != null)
+            recorder.particleLookupCount.increment();
+    }
+
+    static void countParticleLookupMiss() {
+        PhaseRecorder recorder = current();
+        if (recorder != null)
+            recorder.particleLookupMissCount.increment();
+    }
+
+    static void countFacetLookup() {
+        PhaseRecorder recorder = current();
+        if (recorder != null)
+            recorder.facetLookupCount.increment();
+    }
+
+    static void countFacetLookupMiss() {
+        PhaseRecorder recorder = current();
+        if (recorder != null)
+            recorder.facetLookupMissCount.increment();
+    }
+
+    void setMessageType(String messageType) {
+        this.messageType = messageType;
+    }
+
+    void countNode() {
+        nodeCount.increment();
+    }
+
+    void countSchemaLookup(long elapsedNanos) {
+        schemaLookupCount.increment();
+        schemaLookupNanos.add(elapsedNanos);
+    }
+
+    /**
+     * Finish the phase, bind the recorder of the enclosing phase again and deliver the metrics to the sink.
+     *
+     * @param validationErrorCount
+     */
+    void finish(int validationErrorCount) {
+        long elapsedNanos = System.nanoTime() - startNanos;
+        long allocatedBytes = startAllocatedBytes < 0 ? -1 : getAllocatedBytes() - startAllocatedBytes;
+
+        ACTIVE_COUNT.decrementAndGet();
+        bind(previous);
+
+        JrxPhaseMetrics phaseMetrics = new JrxPhaseMetrics(phase, messageType, elapsedNanos, allocatedBytes,
+                nodeCount.sum(), schemaLookupCount.sum(), schemaLookupNanos.sum(), particleLookupCount.sum(),
+                particleLookupMissCount.sum(), facetLookupCount.sum(), facetLookupMissCount.sum(),
+                validationErrorCount);
+        try {
+            sink.record(phaseMetrics);
+        } catch (RuntimeException e) {
+            log.warn("Metrics sink failed to record " + phaseMetrics, e);
+        }
+    }
+
+    private static long getAllocatedBytes() {
+        if (ALLOCATION_MX_BEAN == null)
+            return -1;
+
+        return ALLOCATION_MX_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static com.sun.management.ThreadMXBean getAllocationMXBean() {
+        try {
+            java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+            if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean allocationMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+                if (allocationMXBean.isThreadAllocatedMemorySupported()
+                        && allocationMXBean.isThreadAllocatedMemoryEnabled())
+                    return allocationMXBean;
+            }
+        } catch (LinkageError e) {
+            log.debug("Allocation per thread is not available", e);
+        }
+
+        return null;
+    }
+}
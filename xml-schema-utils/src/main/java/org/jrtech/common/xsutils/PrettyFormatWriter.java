@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2016-2026 Jumin Rubin
+ * LinkedIn: https://www.linkedin.com/in/juminrubin/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jrtech.common.xsutils;
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * The class <code>PrettyFormatWriter</code> indents the text representation of the Jrx model while it is written: a
+ * line break follows every <code>{</code> and <code>,</code>, a line break precedes every <code>}</code>, and lines
+ * are indented by the nesting depth of the braces. A block containing only white spaces is written as
+ * <code>{}</code>.
+ * <p>
+ * The white spaces following an opening brace are held back until the next character shows whether the block is
+ * empty. {@link #finish()} and {@link #close()} write them out at the end of the text.
+ *
+ */
+class PrettyFormatWriter extends FilterWriter {
+
+    private static final char NEW_LINE = '\n';
+
+    private final String indent;
+
+    private int depth;
+
+    private boolean blockOpened;
+
+    private final StringBuilder pendingWhiteSpaces = new StringBuilder();
+
+    PrettyFormatWriter(Writer out, String indent) {
+        super(out);
+        this.indent = indent;
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        char chr = (char) c;
+
+        if (blockOpened) {
+            if (isWhiteSpace(chr)) {
+                pendingWhiteSpaces.append(chr);
+                return;
+            }
+
+            blockOpened = false;
+            if (chr == '}') {
+                // Empty block
+                depth--;
+                pendingWhiteSpaces.setLength(0);
+                out.write(chr);
+                return;
+            }
+
+            writeLineBreak();
+            out.append(pendingWhiteSpaces);
+            pendingWhiteSpaces.setLength(0);
+        }
+
+        if (chr == '}') {
+            depth--;
+            writeLineBreak();
+        }
+
+        out.write(chr);
+
+        if (chr == '{') {
+            depth++;
+            blockOpened = true;
+        } else if (chr == ',') {
+            writeLineBreak();
+        }
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        for (int i = off; i < off + len; i++) {
+            write(cbuf[i]);
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        for (int i = off; i < off + len; i++) {
+            write(str.charAt(i));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        finish();
+        super.close();
+    }
+
+    /**
+     * Complete the text without closing the underlying writer.
+     */
+    void finish() throws IOException {
+        if (!blockOpened)
+            return;
+
+        blockOpened = false;
+        writeLineBreak();
+        out.append(pendingWhiteSpaces);
+        pendingWhiteSpaces.setLength(0);
+    }
+
+    private void writeLineBreak() throws IOException {
+        out.write(NEW_LINE);
+        for (int i = 0; i < depth; i++) {
+            out.write(indent);
+        }
+    }
+
+    private static boolean isWhiteSpace(char chr) {
+        // Same characters as \s of java.util.regex.Pattern
+        return chr == ' ' || chr == '\t' || chr == '\n' || chr == '\u000B' || chr == '\f' || chr == '\r';
+    }
+}
@@ -0,0 +1,520 @@
+/*
+ * Copyright (c) 2016-2026 Jumin Rubin
+ * LinkedIn: https://www.linkedin.com/in/juminrubin/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jrtech.common.xsutils;
+
+import java.io.File;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.SAXException;
+
+import com.sun.xml.xsom.XSSchema;
+import com.sun.xml.xsom.XSSchemaSet;
+
+/**
+ * The class <code>SchemaRegistry</code> is a thread-safe store of parsed XML schemas.
+ * <p>
+ * Schemas are loaded at most once per URL: concurrent requests for the same URL wait for the single XSOM parse in
+ * progress instead of starting their own. Loaded schemas are kept until they are explicitly invalidated, there is no
+ * time or size based eviction.
+ *
+ */
+public class SchemaRegistry {
+
+	private static final Logger log = LoggerFactory.getLogger(SchemaRegistry.class);
+
+	private static final SchemaRegistry DEFAULT_REGISTRY = new SchemaRegistry();
+
+	private final ConcurrentMap<String, FutureTask<Entry>> urlEntryMap = new ConcurrentHashMap<String, FutureTask<Entry>>();
+
+	private final ConcurrentMap<String, XSSchema> namespaceSchemaMap = new ConcurrentHashMap<String, XSSchema>();
+
+	// Entries in the order their schemas were registered, guarded by itself
+	private final List<Entry> registeredEntryList = new ArrayList<Entry>();
+
+	private final AtomicLong hitCount = new AtomicLong();
+
+	private final AtomicLong missCount = new AtomicLong();
+
+	private final AtomicLong loadFailureCount = new AtomicLong();
+
+	private final AtomicLong totalLoadTime = new AtomicLong();
+
+	private volatile File snapshotDirectory;
+
+	/**
+	 * @return the registry shared by all {@link CacheableJrxXmlModelUtil} created without an explicit registry
+	 */
+	public static SchemaRegistry getDefault() {
+		return DEFAULT_REGISTRY;
+	}
+
+	public static SchemaRegistry newInstance() {
+		return new SchemaRegistry();
+	}
+
+	protected SchemaRegistry() {
+	}
+
+	/**
+	 * Load the XML schema from the given URL, or return the already loaded one.
+	 *
+	 * @param xmlSchemaUrl
+	 * @return array of target namespace URI contained in the schema set
+	 * @throws SAXException
+	 */
+	public String[] loadSchemas(URL xmlSchemaUrl) throws SAXException {
+		return getEntry(xmlSchemaUrl).getNamespaceUris();
+	}
+
+	/**
+	 * Load the XML schema from the given URL, or return the already loaded one.
+	 *
+	 * @param xmlSchemaUrl
+	 * @return the registry entry of the schema set
+	 * @throws SAXException
+	 */
+	public Entry getEntry(final URL xmlSchemaUrl) throws SAXException {
+		String key = xmlSchemaUrl.toString();
+		FutureTask<Entry> task = urlEntryMap.get(key);
+		if (task == null) {
+			FutureTask<Entry> newTask = new FutureTask<Entry>(() -> load(xmlSchemaUrl));
+			task = urlEntryMap.putIfAbsent(key, newTask);
+			if (task == null) {
+				task = newTask;
+				missCount.incrementAndGet();
+				task.run();
+			} else {
+				hitCount.incrementAndGet();
+			}
+		} else {
+			hitCount.incrementAndGet();
+		}
+
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SchemaNotAvailableException();
+		} catch (ExecutionException e) {
+			// Failed loads must not stick, the next request shall retry
+			urlEntryMap.remove(key, task);
+			Throwable cause = e.getCause();
+			if (cause instanceof SAXException) {
+				throw (SAXException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new SAXException((Exception) cause);
+		}
+	}
+
+	/**
+	 * Load the XML schemas from the given URLs in parallel, each one by its own XSOM parser. URLs loaded before are not
+	 * parsed again.
+	 *
+	 * @param xmlSchemaUrls
+	 * @param executor
+	 *            runs the loads
+	 * @return the registry entries in the order of the URLs, each one with its own load time
+	 * @throws SAXException
+	 *             the first failure in the order of the URLs, thrown once all loads have completed
+	 */
+	public List<Entry> loadSchemas(Collection<URL> xmlSchemaUrls, ExecutorService executor) throws SAXException {
+		return loadEntries(xmlSchemaUrls, executor, this::getEntry);
+	}
+
+	private Entry load(URL xmlSchemaUrl) throws SAXException {
+		long startTime = System.nanoTime();
+		try {
+			Entry entry = parseEntry(xmlSchemaUrl, snapshotDirectory);
+			register(entry);
+
+			totalLoadTime.addAndGet(entry.getLoadTime());
+			log.debug("Schema loaded: " + xmlSchemaUrl + " in " + (entry.getLoadTime() / 1000000) + " ms.");
+
+			return entry;
+		} catch (SAXException | RuntimeException e) {
+			loadFailureCount.incrementAndGet();
+			totalLoadTime.addAndGet(System.nanoTime() - startTime);
+			throw e;
+		}
+	}
+
+	/**
+	 * Parse the XML schema from the given URL by a dedicated XSOM parser.
+	 *
+	 * @param xmlSchemaUrl
+	 * @param snapshotDirectory
+	 *            directory of the snapshot files, null to parse the XML schema
+	 * @return entry of the schema set, not registered
+	 * @throws SAXException
+	 */
+	static Entry parseEntry(URL xmlSchemaUrl, File snapshotDirectory) throws SAXException {
+		long startTime = System.nanoTime();
+		XSSchemaSet schemaSet;
+		if (snapshotDirectory == null) {
+			schemaSet = JrxXmlModelUtil.parseSchemaSet(xmlSchemaUrl);
+		} else {
+			schemaSet = SchemaSnapshot.parseSchemaSet(xmlSchemaUrl, getSnapshotFile(snapshotDirectory, xmlSchemaUrl));
+		}
+
+		List<String> namespaceUriList = new ArrayList<String>();
+		Iterator<XSSchema> it = schemaSet.iterateSchema();
+		while (it.hasNext()) {
+			namespaceUriList.add(it.next().getTargetNamespace());
+		}
+
+		return new Entry(xmlSchemaUrl, schemaSet, namespaceUriList.toArray(new String[namespaceUriList.size()]),
+				System.nanoTime() - startTime);
+	}
+
+	/**
+	 * Load the entries of the given URLs by the executor and wait for all of them.
+	 *
+	 * @param xmlSchemaUrls
+	 * @param executor
+	 * @param entryLoader
+	 * @return the entries in the order of the URLs
+	 * @throws SAXException
+	 *             the first failure in the order of the URLs, thrown once all loads have completed
+	 */
+	static List<Entry> loadEntries(Collection<URL> xmlSchemaUrls, ExecutorService executor,
+			final EntryLoader entryLoader) throws SAXException {
+		List<Future<Entry>> futureList = new ArrayList<Future<Entry>>(xmlSchemaUrls.size());
+		for (final URL xmlSchemaUrl : xmlSchemaUrls) {
+			futureList.add(executor.submit(() -> entryLoader.load(xmlSchemaUrl)));
+		}
+
+		List<Entry> entryList = new ArrayList<Entry>(futureList.size());
+		Throwable failure = null;
+		for (Future<Entry> future : futureList) {
+			try {
+				entryList.add(future.get());
+			} catch (InterruptedException e) {
+				for (Future<Entry> remainingFuture : futureList) {
+					remainingFuture.cancel(true);
+				}
+				Thread.currentThread().interrupt();
+				throw new SchemaNotAvailableException();
+			} catch (ExecutionException e) {
+				if (failure == null) {
+					failure = e.getCause();
+				}
+			}
+		}
+
+		if (failure instanceof SAXException) {
+			throw (SAXException) failure;
+		}
+		if (failure instanceof RuntimeException) {
+			throw (RuntimeException) failure;
+		}
+		if (failure instanceof Error) {
+			throw (Error) failure;
+		}
+		if (failure != null) {
+			throw new SAXException((Exception) failure);
+		}
+
+		return entryList;
+	}
+
+	/**
+	 * Register a single schema by its target namespace. An already registered namespace is kept.
+	 *
+	 * @param xsSchema
+	 * @return target namespace URI of the schema
+	 */
+	public String registerSchema(XSSchema xsSchema) {
+		String namespaceUri = xsSchema.getTargetNamespace();
+		namespaceSchemaMap.putIfAbsent(namespaceUri, xsSchema);
+
+		return namespaceUri;
+	}
+
+	public XSSchema getSchema(String namespaceUri) {
+		if (namespaceUri == null)
+			return null;
+
+		return namespaceSchemaMap.get(namespaceUri);
+	}
+
+	public boolean hasSchema(String namespaceUri) {
+		return namespaceUri != null && namespaceSchemaMap.containsKey(namespaceUri);
+	}
+
+	public boolean hasSchemas() {
+		return !namespaceSchemaMap.isEmpty();
+	}
+
+	public boolean isLoaded(URL xmlSchemaUrl) {
+		FutureTask<Entry> task = urlEntryMap.get(xmlSchemaUrl.toString());
+		return task != null && task.isDone();
+	}
+
+	/**
+	 * @return the namespace URI of all registered schemas
+	 */
+	public Collection<String> getNamespaceUris() {
+		return Collections.unmodifiableSet(namespaceSchemaMap.keySet());
+	}
+
+	/**
+	 * Remove the schema set loaded from the given URL together with the namespaces it registered. The next request
+	 * for the URL parses it again.
+	 *
+	 * @param xmlSchemaUrl
+	 * @return true when the URL was loaded before
+	 */
+	public boolean invalidate(URL xmlSchemaUrl) {
+		FutureTask<Entry> task = urlEntryMap.remove(xmlSchemaUrl.toString());
+		if (task == null)
+			return false;
+
+		if (task.isDone()) {
+			try {
+				unregister(task.get());
+			} catch (InterruptedException | ExecutionException e) {
+				// Nothing has been registered by a failed load
+			}
+		}
+
+		return true;
+	}
+
+	private void register(Entry entry) {
+		synchronized (registeredEntryList) {
+			registeredEntryList.add(entry);
+			registerSchemas(entry);
+		}
+	}
+
+	private void registerSchemas(Entry entry) {
+		Iterator<XSSchema> it = entry.getSchemaSet().iterateSchema();
+		while (it.hasNext()) {
+			registerSchema(it.next());
+		}
+	}
+
+	/**
+	 * Remove the namespaces registered by the given entry. A namespace shared with a schema set still loaded, e.g. an
+	 * imported schema or the XML schema namespace itself, is registered again from the first of these schema sets.
+	 *
+	 * @param entry
+	 */
+	private void unregister(Entry entry) {
+		synchronized (registeredEntryList) {
+			if (!registeredEntryList.remove(entry))
+				return;
+
+			Iterator<XSSchema> it = entry.getSchemaSet().iterateSchema();
+			while (it.hasNext()) {
+				XSSchema xsSchema = it.next();
+				namespaceSchemaMap.remove(xsSchema.getTargetNamespace(), xsSchema);
+			}
+
+			for (Entry registeredEntry : registeredEntryList) {
+				registerSchemas(registeredEntry);
+			}
+		}
+	}
+
+	/**
+	 * Remove all loaded schemas. Statistics are kept.
+	 */
+	public void invalidateAll() {
+		synchronized (registeredEntryList) {
+			urlEntryMap.clear();
+			registeredEntryList.clear();
+			namespaceSchemaMap.clear();
+		}
+	}
+
+	/**
+	 * Invalidate and load the schema from the given URL again.
+	 *
+	 * @param xmlSchemaUrl
+	 * @return array of target namespace URI contained in the schema set
+	 * @throws SAXException
+	 */
+	public String[] reload(URL xmlSchemaUrl) throws SAXException {
+		invalidate(xmlSchemaUrl);
+
+		return loadSchemas(xmlSchemaUrl);
+	}
+
+	public File getSnapshotDirectory() {
+		return snapshotDirectory;
+	}
+
+	/**
+	 * Keep a snapshot of every schema set loaded from now on in the given directory, a later load of the same URL
+	 * builds the schema set from its snapshot as long as the XML schema documents are unchanged. See
+	 * {@link SchemaSnapshot}.
+	 *
+	 * @param snapshotDirectory
+	 *            directory of the snapshot files, null to always parse the XML schemas
+	 */
+	public void setSnapshotDirectory(File snapshotDirectory) {
+		this.snapshotDirectory = snapshotDirectory;
+	}
+
+	/**
+	 * @return the snapshot file of the given URL, named after the last segment of the URL and the hash code of the URL
+	 */
+	static File getSnapshotFile(File snapshotDirectory, URL xmlSchemaUrl) {
+		String url = xmlSchemaUrl.toExternalForm();
+		String name = url.substring(url.lastIndexOf('/') + 1).replaceAll("[^A-Za-z0-9._-]", "_");
+
+		return new File(snapshotDirectory, name + "-" + Integer.toHexString(url.hashCode()) + ".jrxs");
+	}
+
+	public Statistics getStatistics() {
+		return new Statistics(hitCount.get(), missCount.get(), loadFailureCount.get(), totalLoadTime.get());
+	}
+
+	public void resetStatistics() {
+		hitCount.set(0);
+		missCount.set(0);
+		loadFailureCount.set(0);
+		totalLoadTime.set(0);
+	}
+
+	interface EntryLoader {
+
+		Entry load(URL xmlSchemaUrl) throws SAXException;
+	}
+
+	/**
+	 * The class <code>Entry</code> holds a schema set loaded from a single URL.
+	 *
+	 */
+	public static class Entry {
+
+		private final URL url;
+
+		private final XSSchemaSet schemaSet;
+
+		private final String[] namespaceUris;
+
+		private final long loadTime;
+
+		protected Entry(URL url, XSSchemaSet schemaSet, String[] namespaceUris, long loadTime) {
+			this.url = url;
+			this.schemaSet = schemaSet;
+			this.namespaceUris = namespaceUris;
+			this.loadTime = loadTime;
+		}
+
+		public URL getUrl() {
+			return url;
+		}
+
+		public XSSchemaSet getSchemaSet() {
+			return schemaSet;
+		}
+
+		public String[] getNamespaceUris() {
+			return namespaceUris.clone();
+		}
+
+		/**
+		 * @return time spent by XSOM to parse the schema in nanoseconds
+		 */
+		public long getLoadTime() {
+			return loadTime;
+		}
+	}
+
+	/**
+	 * The class <code>Statistics</code> is an immutable snapshot of the registry usage.
+	 *
+	 */
+	public static class Statistics {
+
+		private final long hitCount;
+
+		private final long missCount;
+
+		private final long loadFailureCount;
+
+		private final long totalLoadTime;
+
+		protected Statistics(long hitCount, long missCount, long loadFailureCount, long totalLoadTime) {
+			this.hitCount = hitCount;
+			this.missCount = missCount;
+			this.loadFailureCount = loadFailureCount;
+			this.totalLoadTime = totalLoadTime;
+		}
+
+		public long getHitCount() {
+			return hitCount;
+		}
+
+		/**
+		 * @return number of requests that triggered a schema load
+		 */
+		public long getMissCount() {
+			return missCount;
+		}
+
+		public long getLoadSuccessCount() {
+			return missCount - loadFailureCount;
+		}
+
+		public long getLoadFailureCount() {
+			return loadFailureCount;
+		}
+
+		/**
+		 * @return total time spent loading schemas in nanoseconds
+		 */
+		public long getTotalLoadTime() {
+			return totalLoadTime;
+		}
+
+		public double getAverageLoadTime() {
+			return missCount == 0 ? 0.0 : (double) totalLoadTime / missCount;
+		}
+
+		public double getHitRate() {
+			long requestCount = hitCount + missCount;
+			return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+		}
+
+		@Override
+		public String toString() {
+			return "hits: " + hitCount + ", misses: " + missCount + ", load failures: " + loadFailureCount
+					+ ", total load time: " + (totalLoadTime / 1000000) + " ms";
+		}
+	}
+}
@@ -0,0 +1,750 @@
+/*
+ * Copyright (c) 2016-2026 Jumin Rubin
+ * LinkedIn: https://www.linkedin.com/in/juminrubin/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jrtech.common.xsutils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.Buffer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import javax.xml.parsers.SAXParserFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+
+import com.sun.xml.xsom.XSSchemaSet;
+import com.sun.xml.xsom.parser.JAXPParser;
+import com.sun.xml.xsom.parser.XMLParser;
+
+/**
+ * The class <code>SchemaSnapshot</code> keeps the XML schema documents of a schema set in a binary snapshot file, so
+ * that the schema set can be built again without parsing the XML of its documents.
+ * <p>
+ * Writing a snapshot records the SAX events of every document read by the XSOM parser, the included and imported ones
+ * as well, together with the length and the CRC-32 checksum of the document content. Loading a snapshot maps the file
+ * into memory and replays the recorded events to the XSOM parser, hence neither the XML nor the include and import
+ * locations are read again. The snapshot is used only when the content of all its documents still matches their
+ * checksums, otherwise the documents are parsed and the snapshot is written again.
+ * <p>
+ * The XSOM schema components are not serializable and are built again from the replayed events. The content model
+ * indexes, the simple type validators and the other caches keyed by schema components are compiled on first use as
+ * for a parsed schema set.
+ *
+ */
+public final class SchemaSnapshot {
+
+    private static final Logger log = LoggerFactory.getLogger(SchemaSnapshot.class);
+
+    static final byte[] MAGIC = new byte[] { 'J', 'R', 'X', 'S' };
+
+    static final int VERSION = 1;
+
+    // Header: magic, version and the CRC-32 checksum of the rest of the file
+    private static final int HEADER_LENGTH = MAGIC.length + 1 + 4;
+
+    // String table entries: 0 for null, 1 for a new string written inline, index + 2 for a string written before
+    private static final int STRING_NULL = 0;
+    private static final int STRING_NEW = 1;
+    private static final int STRING_INDEX_OFFSET = 2;
+
+    // SAX events
+    private static final int EVENT_END = 0;
+    private static final int EVENT_START_DOCUMENT = 1;
+    private static final int EVENT_END_DOCUMENT = 2;
+    private static final int EVENT_START_PREFIX_MAPPING = 3;
+    private static final int EVENT_END_PREFIX_MAPPING = 4;
+    private static final int EVENT_START_ELEMENT = 5;
+    private static final int EVENT_END_ELEMENT = 6;
+    private static final int EVENT_CHARACTERS = 7;
+    private static final int EVENT_IGNORABLE_WHITESPACE = 8;
+    private static final int EVENT_PROCESSING_INSTRUCTION = 9;
+    private static final int EVENT_SKIPPED_ENTITY = 10;
+
+    private SchemaSnapshot() {
+    }
+
+    /**
+     * Build the schema set of the given XML schema from the snapshot file. When the snapshot is missing, unreadable or
+     * does not match the XML schema documents any more, the XML schema is parsed and the snapshot is written again.
+     * Failing to write the snapshot is logged and does not fail the parse.
+     *
+     * @param xmlSchemaUrl
+     * @param snapshotFile
+     * @return the schema set, never null
+     * @throws SAXException
+     */
+    public static XSSchemaSet parseSchemaSet(URL xmlSchemaUrl, File snapshotFile) throws SAXException {
+        if (snapshotFile.isFile()) {
+            try {
+                Map<String, ByteBuffer> documentEventMap = read(xmlSchemaUrl, snapshotFile);
+                if (documentEventMap != null)
+                    return JrxXmlModelUtil.parseSchemaSet(xmlSchemaUrl, new ReplayingParser(documentEventMap));
+
+                log.info("Schema snapshot: '" + snapshotFile + "' is out of date, parsing: " + xmlSchemaUrl);
+            } catch (IOException | SAXException e) {
+                log.warn("Cannot load schema snapshot: '" + snapshotFile + "', parsing: " + xmlSchemaUrl, e);
+            }
+        }
+
+        RecordingParser recordingParser = new RecordingParser();
+        XSSchemaSet schemaSet = JrxXmlModelUtil.parseSchemaSet(xmlSchemaUrl, recordingParser);
+        try {
+            recordingParser.write(xmlSchemaUrl, snapshotFile);
+        } catch (IOException e) {
+            log.warn("Cannot write schema snapshot: '" + snapshotFile + "'", e);
+        }
+
+        return schemaSet;
+    }
+
+    /**
+     * Parse the given XML schema and write its snapshot file.
+     *
+     * @param xmlSchemaUrl
+     * @param snapshotFile
+     * @return the parsed schema set, never null
+     * @throws SAXException
+     * @throws IOException
+     *             when the snapshot cannot be written, e.g. a document has been provided without its URL by an entity
+     *             resolver
+     */
+    public static XSSchemaSet write(URL xmlSchemaUrl, File snapshotFile) throws SAXException, IOException {
+        RecordingParser recordingParser = new RecordingParser();
+        XSSchemaSet schemaSet = JrxXmlModelUtil.parseSchemaSet(xmlSchemaUrl, recordingParser);
+        recordingParser.write(xmlSchemaUrl, snapshotFile);
+
+        return schemaSet;
+    }
+
+    /**
+     * @param xmlSchemaUrl
+     * @param snapshotFile
+     * @return true when the snapshot file exists and matches the current content of the XML schema documents
+     */
+    public static boolean isUpToDate(URL xmlSchemaUrl, File snapshotFile) {
+        try {
+            return snapshotFile.isFile() && read(xmlSchemaUrl, snapshotFile) != null;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Map the snapshot file into memory and check it against the XML schema documents.
+     *
+     * @return the events of each document by system ID, null when the snapshot does not match the XML schema
+     * @throws IOException
+     *             when the snapshot cannot be read or is corrupted
+     */
+    private static Map<String, ByteBuffer> read(URL xmlSchemaUrl, File snapshotFile) throws IOException {
+        ByteBuffer buffer;
+        FileChannel channel = FileChannel.open(snapshotFile.toPath(), StandardOpenOption.READ);
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            channel.close();
+        }
+
+        try {
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (buffer.get() != MAGIC[i])
+                    throw new StreamCorruptedException("Not a schema snapshot: '" + snapshotFile + "'");
+            }
+            if (buffer.get() != VERSION)
+                return null;
+
+            int checksum = buffer.getInt();
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate());
+            if ((int) crc.getValue() != checksum)
+                throw new StreamCorruptedException("Schema snapshot is corrupted: '" + snapshotFile + "'");
+
+            EventInput input = new EventInput(buffer);
+            if (!xmlSchemaUrl.toExternalForm().equals(input.readRawString()))
+                return null;
+
+            int documentCount = input.readVarint();
+            String[] systemIds = new String[documentCount];
+            int[] eventLengths = new int[documentCount];
+            for (int i = 0; i < documentCount; i++) {
+                systemIds[i] = input.readRawString();
+                long length = input.readVarlong();
+                int sourceChecksum = buffer.getInt();
+                eventLengths[i] = input.readVarint();
+
+                if (!matches(systemIds[i], length, sourceChecksum))
+                    return null;
+            }
+
+            Map<String, ByteBuffer> documentEventMap = new HashMap<String, ByteBuffer>();
+            for (int i = 0; i < documentCount; i++) {
+                ByteBuffer events = buffer.slice();
+                // Called on Buffer, the covariant overrides of ByteBuffer do not exist before Java 9
+                ((Buffer) events).limit(eventLengths[i]);
+                ((Buffer) buffer).position(buffer.position() + eventLengths[i]);
+                documentEventMap.put(systemIds[i], events);
+            }
+
+            return documentEventMap;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new StreamCorruptedException("Schema snapshot is corrupted: '" + snapshotFile + "'");
+        }
+    }
+
+    private static boolean matches(String systemId, long length, int checksum) {
+        try {
+            byte[] content = readContent(new URL(systemId));
+
+            return content.length == length && checksum(content) == checksum;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static byte[] readContent(URL url) throws IOException {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        InputStream is = url.openStream();
+        try {
+            byte[] chunk = new byte[8192];
+            int count;
+            while ((count = is.read(chunk)) >= 0) {
+                os.write(chunk, 0, count);
+            }
+        } finally {
+            is.close();
+        }
+
+        return os.toByteArray();
+    }
+
+    private static int checksum(byte[] content) {
+        CRC32 crc = new CRC32();
+        crc.update(content, 0, content.length);
+
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Parser recording the events of each parsed document.
+     */
+    private static final class RecordingParser implements XMLParser {
+
+        private final XMLParser parser = new JAXPParser(SAXParserFactory.newInstance());
+
+        private final Map<String, RecordedDocument> documentMap = new LinkedHashMap<String, RecordedDocument>();
+
+        private String unrecordedSystemId;
+
+        @Override
+        public void parse(InputSource source, ContentHandler handler, ErrorHandler errorHandler,
+                EntityResolver entityResolver) throws SAXException, IOException {
+            URL url = null;
+            if (source.getSystemId() != null && source.getByteStream() == null && source.getCharacterStream() == null) {
+                try {
+                    url = new URL(source.getSystemId());
+                } catch (MalformedURLException e) {
+                    // not recorded
+                }
+            }
+            if (url == null) {
+                unrecordedSystemId = String.valueOf(source.getSystemId());
+                parser.parse(source, handler, errorHandler, entityResolver);
+                return;
+            }
+
+            // Parse the content checked, so that it cannot change in between
+            byte[] content = readContent(url);
+            InputSource contentSource = new InputSource(new ByteArrayInputStream(content));
+            contentSource.setSystemId(source.getSystemId());
+            contentSource.setPublicId(source.getPublicId());
+            contentSource.setEncoding(source.getEncoding());
+
+            EventRecorder recorder = new EventRecorder(handler);
+            parser.parse(contentSource, recorder, errorHandler, entityResolver);
+
+            if (!documentMap.containsKey(source.getSystemId())) {
+                documentMap.put(source.getSystemId(), new RecordedDocument(source.getSystemId(), content.length,
+                        checksum(content), recorder.toByteArray()));
+            }
+        }
+
+        void write(URL xmlSchemaUrl, File snapshotFile) throws IOException {
+            if (unrecordedSystemId != null)
+                throw new IOException("Schema document without URL cannot be kept in a snapshot: "
+                        + unrecordedSystemId);
+
+            EventOutput output = new EventOutput();
+            output.writeRawString(xmlSchemaUrl.toExternalForm());
+            output.writeVarint(documentMap.size());
+            for (RecordedDocument document : documentMap.values()) {
+                output.writeRawString(document.systemId);
+                output.writeVarlong(document.length);
+                output.writeInt(document.checksum);
+                output.writeVarint(document.events.length);
+            }
+            for (RecordedDocument document : documentMap.values()) {
+                output.write(document.events);
+            }
+            byte[] body = output.toByteArray();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+            header.put(MAGIC).put((byte) VERSION).putInt(checksum(body));
+
+            // Write aside and move, so that a concurrent reader never sees a partial snapshot
+            Path snapshotPath = snapshotFile.getAbsoluteFile().toPath();
+            Files.createDirectories(snapshotPath.getParent());
+            Path tempPath = Files.createTempFile(snapshotPath.getParent(), snapshotPath.getFileName().toString(),
+                    ".tmp");
+            try {
+                OutputStream os = Files.newOutputStream(tempPath);
+                try {
+                    os.write(header.array());
+                    os.write(body);
+                } finally {
+                    os.close();
+                }
+                try {
+                    Files.move(tempPath, snapshotPath, StandardCopyOption.REPLACE_EXISTING,
+                            StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tempPath, snapshotPath, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(tempPath);
+            }
+        }
+    }
+
+    private static final class RecordedDocument {
+
+        private final String systemId;
+
+        private final long length;
+
+        private final int checksum;
+
+        private final byte[] events;
+
+        private RecordedDocument(String systemId, long length, int checksum, byte[] events) {
+            this.systemId = systemId;
+            this.length = length;
+            this.checksum = checksum;
+            this.events = events;
+        }
+    }
+
+    /**
+     * Parser replaying the recorded events of the documents of the snapshot. Documents not in the snapshot are parsed.
+     */
+    private static final class ReplayingParser implements XMLParser {
+
+        private final Map<String, ByteBuffer> documentEventMap;
+
+        private XMLParser parser;
+
+        private ReplayingParser(Map<String, ByteBuffer> documentEventMap) {
+            this.documentEventMap = documentEventMap;
+        }
+
+        @Override
+        public void parse(InputSource source, ContentHandler handler, ErrorHandler errorHandler,
+                EntityResolver entityResolver) throws SAXException, IOException {
+            ByteBuffer events = null;
+            if (source.getByteStream() == null && source.getCharacterStream() == null) {
+                events = documentEventMap.get(source.getSystemId());
+            }
+            if (events == null) {
+                if (parser == null) {
+                    parser = new JAXPParser(SAXParserFactory.newInstance());
+                }
+                parser.parse(source, handler, errorHandler, entityResolver);
+                return;
+            }
+
+            try {
+                replay(new EventInput(events.duplicate()), source, handler);
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                throw new StreamCorruptedException("Schema snapshot is corrupted: " + source.getSystemId());
+            }
+        }
+
+        private static void replay(EventInput input, InputSource source, ContentHandler handler)
+                throws SAXException, IOException {
+            EventLocator locator = new EventLocator(source.getPublicId(), source.getSystemId());
+            AttributesImpl attributes = new AttributesImpl();
+            handler.setDocumentLocator(locator);
+
+            while (true) {
+                int event = input.readVarint();
+                switch (event) {
+                case EVENT_END:
+                    return;
+                case EVENT_START_DOCUMENT:
+                    handler.startDocument();
+                    break;
+                case EVENT_END_DOCUMENT:
+                    handler.endDocument();
+                    break;
+                case EVENT_START_PREFIX_MAPPING:
+                    handler.startPrefixMapping(input.readString(), input.readString());
+                    break;
+                case EVENT_END_PREFIX_MAPPING:
+                    handler.endPrefixMapping(input.readString());
+                    break;
+                case EVENT_START_ELEMENT: {
+                    locator.lineNumber = input.readVarint() - 1;
+                    locator.columnNumber = input.readVarint() - 1;
+                    String uri = input.readString();
+                    String localName = input.readString();
+                    String qName = input.readString();
+                    attributes.clear();
+                    int attributeCount = input.readVarint();
+                    for (int i = 0; i < attributeCount; i++) {
+                        attributes.addAttribute(input.readString(), input.readString(), input.readString(), input
+                                .readString(), input.readString());
+                    }
+                    handler.startElement(uri, localName, qName, attributes);
+                    break;
+                }
+                case EVENT_END_ELEMENT:
+                    locator.lineNumber = input.readVarint() - 1;
+                    locator.columnNumber = input.readVarint() - 1;
+                    handler.endElement(input.readString(), input.readString(), input.readString());
+                    break;
+                case EVENT_CHARACTERS: {
+                    char[] characters = input.readString().toCharArray();
+                    handler.characters(characters, 0, characters.length);
+                    break;
+                }
+                case EVENT_IGNORABLE_WHITESPACE: {
+                    char[] characters = input.readString().toCharArray();
+                    handler.ignorableWhitespace(characters, 0, characters.length);
+                    break;
+                }
+                case EVENT_PROCESSING_INSTRUCTION:
+                    handler.processingInstruction(input.readString(), input.readString());
+                    break;
+                case EVENT_SKIPPED_ENTITY:
+                    handler.skippedEntity(input.readString());
+                    break;
+                default:
+                    throw new StreamCorruptedException("Unknown event: " + event);
+                }
+            }
+        }
+    }
+
+    private static final class EventLocator implements Locator {
+
+        private final String publicId;
+
+        private final String systemId;
+
+        private int lineNumber = -1;
+
+        private int columnNumber = -1;
+
+        private EventLocator(String publicId, String systemId) {
+            this.publicId = publicId;
+            this.systemId = systemId;
+        }
+
+        @Override
+        public String getPublicId() {
+            return publicId;
+        }
+
+        @Override
+        public String getSystemId() {
+            return systemId;
+        }
+
+        @Override
+        public int getLineNumber() {
+            return lineNumber;
+        }
+
+        @Override
+        public int getColumnNumber() {
+            return columnNumber;
+        }
+    }
+
+    /**
+     * Content handler forwarding the events to the XSOM parser handler and recording them.
+     */
+    private static final class EventRecorder implements ContentHandler {
+
+        private final ContentHandler handler;
+
+        private final EventOutput output = new EventOutput();
+
+        private Locator locator;
+
+        private EventRecorder(ContentHandler handler) {
+            this.handler = handler;
+        }
+
+        byte[] toByteArray() {
+            output.writeVarint(EVENT_END);
+
+            return output.toByteArray();
+        }
+
+        @Override
+        public void setDocumentLocator(Locator locator) {
+            this.locator = locator;
+            handler.setDocumentLocator(locator);
+        }
+
+        @Override
+        public void startDocument() throws SAXException {
+            output.writeVarint(EVENT_START_DOCUMENT);
+            handler.startDocument();
+        }
+
+        @Override
+        public void endDocument() throws SAXException {
+            output.writeVarint(EVENT_END_DOCUMENT);
+            handler.endDocument();
+        }
+
+        @Override
+        public void startPrefixMapping(String prefix, String uri) throws SAXException {
+            output.writeVarint(EVENT_START_PREFIX_MAPPING);
+            output.writeString(prefix);
+            output.writeString(uri);
+            handler.startPrefixMapping(prefix, uri);
+        }
+
+        @Override
+        public void endPrefixMapping(String prefix) throws SAXException {
+            output.writeVarint(EVENT_END_PREFIX_MAPPING);
+            output.writeString(prefix);
+            handler.endPrefixMapping(prefix);
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes atts) throws SAXException {
+            output.writeVarint(EVENT_START_ELEMENT);
+            writeLocation();
+            output.writeString(uri);
+            output.writeString(localName);
+            output.writeString(qName);
+            output.writeVarint(atts.getLength());
+            for (int i = 0; i < atts.getLength(); i++) {
+                output.writeString(atts.getURI(i));
+                output.writeString(atts.getLocalName(i));
+                output.writeString(atts.getQName(i));
+                output.writeString(atts.getType(i));
+                output.writeString(atts.getValue(i));
+            }
+            handler.startElement(uri, localName, qName, atts);
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            output.writeVarint(EVENT_END_ELEMENT);
+            writeLocation();
+            output.writeString(uri);
+            output.writeString(localName);
+            output.writeString(qName);
+            handler.endElement(uri, localName, qName);
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) throws SAXException {
+            output.writeVarint(EVENT_CHARACTERS);
+            output.writeString(new String(ch, start, length));
+            handler.characters(ch, start, length);
+        }
+
+        @Override
+        public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException {
+            output.writeVarint(EVENT_IGNORABLE_WHITESPACE);
+            output.writeString(new String(ch, start, length));
+            handler.ignorableWhitespace(ch, start, length);
+        }
+
+        @Override
+        public void processingInstruction(String target, String data) throws SAXException {
+            output.writeVarint(EVENT_PROCESSING_INSTRUCTION);
+            output.writeString(target);
+            output.writeString(data);
+            handler.processingInstruction(target, data);
+        }
+
+        @Override
+        public void skippedEntity(String name) throws SAXException {
+            output.writeVarint(EVENT_SKIPPED_ENTITY);
+            output.writeString(name);
+            handler.skippedEntity(name);
+        }
+
+        private void writeLocation() {
+            // Shifted by one, as the locator gives -1 when the location is unknown
+            output.writeVarint(locator == null ? 0 : Math.max(locator.getLineNumber() + 1, 0));
+            output.writeVarint(locator == null ? 0 : Math.max(locator.getColumnNumber() + 1, 0));
+        }
+    }
+
+    private static final class EventOutput extends ByteArrayOutputStream {
+
+        private final Map<String, Integer> stringIndexMap = new HashMap<String, Integer>();
+
+        private EventOutput() {
+            super(8192);
+        }
+
+        void writeVarint(int value) {
+            writeVarlong(value & 0xFFFFFFFFL);
+        }
+
+        void writeVarlong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        void writeInt(int value) {
+            write(value >>> 24);
+            write(value >>> 16);
+            write(value >>> 8);
+            write(value);
+        }
+
+        void writeRawString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes.length);
+            write(bytes, 0, bytes.length);
+        }
+
+        void writeString(String value) {
+            if (value == null) {
+                writeVarint(STRING_NULL);
+                return;
+            }
+
+            Integer index = stringIndexMap.get(value);
+            if (index != null) {
+                writeVarint(index + STRING_INDEX_OFFSET);
+                return;
+            }
+
+            stringIndexMap.put(value, stringIndexMap.size());
+            writeVarint(STRING_NEW);
+            writeRawString(value);
+        }
+
+        @Override
+        public void write(byte[] b) {
+            write(b, 0, b.length);
+        }
+    }
+
+    private static final class EventInput {
+
+        private final ByteBuffer buffer;
+
+        private final List<String> strings = new ArrayList<String>();
+
+        private EventInput(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        int readVarint() throws IOException {
+            long value = readVarlong();
+            if (value > 0xFFFFFFFFL)
+                throw new StreamCorruptedException("Invalid number: " + value);
+
+            return (int) value;
+        }
+
+        long readVarlong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = buffer.get();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0)
+                    return value;
+            }
+
+            throw new StreamCorruptedException("Invalid number");
+        }
+
+        String readRawString() throws IOException {
+            int length = readVarint();
+            if (length < 0 || length > buffer.remaining())
+                throw new EOFException();
+
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        String readString() throws IOException {
+            int entry = readVarint();
+            if (entry == STRING_NULL)
+                return null;
+            if (entry == STRING_NEW) {
+                String value = readRawString();
+                strings.add(value);
+
+                return value;
+            }
+
+            int index = entry - STRING_INDEX_OFFSET;
+            if (index < 0 || index >= strings.size())
+                throw new StreamCorruptedException("Invalid string reference: " + index);
+
+            return strings.get(index);
+        }
+    }
+}
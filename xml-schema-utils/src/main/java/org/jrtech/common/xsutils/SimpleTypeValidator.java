@@ -0,0 +1,322 @@
+/*
+ * Copyright (c) 2016-2026 Jumin Rubin
+ * LinkedIn: https://www.linkedin.com/in/juminrubin/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jrtech.common.xsutils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.jrtech.common.xsutils.model.JrxElement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.sun.xml.xsom.XSFacet;
+import com.sun.xml.xsom.XSRestrictionSimpleType;
+import com.sun.xml.xsom.XSSimpleType;
+
+/**
+ * The class <code>SimpleTypeValidator</code> holds the facets of a restricted simple type in compiled form: the
+ * pattern as {@link Pattern}, the enumeration as a hash set and the length/digit bounds as numbers.
+ * <p>
+ * Validators are immutable and cached per simple type for as long as the owning schema set is referenced, hence they
+ * can be shared between threads.
+ *
+ */
+public final class SimpleTypeValidator {
+
+    private static final Logger log = LoggerFactory.getLogger(SimpleTypeValidator.class);
+
+    private static final String NAME_START_CHARS = "_:A-Za-z\\u00C0-\\u00D6\\u00D8-\\u00F6\\u00F8-\\u02FF"
+            + "\\u0370-\\u037D\\u037F-\\u1FFF\\u200C-\\u200D\\u2070-\\u218F\\u2C00-\\u2FEF\\u3001-\\uD7FF"
+            + "\\uF900-\\uFDCF\\uFDF0-\\uFFFD";
+
+    private static final String NAME_CHARS = NAME_START_CHARS + "\\-.0-9\\u00B7\\u0300-\\u036F\\u203F-\\u2040";
+
+    private static final LoadingCache<XSSimpleType, SimpleTypeValidator> VALIDATOR_CACHE = CacheBuilder
+            .newBuilder().weakKeys().build(new CacheLoader<XSSimpleType, SimpleTypeValidator>() {
+                @Override
+                public SimpleTypeValidator load(XSSimpleType xsSimpleType) {
+                    PhaseRecorder.countFacetLookupMiss();
+                    return new SimpleTypeValidator(xsSimpleType);
+                }
+            });
+
+    private final Set<String> enumerationSet;
+
+    private final String enumerationText;
+
+    private final String patternText;
+
+    private final Pattern pattern;
+
+    private final int minLength;
+
+    private final int maxLength;
+
+    private final BigDecimal minExclusive;
+
+    private final int fractionDigits;
+
+    /**
+     * Get the validator of the given restricted simple type, compiling it on first use.
+     *
+     * @param xsSimpleType
+     * @return the validator, or null when the simple type is not a restriction
+     */
+    public static SimpleTypeValidator getInstance(XSSimpleType xsSimpleType) {
+        if (xsSimpleType == null || !xsSimpleType.isRestriction())
+            return null;
+
+        PhaseRecorder.countFacetLookup();
+        return VALIDATOR_CACHE.getUnchecked(xsSimpleType);
+    }
+
+    private SimpleTypeValidator(XSSimpleType xsSimpleType) {
+        XSRestrictionSimpleType xsRestrictionSimpleType = xsSimpleType.asRestriction();
+
+        List<? extends XSFacet> facets = xsRestrictionSimpleType.getFacets(XSFacet.FACET_ENUMERATION);
+        if (facets != null && facets.size() > 0) {
+            Set<String> enumerationSet = new HashSet<String>();
+            StringBuilder enumText = new StringBuilder();
+            for (XSFacet facet : facets) {
+                if (enumText.length() > 0)
+                    enumText.append(",");
+                enumText.append(facet.getValue().value);
+                enumerationSet.add(facet.getValue().value);
+            }
+            this.enumerationSet = Collections.unmodifiableSet(enumerationSet);
+            this.enumerationText = enumText.toString();
+        } else {
+            this.enumerationSet = Collections.emptySet();
+            this.enumerationText = null;
+        }
+
+        List<? extends XSFacet> facetPattern = xsRestrictionSimpleType.getFacets(XSFacet.FACET_PATTERN);
+        if (facetPattern != null && facetPattern.size() == 1) {
+            this.patternText = facetPattern.get(0).getValue().value;
+            this.pattern = compilePattern(patternText);
+        } else {
+            this.patternText = null;
+            this.pattern = null;
+        }
+
+        this.minLength = getIntFacetValue(xsRestrictionSimpleType, XSFacet.FACET_MINLENGTH);
+        this.maxLength = getIntFacetValue(xsRestrictionSimpleType, XSFacet.FACET_MAXLENGTH);
+        this.fractionDigits = getIntFacetValue(xsRestrictionSimpleType, XSFacet.FACET_FRACTIONDIGITS);
+
+        XSFacet minExclusiveFacet = xsRestrictionSimpleType.getFacet(XSFacet.FACET_MINEXCLUSIVE);
+        this.minExclusive = minExclusiveFacet == null ? null : new BigDecimal(minExclusiveFacet.getValue().value
+                .trim());
+    }
+
+    private static int getIntFacetValue(XSRestrictionSimpleType xsRestrictionSimpleType, String facetName) {
+        XSFacet facet = xsRestrictionSimpleType.getFacet(facetName);
+        if (facet == null)
+            return -1;
+
+        return Integer.parseInt(facet.getValue().value.trim());
+    }
+
+    private static Pattern compilePattern(String xsdPattern) {
+        try {
+            return Pattern.compile(translateXsdRegex(xsdPattern));
+        } catch (PatternSyntaxException e) {
+            log.warn("Unsupported XML schema pattern, it is not validated: " + xsdPattern, e);
+            return null;
+        }
+    }
+
+    /**
+     * Translate an XML schema regular expression into the syntax of {@link Pattern}. XML schema expressions are
+     * implicitly anchored, so the result is meant to be used with {@link java.util.regex.Matcher#matches()}.
+     * <p>
+     * The following differences are handled:
+     * <ul>
+     * <li><code>^</code> and <code>$</code> are ordinary characters</li>
+     * <li>the multi-character escapes <code>\i</code>, <code>\I</code>, <code>\c</code> and <code>\C</code></li>
+     * <li>character class subtraction <code>[a-z-[aeiou]]</code></li>
+     * </ul>
+     *
+     * @param xsdPattern
+     * @return the equivalent Java regular expression
+     */
+    public static String translateXsdRegex(String xsdPattern) {
+        StringBuilder sb = new StringBuilder(xsdPattern.length() + 16);
+        int classDepth = 0;
+
+        for (int i = 0; i < xsdPattern.length(); i++) {
+            char c = xsdPattern.charAt(i);
+            if (c == '\\' && i + 1 < xsdPattern.length()) {
+                char escaped = xsdPattern.charAt(++i);
+                if (escaped == 'i') {
+                    sb.append(classDepth > 0 ? NAME_START_CHARS : "[" + NAME_START_CHARS + "]");
+                } else if (escaped == 'c') {
+                    sb.append(classDepth > 0 ? NAME_CHARS : "[" + NAME_CHARS + "]");
+                } else if (escaped == 'I' && classDepth == 0) {
+                    sb.append("[^").append(NAME_START_CHARS).append("]");
+                } else if (escaped == 'C' && classDepth == 0) {
+                    sb.append("[^").append(NAME_CHARS).append("]");
+                } else {
+                    sb.append(c).append(escaped);
+                }
+            } else if (c == '[') {
+                if (classDepth > 0 && isUnescapedHyphenAtEnd(sb)) {
+                    // Character class subtraction
+                    sb.setLength(sb.length() - 1);
+                    if (i + 1 < xsdPattern.length() && xsdPattern.charAt(i + 1) == '^') {
+                        sb.append("&&[");
+                        i++;
+                    } else {
+                        sb.append("&&[^");
+                    }
+                } else {
+                    sb.append(c);
+                }
+                classDepth++;
+            } else if (c == ']' && classDepth > 0) {
+                sb.append(c);
+                classDepth--;
+            } else if ((c == '^' || c == '$') && classDepth == 0) {
+                sb.append('\\').append(c);
+            } else {
+                sb.append(c);
+            }
+        }
+
+        return sb.toString();
+    }
+
+    private static boolean isUnescapedHyphenAtEnd(StringBuilder sb) {
+        int length = sb.length();
+        if (length < 2 || sb.charAt(length - 1) != '-')
+            return false;
+
+        return sb.charAt(length - 2) != '\\' && sb.charAt(length - 2) != '[';
+    }
+
+    public boolean hasEnumeration() {
+        return !enumerationSet.isEmpty();
+    }
+
+    public Set<String> getEnumerationSet() {
+        return enumerationSet;
+    }
+
+    /**
+     * @return the XML schema pattern of the type, null when the type does not have exactly one pattern facet
+     */
+    public String getPatternText() {
+        return patternText;
+    }
+
+    public Pattern getPattern() {
+        return pattern;
+    }
+
+    /**
+     * @return minimum length, -1 when not restricted
+     */
+    public int getMinLength() {
+        return minLength;
+    }
+
+    /**
+     * @return maximum length, -1 when not restricted
+     */
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    public BigDecimal getMinExclusive() {
+        return minExclusive;
+    }
+
+    /**
+     * @return maximum number of fraction digits, -1 when not restricted
+     */
+    public int getFractionDigits() {
+        return fractionDigits;
+    }
+
+    /**
+     * Validate the value against the enumeration facets, or against the remaining facets when the type has no
+     * enumeration.
+     *
+     * @param context
+     * @param value
+     * @return list of validation error, empty when the value is valid
+     */
+    public List<XmlValidationError> validate(JrxElement context, String value) {
+        if (hasEnumeration()) {
+            return validateEnumeration(context, value);
+        }
+
+        return validatePatternAndLength(context, value);
+    }
+
+    public List<XmlValidationError> validateEnumeration(JrxElement context, String value) {
+        List<XmlValidationError> validationResult = new ArrayList<XmlValidationError>();
+
+        if (hasEnumeration() && !enumerationSet.contains(value)) {
+            validationResult.add(new XmlValidationError(context,
+                    XmlValidationMessage.ERROR_INVALID_CONTENT_ALLOWED_VALUE, value, enumerationText));
+        }
+
+        return validationResult;
+    }
+
+    public List<XmlValidationError> validatePatternAndLength(JrxElement context, String value) {
+        List<XmlValidationError> validationResult = new ArrayList<XmlValidationError>();
+
+        if (pattern != null && !pattern.matcher(value).matches()) {
+            validationResult.add(new XmlValidationError(context, XmlValidationMessage.ERROR_INVALID_CONTENT_PATTERN,
+                    value, patternText));
+        }
+
+        if (minLength >= 0 && value.length() < minLength) {
+            validationResult.add(new XmlValidationError(context,
+                    XmlValidationMessage.ERROR_INVALID_CONTENT_MIN_LENGTH, value, String.valueOf(minLength)));
+        }
+        if (maxLength >= 0 && value.length() > maxLength) {
+            validationResult.add(new XmlValidationError(context,
+                    XmlValidationMessage.ERROR_INVALID_CONTENT_MAX_LENGTH, value, String.valueOf(maxLength)));
+        }
+
+        if (minExclusive != null && Float.parseFloat(value) < minExclusive.floatValue()) {
+            validationResult.add(new XmlValidationError(context, XmlValidationMessage.ERROR_INVALID_CONTENT_SMALL_VALUE,
+                    minExclusive.toPlainString()));
+        }
+
+        if (fractionDigits >= 0) {
+            int dotIndex = value.indexOf('.');
+            if (dotIndex > -1 && value.length() - dotIndex - 1 > fractionDigits) {
+                validationResult.add(new XmlValidationError(context,
+                        XmlValidationMessage.ERROR_INVALID_CONTENT_DECIMAL_PLACE, String.valueOf(fractionDigits)));
+            }
+        }
+
+        return validationResult;
+    }
+}
@@ -0,0 +1,694 @@
+/*
+ * Copyright (c) 2016-2026 Jumin Rubin
+ * LinkedIn: https://www.linkedin.com/in/juminrubin/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jrtech.common.xsutils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+import org.xml.sax.helpers.NamespaceSupport;
+
+import com.sun.xml.xsom.XSAttributeUse;
+import com.sun.xml.xsom.XSContentType;
+import com.sun.xml.xsom.XSElementDecl;
+import com.sun.xml.xsom.XSModelGroup;
+import com.sun.xml.xsom.XSParticle;
+import com.sun.xml.xsom.XSSchema;
+import com.sun.xml.xsom.XSSimpleType;
+import com.sun.xml.xsom.XSTerm;
+import com.sun.xml.xsom.XSType;
+
+/**
+ * The class <code>StreamingXmlValidator</code> validates an XML document against the schemas of a
+ * {@link JrxXmlModelUtil} while it is parsed, without building the DOM or the Jrx model.
+ * <p>
+ * The content model of every open element is tracked with its {@link ContentModelIndex}: child elements are assigned
+ * to the particle they belong to as they arrive, and the particle state is checked when the element ends. The result
+ * has the same messages and parameters in the same order as {@link JrxXmlModelUtil#validateDocument}, each error
+ * carries the path of the element instead of the Jrx term. An open element keeps a small validation state and the
+ * errors of every closed child until it ends itself, hence the memory held grows with the number of children of the
+ * open elements and with the number of errors.
+ * <p>
+ * Known differences to the Jrx validation:
+ * <ul>
+ * <li>the content of an element is the text before its first child element, comments are not taken into account</li>
+ * <li>elements not declared by the schema are dropped by the Jrx enrichment, hence they are ignored by default, see
+ * {@link #setReportUndeclaredElements(boolean)}</li>
+ * </ul>
+ * Instances are thread-safe as long as the schemas of the model util are not changed.
+ *
+ */
+public class StreamingXmlValidator {
+
+    private static final Logger log = LoggerFactory.getLogger(StreamingXmlValidator.class);
+
+    private static final SAXParserFactory PARSER_FACTORY = SAXParserFactory.newInstance();
+
+    static {
+        PARSER_FACTORY.setNamespaceAware(true);
+    }
+
+    private final JrxXmlModelUtil modelUtil;
+
+    private volatile boolean reportUndeclaredElements = false;
+
+    public static StreamingXmlValidator newInstance(JrxXmlModelUtil modelUtil) {
+        return new StreamingXmlValidator(modelUtil);
+    }
+
+    protected StreamingXmlValidator(JrxXmlModelUtil modelUtil) {
+        this.modelUtil = modelUtil;
+    }
+
+    public JrxXmlModelUtil getModelUtil() {
+        return modelUtil;
+    }
+
+    public boolean isReportUndeclaredElements() {
+        return reportUndeclaredElements;
+    }
+
+    /**
+     * @param reportUndeclaredElements
+     *            true to report child elements unknown to the schema as
+     *            {@link XmlValidationMessage#ERROR_NODE_INVALID_CHILD}
+     */
+    public void setReportUndeclaredElements(boolean reportUndeclaredElements) {
+        this.reportUndeclaredElements = reportUndeclaredElements;
+    }
+
+    public List<XmlValidationError> validate(InputStream inputStream) throws IOException, SAXException {
+        return validate(new InputSource(inputStream));
+    }
+
+    public List<XmlValidationError> validate(Reader reader) throws IOException, SAXException {
+        return validate(new InputSource(reader));
+    }
+
+    /**
+     * Validate the XML document read from the input source.
+     *
+     * @param inputSource
+     * @return list of validation error, empty when the document is valid or its root element is not declared by any
+     *         schema
+     * @throws IOException
+     * @throws SAXException
+     *             when the document is not well-formed
+     */
+    public List<XmlValidationError> validate(InputSource inputSource) throws IOException, SAXException {
+        ValidationHandler handler = new ValidationHandler(reportUndeclaredElements);
+        newSAXParser().parse(inputSource, handler);
+
+        return handler.getValidationResult();
+    }
+
+    private static SAXParser newSAXParser() throws SAXException {
+        synchronized (PARSER_FACTORY) {
+            try {
+                return PARSER_FACTORY.newSAXParser();
+            } catch (ParserConfigurationException e) {
+                throw new SAXException(e);
+            }
+        }
+    }
+
+    private static boolean isMandatory(XSParticle xsParticle, int runIndex) {
+        int minOccurs = xsParticle.getMinOccurs().intValue();
+        int maxOccurs = xsParticle.getMaxOccurs().intValue();
+        if ((maxOccurs > 1 || maxOccurs == XSParticle.UNBOUNDED) && minOccurs > 0) {
+            return runIndex < minOccurs;
+        }
+
+        return minOccurs != 0;
+    }
+
+    private static boolean isMandatoryChoice(XSParticle xsParticle) {
+        if (xsParticle.getMinOccurs().intValue() == 0)
+            return false;
+
+        for (XSParticle xsChildParticle : xsParticle.getTerm().asModelGroup().getChildren()) {
+            if (xsChildParticle.getMinOccurs().intValue() != 0) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean isChoice(XSTerm xsTerm) {
+        return xsTerm.isModelGroup() && xsTerm.asModelGroup().getCompositor() == XSModelGroup.CHOICE;
+    }
+
+    private static List<XmlValidationError> validateValue(String path, String value, XSSimpleType xsSimpleType) {
+        SimpleTypeValidator validator = SimpleTypeValidator.getInstance(xsSimpleType);
+        if (validator == null)
+            return Collections.emptyList();
+
+        List<XmlValidationError> validationResult = validator.validate(null, value);
+        for (XmlValidationError error : validationResult) {
+            error.setPath(path);
+        }
+
+        return validationResult;
+    }
+
+    private class ValidationHandler extends DefaultHandler {
+
+        private final boolean reportUndeclaredElements;
+
+        private final NamespaceSupport namespaceSupport = new NamespaceSupport();
+
+        private boolean namespaceContextPushed = false;
+
+        private final Deque<ElementFrame> frameStack = new ArrayDeque<ElementFrame>();
+
+        private List<XmlValidationError> validationResult = new ArrayList<XmlValidationError>();
+
+        ValidationHandler(boolean reportUndeclaredElements) {
+            this.reportUndeclaredElements = reportUndeclaredElements;
+        }
+
+        List<XmlValidationError> getValidationResult() {
+            return validationResult;
+        }
+
+        @Override
+        public void startPrefixMapping(String prefix, String uri) {
+            if (!namespaceContextPushed) {
+                namespaceSupport.pushContext();
+                namespaceContextPushed = true;
+            }
+            namespaceSupport.declarePrefix(prefix, uri);
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            if (!namespaceContextPushed) {
+                namespaceSupport.pushContext();
+            }
+            namespaceContextPushed = false;
+
+            ElementFrame parentFrame = frameStack.peek();
+            String path = (parentFrame == null ? "" : parentFrame.path) + "/" + qName;
+
+            XSElementDecl xsElementDecl = null;
+            ContentModelIndex.Entry entry = null;
+            if (parentFrame == null) {
+                XSSchema xsSchema = modelUtil.getSchema(uri);
+                xsElementDecl = xsSchema == null ? null : xsSchema.getElementDecl(localName);
+                if (xsElementDecl == null) {
+                    log.warn("Root element is not declared by any schema, the document is not validated: " + qName);
+                }
+            } else {
+                parentFrame.childElementStarted = true;
+                if (parentFrame.xsElementDecl != null && !parentFrame.selected) {
+                    entry = parentFrame.contentModelIndex == null ? null : parentFrame.contentModelIndex
+                            .getEntry(localName);
+                    if (entry != null) {
+                        xsElementDecl = entry.getElementDeclaration();
+                        // Only the first child of a choice content is taken
+                        parentFrame.selected = parentFrame.choiceContent;
+                    } else if (reportUndeclaredElements) {
+                        parentFrame.undeclaredChildErrors.add(new XmlValidationError(null, path,
+                                XmlValidationMessage.ERROR_NODE_INVALID_CHILD, qName, parentFrame.name));
+                    }
+                }
+            }
+
+            ElementFrame frame = new ElementFrame(uri, qName, path, xsElementDecl, entry);
+            if (xsElementDecl != null) {
+                validateAttributes(frame, attributes);
+            }
+            frameStack.push(frame);
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            ElementFrame frame = frameStack.peek();
+            if (frame == null)
+                return;
+
+            if (!frame.textFound) {
+                for (int i = start; i < start + length; i++) {
+                    // Same as String.trim()
+                    if (ch[i] > ' ') {
+                        frame.textFound = true;
+                        break;
+                    }
+                }
+            }
+            if (frame.xsElementDecl != null && !frame.childElementStarted) {
+                frame.content.append(ch, start, length);
+            }
+        }
+
+        @Override
+        public void ignorableWhitespace(char[] ch, int start, int length) {
+            characters(ch, start, length);
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            ElementFrame frame = frameStack.pop();
+            ElementFrame parentFrame = frameStack.peek();
+
+            if (frame.xsElementDecl != null) {
+                validateChildren(frame);
+            }
+            namespaceSupport.popContext();
+
+            if (parentFrame == null) {
+                if (frame.xsElementDecl == null && frame.childElementStarted) {
+                    // Same as the Jrx validation of a root element with children but without declaration
+                    validationResult.add(new XmlValidationError(null, frame.path,
+                            XmlValidationMessage.ERROR_NODE_MANDATORY, frame.name));
+                }
+                validationResult.addAll(frame.validationResult);
+                return;
+            }
+
+            parentFrame.textFound |= frame.textFound;
+            if (frame.xsElementDecl != null) {
+                parentFrame.addChild(new ChildResult(frame));
+            }
+        }
+
+        private void validateAttributes(ElementFrame frame, Attributes attributes) {
+            // Same sequence as the Jrx attribute list: XML attributes by name, missing ones at their schema position
+            List<AttributeSlot> slotList = new ArrayList<AttributeSlot>();
+            for (int i = 0; i < attributes.getLength(); i++) {
+                slotList.add(new AttributeSlot(attributes.getQName(i), attributes.getLocalName(i), attributes
+                        .getValue(i)));
+            }
+            Collections.sort(slotList);
+
+            XSType xsType = frame.xsElementDecl.getType();
+            if (xsType.isComplexType()) {
+                int i = 0;
+                for (XSAttributeUse xsAttributeUse : xsType.asComplexType().getAttributeUses()) {
+                    String attributeName = xsAttributeUse.getDecl().getName();
+                    AttributeSlot slot = null;
+                    for (AttributeSlot existingSlot : slotList) {
+                        if (existingSlot.simpleName.equals(attributeName)) {
+                            slot = existingSlot;
+                            break;
+                        }
+                    }
+
+                    if (slot == null) {
+                        String value = "";
+                        if (xsAttributeUse.getDefaultValue() != null
+                                && xsAttributeUse.getDefaultValue().value != null) {
+                            value = xsAttributeUse.getDefaultValue().value;
+                        }
+                        slot = new AttributeSlot(attributeName, attributeName, value);
+                        slotList.add(Math.min(i, slotList.size()), slot);
+                    }
+                    slot.xsAttributeUse = xsAttributeUse;
+                    i++;
+                }
+            }
+
+            for (AttributeSlot slot : slotList) {
+                if (slot.xsAttributeUse == null)
+                    continue;
+
+                if (slot.xsAttributeUse.isRequired() && slot.value.equals("")) {
+                    frame.validationResult.add(new XmlValidationError(null, frame.path,
+                            XmlValidationMessage.ERROR_ATTRIBUTE_MANDATORY, slot.name, frame.name));
+                } else if (!slot.value.equals("")) {
+                    frame.validationResult.addAll(validateValue(frame.path, slot.value, slot.xsAttributeUse
+                            .getDecl().getType()));
+                }
+            }
+        }
+
+        /**
+         * Append the errors of the children to the frame, particle by particle in schema order.
+         */
+        private void validateChildren(ElementFrame frame) {
+            if (frame.xsModelGroup == null) {
+                frame.validationResult.addAll(frame.undeclaredChildErrors);
+                return;
+            }
+
+            XSParticle[] xsChildParticles = frame.xsModelGroup.getChildren();
+            if (frame.choiceContent) {
+                ChildResult selection = frame.getFirstChild();
+                if (selection != null) {
+                    XSParticle[] xsParticlePath = selection.entry.getParticlePath();
+                    if (xsParticlePath.length == 1) {
+                        validateChild(frame, selection, isMandatory(selection.xsParticle, 0), 0);
+                    } else if (xsParticlePath.length == 2 && isChoice(xsParticlePath[0].getTerm())) {
+                        validateSelection(frame, selection);
+                    }
+                }
+                frame.validationResult.addAll(frame.undeclaredChildErrors);
+                return;
+            }
+
+            Map<XSElementDecl, Integer> occurrenceMap = countOccurrences(frame, xsChildParticles);
+            XSElementDecl runDeclaration = null;
+            int runIndex = 0;
+            for (int i = 0; i < xsChildParticles.length; i++) {
+                XSParticle xsChildParticle = xsChildParticles[i];
+                XSTerm xsChildTerm = xsChildParticle.getTerm();
+                List<ChildResult> childList = frame.getChildList(i);
+
+                if (childList.isEmpty()) {
+                    runDeclaration = null;
+                    if (xsChildTerm.isElementDecl()) {
+                        if (isMandatory(xsChildParticle, 0)) {
+                            String name = getQualifiedName(frame, xsChildTerm.asElementDecl());
+                            frame.validationResult.add(new XmlValidationError(null, frame.path + "/" + name,
+                                    XmlValidationMessage.ERROR_NODE_MANDATORY, name));
+                        }
+                    } else if (isChoice(xsChildTerm) && isMandatoryChoice(xsChildParticle)) {
+                        frame.validationResult.add(new XmlValidationError(null, frame.path,
+                                XmlValidationMessage.ERROR_NODE_CHOICE_NO_SELECTION, JrxXmlModelUtil
+                                        .getChoiceGroupName(xsChildTerm.asModelGroup()), frame.name));
+                    }
+                } else if (isChoice(xsChildTerm)) {
+                    runDeclaration = null;
+                    if (childList.size() == 1 && childList.get(0).entry.getParticlePath().length == 2) {
+                        validateSelection(frame, childList.get(0));
+                    } else {
+                        // Several elements of the choice are validated as element group
+                        Map<XSElementDecl, Integer> choiceOccurrenceMap = new IdentityHashMap<XSElementDecl, Integer>();
+                        for (ChildResult child : childList) {
+                            increment(choiceOccurrenceMap, child.xsElementDecl);
+                        }
+                        validateChildRun(frame, childList, choiceOccurrenceMap, null, 0);
+                    }
+                } else {
+                    // Elements of nested sequences belong to the same block as the direct ones
+                    runIndex = validateChildRun(frame, childList, occurrenceMap, runDeclaration, runIndex);
+                    runDeclaration = childList.get(childList.size() - 1).xsElementDecl;
+                }
+            }
+
+            frame.validationResult.addAll(frame.undeclaredChildErrors);
+        }
+
+        /**
+         * @return run index of the last child
+         */
+        private int validateChildRun(ElementFrame frame, List<ChildResult> childList,
+                Map<XSElementDecl, Integer> occurrenceMap, XSElementDecl runDeclaration, int runIndex) {
+            for (ChildResult child : childList) {
+                if (child.xsElementDecl == runDeclaration) {
+                    runIndex++;
+                } else {
+                    runDeclaration = child.xsElementDecl;
+                    runIndex = 0;
+                }
+                validateChild(frame, child, isMandatory(child.xsParticle, runIndex), occurrenceMap.get(
+                        child.xsElementDecl).intValue());
+            }
+
+            return runIndex;
+        }
+
+        private Map<XSElementDecl, Integer> countOccurrences(ElementFrame frame, XSParticle[] xsChildParticles) {
+            Map<XSElementDecl, Integer> occurrenceMap = new IdentityHashMap<XSElementDecl, Integer>();
+            for (int i = 0; i < xsChildParticles.length; i++) {
+                if (isChoice(xsChildParticles[i].getTerm()))
+                    continue;
+
+                for (ChildResult child : frame.getChildList(i)) {
+                    increment(occurrenceMap, child.xsElementDecl);
+                }
+            }
+
+            return occurrenceMap;
+        }
+
+        private void increment(Map<XSElementDecl, Integer> occurrenceMap, XSElementDecl xsElementDecl) {
+            Integer count = occurrenceMap.get(xsElementDecl);
+            occurrenceMap.put(xsElementDecl, count == null ? 1 : count.intValue() + 1);
+        }
+
+        /**
+         * Same as {@link JrxXmlModelUtil#validateTerm} for an element.
+         */
+        private void validateChild(ElementFrame frame, ChildResult child, boolean mandatory, int occurrences) {
+            if (mandatory) {
+                if (child.empty) {
+                    frame.validationResult.add(new XmlValidationError(null, child.path,
+                            XmlValidationMessage.ERROR_NODE_MANDATORY, child.name));
+                } else {
+                    frame.validationResult.addAll(child.validationResult);
+                    validateChildContent(frame, child, true);
+                }
+            } else if (!child.empty) {
+                int maxOccurs = child.xsParticle.getMaxOccurs().intValue();
+                if (maxOccurs != XSParticle.UNBOUNDED && occurrences > maxOccurs) {
+                    frame.validationResult.add(new XmlValidationError(null, child.path,
+                            XmlValidationMessage.ERROR_NODE_OCCURANCE, String.valueOf(maxOccurs), child.name,
+                            String.valueOf(occurrences)));
+                }
+                frame.validationResult.addAll(child.validationResult);
+                validateChildContent(frame, child, false);
+            }
+        }
+
+        /**
+         * Same as {@link JrxXmlModelUtil#validateTerm} for the element selected in a choice.
+         */
+        private void validateSelection(ElementFrame frame, ChildResult child) {
+            frame.validationResult.addAll(child.validationResult);
+            validateChildContent(frame, child, isMandatory(child.xsParticle, 0));
+        }
+
+        /**
+         * Same as {@link JrxXmlModelUtil#validateElementContents}.
+         */
+        private void validateChildContent(ElementFrame frame, ChildResult child, boolean mandatory) {
+            if (child.leaf && mandatory && child.contentEmpty) {
+                frame.validationResult.add(new XmlValidationError(null, child.path,
+                        XmlValidationMessage.ERROR_NODE_MANDATORY, child.name));
+            } else {
+                frame.validationResult.addAll(child.contentValidationResult);
+            }
+        }
+
+        private String getQualifiedName(ElementFrame frame, XSElementDecl xsElementDecl) {
+            String namespaceUri = xsElementDecl.getTargetNamespace();
+            String prefix = null;
+            if (namespaceUri != null && namespaceUri.length() > 0) {
+                prefix = namespaceUri.equals(frame.namespaceUri) ? frame.getPrefix() : namespaceSupport
+                        .getPrefix(namespaceUri);
+            }
+
+            return prefix == null || prefix.length() == 0 ? xsElementDecl.getName() : prefix + ":"
+                    + xsElementDecl.getName();
+        }
+    }
+
+    /**
+     * State of an open element.
+     */
+    private static class ElementFrame {
+
+        private final String namespaceUri;
+
+        private final String name;
+
+        private final String path;
+
+        private final XSElementDecl xsElementDecl;
+
+        private final ContentModelIndex.Entry entry;
+
+        private final XSModelGroup xsModelGroup;
+
+        private final ContentModelIndex contentModelIndex;
+
+        private final boolean choiceContent;
+
+        private final boolean leaf;
+
+        private final List<XmlValidationError> validationResult = new ArrayList<XmlValidationError>();
+
+        private final List<XmlValidationError> undeclaredChildErrors = new ArrayList<XmlValidationError>(0);
+
+        private final StringBuilder content = new StringBuilder();
+
+        private List<List<ChildResult>> childLists;
+
+        private boolean textFound = false;
+
+        private boolean childElementStarted = false;
+
+        private boolean selected = false;
+
+        ElementFrame(String namespaceUri, String name, String path, XSElementDecl xsElementDecl,
+                ContentModelIndex.Entry entry) {
+            this.namespaceUri = namespaceUri;
+            this.name = name;
+            this.path = path;
+            this.xsElementDecl = xsElementDecl;
+            this.entry = entry;
+
+            XSModelGroup xsModelGroup = null;
+            boolean leaf = true;
+            if (xsElementDecl != null && xsElementDecl.getType().isComplexType()) {
+                XSContentType xsContentType = xsElementDecl.getType().asComplexType().getContentType();
+                XSParticle xsParticle = xsContentType.asParticle();
+                if (xsParticle != null) {
+                    leaf = false;
+                    XSTerm xsTerm = xsParticle.getTerm();
+                    if (xsTerm.isModelGroup()) {
+                        xsModelGroup = xsTerm.asModelGroup();
+                    } else if (xsTerm.isModelGroupDecl()) {
+                        xsModelGroup = xsTerm.asModelGroupDecl().getModelGroup();
+                    }
+                }
+            }
+            this.xsModelGroup = xsModelGroup;
+            this.leaf = leaf;
+            this.contentModelIndex = ContentModelIndex.getInstance(xsModelGroup);
+            this.choiceContent = xsModelGroup != null && xsModelGroup.getCompositor() == XSModelGroup.CHOICE;
+        }
+
+        String getPrefix() {
+            int index = name.indexOf(':');
+            return index < 0 ? "" : name.substring(0, index);
+        }
+
+        void addChild(ChildResult child) {
+            int childIndex = child.entry.getChildIndex();
+            if (childLists == null) {
+                childLists = new ArrayList<List<ChildResult>>(Collections.<List<ChildResult>> nCopies(xsModelGroup
+                        .getSize(), null));
+            }
+            List<ChildResult> childList = childLists.get(childIndex);
+            if (childList == null) {
+                childList = new ArrayList<ChildResult>(1);
+                childLists.set(childIndex, childList);
+            }
+            childList.add(child);
+        }
+
+        List<ChildResult> getChildList(int childIndex) {
+            List<ChildResult> childList = childLists == null ? null : childLists.get(childIndex);
+            if (childList == null)
+                return Collections.emptyList();
+
+            return childList;
+        }
+
+        ChildResult getFirstChild() {
+            if (childLists == null)
+                return null;
+
+            for (List<ChildResult> childList : childLists) {
+                if (childList != null)
+                    return childList.get(0);
+            }
+
+            return null;
+        }
+    }
+
+    /**
+     * Validation state of a closed child element, waiting for its parent to end.
+     */
+    private static class ChildResult {
+
+        private final String name;
+
+        private final String path;
+
+        private final XSElementDecl xsElementDecl;
+
+        private final XSParticle xsParticle;
+
+        private final ContentModelIndex.Entry entry;
+
+        private final boolean empty;
+
+        private final boolean leaf;
+
+        private final boolean contentEmpty;
+
+        private final List<XmlValidationError> validationResult;
+
+        private final List<XmlValidationError> contentValidationResult;
+
+        ChildResult(ElementFrame frame) {
+            this.name = frame.name;
+            this.path = frame.path;
+            this.xsElementDecl = frame.xsElementDecl;
+            this.entry = frame.entry;
+            this.xsParticle = frame.entry.getParticle();
+            this.empty = !frame.textFound;
+            this.leaf = frame.leaf;
+            this.contentEmpty = frame.content.length() == 0;
+            this.validationResult = frame.validationResult.isEmpty() ? Collections.<XmlValidationError> emptyList()
+                    : frame.validationResult;
+
+            XSType xsType = xsElementDecl.getType();
+            XSSimpleType xsSimpleType = xsType.isSimpleType() ? xsType.asSimpleType() : xsType.getBaseType()
+                    .asSimpleType();
+            if (contentEmpty || xsSimpleType == null) {
+                this.contentValidationResult = Collections.emptyList();
+            } else {
+                this.contentValidationResult = validateValue(path, frame.content.toString(), xsSimpleType);
+            }
+        }
+    }
+
+    private static class AttributeSlot implements Comparable<AttributeSlot> {
+
+        private final String name;
+
+        private final String simpleName;
+
+        private final String value;
+
+        private XSAttributeUse xsAttributeUse;
+
+        AttributeSlot(String name, String simpleName, String value) {
+            this.name = name;
+            this.simpleName = simpleName;
+            this.value = value;
+        }
+
+        @Override
+        public int compareTo(AttributeSlot other) {
+            return name.compareTo(other.name);
+        }
+    }
+}
@@ -0,0 +1,933 @@
+/*
+ * Copyright (c) 2016-2026 Jumin Rubin
+ * LinkedIn: https://www.linkedin.com/in/juminrubin/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jrtech.common.xsutils;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.io.CountingOutputStream;
+import com.sun.xml.xsom.XSAttributeUse;
+import com.sun.xml.xsom.XSComplexType;
+import com.sun.xml.xsom.XSContentType;
+import com.sun.xml.xsom.XSElementDecl;
+import com.sun.xml.xsom.XSFacet;
+import com.sun.xml.xsom.XSModelGroup;
+import com.sun.xml.xsom.XSParticle;
+import com.sun.xml.xsom.XSSchema;
+import com.sun.xml.xsom.XSSimpleType;
+import com.sun.xml.xsom.XSTerm;
+import com.sun.xml.xsom.XSType;
+import com.sun.xml.xsom.XSWildcard;
+
+/**
+ * The class <code>XmlCorpusGenerator</code> generates instance documents of a global element declaration, e.g. as
+ * load for performance tests.
+ * <p>
+ * The documents are written to a stream while the schema is walked, so their size is not limited by the memory. They
+ * depend only on the schema, the options and the seed: the document with a given index is the same in every run, and
+ * does not depend on the documents generated before. The options are
+ * <ul>
+ * <li>the repetition factor, the maximum number of occurrences of a repeatable particle</li>
+ * <li>the probability of an optional particle or attribute to be present</li>
+ * <li>the selection of the choice branches, see {@link ChoiceSelection}</li>
+ * <li>the target size of a document: the first repeatable element of a document is repeated until the document
+ * reaches the size, the document is completed afterwards and hence is a little larger</li>
+ * </ul>
+ * Simple values respect the enumeration, pattern, length, range and digit facets of their type. Patterns are
+ * generated from the XML schema regular expression, a value not matching it is generated again a few times. Wildcards
+ * are left out when they are optional. Instances are not thread-safe.
+ *
+ */
+public class XmlCorpusGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(XmlCorpusGenerator.class);
+
+    /**
+     * The selection of the branch of a choice.
+     */
+    public enum ChoiceSelection {
+        /** Random branch */
+        RANDOM,
+        /** Always the first branch */
+        FIRST,
+        /** The branches one after the other, per choice and document */
+        ROUND_ROBIN
+    }
+
+    public static final int DEFAULT_REPETITION_FACTOR = 3;
+
+    public static final double DEFAULT_OPTIONAL_PROBABILITY = 0.5;
+
+    /**
+     * Depth of the element nesting from which optional particles are left out, ending recursive content models.
+     */
+    public static final int DEFAULT_MAX_DEPTH = 24;
+
+    private static final int MAX_VALUE_ATTEMPTS = 16;
+
+    private static final int MAX_UNBOUNDED_PATTERN_REPETITIONS = 3;
+
+    private static final String WILDCARD_NAMESPACE = "urn:jrtech:xsutils:corpus";
+
+    // Characters of the generated values matching a character class or an escape of a pattern
+    private static final String CANDIDATE_CHARS;
+
+    // Candidate characters matching a pattern atom, per atom
+    private static final ConcurrentMap<String, char[]> ATOM_CHARS_CACHE = new ConcurrentHashMap<String, char[]>();
+
+    private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+    static {
+        StringBuilder sb = new StringBuilder();
+        for (char c = 0x20; c < 0x7F; c++) {
+            sb.append(c);
+        }
+        sb.append("ÄÖÜäöüßéè");
+        CANDIDATE_CHARS = sb.toString();
+    }
+
+    private final XSElementDecl xsRootElement;
+
+    // Prefixes of the namespaces declared by the root element, the empty prefix for the default namespace
+    private final Map<String, String> namespacePrefixMap;
+
+    private long seed = 0;
+
+    private int repetitionFactor = DEFAULT_REPETITION_FACTOR;
+
+    private double optionalProbability = DEFAULT_OPTIONAL_PROBABILITY;
+
+    private ChoiceSelection choiceSelection = ChoiceSelection.RANDOM;
+
+    private long targetSize = 0;
+
+    private int maxDepth = DEFAULT_MAX_DEPTH;
+
+    public static XmlCorpusGenerator newInstance(XSElementDecl xsRootElement) {
+        return new XmlCorpusGenerator(xsRootElement);
+    }
+
+    /**
+     * @param modelUtil
+     *            provides the schema of the namespace
+     * @param namespaceUri
+     * @param rootElementName
+     *            name of a global element declaration of the namespace
+     * @return the generator
+     * @throws IllegalArgumentException
+     *             when the model util does not have such an element declaration
+     */
+    public static XmlCorpusGenerator newInstance(JrxXmlModelUtil modelUtil, String namespaceUri,
+            String rootElementName) {
+        XSSchema xsSchema = modelUtil.getSchema(namespaceUri);
+        XSElementDecl xsRootElement = xsSchema == null ? null : xsSchema.getElementDecl(rootElementName);
+        if (xsRootElement == null)
+            throw new IllegalArgumentException("Root element not declared: {" + namespaceUri + "}" + rootElementName);
+
+        return newInstance(xsRootElement);
+    }
+
+    protected XmlCorpusGenerator(XSElementDecl xsRootElement) {
+        this.xsRootElement = xsRootElement;
+        this.namespacePrefixMap = collectNamespaces(xsRootElement);
+    }
+
+    public XSElementDecl getRootElement() {
+        return xsRootElement;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public int getRepetitionFactor() {
+        return repetitionFactor;
+    }
+
+    /**
+     * @param repetitionFactor
+     *            maximum number of occurrences of a repeatable particle, unless its minimum is higher
+     */
+    public void setRepetitionFactor(int repetitionFactor) {
+        if (repetitionFactor < 1)
+            throw new IllegalArgumentException("Repetition factor must be positive: " + repetitionFactor);
+
+        this.repetitionFactor = repetitionFactor;
+    }
+
+    public double getOptionalProbability() {
+        return optionalProbability;
+    }
+
+    /**
+     * @param optionalProbability
+     *            probability of an optional particle or attribute to be present, from 0 to 1
+     */
+    public void setOptionalProbability(double optionalProbability) {
+        if (optionalProbability < 0 || optionalProbability > 1)
+            throw new IllegalArgumentException("Probability out of range: " + optionalProbability);
+
+        this.optionalProbability = optionalProbability;
+    }
+
+    public ChoiceSelection getChoiceSelection() {
+        return choiceSelection;
+    }
+
+    public void setChoiceSelection(ChoiceSelection choiceSelection) {
+        this.choiceSelection = choiceSelection;
+    }
+
+    public long getTargetSize() {
+        return targetSize;
+    }
+
+    /**
+     * @param targetSize
+     *            minimum size of a document in bytes, 0 to not repeat any element beyond the repetition factor
+     */
+    public void setTargetSize(long targetSize) {
+        this.targetSize = targetSize;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public void setMaxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Generate the document with the given index. The stream is flushed, but not closed.
+     *
+     * @param outputStream
+     * @param documentIndex
+     * @return number of bytes written
+     * @throws XMLStreamException
+     */
+    public long generate(OutputStream outputStream, long documentIndex) throws XMLStreamException {
+        CountingOutputStream countingOutputStream = new CountingOutputStream(outputStream);
+        XMLStreamWriter writer = OUTPUT_FACTORY.createXMLStreamWriter(countingOutputStream, "UTF-8");
+        new DocumentGeneration(writer, countingOutputStream, documentIndex).generate();
+        writer.close();
+
+        return countingOutputStream.getCount();
+    }
+
+    /**
+     * Generate the documents with the index from 0 up to the given count, each one into its own file named after the
+     * root element and the index.
+     *
+     * @param directory
+     *            created when it does not exist
+     * @param documentCount
+     * @return number of bytes written
+     * @throws IOException
+     * @throws XMLStreamException
+     */
+    public long generateCorpus(File directory, int documentCount) throws IOException, XMLStreamException {
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new IOException("Cannot create directory " + directory);
+
+        long size = 0;
+        for (int i = 0; i < documentCount; i++) {
+            File file = new File(directory, String.format("%s-%08d.xml", xsRootElement.getName(), i));
+            OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(file), 64 * 1024);
+            try {
+                size += generate(outputStream, i);
+            } finally {
+                outputStream.close();
+            }
+        }
+        log.debug("Generated {} documents of {} with {} bytes", documentCount, xsRootElement.getName(), size);
+
+        return size;
+    }
+
+    private Random newRandom(long documentIndex) {
+        return new Random(seed * 0x5DEECE66DL + documentIndex * 0x9E3779B97F4A7C15L);
+    }
+
+    /**
+     * The state of generating one document.
+     */
+    private class DocumentGeneration {
+
+        private final XMLStreamWriter writer;
+
+        private final CountingOutputStream countingOutputStream;
+
+        private final Random random;
+
+        private final Map<XSModelGroup, Integer> choiceCountMap = new IdentityHashMap<XSModelGroup, Integer>();
+
+        private boolean bulkParticleTaken = targetSize <= 0;
+
+        private DocumentGeneration(XMLStreamWriter writer, CountingOutputStream countingOutputStream,
+                long documentIndex) {
+            this.writer = writer;
+            this.countingOutputStream = countingOutputStream;
+            this.random = newRandom(documentIndex);
+        }
+
+        private void generate() throws XMLStreamException {
+            writer.writeStartDocument("UTF-8", "1.0");
+            writeElement(xsRootElement, 0);
+            writer.writeEndDocument();
+            writer.flush();
+        }
+
+        private void writeElement(XSElementDecl xsElement, int depth) throws XMLStreamException {
+            xsElement = selectSubstitute(xsElement);
+            String namespaceUri = getNamespace(xsElement);
+            writer.writeStartElement(namespacePrefixMap.get(namespaceUri), xsElement.getName(), namespaceUri);
+            if (depth == 0) {
+                for (Map.Entry<String, String> namespacePrefix : namespacePrefixMap.entrySet()) {
+                    if (namespacePrefix.getKey().isEmpty()) {
+                        continue;
+                    } else if (namespacePrefix.getValue().isEmpty()) {
+                        writer.writeDefaultNamespace(namespacePrefix.getKey());
+                    } else {
+                        writer.writeNamespace(namespacePrefix.getValue(), namespacePrefix.getKey());
+                    }
+                }
+            }
+
+            XSType xsType = xsElement.getType();
+            if (xsElement.getFixedValue() != null) {
+                writeAttributes(xsType, depth);
+                writer.writeCharacters(xsElement.getFixedValue().value);
+            } else if (xsType.isSimpleType()) {
+                writer.writeCharacters(generateValue(xsType.asSimpleType()));
+            } else {
+                XSComplexType xsComplexType = xsType.asComplexType();
+                writeAttributes(xsComplexType, depth);
+                XSContentType xsContentType = xsComplexType.getContentType();
+                if (xsContentType.asSimpleType() != null) {
+                    writer.writeCharacters(generateValue(xsContentType.asSimpleType()));
+                } else if (xsContentType.asParticle() != null) {
+                    // Empty elements of a complex type are taken as missing by the Jrx validation
+                    writeParticle(xsContentType.asParticle(), depth + 1, depth < maxDepth);
+                }
+            }
+
+            writer.writeEndElement();
+        }
+
+        private XSElementDecl selectSubstitute(XSElementDecl xsElement) {
+            if (!xsElement.isGlobal() || (!xsElement.isAbstract() && xsElement.getSubstitutables().size() <= 1))
+                return xsElement;
+
+            List<XSElementDecl> xsSubstitutes = new ArrayList<XSElementDecl>();
+            for (XSElementDecl xsSubstitute : xsElement.getSubstitutables()) {
+                if (!xsSubstitute.isAbstract())
+                    xsSubstitutes.add(xsSubstitute);
+            }
+            if (xsSubstitutes.isEmpty())
+                return xsElement;
+            // Sets of XSOM are not ordered
+            Collections.sort(xsSubstitutes, (a, b) -> (a.getTargetNamespace() + a.getName()).compareTo(b
+                    .getTargetNamespace() + b.getName()));
+
+            return xsSubstitutes.get(random.nextInt(xsSubstitutes.size()));
+        }
+
+        private void writeAttributes(XSType xsType, int depth) throws XMLStreamException {
+            if (!xsType.isComplexType())
+                return;
+
+            for (Iterator<? extends XSAttributeUse> it = xsType.asComplexType().iterateAttributeUses(); it
+                    .hasNext();) {
+                XSAttributeUse xsAttributeUse = it.next();
+                if (!xsAttributeUse.isRequired() && !isPresent(depth))
+                    continue;
+
+                String value;
+                if (xsAttributeUse.getFixedValue() != null) {
+                    value = xsAttributeUse.getFixedValue().value;
+                } else if (xsAttributeUse.getDecl().getFixedValue() != null) {
+                    value = xsAttributeUse.getDecl().getFixedValue().value;
+                } else {
+                    value = generateValue(xsAttributeUse.getDecl().getType());
+                }
+                String namespaceUri = xsAttributeUse.getDecl().getTargetNamespace();
+                if (namespaceUri == null || namespaceUri.isEmpty()) {
+                    writer.writeAttribute(xsAttributeUse.getDecl().getName(), value);
+                } else {
+                    writer.writeAttribute(namespacePrefixMap.get(namespaceUri), namespaceUri, xsAttributeUse.getDecl()
+                            .getName(), value);
+                }
+            }
+        }
+
+        /**
+         * @param requireContent
+         *            true to write at least one element, as far as the particle allows it
+         */
+        private void writeParticle(XSParticle xsParticle, int depth, boolean requireContent)
+                throws XMLStreamException {
+            int minOccurs = xsParticle.getMinOccurs().intValue();
+            int maxOccurs = xsParticle.getMaxOccurs().intValue();
+            boolean repeatable = maxOccurs == XSParticle.UNBOUNDED || maxOccurs > 1;
+            if (minOccurs == 0 && xsParticle.getTerm().isWildcard())
+                return;
+
+            if (!bulkParticleTaken && repeatable && xsParticle.getTerm().isElementDecl()) {
+                // Repeat the first repeatable element until the document reaches the target size
+                bulkParticleTaken = true;
+                int count = 0;
+                while (count < minOccurs || (countingOutputStream.getCount() < targetSize
+                        && (maxOccurs == XSParticle.UNBOUNDED || count < maxOccurs))) {
+                    writeTerm(xsParticle.getTerm(), depth, requireContent);
+                    count++;
+                    writer.flush();
+                }
+                return;
+            }
+
+            int occurs = minOccurs;
+            if (depth <= maxDepth && (minOccurs > 0 || random.nextDouble() < optionalProbability)) {
+                int maxCount = Math.max(Math.max(minOccurs, 1), repetitionFactor);
+                if (maxOccurs != XSParticle.UNBOUNDED)
+                    maxCount = Math.min(maxCount, maxOccurs);
+                int lowCount = Math.max(minOccurs, 1);
+                occurs = lowCount + (maxCount > lowCount ? random.nextInt(maxCount - lowCount + 1) : 0);
+            }
+            if (occurs == 0 && requireContent && maxOccurs != 0)
+                occurs = 1;
+
+            for (int i = 0; i < occurs; i++) {
+                writeTerm(xsParticle.getTerm(), depth, requireContent && i == 0);
+            }
+        }
+
+        private void writeTerm(XSTerm xsTerm, int depth, boolean requireContent) throws XMLStreamException {
+            if (xsTerm.isElementDecl()) {
+                writeElement(xsTerm.asElementDecl(), depth);
+            } else if (xsTerm.isModelGroupDecl()) {
+                writeModelGroup(xsTerm.asModelGroupDecl().getModelGroup(), depth, requireContent);
+            } else if (xsTerm.isModelGroup()) {
+                writeModelGroup(xsTerm.asModelGroup(), depth, requireContent);
+            } else if (xsTerm.isWildcard()) {
+                writeWildcard(xsTerm.asWildcard());
+            }
+        }
+
+        private void writeModelGroup(XSModelGroup xsModelGroup, int depth, boolean requireContent)
+                throws XMLStreamException {
+            XSParticle[] xsChildParticles = xsModelGroup.getChildren();
+            if (xsChildParticles.length == 0)
+                return;
+
+            if (xsModelGroup.getCompositor() == XSModelGroup.CHOICE) {
+                writeParticle(xsChildParticles[selectBranch(xsModelGroup, depth)], depth, requireContent);
+            } else {
+                // The content is required from the first mandatory particle, or the first one when all are optional
+                int requiredIndex = -1;
+                for (int i = 0; requireContent && i < xsChildParticles.length && requiredIndex < 0; i++) {
+                    if (xsChildParticles[i].getMinOccurs().intValue() > 0)
+                        requiredIndex = i;
+                }
+                for (int i = 0; requireContent && i < xsChildParticles.length && requiredIndex < 0; i++) {
+                    if (!xsChildParticles[i].getTerm().isWildcard())
+                        requiredIndex = i;
+                }
+                for (int i = 0; i < xsChildParticles.length; i++) {
+                    writeParticle(xsChildParticles[i], depth, i == requiredIndex);
+                }
+            }
+        }
+
+        private int selectBranch(XSModelGroup xsModelGroup, int depth) {
+            XSParticle[] xsChildParticles = xsModelGroup.getChildren();
+            if (depth > maxDepth) {
+                // The first branch without a mandatory element, if any
+                for (int i = 0; i < xsChildParticles.length; i++) {
+                    if (xsChildParticles[i].getMinOccurs().intValue() == 0)
+                        return i;
+                }
+            }
+
+            switch (choiceSelection) {
+            case FIRST:
+                return 0;
+            case ROUND_ROBIN:
+                Integer count = choiceCountMap.get(xsModelGroup);
+                count = count == null ? 0 : count + 1;
+                choiceCountMap.put(xsModelGroup, count);
+                return count % xsChildParticles.length;
+            default:
+                return random.nextInt(xsChildParticles.length);
+            }
+        }
+
+        private void writeWildcard(XSWildcard xsWildcard) throws XMLStreamException {
+            if (!xsWildcard.acceptsNamespace(WILDCARD_NAMESPACE)) {
+                log.warn("Wildcard does not accept generated elements, it is left out");
+                return;
+            }
+
+            writer.writeEmptyElement(namespacePrefixMap.get(WILDCARD_NAMESPACE), "Any", WILDCARD_NAMESPACE);
+        }
+
+        private boolean isPresent(int depth) {
+            return depth <= maxDepth && random.nextDouble() < optionalProbability;
+        }
+
+        private String generateValue(XSSimpleType xsSimpleType) {
+            if (xsSimpleType.isList()) {
+                XSSimpleType xsItemType = xsSimpleType.asList().getItemType();
+                StringBuilder sb = new StringBuilder(generateValue(xsItemType));
+                for (int i = random.nextInt(repetitionFactor); i > 0; i--) {
+                    sb.append(' ').append(generateValue(xsItemType));
+                }
+                return sb.toString();
+            } else if (xsSimpleType.isUnion()) {
+                return generateValue(xsSimpleType.asUnion().getMember(random.nextInt(xsSimpleType.asUnion()
+                        .getMemberSize())));
+            }
+
+            SimpleTypeValidator validator = SimpleTypeValidator.getInstance(xsSimpleType);
+            if (validator != null && validator.hasEnumeration()) {
+                List<String> enumerationList = new ArrayList<String>(validator.getEnumerationSet());
+                Collections.sort(enumerationList);
+                return enumerationList.get(random.nextInt(enumerationList.size()));
+            }
+
+            String builtinName = getBuiltinTypeName(xsSimpleType);
+            String value = null;
+            for (int attempt = 0; attempt < MAX_VALUE_ATTEMPTS; attempt++) {
+                value = generateBuiltinValue(xsSimpleType, builtinName, validator);
+                if (validator == null || validator.getPattern() == null || validator.getPattern().matcher(value)
+                        .matches())
+                    return value;
+            }
+            log.warn("No value matching the pattern of {} generated, last one is {}", xsSimpleType.getName(), value);
+
+            return value;
+        }
+
+        private String generateBuiltinValue(XSSimpleType xsSimpleType, String builtinName,
+                SimpleTypeValidator validator) {
+            switch (builtinName) {
+            case "boolean":
+                return random.nextBoolean() ? "true" : "false";
+            case "date":
+                return LocalDate.of(2000, 1, 1).plusDays(random.nextInt(365 * 30)).toString();
+            case "dateTime":
+                LocalDateTime dateTime = LocalDateTime.of(2000, 1, 1, 0, 0).plusSeconds(random.nextInt(
+                        Integer.MAX_VALUE));
+                return dateTime.toLocalDate() + "T" + formatTime(dateTime.toLocalTime()) + (random.nextBoolean() ? "Z"
+                        : "");
+            case "time":
+                return formatTime(LocalTime.ofSecondOfDay(random.nextInt(24 * 3600)));
+            case "gYear":
+                return String.valueOf(2000 + random.nextInt(30));
+            case "gYearMonth":
+                return String.format("%04d-%02d", 2000 + random.nextInt(30), 1 + random.nextInt(12));
+            case "base64Binary":
+                byte[] bytes = new byte[1 + random.nextInt(24)];
+                random.nextBytes(bytes);
+                return Base64.getEncoder().encodeToString(bytes);
+            case "anyURI":
+                return "http://example.com/" + generateText(1, 12);
+            case "decimal":
+            case "integer":
+            case "long":
+            case "int":
+            case "short":
+            case "byte":
+            case "nonNegativeInteger":
+            case "positiveInteger":
+            case "unsignedLong":
+            case "unsignedInt":
+            case "unsignedShort":
+            case "unsignedByte":
+            case "float":
+            case "double":
+                return generateNumber(xsSimpleType, builtinName);
+            default:
+                if (validator != null && validator.getPatternText() != null) {
+                    String value = generatePatternValue(validator.getPatternText());
+                    if (value != null)
+                        return value;
+                }
+                int minLength = getLengthFacet(xsSimpleType, XSFacet.FACET_MINLENGTH, 1);
+                int maxLength = getLengthFacet(xsSimpleType, XSFacet.FACET_MAXLENGTH, Math.max(minLength, 16));
+                return generateText(minLength, Math.max(minLength, maxLength));
+            }
+        }
+
+        private String generateNumber(XSSimpleType xsSimpleType, String builtinName) {
+            boolean integral = !"decimal".equals(builtinName) && !"float".equals(builtinName)
+                    && !"double".equals(builtinName);
+            int fractionDigits = integral ? 0 : getLengthFacet(xsSimpleType, XSFacet.FACET_FRACTIONDIGITS, 2);
+            int totalDigits = getLengthFacet(xsSimpleType, XSFacet.FACET_TOTALDIGITS, -1);
+            BigDecimal unit = BigDecimal.ONE.movePointLeft(fractionDigits);
+
+            BigDecimal low = "positiveInteger".equals(builtinName) ? BigDecimal.ONE : BigDecimal.ZERO;
+            BigDecimal high = new BigDecimal(integral && builtinName.endsWith("yte") ? 127 : 999999);
+            if (totalDigits > 0)
+                high = high.min(BigDecimal.TEN.pow(Math.max(totalDigits - fractionDigits, 0)).subtract(unit));
+
+            BigDecimal facetValue = getDecimalFacet(xsSimpleType, XSFacet.FACET_MININCLUSIVE);
+            if (facetValue != null)
+                low = facetValue;
+            facetValue = getDecimalFacet(xsSimpleType, XSFacet.FACET_MINEXCLUSIVE);
+            if (facetValue != null)
+                low = facetValue.setScale(fractionDigits, RoundingMode.FLOOR).add(unit);
+            facetValue = getDecimalFacet(xsSimpleType, XSFacet.FACET_MAXINCLUSIVE);
+            if (facetValue != null)
+                high = high.min(facetValue);
+            facetValue = getDecimalFacet(xsSimpleType, XSFacet.FACET_MAXEXCLUSIVE);
+            if (facetValue != null)
+                high = high.min(facetValue.setScale(fractionDigits, RoundingMode.CEILING).subtract(unit));
+            if (high.compareTo(low) < 0)
+                high = low;
+
+            BigDecimal value = low.add(high.subtract(low).multiply(BigDecimal.valueOf(random.nextDouble())))
+                    .setScale(fractionDigits, RoundingMode.DOWN);
+            if (value.compareTo(low) < 0)
+                value = low.setScale(fractionDigits, RoundingMode.CEILING);
+
+            return value.toPlainString();
+        }
+
+        private String generateText(int minLength, int maxLength) {
+            int length = minLength + random.nextInt(maxLength - minLength + 1);
+            StringBuilder sb = new StringBuilder(length);
+            for (int i = 0; i < length; i++) {
+                int c = random.nextInt(36);
+                sb.append((char) (c < 26 ? 'A' + c : '0' + c - 26));
+            }
+            return sb.toString();
+        }
+
+        /**
+         * @param xsdPattern
+         * @return a value matching the pattern, or null when the pattern uses an unsupported construct
+         */
+        private String generatePatternValue(String xsdPattern) {
+            StringBuilder sb = new StringBuilder();
+            try {
+                int end = appendBranches(xsdPattern, 0, sb);
+                return end == xsdPattern.length() ? sb.toString() : null;
+            } catch (PatternSyntaxException e) {
+                log.debug("Unsupported pattern {}", xsdPattern, e);
+                return null;
+            }
+        }
+
+        /**
+         * Append a value matching one of the branches starting at the given position.
+         *
+         * @return position of the end of the branches, at the closing parenthesis or the end of the pattern
+         */
+        private int appendBranches(String xsdPattern, int start, StringBuilder sb) {
+            List<int[]> branchList = new ArrayList<int[]>();
+            int branchStart = start;
+            int position = start;
+            int nesting = 0;
+            while (position < xsdPattern.length()) {
+                char c = xsdPattern.charAt(position);
+                if (c == '\\') {
+                    position++;
+                } else if (c == '[') {
+                    position = findClassEnd(xsdPattern, position) - 1;
+                } else if (c == '(') {
+                    nesting++;
+                } else if (c == ')') {
+                    if (nesting == 0)
+                        break;
+                    nesting--;
+                } else if (c == '|' && nesting == 0) {
+                    branchList.add(new int[] { branchStart, position });
+                    branchStart = position + 1;
+                }
+                position++;
+            }
+            branchList.add(new int[] { branchStart, position });
+
+            int[] branch = branchList.get(random.nextInt(branchList.size()));
+            appendSequence(xsdPattern, branch[0], branch[1], sb);
+
+            return position;
+        }
+
+        private void appendSequence(String xsdPattern, int start, int end, StringBuilder sb) {
+            int position = start;
+            while (position < end) {
+                // Atom
+                int atomStart = position;
+                int atomEnd;
+                char c = xsdPattern.charAt(position);
+                if (c == '(') {
+                    atomEnd = findGroupEnd(xsdPattern, position);
+                } else if (c == '[') {
+                    atomEnd = findClassEnd(xsdPattern, position);
+                } else if (c == '\\') {
+                    atomEnd = position + 2;
+                    if (atomEnd <= end && (xsdPattern.charAt(position + 1) == 'p' || xsdPattern.charAt(position
+                            + 1) == 'P'))
+                        atomEnd = xsdPattern.indexOf('}', position) + 1;
+                } else {
+                    atomEnd = position + 1;
+                }
+                if (atomEnd <= atomStart || atomEnd > end)
+                    throw new PatternSyntaxException("Unbalanced atom", xsdPattern, atomStart);
+
+                // Quantifier
+                int minCount = 1;
+                int maxCount = 1;
+                position = atomEnd;
+                if (position < end) {
+                    char q = xsdPattern.charAt(position);
+                    if (q == '?' || q == '*' || q == '+') {
+                        minCount = q == '+' ? 1 : 0;
+                        maxCount = q == '?' ? 1 : minCount + MAX_UNBOUNDED_PATTERN_REPETITIONS;
+                        position++;
+                    } else if (q == '{') {
+                        int quantifierEnd = xsdPattern.indexOf('}', position);
+                        String[] bounds = xsdPattern.substring(position + 1, quantifierEnd).split(",", -1);
+                        minCount = Integer.parseInt(bounds[0].trim());
+                        if (bounds.length == 1) {
+                            maxCount = minCount;
+                        } else if (bounds[1].trim().isEmpty()) {
+                            maxCount = minCount + MAX_UNBOUNDED_PATTERN_REPETITIONS;
+                        } else {
+                            maxCount = Integer.parseInt(bounds[1].trim());
+                        }
+                        position = quantifierEnd + 1;
+                    }
+                }
+
+                int count = minCount + random.nextInt(maxCount - minCount + 1);
+                for (int i = 0; i < count; i++) {
+                    if (c == '(') {
+                        appendBranches(xsdPattern, atomStart + 1, sb);
+                    } else {
+                        char[] chars = getAtomChars(xsdPattern.substring(atomStart, atomEnd));
+                        sb.append(chars[random.nextInt(chars.length)]);
+                    }
+                }
+            }
+        }
+
+        private int findGroupEnd(String xsdPattern, int start) {
+            int nesting = 0;
+            for (int i = start; i < xsdPattern.length(); i++) {
+                char c = xsdPattern.charAt(i);
+                if (c == '\\') {
+                    i++;
+                } else if (c == '[') {
+                    i = findClassEnd(xsdPattern, i) - 1;
+                } else if (c == '(') {
+                    nesting++;
+                } else if (c == ')' && --nesting == 0) {
+                    return i + 1;
+                }
+            }
+            return -1;
+        }
+
+        private int findClassEnd(String xsdPattern, int start) {
+            int nesting = 0;
+            for (int i = start; i < xsdPattern.length(); i++) {
+                char c = xsdPattern.charAt(i);
+                if (c == '\\') {
+                    i++;
+                } else if (c == '[') {
+                    nesting++;
+                } else if (c == ']' && --nesting == 0) {
+                    return i + 1;
+                }
+            }
+            return -1;
+        }
+
+        private char[] getAtomChars(String atom) {
+            char[] chars = ATOM_CHARS_CACHE.get(atom);
+            if (chars != null)
+                return chars;
+
+            if (atom.length() == 1 && atom.charAt(0) != '.') {
+                chars = atom.toCharArray();
+            } else {
+                Pattern atomPattern = Pattern.compile(SimpleTypeValidator.translateXsdRegex(atom));
+                StringBuilder sb = new StringBuilder();
+                for (int i = 0; i < CANDIDATE_CHARS.length(); i++) {
+                    if (atomPattern.matcher(CANDIDATE_CHARS.substring(i, i + 1)).matches())
+                        sb.append(CANDIDATE_CHARS.charAt(i));
+                }
+                if (sb.length() == 0)
+                    throw new PatternSyntaxException("No candidate character", atom, 0);
+                chars = sb.toString().toCharArray();
+            }
+            ATOM_CHARS_CACHE.putIfAbsent(atom, chars);
+
+            return chars;
+        }
+    }
+
+    /**
+     * Collect the namespaces of the elements and attributes reachable from the root element. The namespace of the root
+     * element is the default namespace, unless there are elements in no namespace or qualified attributes in it.
+     *
+     * @param xsRootElement
+     * @return the prefix per namespace in the order found
+     */
+    private static Map<String, String> collectNamespaces(XSElementDecl xsRootElement) {
+        Set<String> elementNamespaceSet = new LinkedHashSet<String>();
+        Set<String> attributeNamespaceSet = new LinkedHashSet<String>();
+        collectNamespaces(xsRootElement, new IdentityHashMap<Object, Boolean>(), elementNamespaceSet,
+                attributeNamespaceSet);
+
+        String rootNamespaceUri = getNamespace(xsRootElement);
+        boolean rootNamespaceDefault = !elementNamespaceSet.contains(XMLConstants.NULL_NS_URI)
+                && !attributeNamespaceSet.contains(rootNamespaceUri);
+        Map<String, String> namespacePrefixMap = new LinkedHashMap<String, String>();
+        namespacePrefixMap.put(XMLConstants.NULL_NS_URI, XMLConstants.DEFAULT_NS_PREFIX);
+        namespacePrefixMap.put(rootNamespaceUri, rootNamespaceDefault ? XMLConstants.DEFAULT_NS_PREFIX : "ns0");
+        elementNamespaceSet.addAll(attributeNamespaceSet);
+        for (String namespaceUri : elementNamespaceSet) {
+            if (!namespacePrefixMap.containsKey(namespaceUri))
+                namespacePrefixMap.put(namespaceUri, "ns" + (namespacePrefixMap.size() - 1));
+        }
+
+        return namespacePrefixMap;
+    }
+
+    private static void collectNamespaces(XSTerm xsTerm, Map<Object, Boolean> visitedMap,
+            Set<String> elementNamespaceSet, Set<String> attributeNamespaceSet) {
+        if (visitedMap.put(xsTerm, Boolean.TRUE) != null)
+            return;
+
+        if (xsTerm.isWildcard()) {
+            if (xsTerm.asWildcard().acceptsNamespace(WILDCARD_NAMESPACE))
+                elementNamespaceSet.add(WILDCARD_NAMESPACE);
+        } else if (xsTerm.isModelGroupDecl() || xsTerm.isModelGroup()) {
+            XSModelGroup xsModelGroup = xsTerm.isModelGroup() ? xsTerm.asModelGroup() : xsTerm.asModelGroupDecl()
+                    .getModelGroup();
+            for (XSParticle xsChildParticle : xsModelGroup.getChildren()) {
+                collectNamespaces(xsChildParticle.getTerm(), visitedMap, elementNamespaceSet, attributeNamespaceSet);
+            }
+        } else {
+            XSElementDecl xsElement = xsTerm.asElementDecl();
+            elementNamespaceSet.add(getNamespace(xsElement));
+            if (xsElement.isGlobal()) {
+                for (XSElementDecl xsSubstitute : xsElement.getSubstitutables()) {
+                    collectNamespaces(xsSubstitute, visitedMap, elementNamespaceSet, attributeNamespaceSet);
+                }
+            }
+
+            XSType xsType = xsElement.getType();
+            if (xsType.isComplexType() && visitedMap.put(xsType, Boolean.TRUE) == null) {
+                for (Iterator<? extends XSAttributeUse> it = xsType.asComplexType().iterateAttributeUses(); it
+                        .hasNext();) {
+                    String namespaceUri = it.next().getDecl().getTargetNamespace();
+                    if (namespaceUri != null && !namespaceUri.isEmpty())
+                        attributeNamespaceSet.add(namespaceUri);
+                }
+                XSParticle xsContentParticle = xsType.asComplexType().getContentType().asParticle();
+                if (xsContentParticle != null)
+                    collectNamespaces(xsContentParticle.getTerm(), visitedMap, elementNamespaceSet,
+                            attributeNamespaceSet);
+            }
+        }
+    }
+
+    private static String formatTime(LocalTime time) {
+        return String.format("%02d:%02d:%02d", time.getHour(), time.getMinute(), time.getSecond());
+    }
+
+    private static String getNamespace(XSElementDecl xsElement) {
+        return xsElement.getTargetNamespace() == null ? XMLConstants.NULL_NS_URI : xsElement.getTargetNamespace();
+    }
+
+    /**
+     * @param xsSimpleType
+     * @return the name of the first built-in type the given type is derived from
+     */
+    private static String getBuiltinTypeName(XSSimpleType xsSimpleType) {
+        XSSimpleType xsType = xsSimpleType;
+        while (xsType != null) {
+            if (XMLConstants.W3C_XML_SCHEMA_NS_URI.equals(xsType.getTargetNamespace()) && xsType.getName() != null)
+                return xsType.getName();
+            xsType = xsType.getSimpleBaseType();
+        }
+        return "string";
+    }
+
+    private static int getLengthFacet(XSSimpleType xsSimpleType, String facetName, int defaultValue) {
+        if (!xsSimpleType.isRestriction())
+            return defaultValue;
+
+        XSFacet xsFacet = xsSimpleType.asRestriction().getFacet(facetName);
+        if (xsFacet == null) {
+            xsFacet = xsSimpleType.asRestriction().getFacet(XSFacet.FACET_LENGTH);
+            if (xsFacet == null || XSFacet.FACET_FRACTIONDIGITS.equals(facetName)
+                    || XSFacet.FACET_TOTALDIGITS.equals(facetName))
+                return defaultValue;
+        }
+
+        return Integer.parseInt(xsFacet.getValue().value.trim());
+    }
+
+    private static BigDecimal getDecimalFacet(XSSimpleType xsSimpleType, String facetName) {
+        if (!xsSimpleType.isRestriction())
+            return null;
+
+        XSFacet xsFacet = xsSimpleType.asRestriction().getFacet(facetName);
+        return xsFacet == null ? null : new BigDecimal(xsFacet.getValue().value.trim());
+    }
+}
@@ -27,6 +27,8 @@ public class XmlValidationError extends ValidationResultItem<JrxTerm<?>, Validat
 
 	private static final long serialVersionUID = 6012940777048105394L;
 
+	private String path;
+
     public XmlValidationError(JrxTerm<?> element, ValidationMessage message) {
 		super(element, message);
 	}
@@ -35,4 +37,36 @@ public class XmlValidationError extends ValidationResultItem<JrxTerm<?>, Validat
 		super(element, message, parameters);
 	}
 
+	/**
+	 * Create an error located by path, e.g. when the document is validated without building the Jrx model.
+	 *
+	 * @param element
+	 *            the element with error, may be null
+	 * @param path
+	 *            path of the element with error, e.g. <code>/Document/SbcptOrdr/AcctNm</code>
+	 * @param message
+	 * @param parameters
+	 */
+	public XmlValidationError(JrxTerm<?> element, String path, ValidationMessage message, Object... parameters) {
+		super(element, message, parameters);
+		this.path = path;
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	public void setPath(String path) {
+		this.path = path;
+	}
+
+	@Override
+	public String toString() {
+		if (getElement() == null && path != null) {
+			return path + " -> " + getMessage();
+		}
+
+		return super.toString();
+	}
+
 }
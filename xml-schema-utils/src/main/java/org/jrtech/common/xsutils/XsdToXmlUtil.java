@@ -18,9 +18,14 @@ package org.jrtech.common.xsutils;
 
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.xml.XMLConstants;
 import javax.xml.parsers.SAXParserFactory;
@@ -32,6 +37,11 @@ import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
 import com.sun.xml.xsom.XSAttributeUse;
 import com.sun.xml.xsom.XSComplexType;
 import com.sun.xml.xsom.XSContentType;
@@ -50,12 +60,56 @@ public class XsdToXmlUtil {
 
 	private static final Logger log = LoggerFactory.getLogger(XsdToXmlUtil.class);
 
+	// Choice members and element positions per model group. Soft values, as the infos refer to their key.
+	private static final LoadingCache<XSModelGroup, ModelGroupInfo> MODEL_GROUP_INFO_CACHE = CacheBuilder.newBuilder()
+			.weakKeys().softValues().build(new CacheLoader<XSModelGroup, ModelGroupInfo>() {
+				@Override
+				public ModelGroupInfo load(XSModelGroup xsModelGroup) {
+					return new ModelGroupInfo(xsModelGroup);
+				}
+			});
+
+	// Choice model group per complex type, absent when the type is not a choice. Soft values, as the model group
+	// refers to its complex type.
+	private static final LoadingCache<XSComplexType, Optional<XSModelGroup>> CHOICE_TYPE_CACHE = CacheBuilder
+			.newBuilder().weakKeys().softValues()
+			.build(new CacheLoader<XSComplexType, Optional<XSModelGroup>>() {
+				@Override
+				public Optional<XSModelGroup> load(XSComplexType xsComplexType) {
+					return Optional.ofNullable(findChoiceType(xsComplexType));
+				}
+			});
+
+	// Skeleton documents per root element, target namespace and option. The prototypes are never handed out, only
+	// their clones. Soft values, as the prototypes refer to their key.
+	private static final Cache<XSElementDecl, ConcurrentMap<String, Document>> DOCUMENT_PROTOTYPE_CACHE = CacheBuilder
+			.newBuilder().weakKeys().softValues().build();
+
 	private XSSchemaSet schemaSet = null;
 
+	private final SchemaRegistry schemaRegistry;
+
 	public static XsdToXmlUtil getInstance() {
 		return new XsdToXmlUtil();
 	}
 
+	/**
+	 * @param schemaRegistry
+	 *            registry to load the schemas from, so that a schema is only parsed once
+	 * @return a new instance
+	 */
+	public static XsdToXmlUtil getInstance(SchemaRegistry schemaRegistry) {
+		return new XsdToXmlUtil(schemaRegistry);
+	}
+
+	public XsdToXmlUtil() {
+		this(null);
+	}
+
+	protected XsdToXmlUtil(SchemaRegistry schemaRegistry) {
+		this.schemaRegistry = schemaRegistry;
+	}
+
 	public Document convertSchema(URL schemaUrl, String rootElement) throws Exception {
 		return convertSchema(schemaUrl, rootElement, false);
 	}
@@ -63,11 +117,15 @@ public class XsdToXmlUtil {
 	public Document convertSchema(URL schemaUrl, String rootElement, boolean includeOptional) throws Exception {
 		log.info(schemaUrl.getPath());
 
-		// Init XSOM Parser
-		XSOMParser xsomParser = new XSOMParser(SAXParserFactory.newInstance());
-		xsomParser.parse(schemaUrl);
+		if (schemaRegistry != null) {
+			schemaSet = schemaRegistry.getEntry(schemaUrl).getSchemaSet();
+		} else {
+			// Init XSOM Parser
+			XSOMParser xsomParser = new XSOMParser(SAXParserFactory.newInstance());
+			xsomParser.parse(schemaUrl);
 
-		schemaSet = xsomParser.getResult();
+			schemaSet = xsomParser.getResult();
+		}
 		if (schemaSet == null) {
 			throw new SchemaNotAvailableException();
 		}
@@ -88,7 +146,6 @@ public class XsdToXmlUtil {
 	}
 
 	private Document convertSchema(XSSchema xsSchema, String rootElement, boolean includeOptional) throws Exception {
-		Document xmlDoc = XmlUtils.newDocument();
 		Map<String, XSElementDecl> xsElementDeclarations = xsSchema.getElementDecls();
 
 		if (xsElementDeclarations.values().size() < 1) {
@@ -116,11 +173,30 @@ public class XsdToXmlUtil {
 			return null;
 		}
 
+		Document xmlPrototype = getDocumentPrototype(xsRootElement, xsSchema.getTargetNamespace(), includeOptional);
+		synchronized (xmlPrototype) {
+			return (Document) xmlPrototype.cloneNode(true);
+		}
+	}
+
+	private Document getDocumentPrototype(XSElementDecl xsRootElement, String targetNamespace,
+			boolean includeOptional) throws Exception {
+		ConcurrentMap<String, Document> prototypeMap = DOCUMENT_PROTOTYPE_CACHE.get(xsRootElement,
+				() -> new ConcurrentHashMap<String, Document>());
+		String optionKey = includeOptional + "|" + targetNamespace;
+		Document xmlPrototype = prototypeMap.get(optionKey);
+		if (xmlPrototype != null) {
+			return xmlPrototype;
+		}
+
+		Document xmlDoc = XmlUtils.newDocument();
 		Element xmlElement = convertElement(xmlDoc, xsRootElement, includeOptional);
-		xmlElement.setAttribute(XMLConstants.XMLNS_ATTRIBUTE, xsSchema.getTargetNamespace());
+		xmlElement.setAttribute(XMLConstants.XMLNS_ATTRIBUTE, targetNamespace);
 		xmlDoc.appendChild(xmlElement);
 
-		return xmlDoc;
+		xmlPrototype = prototypeMap.putIfAbsent(optionKey, xmlDoc);
+
+		return xmlPrototype == null ? xmlDoc : xmlPrototype;
 	}
 
 	public Element convertElement(Element xmlParentElement, XSElementDecl xsElementDeclaration, boolean includeOptional) {
@@ -191,6 +267,11 @@ public class XsdToXmlUtil {
 
 	public List<XSElementDecl> getElementDeclarationList(XSModelGroup xsModelGroup, boolean includeChoice,
 			boolean includeOptional) {
+		return collectElementDeclarations(xsModelGroup, includeChoice, includeOptional);
+	}
+
+	private static List<XSElementDecl> collectElementDeclarations(XSModelGroup xsModelGroup, boolean includeChoice,
+			boolean includeOptional) {
 		List<XSElementDecl> elementList = new ArrayList<XSElementDecl>();
 
 		for (int i = 0; i < xsModelGroup.getSize(); i++) {
@@ -202,10 +283,10 @@ public class XsdToXmlUtil {
 				} else if (xsModelGroupTerm.isModelGroup()) {
 					XSModelGroup xsSubModelGroup = (XSModelGroup) xsModelGroupTerm;
 					if (includeChoice || !XSModelGroup.Compositor.CHOICE.equals(xsSubModelGroup.getCompositor())) {
-						elementList.addAll(getElementDeclarationList(xsSubModelGroup, includeChoice, includeOptional));
+						elementList.addAll(collectElementDeclarations(xsSubModelGroup, includeChoice, includeOptional));
 					}
 				} else if (xsModelGroupTerm.isModelGroupDecl()) {
-					elementList.addAll(getElementDeclarationList(((XSModelGroupDecl) xsModelGroupTerm).getModelGroup(),
+					elementList.addAll(collectElementDeclarations(((XSModelGroupDecl) xsModelGroupTerm).getModelGroup(),
 							includeChoice, includeOptional));
 				} else {
 					log.warn("Unhandled Model Group Term: " + xsModelGroupTerm.getClass().getSimpleName());
@@ -218,6 +299,11 @@ public class XsdToXmlUtil {
 
 	public List<XSParticle> getElementParticleList(XSModelGroup xsModelGroup, boolean includeChoice,
 			boolean includeOptional) {
+		return collectElementParticles(xsModelGroup, includeChoice, includeOptional);
+	}
+
+	private static List<XSParticle> collectElementParticles(XSModelGroup xsModelGroup, boolean includeChoice,
+			boolean includeOptional) {
 		List<XSParticle> elementList = new ArrayList<XSParticle>();
 
 		for (int i = 0; i < xsModelGroup.getSize(); i++) {
@@ -229,7 +315,7 @@ public class XsdToXmlUtil {
 				} else if (xsModelGroupTerm.isModelGroup()) {
 					XSModelGroup xsSubModelGroup = (XSModelGroup) xsModelGroupTerm;
 					if (includeChoice || !XSModelGroup.Compositor.CHOICE.equals(xsSubModelGroup.getCompositor())) {
-						elementList.addAll(getElementParticleList(xsSubModelGroup, includeChoice, includeOptional));
+						elementList.addAll(collectElementParticles(xsSubModelGroup, includeChoice, includeOptional));
 					}
 				} else if (xsModelGroupTerm.isModelGroupDecl()) {
 					elementList.add(xsParticle);
@@ -309,7 +395,7 @@ public class XsdToXmlUtil {
 		if (index < 0)
 			index = 0;
 
-		XSParticle[] choiceParticleArray = getChoiceElementParticle(xsModelGroup);
+		XSParticle[] choiceParticleArray = MODEL_GROUP_INFO_CACHE.getUnchecked(xsModelGroup).choiceParticles;
 		if (choiceParticleArray != null && choiceParticleArray.length > index) {
 			return choiceParticleArray[index];
 		}
@@ -317,7 +403,7 @@ public class XsdToXmlUtil {
 	}
 	
 	public int countChoiceElementParticle(XSModelGroup xsModelGroup) {
-		XSParticle[] xsChoiceParticles = getChoiceElementParticle(xsModelGroup);
+		XSParticle[] xsChoiceParticles = MODEL_GROUP_INFO_CACHE.getUnchecked(xsModelGroup).choiceParticles;
 		
 		if (xsChoiceParticles == null) return -1;
 		
@@ -325,11 +411,9 @@ public class XsdToXmlUtil {
 	}
 
 	public XSParticle[] getChoiceElementParticle(XSModelGroup xsModelGroup) {
-		if (!xsModelGroup.getCompositor().equals(XSModelGroup.CHOICE)) {
-			return null;
-		}
-		List<XSParticle> elementParticleList = getElementParticleList(xsModelGroup, true, true);
-		return elementParticleList.toArray(new XSParticle[] {});
+		XSParticle[] xsChoiceParticles = MODEL_GROUP_INFO_CACHE.getUnchecked(xsModelGroup).choiceParticles;
+
+		return xsChoiceParticles == null ? null : xsChoiceParticles.clone();
 	}
 
 	public XSElementDecl getChoiceElement(XSComplexType xsComplexType, int index) {
@@ -347,15 +431,9 @@ public class XsdToXmlUtil {
 		if (elementName == null || elementName.trim().length() < 1)
 			return -1;
 
-		List<XSElementDecl> elementList = getElementDeclarationList(xsModelGroup, true, true);
-		if (elementList != null && elementList.size() > 0) {
-			for (int i = 0; i < elementList.size(); i++) {
-				XSElementDecl xsElementDecl = elementList.get(i);
-				if (xsElementDecl.getName().equals(elementName))
-					return i;
-			}
-		}
-		return -1;
+		Integer index = MODEL_GROUP_INFO_CACHE.getUnchecked(xsModelGroup).elementIndexMap.get(elementName);
+
+		return index == null ? -1 : index.intValue();
 	}
 
 	public XSElementDecl[] getChoiceElement(XSComplexType xsComplexType) {
@@ -378,35 +456,14 @@ public class XsdToXmlUtil {
 	}
 
 	public boolean isChoiceType(XSComplexType xsComplexType) {
-		XSContentType xsContentType = xsComplexType.getContentType();
-		if (xsContentType instanceof XSParticle) {
-			XSParticle xsContentTypeParticle = xsContentType.asParticle();
-			XSTerm xsContentTypeTerm = xsContentTypeParticle.getTerm();
-			if (xsContentTypeTerm.isModelGroup()) {
-				XSModelGroup xsModelGroup = (XSModelGroup) xsContentTypeTerm;
-				if (xsModelGroup.getCompositor().equals(XSModelGroup.CHOICE)) {
-					return true;
-				}
-
-				if (xsModelGroup.getSize() == 1) {
-					XSParticle xsChildParticle = xsModelGroup.getChild(0);
-					if (xsChildParticle.getTerm() instanceof XSModelGroup) {
-						if (((XSModelGroup) xsChildParticle.getTerm()).getCompositor().equals(XSModelGroup.CHOICE)) {
-							return true;
-						}
-					}
-				}
-			} else {
-				log.warn("Unhandled Complex Type Term: " + xsContentTypeTerm.getClass().getSimpleName());
-			}
-		} else {
-			log.warn("Unhandlex Complex Type Content: " + xsContentType.getClass().getSimpleName());
-		}
-
-		return false;
+		return CHOICE_TYPE_CACHE.getUnchecked(xsComplexType).isPresent();
 	}
 
 	public XSModelGroup getChoiceType(XSComplexType xsComplexType) {
+		return CHOICE_TYPE_CACHE.getUnchecked(xsComplexType).orElse(null);
+	}
+
+	private static XSModelGroup findChoiceType(XSComplexType xsComplexType) {
 		XSContentType xsContentType = xsComplexType.getContentType();
 		if (xsContentType instanceof XSParticle) {
 			XSParticle xsContentTypeParticle = xsContentType.asParticle();
@@ -435,4 +492,34 @@ public class XsdToXmlUtil {
 		return null;
 	}
 
+	/**
+	 * The class <code>ModelGroupInfo</code> holds the element members of a model group as used by the choice
+	 * handling, computed once per model group.
+	 *
+	 */
+	private static final class ModelGroupInfo {
+
+		// Null when the model group is not a choice
+		private final XSParticle[] choiceParticles;
+
+		private final Map<String, Integer> elementIndexMap;
+
+		private ModelGroupInfo(XSModelGroup xsModelGroup) {
+			if (xsModelGroup.getCompositor().equals(XSModelGroup.CHOICE)) {
+				List<XSParticle> elementParticleList = collectElementParticles(xsModelGroup, true, true);
+				choiceParticles = elementParticleList.toArray(new XSParticle[] {});
+			} else {
+				choiceParticles = null;
+			}
+
+			Map<String, Integer> elementIndexMap = new HashMap<String, Integer>();
+			List<XSElementDecl> elementList = collectElementDeclarations(xsModelGroup, true, true);
+			for (int i = 0; i < elementList.size(); i++) {
+				String elementName = elementList.get(i).getName();
+				if (!elementIndexMap.containsKey(elementName))
+					elementIndexMap.put(elementName, i);
+			}
+			this.elementIndexMap = Collections.unmodifiableMap(elementIndexMap);
+		}
+	}
 }
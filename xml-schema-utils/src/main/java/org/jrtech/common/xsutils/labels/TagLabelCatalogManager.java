@@ -0,0 +1,422 @@
+/*
+ * Copyright (c) 2016-2026 Jumin Rubin
+ * LinkedIn: https://www.linkedin.com/in/juminrubin/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jrtech.common.xsutils.labels;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jrtech.common.utils.ResourceLocatorUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The class <code>TagLabelCatalogManager</code> holds the label catalogs of an {@link XmlTagLabelUtil} apart from the
+ * expiring catalog cache.
+ * <p>
+ * Catalogs are loaded and compiled by the executor of the manager, {@link #preload(Collection)} loads the configured
+ * catalogs in parallel. Once watching is started, catalogs read from the file system are loaded again when their file
+ * changes. A loaded catalog replaces the previous one of its namespace URI in a single step, readers see either the
+ * old or the new catalog. When a catalog cannot be loaded again, the previous one is kept.
+ *
+ */
+public class TagLabelCatalogManager implements Closeable {
+
+    private static Logger log = LoggerFactory.getLogger(TagLabelCatalogManager.class);
+
+    private static final TagLabelIndex EMPTY_CATALOG = TagLabelIndex.of(Collections.<String, String> emptyMap());
+
+    private final XmlTagLabelUtil labelUtil;
+
+    private final ExecutorService executor;
+
+    private final boolean ownExecutor;
+
+    private final ConcurrentMap<String, LoadedCatalog> namespaceCatalogMap =
+            new ConcurrentHashMap<String, LoadedCatalog>();
+
+    private final Set<String> pendingNamespaceUris =
+            Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private final ConcurrentMap<Path, Set<String>> fileNamespaceUriMap = new ConcurrentHashMap<Path, Set<String>>();
+
+    private final ConcurrentMap<Path, WatchKey> directoryWatchKeyMap = new ConcurrentHashMap<Path, WatchKey>();
+
+    private final AtomicLong loadSequence = new AtomicLong();
+
+    private final AtomicLong loadCount = new AtomicLong();
+
+    private final Object watchLock = new Object();
+
+    private volatile WatchService watchService;
+
+    private volatile boolean closed;
+
+    /**
+     * Create a manager loading the catalogs with its own daemon threads, one per available processor.
+     *
+     * @param labelUtil
+     *            provides the location of the catalogs.
+     */
+    public TagLabelCatalogManager(XmlTagLabelUtil labelUtil) {
+        this(labelUtil, Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+                new LoaderThreadFactory()), true);
+    }
+
+    /**
+     * @param labelUtil
+     *            provides the location of the catalogs.
+     * @param executor
+     *            loads the catalogs, it is not shut down by {@link #close()}.
+     */
+    public TagLabelCatalogManager(XmlTagLabelUtil labelUtil, ExecutorService executor) {
+        this(labelUtil, executor, false);
+    }
+
+    private TagLabelCatalogManager(XmlTagLabelUtil labelUtil, ExecutorService executor, boolean ownExecutor) {
+        if (labelUtil == null || executor == null) {
+            throw new IllegalArgumentException("Label util and executor shall be provided.");
+        }
+
+        this.labelUtil = labelUtil;
+        this.executor = executor;
+        this.ownExecutor = ownExecutor;
+    }
+
+    /**
+     * Load the catalogs of the given namespace URIs in parallel.
+     *
+     * @param namespaceUris
+     * @return future completed when all catalogs are loaded.
+     */
+    public CompletableFuture<Void> preload(Collection<String> namespaceUris) {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[namespaceUris.size()];
+        int i = 0;
+        for (final String namespaceUri : namespaceUris) {
+            futures[i++] = CompletableFuture.runAsync(new Runnable() {
+                @Override
+                public void run() {
+                    load(namespaceUri);
+                }
+            }, executor);
+        }
+
+        return CompletableFuture.allOf(futures);
+    }
+
+    /**
+     * Start watching the files of the loaded catalogs and of the catalogs loaded later on. Catalogs not read from the
+     * file system, e.g. from a JAR file, are not watched.
+     *
+     * @throws IOException
+     *             when the watch service cannot be created.
+     */
+    public void startWatching() throws IOException {
+        synchronized (watchLock) {
+            if (closed) {
+                throw new IllegalStateException("Catalog manager is closed.");
+            }
+            if (watchService != null)
+                return;
+
+            watchService = FileSystems.getDefault().newWatchService();
+            for (Path file : fileNamespaceUriMap.keySet()) {
+                watchDirectory(file.getParent());
+            }
+
+            Thread watcherThread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    watch();
+                }
+            }, "jrx-label-catalog-watcher");
+            watcherThread.setDaemon(true);
+            watcherThread.start();
+        }
+    }
+
+    public boolean isWatching() {
+        return watchService != null;
+    }
+
+    /**
+     * @param namespaceUri
+     * @return the catalog of the namespace URI or null when it is not loaded.
+     */
+    TagLabelIndex getCatalog(String namespaceUri) {
+        LoadedCatalog loadedCatalog = namespaceCatalogMap.get(namespaceUri);
+
+        return loadedCatalog == null ? null : loadedCatalog.catalog;
+    }
+
+    public boolean hasCatalog(String namespaceUri) {
+        return namespaceCatalogMap.containsKey(namespaceUri);
+    }
+
+    public Collection<String> getNamespaceUris() {
+        return Collections.unmodifiableSet(namespaceCatalogMap.keySet());
+    }
+
+    /**
+     * @return number of catalog loads completed since the manager was created, including the failed reloads.
+     */
+    public long getLoadCount() {
+        return loadCount.get();
+    }
+
+    /**
+     * Load the catalog of the given namespace URI by the executor unless its load is already pending.
+     *
+     * @param namespaceUri
+     */
+    public void loadInBackground(final String namespaceUri) {
+        if (closed || !pendingNamespaceUris.add(namespaceUri))
+            return;
+
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    // Changes made from now on require another load
+                    pendingNamespaceUris.remove(namespaceUri);
+                    load(namespaceUri);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pendingNamespaceUris.remove(namespaceUri);
+            log.warn("Could not schedule loading of label catalog for namespace URI: '" + namespaceUri + "'", e);
+        }
+    }
+
+    /**
+     * Stop watching and, when the executor was created by the manager, shut it down.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (watchLock) {
+            closed = true;
+            if (watchService != null) {
+                watchService.close();
+            }
+        }
+        if (ownExecutor) {
+            executor.shutdownNow();
+        }
+    }
+
+    private void load(String namespaceUri) {
+        long sequence = loadSequence.incrementAndGet();
+        try {
+            URL labelsResourceUrl = null;
+            String labelsResourceLocation = labelUtil.formulateLabelsResourceLocation(namespaceUri);
+            if (labelsResourceLocation != null) {
+                labelsResourceUrl = labelUtil.resolveLabelResourceUrl(labelsResourceLocation,
+                        new ResourceLocatorUtil());
+            }
+
+            Path file = toFile(labelsResourceUrl);
+            if (file != null) {
+                registerFile(file, namespaceUri);
+            }
+
+            TagLabelIndex catalog = EMPTY_CATALOG;
+            if (labelsResourceUrl != null && (file == null || file.toFile().exists())) {
+                catalog = TagLabelIndex.of(XmlTagLabelUtil.toCatalog(readProperties(labelsResourceUrl)));
+            } else {
+                log.info("Labels resource for namespace URI: '" + namespaceUri + "' is not available.");
+            }
+
+            update(namespaceUri, new LoadedCatalog(catalog, sequence));
+        } catch (Exception e) {
+            if (namespaceCatalogMap.putIfAbsent(namespaceUri, new LoadedCatalog(EMPTY_CATALOG, sequence)) == null) {
+                log.info("Cannot load label catalog for namespace URI: '" + namespaceUri + "'", e);
+            } else {
+                log.warn("Cannot reload label catalog for namespace URI: '" + namespaceUri
+                        + "', the previous catalog is kept", e);
+            }
+        } finally {
+            loadCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Replace the catalog unless it has been replaced by a catalog whose load started later.
+     */
+    private void update(String namespaceUri, LoadedCatalog loadedCatalog) {
+        while (true) {
+            LoadedCatalog previousCatalog = namespaceCatalogMap.putIfAbsent(namespaceUri, loadedCatalog);
+            if (previousCatalog == null || previousCatalog.sequence > loadedCatalog.sequence)
+                return;
+            if (namespaceCatalogMap.replace(namespaceUri, previousCatalog, loadedCatalog))
+                return;
+        }
+    }
+
+    private static Properties readProperties(URL labelsResourceUrl) throws IOException {
+        Properties props = new Properties();
+        InputStream is = labelsResourceUrl.openStream();
+        try {
+            props.load(new InputStreamReader(is, StandardCharsets.UTF_8));
+        } finally {
+            try {
+                is.close();
+            } catch (IOException e) {
+            }
+        }
+
+        return props;
+    }
+
+    private static Path toFile(URL labelsResourceUrl) {
+        if (labelsResourceUrl == null || !"file".equals(labelsResourceUrl.getProtocol()))
+            return null;
+
+        try {
+            return Paths.get(labelsResourceUrl.toURI()).toAbsolutePath();
+        } catch (URISyntaxException e) {
+            return null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private void registerFile(Path file, String namespaceUri) {
+        Set<String> namespaceUris = fileNamespaceUriMap.get(file);
+        if (namespaceUris == null) {
+            Set<String> newNamespaceUris = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+            namespaceUris = fileNamespaceUriMap.putIfAbsent(file, newNamespaceUris);
+            if (namespaceUris == null) {
+                namespaceUris = newNamespaceUris;
+            }
+        }
+        namespaceUris.add(namespaceUri);
+
+        if (watchService != null) {
+            synchronized (watchLock) {
+                watchDirectory(file.getParent());
+            }
+        }
+    }
+
+    private void watchDirectory(Path directory) {
+        if (directory == null || closed || directoryWatchKeyMap.containsKey(directory))
+            return;
+
+        try {
+            directoryWatchKeyMap.put(directory, directory.register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY));
+        } catch (IOException e) {
+            log.warn("Cannot watch label catalog directory: '" + directory + "'", e);
+        }
+    }
+
+    private void watch() {
+        WatchService currentWatchService = watchService;
+        while (!closed) {
+            WatchKey watchKey;
+            try {
+                watchKey = currentWatchService.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ClosedWatchServiceException e) {
+                return;
+            }
+
+            Path directory = (Path) watchKey.watchable();
+            for (WatchEvent<?> event : watchKey.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    reloadDirectory(directory);
+                } else {
+                    reloadFile(directory.resolve((Path) event.context()));
+                }
+            }
+
+            if (!watchKey.reset()) {
+                directoryWatchKeyMap.remove(directory);
+            }
+        }
+    }
+
+    private void reloadDirectory(Path directory) {
+        for (Path file : fileNamespaceUriMap.keySet()) {
+            if (directory.equals(file.getParent())) {
+                reloadFile(file);
+            }
+        }
+    }
+
+    private void reloadFile(Path file) {
+        Set<String> namespaceUris = fileNamespaceUriMap.get(file);
+        if (namespaceUris == null)
+            return;
+
+        for (String namespaceUri : namespaceUris) {
+            loadInBackground(namespaceUri);
+        }
+    }
+
+    private static final class LoadedCatalog {
+
+        private final TagLabelIndex catalog;
+
+        private final long sequence;
+
+        private LoadedCatalog(TagLabelIndex catalog, long sequence) {
+            this.catalog = catalog;
+            this.sequence = sequence;
+        }
+    }
+
+    private static class LoaderThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "jrx-label-catalog-loader-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2016-2026 Jumin Rubin
+ * LinkedIn: https://www.linkedin.com/in/juminrubin/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jrtech.common.xsutils.labels;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * The class <code>TagLabelIndex</code> is an immutable label catalog compiled into an open addressing table of the
+ * label keys.
+ * <p>
+ * A scoped label key, e.g. <code>element.Parent.Child</code>, can be looked up by its segments: the hash code of the
+ * key is computed from the hash codes of the segments and the key is compared segment by segment, hence no key string
+ * is built. The index may be read concurrently without synchronization.
+ *
+ */
+final class TagLabelIndex extends AbstractMap<String, String> {
+
+    private static final int PRIME = 31;
+
+    private final String[] keys;
+
+    private final String[] labels;
+
+    private final int[] hashes;
+
+    private final int mask;
+
+    private final int size;
+
+    private final Set<Map.Entry<String, String>> entrySet = new EntrySet();
+
+    /**
+     * Compile the given label catalog, a catalog already compiled is returned as it is.
+     *
+     * @param labelCatalog
+     *            keys and labels of the catalog.
+     * @return the compiled catalog.
+     */
+    static TagLabelIndex of(Map<String, String> labelCatalog) {
+        if (labelCatalog instanceof TagLabelIndex)
+            return (TagLabelIndex) labelCatalog;
+
+        return new TagLabelIndex(labelCatalog);
+    }
+
+    private TagLabelIndex(Map<String, String> labelCatalog) {
+        // Keep the table at most half full so that the probe sequences are short
+        int capacity = Integer.highestOneBit(Math.max(labelCatalog.size(), 1) * 2 - 1) << 1;
+        keys = new String[capacity];
+        labels = new String[capacity];
+        hashes = new int[capacity];
+        mask = capacity - 1;
+
+        int count = 0;
+        for (Map.Entry<String, String> entry : labelCatalog.entrySet()) {
+            String key = entry.getKey();
+            if (key == null || entry.getValue() == null)
+                continue;
+
+            int hash = key.hashCode();
+            int slot = spread(hash) & mask;
+            while (keys[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            labels[slot] = entry.getValue();
+            hashes[slot] = hash;
+            count++;
+        }
+        size = count;
+    }
+
+    @Override
+    public String get(Object key) {
+        if (!(key instanceof String))
+            return null;
+
+        String stringKey = (String) key;
+        int hash = stringKey.hashCode();
+        for (int slot = spread(hash) & mask; keys[slot] != null; slot = (slot + 1) & mask) {
+            if (hashes[slot] == hash && keys[slot].equals(stringKey))
+                return labels[slot];
+        }
+
+        return null;
+    }
+
+    /**
+     * Get the label of the key <code>prefix + name</code>.
+     *
+     * @param prefix
+     * @param name
+     * @return the label or null when there is none.
+     */
+    String get(String prefix, String name) {
+        return find(prefix, null, null, name);
+    }
+
+    /**
+     * Get the label of the key <code>prefix + parentName + separator + name</code>.
+     *
+     * @param prefix
+     * @param parentName
+     * @param separator
+     * @param name
+     * @return the label or null when there is none.
+     */
+    String get(String prefix, String parentName, String separator, String name) {
+        return find(prefix, parentName, separator, name);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Set<Map.Entry<String, String>> entrySet() {
+        return entrySet;
+    }
+
+    private String find(String prefix, String parentName, String separator, String name) {
+        if (name == null)
+            return null;
+
+        int hash = prefix.hashCode();
+        int length = prefix.length();
+        if (parentName != null) {
+            hash = append(append(hash, parentName), separator);
+            length += parentName.length() + separator.length();
+        }
+        hash = append(hash, name);
+        length += name.length();
+
+        for (int slot = spread(hash) & mask; keys[slot] != null; slot = (slot + 1) & mask) {
+            if (hashes[slot] == hash && matches(keys[slot], length, prefix, parentName, separator, name))
+                return labels[slot];
+        }
+
+        return null;
+    }
+
+    private static boolean matches(String key, int length, String prefix, String parentName, String separator,
+            String name) {
+        if (key.length() != length || !key.startsWith(prefix))
+            return false;
+
+        int offset = prefix.length();
+        if (parentName != null) {
+            if (!key.startsWith(parentName, offset))
+                return false;
+            offset += parentName.length();
+            if (!key.startsWith(separator, offset))
+                return false;
+            offset += separator.length();
+        }
+
+        return key.startsWith(name, offset);
+    }
+
+    /**
+     * @return hash code of the concatenation of a string having the given hash code and the given string.
+     */
+    private static int append(int hash, String s) {
+        return hash * power(s.length()) + s.hashCode();
+    }
+
+    private static int power(int exponent) {
+        int result = 1;
+        int base = PRIME;
+        while (exponent > 0) {
+            if ((exponent & 1) != 0) {
+                result *= base;
+            }
+            base *= base;
+            exponent >>= 1;
+        }
+
+        return result;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private final class EntrySet extends AbstractSet<Map.Entry<String, String>> {
+
+        @Override
+        public Iterator<Map.Entry<String, String>> iterator() {
+            return new Iterator<Map.Entry<String, String>>() {
+
+                private int slot = nextSlot(0);
+
+                @Override
+                public boolean hasNext() {
+                    return slot < keys.length;
+                }
+
+                @Override
+                public Map.Entry<String, String> next() {
+                    if (!hasNext())
+                        throw new NoSuchElementException();
+
+                    Map.Entry<String, String> entry = new SimpleImmutableEntry<String, String>(keys[slot],
+                            labels[slot]);
+                    slot = nextSlot(slot + 1);
+
+                    return entry;
+                }
+
+                private int nextSlot(int from) {
+                    int next = from;
+                    while (next < keys.length && keys[next] == null) {
+                        next++;
+                    }
+
+                    return next;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -79,6 +79,8 @@ public class XmlTagLabelUtil implements Serializable {
 
     protected TagLabelResourceLocationInfo[] schemaNamespacePrefixes;
 
+    protected transient volatile TagLabelCatalogManager catalogManager;
+
     public XmlTagLabelUtil(TagLabelResourceLocationInfo[] schemaNamespacePrefixes) {
         if (schemaNamespacePrefixes == null) {
             this.schemaNamespacePrefixes = new TagLabelResourceLocationInfo[] {};
@@ -144,69 +146,51 @@ public class XmlTagLabelUtil implements Serializable {
         }
 
         JrxElement jrxElement = (JrxElement) jrxTerm;
-
-        // produce full-scope name from the 0-3 parents
-        String fullScopedName = "";
-        int i = 0;
-        int maxLoop = 2;
-        JrxElement jrxCurrentPointer = jrxElement;
-        while (true) {
-            if (i >= maxLoop || jrxCurrentPointer == null) {
-                break;
-            }
-
-            if (fullScopedName.equals("")) {
-                fullScopedName = jrxCurrentPointer.getSimpleName();
-            } else {
-                fullScopedName = jrxCurrentPointer.getSimpleName() + LABEL_SEGMENT_SEPARATOR + fullScopedName;
-            }
-
-            if (jrxCurrentPointer.getParentBlock() == null) {
-                break;
-            }
-
-            JrxElement jrxEffectiveParentElement = JrxXmlModelUtil.getParentElement(jrxCurrentPointer.getParentBlock());
-
-            if (jrxEffectiveParentElement == null) {
-                break;
-            }
-            if (jrxEffectiveParentElement.getNamespaceUri() == null || jrxCurrentPointer.getNamespaceUri() == null) {
-                break;
-            }
-
-            if (!jrxEffectiveParentElement.getNamespaceUri().equals(jrxCurrentPointer.getNamespaceUri())) {
-                break;
+        String namespaceUri = jrxElement.getNamespaceUri();
+        String simpleName = jrxElement.getSimpleName();
+
+        // the scope is the parent element when it is of the same namespace
+        String parentSimpleName = null;
+        if (jrxElement.getParentBlock() != null && namespaceUri != null) {
+            JrxElement jrxEffectiveParentElement = JrxXmlModelUtil.getParentElement(jrxElement.getParentBlock());
+            if (jrxEffectiveParentElement != null && namespaceUri.equals(jrxEffectiveParentElement.getNamespaceUri())) {
+                parentSimpleName = jrxEffectiveParentElement.getSimpleName();
             }
+        }
 
-            jrxCurrentPointer = jrxEffectiveParentElement;
+        TagLabelIndex labelIndex = getLabelIndex(namespaceUri);
+        if (labelIndex == null)
+            return simpleName;
 
-            i++;
+        String label;
+        if (parentSimpleName != null) {
+            label = labelIndex.get(ELEMENT_PREFIX, parentSimpleName, LABEL_SEGMENT_SEPARATOR, simpleName);
+        } else {
+            label = labelIndex.get(ELEMENT_PREFIX, simpleName);
         }
 
-        String label = getTagLabel(jrxElement.getNamespaceUri(), ELEMENT_PREFIX + fullScopedName, "");
-
-        if (label.equals("")) {
+        if (label == null) {
             // try retrieve from it's complex type if any
             if (jrxElement.getXsdDeclaration() != null) {
                 XSType xsType = jrxElement.getXsdDeclaration().getType();
                 if (xsType != null) {
-                    label = getTagLabel(jrxElement.getNamespaceUri(), TYPE_PREFIX + xsType.getName(), "");
+                    label = labelIndex.get(TYPE_PREFIX, xsType.getName());
                 }
             } else {
                 // Try with the XML node name
                 String possibleTypeName = jrxElement.getName().substring(0, 1).toUpperCase()
                         + jrxElement.getName().substring(1);
-                label = getTagLabel(jrxElement.getNamespaceUri(), TYPE_PREFIX + possibleTypeName, "");
+                label = labelIndex.get(TYPE_PREFIX, possibleTypeName);
             }
         }
 
-        if (label.equals("")) {
-            label = getTagLabel(jrxElement.getNamespaceUri(), ELEMENT_PREFIX + jrxElement.getSimpleName(), "");
+        if (label == null && parentSimpleName != null) {
+            label = labelIndex.get(ELEMENT_PREFIX, simpleName);
         }
 
-        if (label.equals("")) {
+        if (label == null) {
             // just use the XML tag name
-            label = jrxElement.getSimpleName();
+            label = simpleName;
         }
 
         return label;
@@ -219,18 +203,18 @@ public class XmlTagLabelUtil implements Serializable {
             if (jrxParentDeclaration != null) {
                 String targetNamespaceUri = ((XSDeclaration) jrxParentDeclaration.getXsdDeclaration())
                         .getTargetNamespace();
-                label = getTagLabel(
-                        targetNamespaceUri,
-                        ELEMENT_PREFIX
-                                + (jrxParentDeclaration instanceof JrxElement ? ((JrxElement) jrxParentDeclaration)
-                                        .getSimpleName() : jrxParentDeclaration.getName()) + LABEL_SEGMENT_SEPARATOR
-                                + selectionTagName, "");
-                if (label.equals("")) {
-                    label = getTagLabel(targetNamespaceUri, ELEMENT_PREFIX + selectionTagName, "");
+                TagLabelIndex labelIndex = getLabelIndex(targetNamespaceUri);
+                if (labelIndex != null) {
+                    String parentName = jrxParentDeclaration instanceof JrxElement ? ((JrxElement) jrxParentDeclaration)
+                            .getSimpleName() : jrxParentDeclaration.getName();
+                    label = labelIndex.get(ELEMENT_PREFIX, parentName, LABEL_SEGMENT_SEPARATOR, selectionTagName);
+                    if (label == null) {
+                        label = labelIndex.get(ELEMENT_PREFIX, selectionTagName);
+                    }
                 }
             }
 
-            if (label.equals(""))
+            if (label == null)
                 label = selectionTagName;
         }
 
@@ -253,8 +237,43 @@ public class XmlTagLabelUtil implements Serializable {
                 || scopedElementName.equals(""))
             return defaultLabel;
 
+        TagLabelIndex labelIndex = getLabelIndex(namespaceUri);
+        if (labelIndex == null)
+            return defaultLabel;
+
+        String foundLabel = labelIndex.get(scopedElementName);
+        if (foundLabel == null)
+            return defaultLabel;
+
+        return foundLabel;
+    }
+
+    /**
+     * Get the compiled label catalog of the given namespace URI, the catalog is loaded when it is not in the cache.
+     * With a catalog manager, the catalog is taken from the manager and a missing catalog is loaded in the background
+     * instead.
+     * 
+     * @param namespaceUri
+     * @return the compiled catalog or null when there is no catalog for the namespace URI.
+     */
+    private TagLabelIndex getLabelIndex(String namespaceUri) {
+        if (namespaceUri == null || namespaceUri.equals(""))
+            return null;
+
+        TagLabelCatalogManager currentCatalogManager = catalogManager;
+        if (currentCatalogManager != null) {
+            TagLabelIndex labelIndex = currentCatalogManager.getCatalog(namespaceUri);
+            if (labelIndex != null)
+                return labelIndex;
+        }
+
         Map<String, String> labelsCatalog = getNamespaceLabelCatalog(namespaceUri);
 
+        if (labelsCatalog == null && currentCatalogManager != null) {
+            currentCatalogManager.loadInBackground(namespaceUri);
+            return null;
+        }
+
         if (labelsCatalog == null) {
             // load catalog
             labelsCatalog = loadCatalogByNamespaceUri(namespaceUri);
@@ -262,38 +281,22 @@ public class XmlTagLabelUtil implements Serializable {
 
         if (labelsCatalog == null) {
             log.info("Resource for namespaceUri: '" + namespaceUri + "' is not available or provided.");
-            return defaultLabel;
+            return null;
         }
 
-        String foundLabel = labelsCatalog.get(scopedElementName);
-        if (foundLabel == null)
-            return defaultLabel;
-
-        return foundLabel;
+        return TagLabelIndex.of(labelsCatalog);
     }
 
     protected Map<String, String> loadCatalogByNamespaceUri(String namespaceUri) {
-        String prefix = "";
-        int prefixLength = 0;
-        for (int i = 0; i < schemaNamespacePrefixes.length; i++) {
-            if (namespaceUri.startsWith((String) schemaNamespacePrefixes[i].getNamespaceUriPrefix())) {
-                prefix = (String) schemaNamespacePrefixes[i].getNamespaceUriPrefix();
-                prefixLength = (Integer) schemaNamespacePrefixes[i].getResourceBeginIndex();
-                break;
-            }
-        }
-
-        if (prefix.equals("")) {
-            log.info("Could not match prefix for namespace URI: '" + namespaceUri
-                    + "'. Current SCHEMA_NAMESPACE_PREFIX is: " + Arrays.toString(schemaNamespacePrefixes));
+        String labelsResourceLocation = formulateLabelsResourceLocation(namespaceUri);
+        if (labelsResourceLocation == null)
             return null;
-        }
 
         Properties props = new Properties();
         ResourceLocatorUtil locUtil = new ResourceLocatorUtil();
 
         // Try loading specific label resource (e.g. pacs.008.001.01.properties)
-        InputStream is = getLabelResource(formulateLabelsResourceLocation(namespaceUri, prefixLength), locUtil);
+        InputStream is = getLabelResource(labelsResourceLocation, locUtil);
 
         if (is != null) {
             try {
@@ -310,10 +313,7 @@ public class XmlTagLabelUtil implements Serializable {
             }
         }
 
-        Map<String, String> labelsCatalog = new Hashtable<String, String>();
-        for (Entry<Object, Object> entry : props.entrySet()) {
-            labelsCatalog.put((String) entry.getKey(), (String) entry.getValue());
-        }
+        Map<String, String> labelsCatalog = toCatalog(props);
         registerNamespaceLabelCatalog(namespaceUri, labelsCatalog);
 
         return labelsCatalog;
@@ -322,12 +322,7 @@ public class XmlTagLabelUtil implements Serializable {
     protected InputStream getLabelResource(String labelsResourceLocation, ResourceLocatorUtil locUtil) {
         InputStream is = null;
         try {
-            URL labelsResourceUrl = null;
-            try {
-                labelsResourceUrl = locUtil.resolveUrlFromLocationString(labelsResourceLocation);
-            } catch (Exception e) {
-                labelsResourceUrl = getClass().getResource(labelsResourceLocation);
-            }
+            URL labelsResourceUrl = resolveLabelResourceUrl(labelsResourceLocation, locUtil);
 
             is = labelsResourceUrl.openStream();
             return is;
@@ -338,6 +333,41 @@ public class XmlTagLabelUtil implements Serializable {
         return null;
     }
 
+    /**
+     * Resolve the URL of a labels resource location.
+     * 
+     * @param labelsResourceLocation
+     * @param locUtil
+     * @return the URL or null when the location cannot be resolved.
+     */
+    protected URL resolveLabelResourceUrl(String labelsResourceLocation, ResourceLocatorUtil locUtil) {
+        try {
+            return locUtil.resolveUrlFromLocationString(labelsResourceLocation);
+        } catch (Exception e) {
+            return getClass().getResource(labelsResourceLocation);
+        }
+    }
+
+    /**
+     * Formulate the labels resource location of a namespace URI according to the configured namespace prefixes.
+     * 
+     * @param namespaceUri
+     * @return the location or null when no prefix matches the namespace URI.
+     */
+    protected String formulateLabelsResourceLocation(String namespaceUri) {
+        for (int i = 0; i < schemaNamespacePrefixes.length; i++) {
+            String prefix = schemaNamespacePrefixes[i].getNamespaceUriPrefix();
+            if (prefix != null && !prefix.equals("") && namespaceUri.startsWith(prefix)) {
+                return formulateLabelsResourceLocation(namespaceUri, schemaNamespacePrefixes[i]
+                        .getResourceBeginIndex());
+            }
+        }
+
+        log.info("Could not match prefix for namespace URI: '" + namespaceUri
+                + "'. Current SCHEMA_NAMESPACE_PREFIX is: " + Arrays.toString(schemaNamespacePrefixes));
+        return null;
+    }
+
     protected String formulateLabelsResourceLocation(String namespaceUri, int prefixLength) {
         String labelsResourceName = namespaceUri.substring(prefixLength);
         int lastDoubleColonIndex = labelsResourceName.lastIndexOf(":");
@@ -362,7 +392,8 @@ public class XmlTagLabelUtil implements Serializable {
     }
 
     /**
-     * Register a label catalog to the cache with the given namespace URI as key. <br>
+     * Register a label catalog to the cache with the given namespace URI as key. The catalog is compiled into an
+     * immutable index, later changes of the given map are not visible. <br>
      * 
      * @param namespaceUri
      *            identity of label catalog shall be use for search.
@@ -370,7 +401,7 @@ public class XmlTagLabelUtil implements Serializable {
      *            label catalog to store.
      */
     public static void registerNamespaceLabelCatalog(String namespaceUri, Map<String, String> labelCatalog) {
-    	getNamespaceLabelsCache().put(namespaceUri, labelCatalog);
+    	getNamespaceLabelsCache().put(namespaceUri, TagLabelIndex.of(labelCatalog));
     }
 
     /**
@@ -452,6 +483,10 @@ public class XmlTagLabelUtil implements Serializable {
             }
         }
 
+        return toCatalog(props);
+    }
+
+    static Map<String, String> toCatalog(Properties props) {
         Map<String, String> labelsCatalog = new Hashtable<String, String>();
         for (Entry<Object, Object> entry : props.entrySet()) {
             labelsCatalog.put((String) entry.getKey(), (String) entry.getValue());
@@ -459,6 +494,22 @@ public class XmlTagLabelUtil implements Serializable {
 
         return labelsCatalog;
     }
+
+    public TagLabelCatalogManager getCatalogManager() {
+        return catalogManager;
+    }
+
+    /**
+     * Set the manager providing the label catalogs. With a manager, no catalog is loaded by the calling thread: a
+     * catalog neither held by the manager nor registered in the cache is loaded in the background and the default
+     * label is returned until it is available.
+     * 
+     * @param catalogManager
+     *            the manager, null to load the catalogs on demand.
+     */
+    public void setCatalogManager(TagLabelCatalogManager catalogManager) {
+        this.catalogManager = catalogManager;
+    }
     
 	private static LoadingCache<String, Map<String, String>> createCache() {
 		return CacheUtil.createCache(10000, 300, TimeUnit.SECONDS);
@@ -56,6 +56,7 @@ public class JrxChoiceGroup extends JrxElementGroup implements JrxNode {
                 super.getElements().set(0, selection);
             }
         }
+        markDirty();
     }
 
     @Override
@@ -110,6 +111,7 @@ public class JrxChoiceGroup extends JrxElementGroup implements JrxNode {
     @Override
     public void setName(String name) {
         this.name = name;
+        invalidateParentIndex();
     }
 
     @Override
@@ -145,6 +147,7 @@ public class JrxChoiceGroup extends JrxElementGroup implements JrxNode {
         if (super.getElements().size() > 0) {
             super.getElements().clear();
         }
+        markDirty();
     }
 
     @Override
@@ -16,10 +16,14 @@
  */
 package org.jrtech.common.xsutils.model;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import com.sun.xml.xsom.XSTerm;
 
 /**
@@ -30,6 +34,9 @@ import com.sun.xml.xsom.XSTerm;
 public abstract class JrxDeclaration<XSDecl extends XSTerm> extends JrxTerm<XSDecl> implements JrxNode {
 
     private static final long serialVersionUID = 657455048610963084L;
+
+    // Read-only namespace maps shared by the declarations with the same prefix bindings
+    private static final Interner<Map<String, String>> NAMESPACE_INTERNER = Interners.newWeakInterner();
     
     private JrxElementGroup childrenBlock;
     private String name;
@@ -37,7 +44,7 @@ public abstract class JrxDeclaration<XSDecl extends XSTerm> extends JrxTerm<XSDe
 
     public JrxDeclaration() {
         super();
-        namespace = new HashMap<>();
+        namespace = Collections.emptyMap();
     }
 	
     public abstract JrxElement getParentElement();
@@ -48,27 +55,64 @@ public abstract class JrxDeclaration<XSDecl extends XSTerm> extends JrxTerm<XSDe
 	
     public void setChildrenBlock(JrxElementGroup childrenBlock) {
         this.childrenBlock = childrenBlock;
+        markDirty();
         
         if (childrenBlock != null && (childrenBlock.getOwner() == null || !this.equals(childrenBlock.getOwner()))) {
         	childrenBlock.setOwner(this);
         }
     }
 	
+    /**
+     * Set the children block without updating its owner.
+     */
+    void attachChildrenBlock(JrxElementGroup childrenBlock) {
+        this.childrenBlock = childrenBlock;
+    }
+
     public String getName() {
         return name;
     }
 	
     public void setName(String name) {
         this.name = name;
+        invalidateParentIndex();
     }
 	
+    /**
+     * @return read-only prefix to namespace URI map, use {@link #setNamespaceUri(String, String)} to modify it
+     */
     public Map<String, String> getNamespace() {
         return namespace;
     }
 	
+    /**
+     * Set the prefix to namespace URI map. A read-only copy is kept, which is shared with the other declarations
+     * having the same bindings.
+     */
     public void setNamespace(Map<String, String> namespace) {
+        this.namespace = namespace == null ? null : internNamespace(namespace);
+    }
+
+    /**
+     * Set a namespace map returned by {@link #internNamespace(Map)} without copying it.
+     */
+    void attachNamespace(Map<String, String> namespace) {
         this.namespace = namespace;
     }
+
+    static Map<String, String> internNamespace(Map<String, String> namespace) {
+        Map<String, String> namespaceCopy;
+        if (namespace.isEmpty()) {
+            namespaceCopy = Collections.emptyMap();
+        } else if (namespace.size() == 1) {
+            Entry<String, String> namespaceEntry = namespace.entrySet().iterator().next();
+            namespaceCopy = Collections.singletonMap(namespaceEntry.getKey(), namespaceEntry.getValue());
+        } else {
+            namespaceCopy = Collections.unmodifiableMap(new HashMap<String, String>(namespace));
+        }
+
+        return NAMESPACE_INTERNER.intern(namespaceCopy);
+    }
 	
     @Override
     public int hashCode() {
@@ -125,7 +169,14 @@ public abstract class JrxDeclaration<XSDecl extends XSTerm> extends JrxTerm<XSDe
     }
 	
     public void setNamespaceUri(String namespacePrefix, String namespaceUri) {
-        this.namespace.put(namespacePrefix, namespaceUri);
+        if (namespace != null && namespace.containsKey(namespacePrefix)
+                && Objects.equals(namespaceUri, namespace.get(namespacePrefix)))
+            return;
+
+        Map<String, String> namespaceCopy = namespace == null ? new HashMap<String, String>()
+                : new HashMap<String, String>(namespace);
+        namespaceCopy.put(namespacePrefix, namespaceUri);
+        namespace = internNamespace(namespaceCopy);
     }
 	
     public String getNamespacePrefixFromUri(String namespaceUri) {
@@ -18,7 +18,7 @@ package org.jrtech.common.xsutils.model;
 
 import java.io.Serializable;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -32,11 +32,14 @@ public class JrxDocument implements Serializable {
     
     private JrxElement rootElement;
     private Document xmlDocument;
+    // Identity side table from the XML elements to their Jrx elements, DOM nodes are never hashed or compared
     private Map<Element, JrxElement> elements;
+    // Changed by every modification of the element set, the schema declarations or the parent links of the terms
+    private transient int structureModificationCount;
 
     public JrxDocument() {
         super();
-        elements = new HashMap<Element, JrxElement>();
+        elements = new IdentityHashMap<Element, JrxElement>();
     }
 	
     public JrxElement getRootElement() {
@@ -45,6 +48,7 @@ public class JrxDocument implements Serializable {
 	
     public void setRootElement(JrxElement rootElement) {
         this.rootElement = rootElement;
+        structureChanged();
     }
 
 	public void setXmlDocument(Document xmlDocument) {
@@ -95,10 +99,12 @@ public class JrxDocument implements Serializable {
 	
 	public void put(Element xmlElement, JrxElement jrxElement) {
 		elements.put(xmlElement, jrxElement);
+		structureChanged();
 	}
 	
 	public void remove(Element xmlElement) {
 		elements.remove(xmlElement);
+		structureChanged();
 	}
 	
 	public JrxElement get(Element xmlElement) {
@@ -113,6 +119,28 @@ public class JrxDocument implements Serializable {
 		return elements.entrySet();
 	}
 	
+	/**
+	 * @return a number changing with every modification of the elements of the document, their schema declarations
+	 *         or the links to their parents, to tell whether information derived from the structure is up to date
+	 */
+	public int getStructureModificationCount() {
+		return structureModificationCount;
+	}
+
+	void structureChanged() {
+		structureModificationCount++;
+	}
+
+	/**
+	 * Create a deep copy of the document. The XML document is cloned and the Jrx model is rebuilt on top of the
+	 * cloned XML elements, sharing only the immutable schema declarations with this document.
+	 *
+	 * @return the copy, independent of this document
+	 */
+	public JrxDocument deepClone() {
+		return new JrxDocumentCloner(this).cloneDocument();
+	}
+
 	public void setNamespacePrefix(String prefix) {
 		rootElement.setNamespacePrefix(prefix);
 	}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2016-2026 Jumin Rubin
+ * LinkedIn: https://www.linkedin.com/in/juminrubin/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jrtech.common.xsutils.model;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * The class <code>JrxDocumentCloner</code> creates a deep copy of a {@link JrxDocument}, see
+ * {@link JrxDocument#deepClone()}.
+ * <p>
+ * The XML document is cloned first. The Jrx terms are then copied field by field, following the children blocks from
+ * the root element, and linked to the cloned XML elements. Unlike the public setters, the copy does not search the
+ * element lists of the parent blocks, hence the effort is linear in the size of the document. Terms which are not
+ * reachable from the root element are not copied, references to them are cleared.
+ *
+ */
+final class JrxDocumentCloner {
+
+    private final JrxDocument source;
+
+    private final JrxDocument target = new JrxDocument();
+
+    private final Map<Node, Element> xmlElementMap = new IdentityHashMap<Node, Element>();
+
+    private final Map<JrxTerm<?>, JrxTerm<?>> termMap = new IdentityHashMap<JrxTerm<?>, JrxTerm<?>>();
+
+    JrxDocumentCloner(JrxDocument source) {
+        this.source = source;
+    }
+
+    JrxDocument cloneDocument() {
+        if (source.getXmlDocument() != null) {
+            Document xmlDocument = (Document) source.getXmlDocument().cloneNode(true);
+            mapXmlElements(source.getXmlDocument(), xmlDocument);
+            target.setXmlDocument(xmlDocument);
+        }
+
+        target.setRootElement((JrxElement) cloneTerm(source.getRootElement()));
+
+        // Link the copies once all terms of the document have been copied
+        List<Map.Entry<JrxTerm<?>, JrxTerm<?>>> termEntries = new ArrayList<Map.Entry<JrxTerm<?>, JrxTerm<?>>>(
+                termMap.entrySet());
+        for (Map.Entry<JrxTerm<?>, JrxTerm<?>> termEntry : termEntries) {
+            JrxTerm<?> jrxSource = termEntry.getKey();
+            JrxTerm<?> jrxCopy = termEntry.getValue();
+            jrxCopy.attachParentBlock((JrxElementGroup) termMap.get(jrxSource.getParentBlock()));
+            jrxCopy.setOrigin((JrxChoiceGroup) termMap.get(jrxSource.getOrigin()));
+            if (jrxSource instanceof JrxElementGroup) {
+                ((JrxElementGroup) jrxCopy).attachOwner((JrxDeclaration<?>) termMap.get(((JrxElementGroup) jrxSource)
+                        .getOwner()));
+            }
+        }
+
+        return target;
+    }
+
+    private void mapXmlElements(Node xmlSource, Node xmlCopy) {
+        if (xmlSource.getNodeType() == Node.ELEMENT_NODE) {
+            xmlElementMap.put(xmlSource, (Element) xmlCopy);
+        }
+
+        Node xmlSourceChild = xmlSource.getFirstChild();
+        Node xmlCopyChild = xmlCopy.getFirstChild();
+        while (xmlSourceChild != null && xmlCopyChild != null) {
+            mapXmlElements(xmlSourceChild, xmlCopyChild);
+            xmlSourceChild = xmlSourceChild.getNextSibling();
+            xmlCopyChild = xmlCopyChild.getNextSibling();
+        }
+    }
+
+    private JrxTerm<?> cloneTerm(JrxTerm<?> jrxSource) {
+        if (jrxSource == null)
+            return null;
+
+        JrxTerm<?> jrxCopy = termMap.get(jrxSource);
+        if (jrxCopy != null)
+            return jrxCopy;
+
+        if (jrxSource instanceof JrxElement) {
+            jrxCopy = cloneElement((JrxElement) jrxSource);
+        } else if (jrxSource instanceof JrxGroup) {
+            jrxCopy = cloneGroup((JrxGroup) jrxSource);
+        } else if (jrxSource instanceof JrxElementGroup) {
+            jrxCopy = cloneElementGroup((JrxElementGroup) jrxSource);
+        } else {
+            throw new IllegalArgumentException("Unsupported term: " + jrxSource.getClass().getName());
+        }
+
+        return jrxCopy;
+    }
+
+    private JrxElement cloneElement(JrxElement jrxSource) {
+        JrxElement jrxCopy = new JrxElement();
+        termMap.put(jrxSource, jrxCopy);
+        jrxCopy.copySchemaInfo(jrxSource);
+        copyDeclaration(jrxSource, jrxCopy);
+
+        Element xmlCopy = xmlElementMap.get(jrxSource.getXmlElement());
+        jrxCopy.setXmlElement(xmlCopy);
+        if (jrxSource.getOwnerDocument() != null) {
+            jrxCopy.attachOwnerDocument(target);
+            if (xmlCopy != null) {
+                target.put(xmlCopy, jrxCopy);
+            }
+        }
+
+        List<JrxAttribute> attributeList = new ArrayList<JrxAttribute>(jrxSource.getAttributeList().size());
+        for (JrxAttribute jrxSourceAttribute : jrxSource.getAttributeList()) {
+            JrxAttribute jrxCopyAttribute = new JrxAttribute();
+            jrxCopyAttribute.setName(jrxSourceAttribute.getName());
+            jrxCopyAttribute.setXsdDeclaration(jrxSourceAttribute.getXsdDeclaration());
+            jrxCopyAttribute.setMandatory(jrxSourceAttribute.isMandatory());
+            jrxCopyAttribute.setOwner(jrxCopy);
+            attributeList.add(jrxCopyAttribute);
+        }
+        jrxCopy.setAttributeList(attributeList);
+        jrxCopy.setPendingEnricher(jrxSource.getPendingEnricher());
+
+        jrxCopy.attachChildrenBlock((JrxElementGroup) cloneTerm(jrxSource.getChildrenBlock()));
+
+        return jrxCopy;
+    }
+
+    private JrxGroup cloneGroup(JrxGroup jrxSource) {
+        JrxGroup jrxCopy = new JrxGroup();
+        termMap.put(jrxSource, jrxCopy);
+        jrxCopy.copySchemaInfo(jrxSource);
+        copyDeclaration(jrxSource, jrxCopy);
+
+        jrxCopy.attachChildrenBlock((JrxElementGroup) cloneTerm(jrxSource.getChildrenBlock()));
+
+        return jrxCopy;
+    }
+
+    private JrxElementGroup cloneElementGroup(JrxElementGroup jrxSource) {
+        JrxElementGroup jrxCopy;
+        if (jrxSource instanceof JrxChoiceGroup) {
+            JrxChoiceGroup jrxChoiceCopy = new JrxChoiceGroup();
+            jrxChoiceCopy.setName(((JrxChoiceGroup) jrxSource).getName());
+            jrxCopy = jrxChoiceCopy;
+        } else {
+            jrxCopy = new JrxElementGroup();
+        }
+        termMap.put(jrxSource, jrxCopy);
+        jrxCopy.copySchemaInfo(jrxSource);
+        jrxCopy.setCompositor(jrxSource.getCompositor());
+
+        List<JrxTerm<?>> jrxCopyTerms = jrxCopy.getElementList();
+        for (JrxTerm<?> jrxSourceTerm : jrxSource.getElementList()) {
+            jrxCopyTerms.add(cloneTerm(jrxSourceTerm));
+        }
+
+        return jrxCopy;
+    }
+
+    private static void copyDeclaration(JrxDeclaration<?> jrxSource, JrxDeclaration<?> jrxCopy) {
+        jrxCopy.setName(jrxSource.getName());
+        // The namespace map is read-only and shared
+        jrxCopy.setNamespace(jrxSource.getNamespace());
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2016-2026 Jumin Rubin
+ * LinkedIn: https://www.linkedin.com/in/juminrubin/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jrtech.common.xsutils.model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.function.Function;
+
+import com.sun.xml.xsom.XSSchema;
+
+/**
+ * The class <code>JrxDocumentCodec</code> writes a {@link JrxDocument} in a compact binary format and reads it back.
+ * <p>
+ * The XML document is written first, followed by the Jrx terms in the order of a walk from the root element. Numbers
+ * are written as variable length integers. Strings, namespace maps, descriptors and schemas are written once and then
+ * referred to by their index. A schema declaration is written as the target namespace URI of its schema together with
+ * its number in the {@link SchemaComponentIndex} of the schema, the schema declarations themselves are not written.
+ * When reading, the declarations are looked up in the schemas provided by the schema resolver, which must be parsed
+ * from the same XML schemas as the ones of the written document.
+ * <p>
+ * Documents are written and read in a single pass, several documents may follow each other on the same stream. Cached
+ * values, e.g. the scoped name hash codes, are computed again on demand. A pending enrichment is replaced by the given
+ * enricher.
+ *
+ */
+public final class JrxDocumentCodec {
+
+    static final byte[] MAGIC = new byte[] { 'J', 'R', 'X', 'B' };
+
+    static final int VERSION = 1;
+
+    // Table entries: 0 for null, 1 for a new entry written inline, index + 2 for an entry written before
+    static final int ENTRY_NULL = 0;
+    static final int ENTRY_NEW = 1;
+    static final int ENTRY_INDEX_OFFSET = 2;
+
+    // XML nodes
+    static final int NODE_END = 0;
+    static final int NODE_ELEMENT = 1;
+    static final int NODE_ELEMENT_NS = 2;
+    static final int NODE_TEXT = 3;
+    static final int NODE_CDATA_SECTION = 4;
+    static final int NODE_COMMENT = 5;
+    static final int NODE_PROCESSING_INSTRUCTION = 6;
+
+    static final int ATTRIBUTE = 0;
+    static final int ATTRIBUTE_NS = 1;
+
+    static final int DOCUMENT_XML = 1;
+    static final int DOCUMENT_STANDALONE = 1 << 1;
+
+    // Jrx terms, the kind is written in the lowest bits of the term flags
+    static final int TERM_KIND_MASK = 0x7;
+    static final int TERM_NULL = 0;
+    static final int TERM_REFERENCE = 1;
+    static final int TERM_ELEMENT = 2;
+    static final int TERM_GROUP = 3;
+    static final int TERM_ELEMENT_GROUP = 4;
+    static final int TERM_CHOICE_GROUP = 5;
+
+    // Parent block, origin and owner are written when they differ from the enclosing terms
+    static final int FLAG_PARENT_BLOCK = 1 << 3;
+    static final int FLAG_ORIGIN = 1 << 4;
+    static final int FLAG_OWNER = 1 << 5;
+    static final int FLAG_CHILDREN_BLOCK = 1 << 6;
+    static final int FLAG_XML_ELEMENT = 1 << 7;
+    static final int FLAG_OWNER_DOCUMENT = 1 << 8;
+    static final int FLAG_ENRICHMENT_PENDING = 1 << 9;
+    static final int COMPOSITOR_SHIFT = 10;
+
+    static final int ANNOTATION_SHARED = 0;
+    static final int ANNOTATION_OVERRIDDEN = 1;
+
+    static final int APPINFO_NONE = 0;
+    static final int APPINFO_DECLARATION = 1;
+    static final int APPINFO_INLINE = 2;
+
+    private JrxDocumentCodec() {
+    }
+
+    /**
+     * Write the given document. The stream is neither flushed nor closed.
+     *
+     * @param jrxDocument
+     * @param outputStream
+     * @throws IOException
+     * @throws IllegalArgumentException
+     *             when a schema declaration of the document is not found in its schema
+     */
+    public static void encode(JrxDocument jrxDocument, OutputStream outputStream) throws IOException {
+        new JrxDocumentEncoder(outputStream).encode(jrxDocument);
+    }
+
+    /**
+     * Read a document written by {@link #encode(JrxDocument, OutputStream)}. No byte following the document is
+     * consumed when the stream supports {@link InputStream#mark(int)}, otherwise the stream is read byte by byte.
+     *
+     * @param inputStream
+     * @param schemaResolver
+     *            provides the schema of a target namespace URI, e.g.
+     *            {@link org.jrtech.common.xsutils.SchemaRegistry#getSchema(String)}
+     * @param pendingEnricher
+     *            enricher of the elements written with a pending enrichment, null to drop the pending enrichments
+     * @return the document
+     * @throws java.io.StreamCorruptedException
+     *             when the stream does not contain a valid document
+     * @throws java.io.InvalidObjectException
+     *             when the schema of a namespace is not available or differs from the one of the written document
+     * @throws IOException
+     */
+    public static JrxDocument decode(InputStream inputStream, Function<String, XSSchema> schemaResolver,
+            JrxElementEnricher pendingEnricher) throws IOException {
+        return new JrxDocumentDecoder(inputStream, schemaResolver, pendingEnricher).decode();
+    }
+}
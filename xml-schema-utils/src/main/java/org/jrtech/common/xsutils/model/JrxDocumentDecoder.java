@@ -0,0 +1,582 @@
+/*
+ * Copyright (c) 2016-2026 Jumin Rubin
+ * LinkedIn: https://www.linkedin.com/in/juminrubin/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jrtech.common.xsutils.model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidObjectException;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.DOMImplementation;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import com.sun.xml.xsom.XSAttributeDecl;
+import com.sun.xml.xsom.XSComponent;
+import com.sun.xml.xsom.XSElementDecl;
+import com.sun.xml.xsom.XSModelGroup;
+import com.sun.xml.xsom.XSModelGroup.Compositor;
+import com.sun.xml.xsom.XSModelGroupDecl;
+import com.sun.xml.xsom.XSSchema;
+import com.sun.xml.xsom.XSTerm;
+
+/**
+ * The class <code>JrxDocumentDecoder</code> reads a {@link JrxDocument} written by {@link JrxDocumentEncoder}.
+ * <p>
+ * The terms are created in the order they were written. The parent blocks, origins and owners written as term
+ * numbers are linked once all the terms have been read, like the copies of {@link JrxDocumentCloner}.
+ *
+ */
+final class JrxDocumentDecoder {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final DOMImplementation DOM_IMPLEMENTATION;
+
+    static {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        try {
+            DOM_IMPLEMENTATION = factory.newDocumentBuilder().getDOMImplementation();
+        } catch (ParserConfigurationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final Compositor[] COMPOSITORS = Compositor.values();
+
+    private final InputStream in;
+
+    private final boolean markSupported;
+
+    private final byte[] buffer;
+
+    private int position;
+
+    private int limit;
+
+    private final Function<String, XSSchema> schemaResolver;
+
+    private final JrxElementEnricher pendingEnricher;
+
+    private final JrxDocument target = new JrxDocument();
+
+    private final List<String> stringTable = new ArrayList<String>();
+
+    private final List<Map<String, String>> namespaceTable = new ArrayList<Map<String, String>>();
+
+    private final List<JrxTermDescriptor<?>> descriptorTable = new ArrayList<JrxTermDescriptor<?>>();
+
+    private final List<SchemaComponentIndex> schemaTable = new ArrayList<SchemaComponentIndex>();
+
+    private final List<Element> xmlElements = new ArrayList<Element>();
+
+    private boolean numberingElements = true;
+
+    private final List<JrxTerm<?>> terms = new ArrayList<JrxTerm<?>>();
+
+    private final List<TermLink> termLinks = new ArrayList<TermLink>();
+
+    JrxDocumentDecoder(InputStream in, Function<String, XSSchema> schemaResolver, JrxElementEnricher pendingEnricher) {
+        this.in = in;
+        this.markSupported = in.markSupported();
+        this.buffer = new byte[markSupported ? BUFFER_SIZE : 1];
+        this.schemaResolver = schemaResolver;
+        this.pendingEnricher = pendingEnricher;
+    }
+
+    JrxDocument decode() throws IOException {
+        for (byte magicByte : JrxDocumentCodec.MAGIC) {
+            if (readByte() != magicByte)
+                throw new StreamCorruptedException("Not a Jrx document");
+        }
+        int version = readVarInt();
+        if (version != JrxDocumentCodec.VERSION)
+            throw new StreamCorruptedException("Unsupported Jrx document version: " + version);
+
+        int documentFlags = readVarInt();
+        if ((documentFlags & JrxDocumentCodec.DOCUMENT_XML) != 0) {
+            Document xmlDocument = DOM_IMPLEMENTATION.createDocument(null, null, null);
+            xmlDocument.setXmlStandalone((documentFlags & JrxDocumentCodec.DOCUMENT_STANDALONE) != 0);
+            String xmlVersion = readString();
+            if (xmlVersion != null) {
+                xmlDocument.setXmlVersion(xmlVersion);
+            }
+            xmlDocument.setDocumentURI(readString());
+            readChildNodes(xmlDocument, xmlDocument);
+            target.setXmlDocument(xmlDocument);
+        }
+
+        JrxTerm<?> jrxRootTerm = readTerm(null, null);
+        if (jrxRootTerm != null && !(jrxRootTerm instanceof JrxElement))
+            throw new StreamCorruptedException("Root term is not an element");
+        target.setRootElement((JrxElement) jrxRootTerm);
+
+        for (TermLink termLink : termLinks) {
+            termLink.link();
+        }
+
+        releaseUnreadBytes();
+
+        return target;
+    }
+
+    private void readChildNodes(Document xmlDocument, Node xmlParent) throws IOException {
+        int nodeType;
+        while ((nodeType = readVarInt()) != JrxDocumentCodec.NODE_END) {
+            Node xmlNode;
+            switch (nodeType) {
+            case JrxDocumentCodec.NODE_ELEMENT:
+            case JrxDocumentCodec.NODE_ELEMENT_NS:
+                xmlNode = readElementNode(xmlDocument, nodeType);
+                break;
+            case JrxDocumentCodec.NODE_TEXT:
+                xmlNode = xmlDocument.createTextNode(readString());
+                break;
+            case JrxDocumentCodec.NODE_CDATA_SECTION:
+                xmlNode = xmlDocument.createCDATASection(readString());
+                break;
+            case JrxDocumentCodec.NODE_COMMENT:
+                xmlNode = xmlDocument.createComment(readString());
+                break;
+            case JrxDocumentCodec.NODE_PROCESSING_INSTRUCTION:
+                xmlNode = xmlDocument.createProcessingInstruction(readString(), readString());
+                break;
+            default:
+                throw new StreamCorruptedException("Unknown XML node type: " + nodeType);
+            }
+            xmlParent.appendChild(xmlNode);
+        }
+    }
+
+    private Element readElementNode(Document xmlDocument, int nodeType) throws IOException {
+        Element xmlElement;
+        if (nodeType == JrxDocumentCodec.NODE_ELEMENT) {
+            xmlElement = xmlDocument.createElement(readString());
+        } else {
+            String namespaceUri = readString();
+            xmlElement = xmlDocument.createElementNS(namespaceUri, readString());
+        }
+        if (numberingElements) {
+            xmlElements.add(xmlElement);
+        }
+
+        int attributeCount = readSize("attribute count");
+        for (int i = 0; i < attributeCount; i++) {
+            if (readVarInt() == JrxDocumentCodec.ATTRIBUTE) {
+                String name = readString();
+                xmlElement.setAttribute(name, readString());
+            } else {
+                String namespaceUri = readString();
+                String name = readString();
+                xmlElement.setAttributeNS(namespaceUri, name, readString());
+            }
+        }
+
+        readChildNodes(xmlDocument, xmlElement);
+
+        return xmlElement;
+    }
+
+    /**
+     * Read the term written by {@link JrxDocumentEncoder#writeTerm}.
+     *
+     * @param jrxEnclosingGroup
+     *            group listing the term, null for a children block
+     * @param jrxEnclosingDeclaration
+     *            declaration having the term as children block, null for a term listed in a group
+     */
+    private JrxTerm<?> readTerm(JrxElementGroup jrxEnclosingGroup, JrxDeclaration<?> jrxEnclosingDeclaration)
+            throws IOException {
+        int flags = readVarInt();
+        int kind = flags & JrxDocumentCodec.TERM_KIND_MASK;
+
+        JrxTerm<?> jrxTerm;
+        switch (kind) {
+        case JrxDocumentCodec.TERM_NULL:
+            return null;
+        case JrxDocumentCodec.TERM_REFERENCE:
+            return getTerm(readVarInt());
+        case JrxDocumentCodec.TERM_ELEMENT:
+            jrxTerm = new JrxElement();
+            break;
+        case JrxDocumentCodec.TERM_GROUP:
+            jrxTerm = new JrxGroup();
+            break;
+        case JrxDocumentCodec.TERM_ELEMENT_GROUP:
+            jrxTerm = new JrxElementGroup();
+            break;
+        case JrxDocumentCodec.TERM_CHOICE_GROUP:
+            jrxTerm = new JrxChoiceGroup();
+            break;
+        default:
+            throw new StreamCorruptedException("Unknown term kind: " + kind);
+        }
+        terms.add(jrxTerm);
+
+        TermLink termLink = null;
+        if ((flags & (JrxDocumentCodec.FLAG_PARENT_BLOCK | JrxDocumentCodec.FLAG_ORIGIN
+                | JrxDocumentCodec.FLAG_OWNER)) != 0) {
+            termLink = new TermLink(jrxTerm);
+            termLinks.add(termLink);
+        }
+        if ((flags & JrxDocumentCodec.FLAG_PARENT_BLOCK) != 0) {
+            termLink.parentBlockId = readVarInt();
+        } else {
+            jrxTerm.attachParentBlock(jrxEnclosingGroup);
+        }
+        if ((flags & JrxDocumentCodec.FLAG_ORIGIN) != 0) {
+            termLink.originId = readVarInt();
+        }
+        if ((flags & JrxDocumentCodec.FLAG_OWNER) != 0) {
+            termLink.ownerId = readVarInt();
+        } else if (jrxTerm instanceof JrxElementGroup) {
+            ((JrxElementGroup) jrxTerm).attachOwner(jrxEnclosingDeclaration);
+        }
+        readDescriptor(jrxTerm);
+
+        if (jrxTerm instanceof JrxDeclaration) {
+            JrxDeclaration<?> jrxDeclaration = (JrxDeclaration<?>) jrxTerm;
+            jrxDeclaration.setName(readString());
+            jrxDeclaration.attachNamespace(readNamespace());
+
+            if (jrxTerm instanceof JrxElement) {
+                readElement((JrxElement) jrxTerm, flags);
+            }
+
+            if ((flags & JrxDocumentCodec.FLAG_CHILDREN_BLOCK) != 0) {
+                JrxTerm<?> jrxChildrenBlock = readTerm(null, jrxDeclaration);
+                if (!(jrxChildrenBlock instanceof JrxElementGroup))
+                    throw new StreamCorruptedException("Children block is not an element group");
+                jrxDeclaration.attachChildrenBlock((JrxElementGroup) jrxChildrenBlock);
+            }
+        } else {
+            JrxElementGroup jrxElementGroup = (JrxElementGroup) jrxTerm;
+            int compositorCode = flags >>> JrxDocumentCodec.COMPOSITOR_SHIFT;
+            if (compositorCode > COMPOSITORS.length)
+                throw new StreamCorruptedException("Unknown compositor: " + compositorCode);
+            jrxElementGroup.setCompositor(compositorCode == 0 ? null : COMPOSITORS[compositorCode - 1]);
+            if (jrxTerm instanceof JrxChoiceGroup) {
+                ((JrxChoiceGroup) jrxTerm).setName(readString());
+            }
+
+            int childTermCount = readSize("child term count");
+            List<JrxTerm<?>> jrxChildTerms = jrxElementGroup.getElementList();
+            for (int i = 0; i < childTermCount; i++) {
+                jrxChildTerms.add(readTerm(jrxElementGroup, null));
+            }
+        }
+
+        return jrxTerm;
+    }
+
+    private void readElement(JrxElement jrxElement, int flags) throws IOException {
+        if ((flags & JrxDocumentCodec.FLAG_XML_ELEMENT) != 0) {
+            int xmlElementId = readVarInt();
+            if (xmlElementId < 1 || xmlElementId > xmlElements.size())
+                throw new StreamCorruptedException("Unknown XML element: " + xmlElementId);
+            jrxElement.setXmlElement(xmlElements.get(xmlElementId - 1));
+        }
+        if ((flags & JrxDocumentCodec.FLAG_OWNER_DOCUMENT) != 0) {
+            jrxElement.attachOwnerDocument(target);
+            if (jrxElement.getXmlElement() != null) {
+                target.put(jrxElement.getXmlElement(), jrxElement);
+            }
+        }
+        if ((flags & JrxDocumentCodec.FLAG_ENRICHMENT_PENDING) != 0) {
+            jrxElement.setPendingEnricher(pendingEnricher);
+        }
+
+        int attributeCount = readSize("attribute count");
+        List<JrxAttribute> attributeList = new ArrayList<JrxAttribute>(attributeCount);
+        for (int i = 0; i < attributeCount; i++) {
+            JrxAttribute jrxAttribute = new JrxAttribute();
+            jrxAttribute.setName(readString());
+            jrxAttribute.setXsdDeclaration(readDeclaration(XSAttributeDecl.class));
+            jrxAttribute.setMandatory(readVarInt() != 0);
+            jrxAttribute.setOwner(jrxElement);
+            attributeList.add(jrxAttribute);
+        }
+        jrxElement.setAttributeList(attributeList);
+    }
+
+    private JrxTerm<?> getTerm(int termId) throws StreamCorruptedException {
+        if (termId < 1 || termId > terms.size())
+            throw new StreamCorruptedException("Unknown term: " + termId);
+
+        return terms.get(termId - 1);
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private void readDescriptor(JrxTerm jrxTerm) throws IOException {
+        int entry = readVarInt();
+        if (entry >= JrxDocumentCodec.ENTRY_INDEX_OFFSET) {
+            jrxTerm.attachDescriptor(getEntry(descriptorTable, entry, "descriptor"));
+            return;
+        }
+        if (entry != JrxDocumentCodec.ENTRY_NEW)
+            throw new StreamCorruptedException("Missing descriptor");
+
+        Class<? extends XSTerm> declarationType = jrxTerm instanceof JrxElement ? XSElementDecl.class
+                : jrxTerm instanceof JrxGroup ? XSModelGroupDecl.class : XSModelGroup.class;
+        XSTerm xsdDeclaration = readDeclaration(declarationType);
+        int minOccurs = readSignedVarInt();
+        int maxOccurs = readSignedVarInt();
+        JrxTermDescriptor<?> descriptor = JrxTermDescriptor.getInstance(xsdDeclaration, minOccurs, maxOccurs);
+
+        if (readVarInt() == JrxDocumentCodec.ANNOTATION_OVERRIDDEN) {
+            descriptor = descriptor.withSchemaDocumentation(readString());
+            int appInfo = readVarInt();
+            if (appInfo == JrxDocumentCodec.APPINFO_NONE) {
+                descriptor = descriptor.withSchemaAppInfoElement(null);
+            } else if (appInfo == JrxDocumentCodec.APPINFO_INLINE) {
+                // Not referred to by the terms, hence not numbered
+                Document xmlAppInfoDocument = DOM_IMPLEMENTATION.createDocument(null, null, null);
+                numberingElements = false;
+                int nodeType = readVarInt();
+                if (nodeType != JrxDocumentCodec.NODE_ELEMENT && nodeType != JrxDocumentCodec.NODE_ELEMENT_NS)
+                    throw new StreamCorruptedException("Application information is not an element");
+                Element xmlAppInfoElement = readElementNode(xmlAppInfoDocument, nodeType);
+                numberingElements = true;
+                xmlAppInfoDocument.appendChild(xmlAppInfoElement);
+                descriptor = descriptor.withSchemaAppInfoElement(xmlAppInfoElement);
+            }
+        }
+
+        descriptorTable.add(descriptor);
+        jrxTerm.attachDescriptor(descriptor);
+    }
+
+    private <T extends XSComponent> T readDeclaration(Class<T> declarationType) throws IOException {
+        int entry = readVarInt();
+        if (entry == JrxDocumentCodec.ENTRY_NULL)
+            return null;
+
+        SchemaComponentIndex schemaIndex;
+        if (entry == JrxDocumentCodec.ENTRY_NEW) {
+            String namespaceUri = readString();
+            int size = readVarInt();
+            int fingerprint = readInt();
+
+            XSSchema xsSchema = schemaResolver.apply(namespaceUri);
+            if (xsSchema == null)
+                throw new InvalidObjectException("No Schema available for Namespace URI: " + namespaceUri);
+
+            schemaIndex = SchemaComponentIndex.getInstance(xsSchema);
+            if (schemaIndex.size() != size || schemaIndex.getFingerprint() != fingerprint)
+                throw new InvalidObjectException("Schema of Namespace URI " + namespaceUri
+                        + " differs from the one of the encoded document");
+            schemaTable.add(schemaIndex);
+        } else {
+            schemaIndex = getEntry(schemaTable, entry, "schema");
+        }
+
+        int componentIndex = readVarInt();
+        if (componentIndex < 0 || componentIndex >= schemaIndex.size())
+            throw new StreamCorruptedException("Unknown declaration: " + componentIndex);
+        XSComponent xsComponent = schemaIndex.get(componentIndex);
+        if (!declarationType.isInstance(xsComponent))
+            throw new StreamCorruptedException("Unexpected declaration: " + xsComponent);
+
+        return declarationType.cast(xsComponent);
+    }
+
+    private Map<String, String> readNamespace() throws IOException {
+        int entry = readVarInt();
+        if (entry == JrxDocumentCodec.ENTRY_NULL)
+            return null;
+        if (entry != JrxDocumentCodec.ENTRY_NEW)
+            return getEntry(namespaceTable, entry, "namespace");
+
+        int size = readSize("namespace size");
+        Map<String, String> namespace = new HashMap<String, String>();
+        for (int i = 0; i < size; i++) {
+            String namespacePrefix = readString();
+            namespace.put(namespacePrefix, readString());
+        }
+
+        namespace = JrxDeclaration.internNamespace(namespace);
+        namespaceTable.add(namespace);
+
+        return namespace;
+    }
+
+    private String readString() throws IOException {
+        int entry = readVarInt();
+        if (entry == JrxDocumentCodec.ENTRY_NULL)
+            return null;
+        if (entry != JrxDocumentCodec.ENTRY_NEW)
+            return getEntry(stringTable, entry, "string");
+
+        int length = readSize("string length");
+        String value;
+        if (limit - position >= length) {
+            value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+        } else {
+            // Grown as the bytes arrive, a corrupted length ends with the stream instead of allocating it up front
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.min(length, BUFFER_SIZE));
+            int remaining = length;
+            while (remaining > 0) {
+                if (position == limit) {
+                    fill();
+                }
+                int count = Math.min(remaining, limit - position);
+                bytes.write(buffer, position, count);
+                position += count;
+                remaining -= count;
+            }
+            value = new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        }
+        stringTable.add(value);
+
+        return value;
+    }
+
+    private static <T> T getEntry(List<T> table, int entry, String tableName) throws StreamCorruptedException {
+        int index = entry - JrxDocumentCodec.ENTRY_INDEX_OFFSET;
+        if (index < 0 || index >= table.size())
+            throw new StreamCorruptedException("Unknown " + tableName + ": " + index);
+
+        return table.get(index);
+    }
+
+    private int readSize(String sizeName) throws IOException {
+        int size = readVarInt();
+        if (size < 0)
+            throw new StreamCorruptedException("Negative " + sizeName + ": " + size);
+
+        return size;
+    }
+
+    private int readSignedVarInt() throws IOException {
+        int value = readVarInt();
+
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private int readVarInt() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = readByte();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0)
+                return value;
+        }
+
+        throw new StreamCorruptedException("Malformed variable length integer");
+    }
+
+    private int readInt() throws IOException {
+        return ((readByte() & 0xFF) << 24) | ((readByte() & 0xFF) << 16) | ((readByte() & 0xFF) << 8)
+                | (readByte() & 0xFF);
+    }
+
+    private byte readByte() throws IOException {
+        if (position == limit) {
+            fill();
+        }
+
+        return buffer[position++];
+    }
+
+    private void fill() throws IOException {
+        if (markSupported) {
+            in.mark(buffer.length);
+        }
+
+        int count = in.read(buffer, 0, buffer.length);
+        if (count <= 0)
+            throw new EOFException("Unexpected end of Jrx document");
+
+        position = 0;
+        limit = count;
+    }
+
+    /**
+     * Return the bytes read beyond the end of the document to the stream.
+     */
+    private void releaseUnreadBytes() throws IOException {
+        if (!markSupported || position == limit)
+            return;
+
+        in.reset();
+        long remaining = position;
+        while (remaining > 0) {
+            long skipped = in.skip(remaining);
+            if (skipped <= 0) {
+                if (in.read() < 0)
+                    throw new EOFException("Unexpected end of Jrx document");
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+    }
+
+    /**
+     * References to terms which may have been written after the referring term.
+     */
+    private class TermLink {
+
+        private final JrxTerm<?> jrxTerm;
+
+        private int parentBlockId = -1;
+
+        private int originId = -1;
+
+        private int ownerId = -1;
+
+        private TermLink(JrxTerm<?> jrxTerm) {
+            this.jrxTerm = jrxTerm;
+        }
+
+        private void link() throws StreamCorruptedException {
+            if (parentBlockId >= 0) {
+                jrxTerm.attachParentBlock(getTypedTerm(parentBlockId, JrxElementGroup.class));
+            }
+            if (originId >= 0) {
+                jrxTerm.setOrigin(getTypedTerm(originId, JrxChoiceGroup.class));
+            }
+            if (ownerId >= 0) {
+                ((JrxElementGroup) jrxTerm).attachOwner(getTypedTerm(ownerId, JrxDeclaration.class));
+            }
+        }
+
+        private <T> T getTypedTerm(int termId, Class<T> termType) throws StreamCorruptedException {
+            if (termId == 0)
+                return null;
+
+            JrxTerm<?> jrxLinkedTerm = getTerm(termId);
+            if (!termType.isInstance(jrxLinkedTerm))
+                throw new StreamCorruptedException("Unexpected term: " + termId);
+
+            return termType.cast(jrxLinkedTerm);
+        }
+    }
+}
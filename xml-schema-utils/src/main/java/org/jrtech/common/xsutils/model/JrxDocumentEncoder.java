@@ -0,0 +1,465 @@
+/*
+ * Copyright (c) 2016-2026 Jumin Rubin
+ * LinkedIn: https://www.linkedin.com/in/juminrubin/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jrtech.common.xsutils.model;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import com.sun.xml.xsom.XSComponent;
+import com.sun.xml.xsom.XSModelGroup.Compositor;
+import com.sun.xml.xsom.XSSchema;
+
+/**
+ * The class <code>JrxDocumentEncoder</code> writes a {@link JrxDocument} in the format described by
+ * {@link JrxDocumentCodec}.
+ * <p>
+ * The terms are numbered by a first walk from the root element, so that the references to terms written later, e.g.
+ * an explicit parent block, can be written as numbers. Terms which are not reachable from the root element are not
+ * written, references to them are written as null.
+ *
+ */
+final class JrxDocumentEncoder {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final OutputStream out;
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    private int position;
+
+    private final Map<String, Integer> stringTable = new HashMap<String, Integer>();
+
+    private final Map<Map<String, String>, Integer> namespaceTable =
+            new IdentityHashMap<Map<String, String>, Integer>();
+
+    private final Map<JrxTermDescriptor<?>, Integer> descriptorTable =
+            new IdentityHashMap<JrxTermDescriptor<?>, Integer>();
+
+    private final Map<XSSchema, Integer> schemaTable = new IdentityHashMap<XSSchema, Integer>();
+
+    private final Map<XSSchema, SchemaComponentIndex> schemaIndexMap =
+            new IdentityHashMap<XSSchema, SchemaComponentIndex>();
+
+    private final Map<Node, Integer> xmlElementMap = new IdentityHashMap<Node, Integer>();
+
+    private boolean numberingElements = true;
+
+    private final Map<JrxTerm<?>, Integer> termIdMap = new IdentityHashMap<JrxTerm<?>, Integer>();
+
+    private int writtenTermCount;
+
+    JrxDocumentEncoder(OutputStream out) {
+        this.out = out;
+    }
+
+    void encode(JrxDocument jrxDocument) throws IOException {
+        write(JrxDocumentCodec.MAGIC, 0, JrxDocumentCodec.MAGIC.length);
+        writeVarInt(JrxDocumentCodec.VERSION);
+
+        Document xmlDocument = jrxDocument.getXmlDocument();
+        if (xmlDocument == null) {
+            writeVarInt(0);
+        } else {
+            int documentFlags = JrxDocumentCodec.DOCUMENT_XML;
+            if (xmlDocument.getXmlStandalone()) {
+                documentFlags |= JrxDocumentCodec.DOCUMENT_STANDALONE;
+            }
+            writeVarInt(documentFlags);
+            writeString(xmlDocument.getXmlVersion());
+            writeString(xmlDocument.getDocumentURI());
+            writeChildNodes(xmlDocument);
+        }
+
+        numberTerms(jrxDocument.getRootElement());
+        writeTerm(jrxDocument.getRootElement(), null, null);
+
+        flushBuffer();
+    }
+
+    private void writeChildNodes(Node xmlParent) throws IOException {
+        for (Node xmlNode = xmlParent.getFirstChild(); xmlNode != null; xmlNode = xmlNode.getNextSibling()) {
+            writeNode(xmlNode);
+        }
+        writeVarInt(JrxDocumentCodec.NODE_END);
+    }
+
+    private void writeNode(Node xmlNode) throws IOException {
+        switch (xmlNode.getNodeType()) {
+        case Node.ELEMENT_NODE:
+            writeElementNode((Element) xmlNode);
+            break;
+        case Node.TEXT_NODE:
+            writeVarInt(JrxDocumentCodec.NODE_TEXT);
+            writeString(xmlNode.getNodeValue());
+            break;
+        case Node.CDATA_SECTION_NODE:
+            writeVarInt(JrxDocumentCodec.NODE_CDATA_SECTION);
+            writeString(xmlNode.getNodeValue());
+            break;
+        case Node.COMMENT_NODE:
+            writeVarInt(JrxDocumentCodec.NODE_COMMENT);
+            writeString(xmlNode.getNodeValue());
+            break;
+        case Node.PROCESSING_INSTRUCTION_NODE:
+            writeVarInt(JrxDocumentCodec.NODE_PROCESSING_INSTRUCTION);
+            writeString(xmlNode.getNodeName());
+            writeString(xmlNode.getNodeValue());
+            break;
+        case Node.ENTITY_REFERENCE_NODE:
+            // Expanded
+            for (Node xmlChild = xmlNode.getFirstChild(); xmlChild != null; xmlChild = xmlChild.getNextSibling()) {
+                writeNode(xmlChild);
+            }
+            break;
+        default:
+            // Document type declarations are not kept
+            break;
+        }
+    }
+
+    private void writeElementNode(Element xmlElement) throws IOException {
+        if (numberingElements) {
+            xmlElementMap.put(xmlElement, xmlElementMap.size() + 1);
+        }
+
+        if (xmlElement.getLocalName() == null) {
+            writeVarInt(JrxDocumentCodec.NODE_ELEMENT);
+        } else {
+            writeVarInt(JrxDocumentCodec.NODE_ELEMENT_NS);
+            writeString(xmlElement.getNamespaceURI());
+        }
+        writeString(xmlElement.getTagName());
+
+        NamedNodeMap xmlAttributes = xmlElement.getAttributes();
+        int attributeCount = xmlAttributes.getLength();
+        writeVarInt(attributeCount);
+        for (int i = 0; i < attributeCount; i++) {
+            Attr xmlAttribute = (Attr) xmlAttributes.item(i);
+            if (xmlAttribute.getLocalName() == null) {
+                writeVarInt(JrxDocumentCodec.ATTRIBUTE);
+            } else {
+                writeVarInt(JrxDocumentCodec.ATTRIBUTE_NS);
+                writeString(xmlAttribute.getNamespaceURI());
+            }
+            writeString(xmlAttribute.getName());
+            writeString(xmlAttribute.getValue());
+        }
+
+        writeChildNodes(xmlElement);
+    }
+
+    private void numberTerms(JrxTerm<?> jrxTerm) {
+        if (jrxTerm == null || termIdMap.containsKey(jrxTerm))
+            return;
+
+        termIdMap.put(jrxTerm, termIdMap.size() + 1);
+        if (jrxTerm instanceof JrxDeclaration) {
+            numberTerms(((JrxDeclaration<?>) jrxTerm).getChildrenBlock());
+        } else if (jrxTerm instanceof JrxElementGroup) {
+            for (JrxTerm<?> jrxChildTerm : ((JrxElementGroup) jrxTerm).getElementList()) {
+                numberTerms(jrxChildTerm);
+            }
+        }
+    }
+
+    /**
+     * Write the term, following the same walk as {@link #numberTerms(JrxTerm)}.
+     *
+     * @param jrxTerm
+     * @param jrxEnclosingGroup
+     *            group listing the term, null for a children block
+     * @param jrxEnclosingDeclaration
+     *            declaration having the term as children block, null for a term listed in a group
+     */
+    private void writeTerm(JrxTerm<?> jrxTerm, JrxElementGroup jrxEnclosingGroup,
+            JrxDeclaration<?> jrxEnclosingDeclaration) throws IOException {
+        if (jrxTerm == null) {
+            writeVarInt(JrxDocumentCodec.TERM_NULL);
+            return;
+        }
+
+        int termId = termIdMap.get(jrxTerm);
+        if (termId <= writtenTermCount) {
+            writeVarInt(JrxDocumentCodec.TERM_REFERENCE);
+            writeVarInt(termId);
+            return;
+        }
+        writtenTermCount++;
+
+        int flags;
+        JrxElementGroup jrxChildrenBlock = null;
+        if (jrxTerm instanceof JrxElement) {
+            JrxElement jrxElement = (JrxElement) jrxTerm;
+            flags = JrxDocumentCodec.TERM_ELEMENT;
+            if (xmlElementMap.containsKey(jrxElement.getXmlElement())) {
+                flags |= JrxDocumentCodec.FLAG_XML_ELEMENT;
+            }
+            if (jrxElement.getOwnerDocument() != null) {
+                flags |= JrxDocumentCodec.FLAG_OWNER_DOCUMENT;
+            }
+            if (jrxElement.isEnrichmentPending()) {
+                flags |= JrxDocumentCodec.FLAG_ENRICHMENT_PENDING;
+            }
+            jrxChildrenBlock = jrxElement.getChildrenBlock();
+        } else if (jrxTerm instanceof JrxGroup) {
+            flags = JrxDocumentCodec.TERM_GROUP;
+            jrxChildrenBlock = ((JrxGroup) jrxTerm).getChildrenBlock();
+        } else if (jrxTerm instanceof JrxElementGroup) {
+            JrxElementGroup jrxElementGroup = (JrxElementGroup) jrxTerm;
+            flags = jrxTerm instanceof JrxChoiceGroup ? JrxDocumentCodec.TERM_CHOICE_GROUP
+                    : JrxDocumentCodec.TERM_ELEMENT_GROUP;
+            Compositor compositor = jrxElementGroup.getCompositor();
+            flags |= (compositor == null ? 0 : compositor.ordinal() + 1) << JrxDocumentCodec.COMPOSITOR_SHIFT;
+            if (jrxElementGroup.getOwner() != jrxEnclosingDeclaration) {
+                flags |= JrxDocumentCodec.FLAG_OWNER;
+            }
+        } else {
+            throw new IllegalArgumentException("Unsupported term: " + jrxTerm.getClass().getName());
+        }
+        if (jrxChildrenBlock != null) {
+            flags |= JrxDocumentCodec.FLAG_CHILDREN_BLOCK;
+        }
+        if (jrxTerm.getParentBlock() != jrxEnclosingGroup) {
+            flags |= JrxDocumentCodec.FLAG_PARENT_BLOCK;
+        }
+        if (jrxTerm.getOrigin() != null) {
+            flags |= JrxDocumentCodec.FLAG_ORIGIN;
+        }
+
+        writeVarInt(flags);
+        if ((flags & JrxDocumentCodec.FLAG_PARENT_BLOCK) != 0) {
+            writeTermId(jrxTerm.getParentBlock());
+        }
+        if ((flags & JrxDocumentCodec.FLAG_ORIGIN) != 0) {
+            writeTermId(jrxTerm.getOrigin());
+        }
+        if ((flags & JrxDocumentCodec.FLAG_OWNER) != 0) {
+            writeTermId(((JrxElementGroup) jrxTerm).getOwner());
+        }
+        writeDescriptor(jrxTerm.getDescriptor());
+
+        if (jrxTerm instanceof JrxDeclaration) {
+            JrxDeclaration<?> jrxDeclaration = (JrxDeclaration<?>) jrxTerm;
+            writeString(jrxDeclaration.getName());
+            writeNamespace(jrxDeclaration.getNamespace());
+
+            if (jrxTerm instanceof JrxElement) {
+                writeElement((JrxElement) jrxTerm, flags);
+            }
+
+            if (jrxChildrenBlock != null) {
+                writeTerm(jrxChildrenBlock, null, jrxDeclaration);
+            }
+        } else {
+            JrxElementGroup jrxElementGroup = (JrxElementGroup) jrxTerm;
+            if (jrxTerm instanceof JrxChoiceGroup) {
+                writeString(((JrxChoiceGroup) jrxTerm).getName());
+            }
+
+            List<JrxTerm<?>> jrxChildTerms = jrxElementGroup.getElementList();
+            writeVarInt(jrxChildTerms.size());
+            for (JrxTerm<?> jrxChildTerm : jrxChildTerms) {
+                writeTerm(jrxChildTerm, jrxElementGroup, null);
+            }
+        }
+    }
+
+    private void writeElement(JrxElement jrxElement, int flags) throws IOException {
+        if ((flags & JrxDocumentCodec.FLAG_XML_ELEMENT) != 0) {
+            writeVarInt(xmlElementMap.get(jrxElement.getXmlElement()));
+        }
+
+        List<JrxAttribute> jrxAttributes = jrxElement.getAttributeList();
+        writeVarInt(jrxAttributes.size());
+        for (JrxAttribute jrxAttribute : jrxAttributes) {
+            writeString(jrxAttribute.getName());
+            writeDeclaration(jrxAttribute.getXsdDeclaration());
+            writeVarInt(jrxAttribute.isMandatory() ? 1 : 0);
+        }
+    }
+
+    private void writeTermId(JrxTerm<?> jrxTerm) throws IOException {
+        Integer termId = jrxTerm == null ? null : termIdMap.get(jrxTerm);
+        writeVarInt(termId == null ? 0 : termId);
+    }
+
+    private void writeDescriptor(JrxTermDescriptor<?> descriptor) throws IOException {
+        Integer index = descriptorTable.get(descriptor);
+        if (index != null) {
+            writeVarInt(JrxDocumentCodec.ENTRY_INDEX_OFFSET + index);
+            return;
+        }
+
+        descriptorTable.put(descriptor, descriptorTable.size());
+        writeVarInt(JrxDocumentCodec.ENTRY_NEW);
+        writeDeclaration(descriptor.getXsdDeclaration());
+        writeSignedVarInt(descriptor.getMinOccurs());
+        writeSignedVarInt(descriptor.getMaxOccurs());
+
+        if (!descriptor.isAnnotationOverridden()) {
+            writeVarInt(JrxDocumentCodec.ANNOTATION_SHARED);
+            return;
+        }
+
+        writeVarInt(JrxDocumentCodec.ANNOTATION_OVERRIDDEN);
+        writeString(descriptor.getSchemaDocumentation());
+
+        Element xmlAppInfoElement = descriptor.getSchemaAppInfoElement();
+        if (xmlAppInfoElement == null) {
+            writeVarInt(JrxDocumentCodec.APPINFO_NONE);
+        } else if (descriptor.getXsdDeclaration() != null && xmlAppInfoElement == JrxTermDescriptor.getInstance(
+                descriptor.getXsdDeclaration(), 1, 1).getSchemaAppInfoElement()) {
+            writeVarInt(JrxDocumentCodec.APPINFO_DECLARATION);
+        } else {
+            writeVarInt(JrxDocumentCodec.APPINFO_INLINE);
+            // Not referred to by the terms, hence not numbered
+            numberingElements = false;
+            writeElementNode(xmlAppInfoElement);
+            numberingElements = true;
+        }
+    }
+
+    private void writeDeclaration(XSComponent xsComponent) throws IOException {
+        if (xsComponent == null) {
+            writeVarInt(JrxDocumentCodec.ENTRY_NULL);
+            return;
+        }
+
+        XSSchema xsSchema = xsComponent.getOwnerSchema();
+        SchemaComponentIndex schemaIndex = schemaIndexMap.get(xsSchema);
+        if (schemaIndex == null) {
+            schemaIndex = SchemaComponentIndex.getInstance(xsSchema);
+            schemaIndexMap.put(xsSchema, schemaIndex);
+        }
+        int componentIndex = schemaIndex.indexOf(xsComponent);
+        if (componentIndex < 0)
+            throw new IllegalArgumentException("Declaration not found in the schema of namespace URI: "
+                    + xsSchema.getTargetNamespace() + " -> " + xsComponent);
+
+        Integer index = schemaTable.get(xsSchema);
+        if (index == null) {
+            schemaTable.put(xsSchema, schemaTable.size());
+            writeVarInt(JrxDocumentCodec.ENTRY_NEW);
+            writeString(xsSchema.getTargetNamespace());
+            writeVarInt(schemaIndex.size());
+            writeInt(schemaIndex.getFingerprint());
+        } else {
+            writeVarInt(JrxDocumentCodec.ENTRY_INDEX_OFFSET + index);
+        }
+        writeVarInt(componentIndex);
+    }
+
+    private void writeNamespace(Map<String, String> namespace) throws IOException {
+        if (namespace == null) {
+            writeVarInt(JrxDocumentCodec.ENTRY_NULL);
+            return;
+        }
+
+        Integer index = namespaceTable.get(namespace);
+        if (index != null) {
+            writeVarInt(JrxDocumentCodec.ENTRY_INDEX_OFFSET + index);
+            return;
+        }
+
+        namespaceTable.put(namespace, namespaceTable.size());
+        writeVarInt(JrxDocumentCodec.ENTRY_NEW);
+        writeVarInt(namespace.size());
+        for (Map.Entry<String, String> namespaceEntry : namespace.entrySet()) {
+            writeString(namespaceEntry.getKey());
+            writeString(namespaceEntry.getValue());
+        }
+    }
+
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            writeVarInt(JrxDocumentCodec.ENTRY_NULL);
+            return;
+        }
+
+        Integer index = stringTable.get(value);
+        if (index != null) {
+            writeVarInt(JrxDocumentCodec.ENTRY_INDEX_OFFSET + index);
+            return;
+        }
+
+        stringTable.put(value, stringTable.size());
+        writeVarInt(JrxDocumentCodec.ENTRY_NEW);
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(bytes.length);
+        write(bytes, 0, bytes.length);
+    }
+
+    private void writeSignedVarInt(int value) throws IOException {
+        // Zig-zag, -1 for unbounded is written in a single byte
+        writeVarInt((value << 1) ^ (value >> 31));
+    }
+
+    private void writeVarInt(int value) throws IOException {
+        if (position + 5 > BUFFER_SIZE) {
+            flushBuffer();
+        }
+
+        while ((value & ~0x7F) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    private void writeInt(int value) throws IOException {
+        if (position + 4 > BUFFER_SIZE) {
+            flushBuffer();
+        }
+
+        buffer[position++] = (byte) (value >>> 24);
+        buffer[position++] = (byte) (value >>> 16);
+        buffer[position++] = (byte) (value >>> 8);
+        buffer[position++] = (byte) value;
+    }
+
+    private void write(byte[] bytes, int offset, int length) throws IOException {
+        if (position + length > BUFFER_SIZE) {
+            flushBuffer();
+            if (length > BUFFER_SIZE) {
+                out.write(bytes, offset, length);
+                return;
+            }
+        }
+
+        System.arraycopy(bytes, offset, buffer, position, length);
+        position += length;
+    }
+
+    private void flushBuffer() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+}
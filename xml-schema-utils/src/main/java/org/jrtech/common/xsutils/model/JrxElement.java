@@ -39,6 +39,9 @@ public class JrxElement extends JrxDeclaration<XSElementDecl> {
 	private JrxChoiceGroup scopedSingleChoiceGroup;
 	private ChoiceDefinedLocationCategory choiceLocationCategory;
 
+	// Enrichment deferred until the element is visited, see ensureEnriched
+	private transient JrxElementEnricher pendingEnricher;
+
 	public JrxElement() {
 		super();
 		attributeList = new ArrayList<JrxAttribute>();
@@ -50,6 +53,7 @@ public class JrxElement extends JrxDeclaration<XSElementDecl> {
 
 	public void setAttributeList(List<JrxAttribute> attributeList) {
 		this.attributeList = attributeList;
+		markDirty();
 	}
 
 	public JrxDocument getOwnerDocument() {
@@ -76,12 +80,62 @@ public class JrxElement extends JrxDeclaration<XSElementDecl> {
 		}
 	}
 
+	/**
+	 * Defer the enrichment of the element until {@link #ensureEnriched()} is called. Until then the children block
+	 * only holds the elements present in the XML document.
+	 *
+	 * @param pendingEnricher
+	 *            enricher to run, null to cancel the pending enrichment
+	 */
+	public void setPendingEnricher(JrxElementEnricher pendingEnricher) {
+		this.pendingEnricher = pendingEnricher;
+	}
+
+	JrxElementEnricher getPendingEnricher() {
+		return pendingEnricher;
+	}
+
+	public boolean isEnrichmentPending() {
+		return pendingEnricher != null;
+	}
+
+	/**
+	 * Run the pending enrichment of the element, if any. The enrichment adds the missing elements of the children
+	 * block to the Jrx model and to the XML document. The enricher is removed before it runs, hence it may access the
+	 * children block itself.
+	 */
+	public void ensureEnriched() {
+		JrxElementEnricher enricher = pendingEnricher;
+		if (enricher == null)
+			return;
+
+		pendingEnricher = null;
+		try {
+			enricher.enrich(this);
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new IllegalStateException("Enrichment failed for element: " + getName(), e);
+		}
+	}
+
+	/**
+	 * Set the owner document without registering the XML element in it and without propagating it to the children.
+	 */
+	void attachOwnerDocument(JrxDocument ownerDocument) {
+		this.ownerDocument = ownerDocument;
+	}
+
 	public Element getXmlElement() {
 		return xmlElement;
 	}
 
 	public void setXmlElement(Element xmlElement) {
 		this.xmlElement = xmlElement;
+		if (getParentBlock() != null) {
+			getParentBlock().invalidateMembershipIndex();
+		}
+		markDirty();
 	}
 
 	@Override
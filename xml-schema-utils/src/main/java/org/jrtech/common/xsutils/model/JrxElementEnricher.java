@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2016-2026 Jumin Rubin
+ * LinkedIn: https://www.linkedin.com/in/juminrubin/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jrtech.common.xsutils.model;
+
+/**
+ * Callback completing a Jrx element with its schema information when it is visited, see
+ * {@link JrxElement#setPendingEnricher(JrxElementEnricher)} and {@link JrxElement#ensureEnriched()}.
+ *
+ */
+public interface JrxElementEnricher {
+
+    /**
+     * Enrich the given element and its children block. Elements below may be given a pending enricher again instead
+     * of being enriched directly.
+     *
+     * @param jrxElement
+     * @throws Exception
+     */
+    void enrich(JrxElement jrxElement) throws Exception;
+}
@@ -18,9 +18,16 @@ package org.jrtech.common.xsutils.model;
 
 import com.sun.xml.xsom.XSModelGroup;
 import com.sun.xml.xsom.XSModelGroup.Compositor;
+import com.sun.xml.xsom.XSTerm;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+
+import org.w3c.dom.Element;
 
 /**
  * A facade to the element group in schema.
@@ -28,15 +35,21 @@ import java.util.List;
 public class JrxElementGroup extends JrxTerm<XSModelGroup> {
 
     private static final long serialVersionUID = 7199903008599840864L;
+
+    // Smaller groups are scanned, which is as fast and saves the memory of the index
+    private static final int CHILD_INDEX_THRESHOLD = 16;
     
     private Compositor compositor;
     private List<JrxTerm<?>> elements;
     private JrxDeclaration<?> owner;
+    // Built on first use and guarded by the group, see getChildIndex(boolean)
+    private transient ChildIndex childIndex;
+    private transient ChildIndex membershipIndex;
 
 
     public JrxElementGroup() {
         super();
-        elements = new ArrayList<JrxTerm<?>>();
+        elements = new JrxTermList();
         compositor = XSModelGroup.Compositor.SEQUENCE;
     }
 	
@@ -54,14 +67,246 @@ public class JrxElementGroup extends JrxTerm<XSModelGroup> {
 	
     public void setElements(List<JrxTerm<?>> elements) {
         this.elements = elements;
+        synchronized (this) {
+            childIndex = null;
+            membershipIndex = null;
+        }
+        markDirty();
+    }
+
+    /**
+     * @param xsTerm
+     * @return the terms of the group having the given schema definition, in document order
+     */
+    public List<JrxTerm<?>> getTermsWithSameSchemaDefinition(XSTerm xsTerm) {
+        if (xsTerm == null) {
+            return Collections.emptyList();
+        }
+
+        synchronized (this) {
+            ChildIndex index = getChildIndex(true);
+            if (index != null) {
+                List<JrxTerm<?>> jrxTermList = index.declarationTermMap.get(xsTerm);
+                return jrxTermList == null ? Collections.<JrxTerm<?>> emptyList() : new ArrayList<JrxTerm<?>>(
+                        jrxTermList);
+            }
+        }
+
+        List<JrxTerm<?>> jrxTermList = new ArrayList<JrxTerm<?>>();
+        for (JrxTerm<?> jrxTerm : getElements()) {
+            if (jrxTerm.getXsdDeclaration() != null && jrxTerm.getXsdDeclaration().equals(xsTerm)) {
+                jrxTermList.add(jrxTerm);
+            }
+        }
+
+        return jrxTermList;
+    }
+
+    public int countTermsWithSameSchemaDefinition(XSTerm xsTerm) {
+        if (xsTerm == null) {
+            return 0;
+        }
+
+        synchronized (this) {
+            ChildIndex index = getChildIndex(true);
+            if (index != null) {
+                List<JrxTerm<?>> jrxTermList = index.declarationTermMap.get(xsTerm);
+                return jrxTermList == null ? 0 : jrxTermList.size();
+            }
+        }
+
+        return getTermsWithSameSchemaDefinition(xsTerm).size();
+    }
+
+    /**
+     * @param name
+     * @return number of declarations and choice groups of the group with the given name
+     */
+    public int countTermsWithSameName(String name) {
+        synchronized (this) {
+            ChildIndex index = getChildIndex(true);
+            if (index != null) {
+                Integer count = index.nameCountMap.get(name);
+                return count == null ? 0 : count.intValue();
+            }
+        }
+
+        int count = 0;
+        for (JrxTerm<?> jrxTerm : getElements()) {
+            if (name.equals(getTermName(jrxTerm))) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * @param simpleName
+     *            name of the element without prefix
+     * @return the first element of the group with the given name, null if there is none
+     */
+    public JrxElement getChildElement(String simpleName) {
+        if (simpleName.indexOf(':') < 0) {
+            synchronized (this) {
+                ChildIndex index = getChildIndex(true);
+                if (index != null) {
+                    return index.simpleNameElementMap.get(simpleName);
+                }
+            }
+        }
+
+        String endingName = ":" + simpleName;
+        for (JrxTerm<?> jrxTerm : getElements()) {
+            if (jrxTerm instanceof JrxElement) {
+                JrxElement jrxElement = (JrxElement) jrxTerm;
+                if (jrxElement.getSimpleName().equals(simpleName) || jrxElement.getName().endsWith(endingName)) {
+                    return jrxElement;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @param jrxTerm
+     *            a term of the group
+     * @return number of the siblings directly preceding the term with the same schema definition
+     */
+    int countPrecedingTermsWithSameSchemaDefinition(JrxTerm<?> jrxTerm) {
+        XSTerm xsTerm = jrxTerm.getXsdDeclaration();
+        synchronized (this) {
+            ChildIndex index = getChildIndex(true);
+            if (index != null) {
+                Integer count = index.precedingCountMap.get(jrxTerm);
+                return count == null ? 0 : count.intValue();
+            }
+        }
+
+        int count = 0;
+        List<JrxTerm<?>> jrxTerms = getElements();
+        for (int i = jrxTerms.indexOf(jrxTerm) - 1; i >= 0; i--) {
+            if (!xsTerm.equals(jrxTerms.get(i).getXsdDeclaration())) {
+                break;
+            }
+            count++;
+        }
+
+        return count;
+    }
+
+    /**
+     * @param jrxTerm
+     * @return true if the group holds the term or a term equal to it
+     */
+    boolean containsTerm(JrxTerm<?> jrxTerm) {
+        synchronized (this) {
+            ChildIndex index = getChildIndex(false);
+            if (index != null) {
+                return index.contains(jrxTerm);
+            }
+        }
+
+        return getElements().contains(jrxTerm);
+    }
+
+    /**
+     * Build the indexes of the children, so that the following lookups only read them, e.g. before the group is
+     * shared by the threads of a parallel validation.
+     */
+    public synchronized void prepareChildIndex() {
+        getChildIndex(true);
+        getChildIndex(false);
+    }
+
+    /**
+     * Drop the lookup index, after the schema definition or the name of a child has changed.
+     */
+    synchronized void invalidateChildIndex() {
+        childIndex = null;
+    }
+
+    /**
+     * Drop the membership index, after the XML element of a child has changed.
+     */
+    synchronized void invalidateMembershipIndex() {
+        membershipIndex = null;
+    }
+
+    /**
+     * The lookup index serves the schema definition and name lookups, the membership index serves
+     * {@link #containsTerm(JrxTerm)}. They are kept apart, because the schema definition of a term is usually set after
+     * it has been added, which would otherwise rebuild the index on every added term.
+     * <p>
+     * An index is extended in place, hence it is only accessed while holding the lock of the group.
+     * 
+     * @param lookups
+     *            true for the lookup index, false for the membership index
+     * @return the index, null if the group is small or the terms are not held by an indexable list
+     */
+    private ChildIndex getChildIndex(boolean lookups) {
+        if (!(elements instanceof JrxTermList) || getElements() != elements) {
+            return null;
+        }
+
+        JrxTermList jrxTermList = (JrxTermList) elements;
+        if (jrxTermList.size() < CHILD_INDEX_THRESHOLD) {
+            return null;
+        }
+
+        ChildIndex index = lookups ? childIndex : membershipIndex;
+        int modificationCount = jrxTermList.getModificationCount();
+        if (index == null || index.modificationCount != modificationCount || index.size > jrxTermList.size()) {
+            index = new ChildIndex(modificationCount, lookups);
+            if (lookups) {
+                childIndex = index;
+            } else {
+                membershipIndex = index;
+            }
+        }
+        // Only terms appended at the end since the index has been built
+        while (index.size < jrxTermList.size()) {
+            index.add(jrxTermList.get(index.size));
+        }
+
+        return index;
+    }
+
+    private static String getTermName(JrxTerm<?> jrxTerm) {
+        if (jrxTerm instanceof JrxDeclaration<?>) {
+            return ((JrxDeclaration<?>) jrxTerm).getName();
+        } else if (jrxTerm instanceof JrxChoiceGroup) {
+            return ((JrxChoiceGroup) jrxTerm).getName();
+        }
+
+        return null;
     }
 	
+    /**
+     * @return the list holding the terms of the group, for a choice group the selection
+     */
+    List<JrxTerm<?>> getElementList() {
+        return elements;
+    }
+
+    /**
+     * Set the owner without updating its children block.
+     */
+    void attachOwner(JrxDeclaration<?> owner) {
+        this.owner = owner;
+        structureChanged();
+    }
+
     public JrxDeclaration<?> getOwner() {
         return owner;
     }
 	
     public void setOwner(JrxDeclaration<?> owner) {
+        structureChanged();
         this.owner = owner;
+        markDirty();
+        structureChanged();
         
         // add to new parent
         if (owner != null && (owner.getChildrenBlock() == null || !this.equals(owner.getChildrenBlock()))) {
@@ -134,6 +379,11 @@ public class JrxElementGroup extends JrxTerm<XSModelGroup> {
 		return false;
 	}
 	
+	@Override
+	protected JrxTerm<?> getEnclosingTerm() {
+		return getParentBlock() != null ? getParentBlock() : owner;
+	}
+
 	@Override
 	public long getScopedNameHashCode() {
 		if (scopedNameHashCode == 1L) {
@@ -147,4 +397,118 @@ public class JrxElementGroup extends JrxTerm<XSModelGroup> {
 	    return scopedNameHashCode;
     }
 
+    /**
+     * Lookup tables of the terms of a group, valid for one state of the element list. Terms appended to the list are
+     * added to the index, any other modification of the list replaces it. The index is guarded by its group, so that
+     * the threads of a parallel validation may share it.
+     */
+    private static final class ChildIndex {
+
+        private final int modificationCount;
+
+        private int size;
+
+        // Lookup index
+        private final Map<XSTerm, List<JrxTerm<?>>> declarationTermMap;
+
+        private final Map<String, Integer> nameCountMap;
+
+        private final Map<String, JrxElement> simpleNameElementMap;
+
+        private final Map<JrxTerm<?>, Integer> precedingCountMap;
+
+        private XSTerm xsLastTerm;
+
+        private int lastPrecedingCount;
+
+        // Membership index
+        private final Map<JrxTerm<?>, Boolean> termMap;
+
+        private final Map<Element, JrxElement> xmlElementMap;
+
+        private ChildIndex(int modificationCount, boolean lookups) {
+            this.modificationCount = modificationCount;
+            if (lookups) {
+                declarationTermMap = new HashMap<XSTerm, List<JrxTerm<?>>>();
+                nameCountMap = new HashMap<String, Integer>();
+                simpleNameElementMap = new HashMap<String, JrxElement>();
+                precedingCountMap = new IdentityHashMap<JrxTerm<?>, Integer>();
+                termMap = null;
+                xmlElementMap = null;
+            } else {
+                declarationTermMap = null;
+                nameCountMap = null;
+                simpleNameElementMap = null;
+                precedingCountMap = null;
+                termMap = new IdentityHashMap<JrxTerm<?>, Boolean>();
+                xmlElementMap = new IdentityHashMap<Element, JrxElement>();
+            }
+        }
+
+        private void add(JrxTerm<?> jrxTerm) {
+            size++;
+            if (termMap != null) {
+                termMap.put(jrxTerm, Boolean.TRUE);
+                if (jrxTerm instanceof JrxElement) {
+                    Element xmlElement = ((JrxElement) jrxTerm).getXmlElement();
+                    if (xmlElement != null && !xmlElementMap.containsKey(xmlElement)) {
+                        xmlElementMap.put(xmlElement, (JrxElement) jrxTerm);
+                    }
+                }
+                return;
+            }
+
+            XSTerm xsTerm = jrxTerm.getXsdDeclaration();
+            if (xsTerm != null) {
+                List<JrxTerm<?>> jrxTermList = declarationTermMap.get(xsTerm);
+                if (jrxTermList == null) {
+                    jrxTermList = new ArrayList<JrxTerm<?>>(1);
+                    declarationTermMap.put(xsTerm, jrxTermList);
+                }
+                jrxTermList.add(jrxTerm);
+            }
+
+            lastPrecedingCount = xsTerm != null && xsTerm.equals(xsLastTerm) ? lastPrecedingCount + 1 : 0;
+            if (lastPrecedingCount > 0 && !precedingCountMap.containsKey(jrxTerm)) {
+                precedingCountMap.put(jrxTerm, lastPrecedingCount);
+            }
+            xsLastTerm = xsTerm;
+
+            String name = getTermName(jrxTerm);
+            if (name != null) {
+                Integer count = nameCountMap.get(name);
+                nameCountMap.put(name, count == null ? 1 : count.intValue() + 1);
+            }
+            if (jrxTerm instanceof JrxElement) {
+                JrxElement jrxElement = (JrxElement) jrxTerm;
+                if (!simpleNameElementMap.containsKey(jrxElement.getSimpleName())) {
+                    simpleNameElementMap.put(jrxElement.getSimpleName(), jrxElement);
+                }
+            }
+        }
+
+        private boolean contains(JrxTerm<?> jrxTerm) {
+            if (termMap.containsKey(jrxTerm)) {
+                return true;
+            }
+
+            if (jrxTerm instanceof JrxElement && ((JrxElement) jrxTerm).getXmlElement() != null) {
+                // Equal elements share the XML element
+                JrxElement jrxElement = xmlElementMap.get(((JrxElement) jrxTerm).getXmlElement());
+                if (jrxElement == null) {
+                    return false;
+                } else if (jrxElement.equals(jrxTerm)) {
+                    return true;
+                }
+            }
+
+            for (JrxTerm<?> jrxIndexedTerm : termMap.keySet()) {
+                if (jrxIndexedTerm.equals(jrxTerm)) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+    }
 }
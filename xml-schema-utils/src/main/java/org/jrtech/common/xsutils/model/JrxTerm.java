@@ -19,15 +19,11 @@ package org.jrtech.common.xsutils.model;
 import java.io.Serializable;
 import java.math.BigInteger;
 
-import org.jrtech.common.xmlutils.XmlUtils;
 import org.w3c.dom.Element;
 
-import com.sun.xml.xsom.XSAnnotation;
-import com.sun.xml.xsom.XSElementDecl;
 import com.sun.xml.xsom.XSModelGroup;
 import com.sun.xml.xsom.XSParticle;
 import com.sun.xml.xsom.XSTerm;
-import com.sun.xml.xsom.XSType;
 
 /**
  * A delegate to the Schema Term
@@ -37,41 +33,29 @@ public abstract class JrxTerm<XST extends XSTerm> implements Serializable {
     private static final long serialVersionUID = 672194520754460948L;
     private JrxElementGroup parentBlock;
     private JrxChoiceGroup origin;
-    private int minOccurs;
-    private int maxOccurs;
-    private XST xsdDeclaration;
+    // Schema derived data, shared by all the terms of the same declaration
+    private JrxTermDescriptor<XST> descriptor;
 
     public static final String ANNOTATION_APPINFO = "xs:appinfo";
     public static final String ANNOTATION_DOCUMENTATION = "xs:documentation";
 
-    private String schemaDocumentation;
-    private Element schemaAppInfoElement;
     protected long scopedNameHashCode = 1L;
 
+    // Not validated since the last modification, see JrxXmlModelUtil#revalidate
+    private transient boolean dirty = true;
+
     public JrxTerm() {
         super();
-        minOccurs = 1;
-        maxOccurs = 1;
+        descriptor = JrxTermDescriptor.getInstance(null, 1, 1);
     }
 
     public boolean isMandatory() {
+        int minOccurs = descriptor.getMinOccurs();
+        XST xsdDeclaration = descriptor.getXsdDeclaration();
         if (isRepetitive() && minOccurs > 0 && parentBlock != null) {
             // Count occurence within the parent block
             if (xsdDeclaration != null) {
-                int occuranceCount = 0;
-                int currentTermIndex = parentBlock.getElements().indexOf(this);
-                // Count previous sibling
-                int i = currentTermIndex - 1;
-                while (i >= 0) {
-                    JrxTerm<?> jrxPreviousSiblingTerm = parentBlock.getElements().get(i);
-                    if (xsdDeclaration.equals(jrxPreviousSiblingTerm.getXsdDeclaration())) {
-                        occuranceCount++;
-                    } else {
-                        // Stop
-                        break;
-                    }
-                    i--;
-                }
+                int occuranceCount = parentBlock.countPrecedingTermsWithSameSchemaDefinition(this);
 
                 return (occuranceCount < minOccurs);
             }
@@ -80,6 +64,7 @@ public abstract class JrxTerm<XST extends XSTerm> implements Serializable {
     }
 
     public boolean isRepetitive() {
+        int maxOccurs = descriptor.getMaxOccurs();
         return maxOccurs > 1 || maxOccurs == -1;
     }
 
@@ -91,14 +76,104 @@ public abstract class JrxTerm<XST extends XSTerm> implements Serializable {
         // remove from old parent
         if (this.parentBlock != null && (parentBlock == null || !this.parentBlock.equals(parentBlock))) {
             this.parentBlock.getElements().remove(this);
+            this.parentBlock.markDirty();
+            this.parentBlock.structureChanged();
         }
 
         this.parentBlock = parentBlock;
 
         // add to new parent
-        if (parentBlock != null && (!parentBlock.getElements().contains(this))) {
+        if (parentBlock != null && (!parentBlock.containsTerm(this))) {
             parentBlock.getElements().add(this);
         }
+        markDirty();
+        structureChanged();
+    }
+
+    /**
+     * @return true when the term or any term below it has been modified since it was last validated
+     */
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * Mark the term and all its ancestors as modified. Changes made through the Jrx model are tracked, changes made
+     * directly on the XML elements have to be marked, e.g. by
+     * {@link org.jrtech.common.xsutils.JrxXmlModelUtil#markDirty}.
+     */
+    public void markDirty() {
+        JrxTerm<?> jrxTerm = this;
+        while (jrxTerm != null) {
+            jrxTerm.dirty = true;
+            jrxTerm = jrxTerm.getEnclosingTerm();
+        }
+    }
+
+    /**
+     * Count a modification of the structure on the document of the closest element, see
+     * {@link JrxDocument#getStructureModificationCount()}.
+     */
+    void structureChanged() {
+        JrxTerm<?> jrxTerm = this;
+        while (jrxTerm != null) {
+            if (jrxTerm instanceof JrxElement && ((JrxElement) jrxTerm).getOwnerDocument() != null) {
+                ((JrxElement) jrxTerm).getOwnerDocument().structureChanged();
+                return;
+            }
+            jrxTerm = jrxTerm.getEnclosingTerm();
+        }
+    }
+
+    /**
+     * Mark the term as validated. The ancestors and the terms below are not changed.
+     */
+    public void clearDirty() {
+        dirty = false;
+    }
+
+    /**
+     * @return the term containing this term, i.e. the parent block
+     */
+    protected JrxTerm<?> getEnclosingTerm() {
+        return parentBlock;
+    }
+
+    /**
+     * Copy the occurrence and schema information of the given term. The structure, i.e. parent block and origin, is
+     * not copied.
+     */
+    void copySchemaInfo(JrxTerm<XST> source) {
+        descriptor = source.descriptor;
+        scopedNameHashCode = source.scopedNameHashCode;
+        invalidateParentIndex();
+        structureChanged();
+    }
+
+    /**
+     * Set the descriptor, e.g. one shared with the terms of another document.
+     */
+    void attachDescriptor(JrxTermDescriptor<XST> descriptor) {
+        this.descriptor = descriptor;
+        invalidateParentIndex();
+        structureChanged();
+    }
+
+    /**
+     * The child index of the parent block is keyed by schema definition and name, it is dropped when either changes.
+     */
+    void invalidateParentIndex() {
+        if (parentBlock != null) {
+            parentBlock.invalidateChildIndex();
+        }
+    }
+
+    /**
+     * Set the parent block without updating the element list of the parent block.
+     */
+    void attachParentBlock(JrxElementGroup parentBlock) {
+        this.parentBlock = parentBlock;
+        structureChanged();
     }
 
     public JrxChoiceGroup getOrigin() {
@@ -109,62 +184,45 @@ public abstract class JrxTerm<XST extends XSTerm> implements Serializable {
         this.origin = origin;
     }
 
+    /**
+     * @return the schema derived data of the term
+     */
+    public JrxTermDescriptor<XST> getDescriptor() {
+        return descriptor;
+    }
+
     public int getMinOccurs() {
-        return minOccurs;
+        return descriptor.getMinOccurs();
     }
 
     public void setMinOccurs(BigInteger minOccurs) {
-        this.minOccurs = minOccurs != null ? minOccurs.intValue() : 1;
+        setMinOccurs(minOccurs != null ? minOccurs.intValue() : 1);
     }
     
     public void setMinOccurs(int minOccurs) {
-        this.minOccurs = minOccurs;
+        descriptor = descriptor.withOccurs(minOccurs, descriptor.getMaxOccurs());
     }
 
     public int getMaxOccurs() {
-        return maxOccurs;
+        return descriptor.getMaxOccurs();
     }
 
     public void setMaxOccurs(BigInteger maxOccurs) {
-        this.maxOccurs = maxOccurs != null ? maxOccurs.intValue() : 1;
+        setMaxOccurs(maxOccurs != null ? maxOccurs.intValue() : 1);
     }
     
     public void setMaxOccurs(int maxOccurs) {
-        this.maxOccurs = maxOccurs;
+        descriptor = descriptor.withOccurs(descriptor.getMinOccurs(), maxOccurs);
     }
 
     public XST getXsdDeclaration() {
-        return xsdDeclaration;
+        return descriptor.getXsdDeclaration();
     }
 
     public void setXsdDeclaration(XST xsdDeclaration) {
-        this.xsdDeclaration = xsdDeclaration;
-
-        if (xsdDeclaration != null && (schemaAppInfoElement == null)) {
-            XSAnnotation xsAnnotation = xsdDeclaration.getAnnotation();
-
-            if (xsAnnotation == null && xsdDeclaration.isElementDecl()) {
-                // Element Declaration does not have annotation -> use
-                // annotation from type
-                XSElementDecl xsElementDecl = xsdDeclaration.asElementDecl();
-                XSType xsType = xsElementDecl.getType();
-                xsAnnotation = xsType.getAnnotation();
-            }
-
-            if (xsAnnotation != null) {
-                Object annoObject = xsAnnotation.getAnnotation();
-                if (annoObject != null && annoObject instanceof Element) {
-                    Element xmlAnnotationElement = (Element) annoObject;
-                    schemaAppInfoElement = XmlUtils.getChildByTagName(xmlAnnotationElement, ANNOTATION_APPINFO);
-                    Element xmlSchemaDocumentationElement = XmlUtils.getChildByTagName(xmlAnnotationElement,
-                            ANNOTATION_DOCUMENTATION);
-                    if (xmlSchemaDocumentationElement != null) {
-                        schemaDocumentation = xmlSchemaDocumentationElement.getTextContent();
-                    }
-                }
-            }
-
-        }
+        descriptor = descriptor.withXsdDeclaration(xsdDeclaration);
+        invalidateParentIndex();
+        structureChanged();
     }
 
     @Override
@@ -174,8 +232,8 @@ public abstract class JrxTerm<XST extends XSTerm> implements Serializable {
 
         totalHashCode = prime * totalHashCode + ((parentBlock == null) ? 0 : parentBlock.hashCode());
         totalHashCode = prime * totalHashCode + ((origin == null) ? 0 : origin.hashCode());
-        totalHashCode = prime * totalHashCode + minOccurs;
-        totalHashCode = prime * totalHashCode + maxOccurs;
+        totalHashCode = prime * totalHashCode + descriptor.getMinOccurs();
+        totalHashCode = prime * totalHashCode + descriptor.getMaxOccurs();
 
         return totalHashCode;
     }
@@ -195,14 +253,17 @@ public abstract class JrxTerm<XST extends XSTerm> implements Serializable {
         } else if (!(parentBlock instanceof JrxChoiceGroup) && !parentBlock.equals(other.parentBlock)) {
             return false;
         }
-        if (minOccurs != other.minOccurs)
+        if (descriptor == other.descriptor)
+            return true;
+        if (descriptor.getMinOccurs() != other.descriptor.getMinOccurs())
             return false;
-        if (maxOccurs != other.maxOccurs)
+        if (descriptor.getMaxOccurs() != other.descriptor.getMaxOccurs())
             return false;
+        XST xsdDeclaration = descriptor.getXsdDeclaration();
         if (xsdDeclaration == null) {
-            if (other.xsdDeclaration != null)
+            if (other.descriptor.getXsdDeclaration() != null)
                 return false;
-        } else if (!xsdDeclaration.equals(other.xsdDeclaration)) {
+        } else if (!xsdDeclaration.equals(other.descriptor.getXsdDeclaration())) {
             return false;
         }
 
@@ -213,26 +274,26 @@ public abstract class JrxTerm<XST extends XSTerm> implements Serializable {
     public String toString() {
         StringBuffer sb = new StringBuffer();
 
-        sb.append(" ").append(minOccurs);
-        sb.append("..").append(maxOccurs);
+        sb.append(" ").append(descriptor.getMinOccurs());
+        sb.append("..").append(descriptor.getMaxOccurs());
 
         return sb.toString();
     }
 
     public Element getSchemaAppInfoElement() {
-        return schemaAppInfoElement;
+        return descriptor.getSchemaAppInfoElement();
     }
 
     public void setSchemaAppInfoElement(Element schemaAppInfoElement) {
-        this.schemaAppInfoElement = schemaAppInfoElement;
+        descriptor = descriptor.withSchemaAppInfoElement(schemaAppInfoElement);
     }
 
     public String getSchemaDocumentation() {
-        return schemaDocumentation;
+        return descriptor.getSchemaDocumentation();
     }
 
     public void setSchemaDocumentation(String schemaDocumentation) {
-        this.schemaDocumentation = schemaDocumentation;
+        descriptor = descriptor.withSchemaDocumentation(schemaDocumentation);
     }
 
     protected int getIndexInSchema() {
@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2016-2026 Jumin Rubin
+ * LinkedIn: https://www.linkedin.com/in/juminrubin/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jrtech.common.xsutils.model;
+
+import java.io.Serializable;
+
+import org.jrtech.common.xmlutils.XmlUtils;
+import org.w3c.dom.Element;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.sun.xml.xsom.XSAnnotation;
+import com.sun.xml.xsom.XSElementDecl;
+import com.sun.xml.xsom.XSTerm;
+import com.sun.xml.xsom.XSType;
+
+/**
+ * The class <code>JrxTermDescriptor</code> holds the schema derived data of a {@link JrxTerm}: the declaration, the
+ * occurrence bounds and the annotation of the declaration.
+ * <p>
+ * Descriptors are immutable and interned, hence all terms created for the same declaration with the same occurrence
+ * bounds share a single instance. The annotation is read from the declaration on first access and then kept for all
+ * the terms sharing the descriptor. A term whose documentation or application information is set explicitly gets a
+ * descriptor of its own carrying the given values.
+ *
+ * @param <XST>
+ */
+public final class JrxTermDescriptor<XST extends XSTerm> implements Serializable {
+
+    private static final long serialVersionUID = -2318720853611237472L;
+
+    private static final Interner<JrxTermDescriptor<?>> INTERNER = Interners.newWeakInterner();
+
+    private final XST xsdDeclaration;
+    private final int minOccurs;
+    private final int maxOccurs;
+
+    // Explicitly given annotation, not shared with the terms of the declaration
+    private final boolean annotationOverridden;
+
+    private volatile boolean annotationResolved;
+    private String schemaDocumentation;
+    private Element schemaAppInfoElement;
+
+    private JrxTermDescriptor(XST xsdDeclaration, int minOccurs, int maxOccurs) {
+        this.xsdDeclaration = xsdDeclaration;
+        this.minOccurs = minOccurs;
+        this.maxOccurs = maxOccurs;
+        this.annotationOverridden = false;
+        this.annotationResolved = xsdDeclaration == null;
+    }
+
+    private JrxTermDescriptor(XST xsdDeclaration, int minOccurs, int maxOccurs, String schemaDocumentation,
+            Element schemaAppInfoElement) {
+        this.xsdDeclaration = xsdDeclaration;
+        this.minOccurs = minOccurs;
+        this.maxOccurs = maxOccurs;
+        this.annotationOverridden = true;
+        this.annotationResolved = true;
+        this.schemaDocumentation = schemaDocumentation;
+        this.schemaAppInfoElement = schemaAppInfoElement;
+    }
+
+    /**
+     * Get the shared descriptor of the given declaration and occurrence bounds.
+     *
+     * @param xsdDeclaration
+     *            declaration, may be null for terms without schema
+     * @param minOccurs
+     * @param maxOccurs
+     *            maximum occurrences, -1 for unbounded
+     * @return the descriptor
+     */
+    @SuppressWarnings("unchecked")
+    public static <XST extends XSTerm> JrxTermDescriptor<XST> getInstance(XST xsdDeclaration, int minOccurs,
+            int maxOccurs) {
+        return (JrxTermDescriptor<XST>) INTERNER.intern(new JrxTermDescriptor<XST>(xsdDeclaration, minOccurs,
+                maxOccurs));
+    }
+
+    public XST getXsdDeclaration() {
+        return xsdDeclaration;
+    }
+
+    public int getMinOccurs() {
+        return minOccurs;
+    }
+
+    public int getMaxOccurs() {
+        return maxOccurs;
+    }
+
+    public String getSchemaDocumentation() {
+        resolveAnnotation();
+        return schemaDocumentation;
+    }
+
+    public Element getSchemaAppInfoElement() {
+        resolveAnnotation();
+        return schemaAppInfoElement;
+    }
+
+    /**
+     * @return true when the annotation has been set explicitly instead of being read from the declaration
+     */
+    public boolean isAnnotationOverridden() {
+        return annotationOverridden;
+    }
+
+    /**
+     * @return the descriptor of the given occurrence bounds, keeping the declaration and an explicitly set annotation
+     */
+    public JrxTermDescriptor<XST> withOccurs(int minOccurs, int maxOccurs) {
+        if (minOccurs == this.minOccurs && maxOccurs == this.maxOccurs)
+            return this;
+
+        if (annotationOverridden)
+            return new JrxTermDescriptor<XST>(xsdDeclaration, minOccurs, maxOccurs, schemaDocumentation,
+                    schemaAppInfoElement);
+
+        return getInstance(xsdDeclaration, minOccurs, maxOccurs);
+    }
+
+    /**
+     * @return the descriptor of the given declaration, keeping the occurrence bounds and an explicitly set annotation
+     */
+    public <T extends XSTerm> JrxTermDescriptor<T> withXsdDeclaration(T xsdDeclaration) {
+        if (annotationOverridden)
+            return new JrxTermDescriptor<T>(xsdDeclaration, minOccurs, maxOccurs, schemaDocumentation,
+                    schemaAppInfoElement);
+
+        return getInstance(xsdDeclaration, minOccurs, maxOccurs);
+    }
+
+    /**
+     * @return a descriptor of its own carrying the given documentation
+     */
+    public JrxTermDescriptor<XST> withSchemaDocumentation(String schemaDocumentation) {
+        return new JrxTermDescriptor<XST>(xsdDeclaration, minOccurs, maxOccurs, schemaDocumentation,
+                getSchemaAppInfoElement());
+    }
+
+    /**
+     * @return a descriptor of its own carrying the given application information
+     */
+    public JrxTermDescriptor<XST> withSchemaAppInfoElement(Element schemaAppInfoElement) {
+        return new JrxTermDescriptor<XST>(xsdDeclaration, minOccurs, maxOccurs, getSchemaDocumentation(),
+                schemaAppInfoElement);
+    }
+
+    private void resolveAnnotation() {
+        if (annotationResolved)
+            return;
+
+        synchronized (this) {
+            if (annotationResolved)
+                return;
+
+            XSAnnotation xsAnnotation = xsdDeclaration.getAnnotation();
+
+            if (xsAnnotation == null && xsdDeclaration.isElementDecl()) {
+                // Element Declaration does not have annotation -> use
+                // annotation from type
+                XSElementDecl xsElementDecl = xsdDeclaration.asElementDecl();
+                XSType xsType = xsElementDecl.getType();
+                xsAnnotation = xsType.getAnnotation();
+            }
+
+            if (xsAnnotation != null) {
+                Object annoObject = xsAnnotation.getAnnotation();
+                if (annoObject != null && annoObject instanceof Element) {
+                    Element xmlAnnotationElement = (Element) annoObject;
+                    schemaAppInfoElement = XmlUtils.getChildByTagName(xmlAnnotationElement,
+                            JrxTerm.ANNOTATION_APPINFO);
+                    Element xmlSchemaDocumentationElement = XmlUtils.getChildByTagName(xmlAnnotationElement,
+                            JrxTerm.ANNOTATION_DOCUMENTATION);
+                    if (xmlSchemaDocumentationElement != null) {
+                        schemaDocumentation = xmlSchemaDocumentationElement.getTextContent();
+                    }
+                }
+            }
+
+            annotationResolved = true;
+        }
+    }
+
+    /**
+     * Shared descriptors are equal when they describe the same declaration instance with the same bounds. A
+     * descriptor with an explicitly set annotation is only equal to itself.
+     */
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int totalHashCode = 1;
+
+        totalHashCode = prime * totalHashCode + System.identityHashCode(xsdDeclaration);
+        totalHashCode = prime * totalHashCode + minOccurs;
+        totalHashCode = prime * totalHashCode + maxOccurs;
+
+        return totalHashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+
+        if (!(obj instanceof JrxTermDescriptor))
+            return false;
+
+        final JrxTermDescriptor<?> other = (JrxTermDescriptor<?>) obj;
+        if (annotationOverridden || other.annotationOverridden)
+            return false;
+
+        return xsdDeclaration == other.xsdDeclaration && minOccurs == other.minOccurs
+                && maxOccurs == other.maxOccurs;
+    }
+
+    @Override
+    public String toString() {
+        StringBuffer sb = new StringBuffer();
+
+        sb.append(xsdDeclaration).append(" ");
+        sb.append(minOccurs).append("..").append(maxOccurs);
+
+        return sb.toString();
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2016-2026 Jumin Rubin
+ * LinkedIn: https://www.linkedin.com/in/juminrubin/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jrtech.common.xsutils.model;
+
+import java.util.ArrayList;
+
+/**
+ * The element list of a {@link JrxElementGroup}. It counts its modifications, so that the child index of the group
+ * can tell whether it is still up to date, or only has to be extended by the terms appended since. Structural
+ * modifications are counted by {@link ArrayList} itself, replacements through {@link #set(int, JrxTerm)} are counted
+ * in addition. Replacements through a sub list are not counted.
+ */
+class JrxTermList extends ArrayList<JrxTerm<?>> {
+
+    private static final long serialVersionUID = -4410953329410384121L;
+
+    private int replaceCount;
+
+    private int appendCount;
+
+    JrxTermList() {
+        super();
+    }
+
+    @Override
+    public boolean add(JrxTerm<?> element) {
+        appendCount++;
+
+        return super.add(element);
+    }
+
+    @Override
+    public JrxTerm<?> set(int index, JrxTerm<?> element) {
+        replaceCount++;
+
+        return super.set(index, element);
+    }
+
+    /**
+     * @return a number changing with every modification of the list except appending a term at the end
+     */
+    int getModificationCount() {
+        return modCount + replaceCount - appendCount;
+    }
+}
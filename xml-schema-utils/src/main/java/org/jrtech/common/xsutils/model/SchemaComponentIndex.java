@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2016-2026 Jumin Rubin
+ * LinkedIn: https://www.linkedin.com/in/juminrubin/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jrtech.common.xsutils.model;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.sun.xml.xsom.XSAttGroupDecl;
+import com.sun.xml.xsom.XSAttributeDecl;
+import com.sun.xml.xsom.XSAttributeUse;
+import com.sun.xml.xsom.XSComplexType;
+import com.sun.xml.xsom.XSComponent;
+import com.sun.xml.xsom.XSContentType;
+import com.sun.xml.xsom.XSElementDecl;
+import com.sun.xml.xsom.XSModelGroup;
+import com.sun.xml.xsom.XSModelGroupDecl;
+import com.sun.xml.xsom.XSParticle;
+import com.sun.xml.xsom.XSSchema;
+import com.sun.xml.xsom.XSTerm;
+import com.sun.xml.xsom.XSType;
+
+/**
+ * The class <code>SchemaComponentIndex</code> numbers the declarations of a schema referenced by the Jrx model: the
+ * element, attribute and model group declarations, the model groups and the wildcards.
+ * <p>
+ * The components are numbered in the order of a depth-first walk starting at the global components sorted by name,
+ * hence the same schema parsed twice gives the same numbers. The fingerprint is computed from the kind and the name of
+ * the components in that order and tells whether two parses are of the same schema.
+ *
+ */
+final class SchemaComponentIndex {
+
+    private static final int KIND_ELEMENT = 1;
+    private static final int KIND_ATTRIBUTE = 2;
+    private static final int KIND_MODEL_GROUP = 3;
+    private static final int KIND_MODEL_GROUP_DECL = 4;
+    private static final int KIND_WILDCARD = 5;
+
+    // Soft values, as the indexes refer to their key
+    private static final LoadingCache<XSSchema, SchemaComponentIndex> INDEX_CACHE = CacheBuilder.newBuilder()
+            .weakKeys().softValues().build(new CacheLoader<XSSchema, SchemaComponentIndex>() {
+                @Override
+                public SchemaComponentIndex load(XSSchema xsSchema) {
+                    return new SchemaComponentIndex(xsSchema);
+                }
+            });
+
+    private final XSSchema xsSchema;
+
+    private final List<XSComponent> components = new ArrayList<XSComponent>();
+
+    private final Map<XSComponent, Integer> componentIndexMap = new IdentityHashMap<XSComponent, Integer>();
+
+    private int fingerprint = 1;
+
+    static SchemaComponentIndex getInstance(XSSchema xsSchema) {
+        return INDEX_CACHE.getUnchecked(xsSchema);
+    }
+
+    private SchemaComponentIndex(XSSchema xsSchema) {
+        this.xsSchema = xsSchema;
+
+        for (XSElementDecl xsElementDecl : sortByName(xsSchema.getElementDecls()).values()) {
+            addElementDecl(xsElementDecl);
+        }
+        for (XSModelGroupDecl xsModelGroupDecl : sortByName(xsSchema.getModelGroupDecls()).values()) {
+            addTerm(xsModelGroupDecl);
+        }
+        for (XSComplexType xsComplexType : sortByName(xsSchema.getComplexTypes()).values()) {
+            addComplexType(xsComplexType);
+        }
+        for (XSAttributeDecl xsAttributeDecl : sortByName(xsSchema.getAttributeDecls()).values()) {
+            add(xsAttributeDecl, KIND_ATTRIBUTE, xsAttributeDecl.getName());
+        }
+        for (XSAttGroupDecl xsAttGroupDecl : sortByName(xsSchema.getAttGroupDecls()).values()) {
+            for (XSAttributeUse xsAttributeUse : xsAttGroupDecl.getDeclaredAttributeUses()) {
+                add(xsAttributeUse.getDecl(), KIND_ATTRIBUTE, xsAttributeUse.getDecl().getName());
+            }
+        }
+    }
+
+    XSSchema getSchema() {
+        return xsSchema;
+    }
+
+    int size() {
+        return components.size();
+    }
+
+    int getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * @return index of the given component, -1 when it does not belong to the schema
+     */
+    int indexOf(XSComponent xsComponent) {
+        Integer index = componentIndexMap.get(xsComponent);
+
+        return index == null ? -1 : index;
+    }
+
+    XSComponent get(int index) {
+        return components.get(index);
+    }
+
+    private void addElementDecl(XSElementDecl xsElementDecl) {
+        if (!add(xsElementDecl, KIND_ELEMENT, xsElementDecl.getName()))
+            return;
+
+        XSType xsType = xsElementDecl.getType();
+        if (xsType.isLocal() && xsType.isComplexType()) {
+            addComplexType(xsType.asComplexType());
+        }
+    }
+
+    private void addComplexType(XSComplexType xsComplexType) {
+        addContentType(xsComplexType.getContentType());
+        addContentType(xsComplexType.getExplicitContent());
+
+        for (XSAttributeUse xsAttributeUse : xsComplexType.getDeclaredAttributeUses()) {
+            add(xsAttributeUse.getDecl(), KIND_ATTRIBUTE, xsAttributeUse.getDecl().getName());
+        }
+    }
+
+    private void addContentType(XSContentType xsContentType) {
+        if (xsContentType == null)
+            return;
+
+        XSParticle xsParticle = xsContentType.asParticle();
+        if (xsParticle != null) {
+            addTerm(xsParticle.getTerm());
+        }
+    }
+
+    private void addTerm(XSTerm xsTerm) {
+        if (xsTerm.isElementDecl()) {
+            addElementDecl(xsTerm.asElementDecl());
+        } else if (xsTerm.isModelGroupDecl()) {
+            XSModelGroupDecl xsModelGroupDecl = xsTerm.asModelGroupDecl();
+            if (add(xsModelGroupDecl, KIND_MODEL_GROUP_DECL, xsModelGroupDecl.getName())) {
+                addTerm(xsModelGroupDecl.getModelGroup());
+            }
+        } else if (xsTerm.isModelGroup()) {
+            XSModelGroup xsModelGroup = xsTerm.asModelGroup();
+            if (add(xsModelGroup, KIND_MODEL_GROUP, xsModelGroup.getCompositor().name())) {
+                for (XSParticle xsChildParticle : xsModelGroup.getChildren()) {
+                    addTerm(xsChildParticle.getTerm());
+                }
+            }
+        } else {
+            add(xsTerm, KIND_WILDCARD, null);
+        }
+    }
+
+    /**
+     * @return true when the component belongs to the schema and has not been added before
+     */
+    private boolean add(XSComponent xsComponent, int kind, String name) {
+        if (xsComponent.getOwnerSchema() != xsSchema || componentIndexMap.containsKey(xsComponent))
+            return false;
+
+        componentIndexMap.put(xsComponent, components.size());
+        components.add(xsComponent);
+
+        final int prime = 31;
+        fingerprint = prime * fingerprint + kind;
+        fingerprint = prime * fingerprint + ((name == null) ? 0 : name.hashCode());
+
+        return true;
+    }
+
+    private static <T> Map<String, T> sortByName(Map<String, T> componentMap) {
+        return new TreeMap<String, T>(componentMap);
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2016-2026 Jumin Rubin
+ * LinkedIn: https://www.linkedin.com/in/juminrubin/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jrtech.common.xsutils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jrtech.common.xmlutils.XmlUtils;
+import org.jrtech.common.xsutils.model.JrxDocument;
+import org.jrtech.common.xsutils.model.JrxElement;
+import org.jrtech.common.xsutils.model.JrxElementGroup;
+import org.jrtech.common.xsutils.model.JrxTerm;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestChildIndex {
+
+	private static final String AAACHOICE_SCHEMA = "schema/aaachoice.001.001.01.xsd";
+
+	@Test(timeout = 60000)
+	public void manyRepetitionsAreValidated() throws Exception {
+		JrxXmlModelUtil util = JrxXmlModelUtil.newInstance();
+		util.addSchema(getClass().getClassLoader().getResource(AAACHOICE_SCHEMA));
+
+		int validErrorCount = util.validateDocument(openDocument(util, 3, 0)).size();
+
+		// Every third of 50000 repetitions is invalid
+		JrxDocument jrxDoc = openDocument(util, 50000, 3);
+		JrxElement jrxChoiceTestDocument = JrxXmlModelUtil.getChildElement(jrxDoc.getRootElement(),
+				"ChoiceTestDocument");
+		JrxElement jrxOwnrId = JrxXmlModelUtil.getChildElement(jrxChoiceTestDocument, "OwnrId");
+		Assert.assertEquals(50000, JrxXmlModelUtil.countTermWithSameSchemaDefinition(jrxOwnrId.getParentBlock(),
+				jrxOwnrId.getXsdDeclaration()));
+		Assert.assertEquals(50000, JrxXmlModelUtil.countTermWithSameName(jrxOwnrId.getParentBlock(), "OwnrId"));
+		Assert.assertEquals("AcctNm", JrxXmlModelUtil.getChildElement(jrxChoiceTestDocument, "AcctNm").getName());
+
+		Assert.assertEquals(validErrorCount + 16667, util.validateDocument(jrxDoc).size());
+	}
+
+	@Test
+	public void indexFollowsModifications() throws Exception {
+		JrxXmlModelUtil util = JrxXmlModelUtil.newInstance();
+		util.addSchema(getClass().getClassLoader().getResource(AAACHOICE_SCHEMA));
+
+		JrxDocument jrxDoc = openDocument(util, 20, 0);
+		JrxElement jrxChoiceTestDocument = JrxXmlModelUtil.getChildElement(jrxDoc.getRootElement(),
+				"ChoiceTestDocument");
+		JrxElementGroup jrxGroup = JrxXmlModelUtil.getChildElement(jrxChoiceTestDocument, "OwnrId").getParentBlock();
+		List<JrxTerm<?>> jrxTerms = jrxGroup.getElements();
+		assertIndexMatchesScan(jrxGroup);
+
+		JrxElement jrxFirstOwnrId = JrxXmlModelUtil.getChildElement(jrxChoiceTestDocument, "OwnrId");
+		for (JrxTerm<?> jrxOwnrId : jrxGroup.getTermsWithSameSchemaDefinition(jrxFirstOwnrId.getXsdDeclaration())) {
+			jrxOwnrId.setMinOccurs(1);
+		}
+		int firstIndex = jrxTerms.indexOf(jrxFirstOwnrId);
+		Assert.assertTrue(jrxFirstOwnrId.isMandatory());
+		Assert.assertFalse(((JrxElement) jrxTerms.get(firstIndex + 1)).isMandatory());
+
+		// Replace the first repetition by the name element
+		JrxElement jrxAcctNm = JrxXmlModelUtil.getChildElement(jrxChoiceTestDocument, "AcctNm");
+		jrxTerms.set(firstIndex, jrxAcctNm);
+		assertIndexMatchesScan(jrxGroup);
+		Assert.assertEquals(2, jrxGroup.countTermsWithSameName("AcctNm"));
+		Assert.assertTrue(((JrxElement) jrxTerms.get(firstIndex + 1)).isMandatory());
+
+		jrxTerms.remove(firstIndex);
+		jrxTerms.add(jrxFirstOwnrId);
+		assertIndexMatchesScan(jrxGroup);
+		Assert.assertSame(jrxTerms.get(firstIndex), JrxXmlModelUtil.getChildElement(jrxChoiceTestDocument,
+				"OwnrId"));
+
+		// Changed schema definition of a child
+		jrxFirstOwnrId.setXsdDeclaration(jrxAcctNm.getXsdDeclaration());
+		assertIndexMatchesScan(jrxGroup);
+
+		// Renamed child
+		jrxAcctNm.setName("Renamed");
+		Assert.assertNull(JrxXmlModelUtil.getChildElement(jrxChoiceTestDocument, "AcctNm"));
+		Assert.assertSame(jrxAcctNm, JrxXmlModelUtil.getChildElement(jrxChoiceTestDocument, "Renamed"));
+	}
+
+	private static void assertIndexMatchesScan(JrxElementGroup jrxGroup) {
+		for (JrxTerm<?> jrxTerm : jrxGroup.getElements()) {
+			List<JrxTerm<?>> jrxScannedTerms = new ArrayList<JrxTerm<?>>();
+			for (JrxTerm<?> jrxOtherTerm : jrxGroup.getElements()) {
+				if (jrxTerm.getXsdDeclaration() != null && jrxTerm.getXsdDeclaration().equals(jrxOtherTerm
+						.getXsdDeclaration())) {
+					jrxScannedTerms.add(jrxOtherTerm);
+				}
+			}
+			if (jrxTerm.getXsdDeclaration() != null) {
+				Assert.assertEquals(jrxScannedTerms, jrxGroup.getTermsWithSameSchemaDefinition(jrxTerm
+						.getXsdDeclaration()));
+			}
+		}
+	}
+
+	private JrxDocument openDocument(JrxXmlModelUtil util, int repetitions, int invalidEvery) throws Exception {
+		StringBuilder sb = new StringBuilder();
+		sb.append("<Document xmlns=\"urn:test:xsd:aaachoice.001.001.01\"><ChoiceTestDocument>");
+		sb.append("<AcctId><Prtry><Id>jruac001</Id></Prtry></AcctId><AcctNm>Name</AcctNm>");
+		for (int i = 0; i < repetitions; i++) {
+			sb.append("<OwnrId><BICOrBEI>").append(invalidEvery > 0 && i % invalidEvery == 0 ? "invalid" : "DEUTDEFF")
+					.append("</BICOrBEI></OwnrId>");
+		}
+		sb.append("<Order><SubAcctForHldg><Id><Prtry><Id>myac001</Id></Prtry></Id></SubAcctForHldg></Order>");
+		sb.append("</ChoiceTestDocument></Document>");
+
+		return util.enrichJrxDocument(util.convertXmlToJrxModel(XmlUtils.createDocumentNS(sb.toString())));
+	}
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2016-2026 Jumin Rubin
+ * LinkedIn: https://www.linkedin.com/in/juminrubin/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jrtech.common.xsutils;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.jrtech.common.xmlutils.XmlUtils;
+import org.jrtech.common.xsutils.model.JrxDocument;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.sun.xml.xsom.XSModelGroup;
+
+public class TestCompiledSchemaSet {
+
+	private static final String AAACHOICE_SCHEMA = "schema/aaachoice.001.001.01.xsd";
+
+	private static final String SWINT_SCHEMA = "schema/SwInt.xsd";
+
+	private static final String AAACHOICE_NAMESPACE = "urn:test:xsd:aaachoice.001.001.01";
+
+	@Test
+	public void sessionsProcessConcurrently() throws Exception {
+		CompiledSchemaSet compiledSchemaSet = CompiledSchemaSet.compile(getClass().getClassLoader().getResource(
+				AAACHOICE_SCHEMA));
+
+		List<String> expectedResults = new ArrayList<String>();
+		JrxXmlModelUtil util = JrxXmlModelUtil.newInstance();
+		util.addSchema(getClass().getClassLoader().getResource(AAACHOICE_SCHEMA));
+		for (int i = 0; i < 10; i++) {
+			expectedResults.add(process(util, i));
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Callable<List<String>>> tasks = new ArrayList<Callable<List<String>>>();
+			for (int t = 0; t < 4; t++) {
+				tasks.add(() -> {
+					List<String> results = new ArrayList<String>();
+					for (int i = 0; i < 10; i++) {
+						// One session per document
+						results.add(process(compiledSchemaSet.newSession(), i));
+					}
+					return results;
+				});
+			}
+			for (Future<List<String>> future : executor.invokeAll(tasks)) {
+				Assert.assertEquals(expectedResults, future.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void compiledSchemaSetIsNotModified() throws Exception {
+		CompiledSchemaSet compiledSchemaSet = CompiledSchemaSet.compile(getClass().getClassLoader().getResource(
+				AAACHOICE_SCHEMA));
+		Assert.assertTrue(compiledSchemaSet.getNamespaceUris().contains(AAACHOICE_NAMESPACE));
+
+		JrxXmlModelUtil session = compiledSchemaSet.newSession();
+		Assert.assertSame(compiledSchemaSet, session.getCompiledSchemaSet());
+		Assert.assertSame(compiledSchemaSet.getSchema(AAACHOICE_NAMESPACE), session.getSchema(AAACHOICE_NAMESPACE));
+
+		// Schemas added to the session stay in the session
+		session.addSchema(getClass().getClassLoader().getResource(SWINT_SCHEMA));
+		Assert.assertNotNull(session.getSchema("urn:swift:snl:ns.SwInt"));
+		Assert.assertFalse(compiledSchemaSet.hasSchema("urn:swift:snl:ns.SwInt"));
+		Assert.assertNull(compiledSchemaSet.newSession().getSchema("urn:swift:snl:ns.SwInt"));
+
+		// Schemas of a compiled namespace are not replaced
+		session.addSchema(getClass().getClassLoader().getResource(AAACHOICE_SCHEMA));
+		Assert.assertSame(compiledSchemaSet.getSchema(AAACHOICE_NAMESPACE), session.getSchema(AAACHOICE_NAMESPACE));
+
+		CompiledSchemaSet extendedSchemaSet = session.compileSchemaSet();
+		Assert.assertNotSame(compiledSchemaSet, extendedSchemaSet);
+		Assert.assertTrue(extendedSchemaSet.hasSchema("urn:swift:snl:ns.SwInt"));
+		Assert.assertSame(compiledSchemaSet.getSchema(AAACHOICE_NAMESPACE), extendedSchemaSet.getSchema(
+				AAACHOICE_NAMESPACE));
+		Assert.assertSame(extendedSchemaSet, extendedSchemaSet.withSchemas(Collections.singletonList(
+				compiledSchemaSet.getSchema(AAACHOICE_NAMESPACE))));
+
+		try {
+			compiledSchemaSet.getNamespaceUris().clear();
+			Assert.fail("Namespaces of a compiled schema set modified");
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void registrySchemasAreCompiled() throws Exception {
+		SchemaRegistry registry = SchemaRegistry.newInstance();
+		registry.loadSchemas(getClass().getClassLoader().getResource(AAACHOICE_SCHEMA));
+
+		CompiledSchemaSet compiledSchemaSet = CompiledSchemaSet.compile(registry);
+		Assert.assertSame(registry.getSchema(AAACHOICE_NAMESPACE), compiledSchemaSet.getSchema(AAACHOICE_NAMESPACE));
+		Assert.assertEquals(process(CacheableJrxXmlModelUtil.newInstance(registry), 3), process(compiledSchemaSet
+				.newSession(), 3));
+	}
+
+	@Test
+	public void compiledIndexesAreKeptUnderMemoryPressure() throws Exception {
+		CompiledSchemaSet compiledSchemaSet = CompiledSchemaSet.compile(getClass().getClassLoader().getResource(
+				AAACHOICE_SCHEMA));
+		XSModelGroup xsModelGroup = compiledSchemaSet.getSchema(AAACHOICE_NAMESPACE).getElementDecl("Document")
+				.getType().asComplexType().getContentType().asParticle().getTerm().asModelGroup();
+		WeakReference<ContentModelIndex> indexReference = new WeakReference<ContentModelIndex>(ContentModelIndex
+				.getInstance(xsModelGroup));
+
+		// Clear the soft references
+		List<byte[]> allocationList = new ArrayList<byte[]>();
+		try {
+			while (true) {
+				allocationList.add(new byte[1 << 24]);
+			}
+		} catch (OutOfMemoryError e) {
+			allocationList.clear();
+		}
+		System.gc();
+
+		Assert.assertNotNull(indexReference.get());
+		Assert.assertSame(indexReference.get(), ContentModelIndex.getInstance(xsModelGroup));
+		Assert.assertTrue(compiledSchemaSet.hasSchema(AAACHOICE_NAMESPACE));
+	}
+
+	private static String process(JrxXmlModelUtil util, int invalidCount) throws Exception {
+		util.setToStringWithValue(true);
+		StringBuilder sb = new StringBuilder();
+		sb.append("<Document xmlns=\"" + AAACHOICE_NAMESPACE + "\"><ChoiceTestDocument>");
+		sb.append("<AcctId><Prtry><Id>jruac001</Id></Prtry></AcctId><AcctNm>Name</AcctNm>");
+		for (int i = 0; i < 5 + invalidCount; i++) {
+			sb.append("<OwnrId><BICOrBEI>").append(i < invalidCount ? "invalid" + i : "DEUTDEFF").append(
+					"</BICOrBEI></OwnrId>");
+		}
+		sb.append("<Order><SubAcctForHldg><Id><Prtry><Id>myac001</Id></Prtry></Id></SubAcctForHldg></Order>");
+		sb.append("</ChoiceTestDocument></Document>");
+
+		JrxDocument jrxDoc = util.enrichJrxDocument(util.convertXmlToJrxModel(XmlUtils.createDocumentNS(sb
+				.toString())));
+
+		return util.convertDocumentToString(jrxDoc) + util.validateDocument(jrxDoc);
+	}
+}
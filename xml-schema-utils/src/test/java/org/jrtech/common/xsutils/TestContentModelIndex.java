@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2016-2026 Jumin Rubin
+ * LinkedIn: https://www.linkedin.com/in/juminrubin/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jrtech.common.xsutils;
+
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.sun.xml.xsom.XSComplexType;
+import com.sun.xml.xsom.XSModelGroup;
+import com.sun.xml.xsom.XSParticle;
+import com.sun.xml.xsom.XSSchema;
+import com.sun.xml.xsom.XSSchemaSet;
+
+public class TestContentModelIndex {
+
+	private static final String AAACHOICE_NAMESPACE = "urn:test:xsd:aaachoice.001.001.01";
+
+	@Test
+	public void indexMatchesModelGroupSearch() throws Exception {
+		XSSchema xsSchema = loadSchema();
+		XSModelGroup xsModelGroup = getContentModelGroup(xsSchema, "MyRedemptionOrder");
+
+		ContentModelIndex index = ContentModelIndex.getInstance(xsModelGroup);
+		Assert.assertSame(index, ContentModelIndex.getInstance(xsModelGroup));
+
+		ContentModelIndex.Entry entry = index.getEntry("GrssAmt");
+		Assert.assertNotNull(entry);
+		Assert.assertFalse(entry.isDirect());
+		Assert.assertTrue(entry.isChoiceMember());
+		Assert.assertEquals(2, entry.getParticlePath().length);
+		Assert.assertNull(index.getDirectParticle("GrssAmt"));
+
+		entry = index.getEntry("ChrgDtls");
+		Assert.assertTrue(entry.isDirect());
+		Assert.assertFalse(entry.isChoiceMember());
+		Assert.assertEquals(0, entry.getMinOccurs());
+		Assert.assertEquals(XSParticle.UNBOUNDED, entry.getMaxOccurs());
+		Assert.assertSame(entry.getParticle(), index.getDirectParticle("ChrgDtls"));
+		Assert.assertTrue(index.containsElement(entry.getElementDeclaration()));
+
+		Assert.assertNull(index.getEntry("Unknown"));
+		Assert.assertEquals(0, index.getParticlePath("Unknown").length);
+	}
+
+	@Test
+	public void particlePathIsUnchanged() throws Exception {
+		XSSchema xsSchema = loadSchema();
+		XSModelGroup xsModelGroup = getContentModelGroup(xsSchema, "Charge17");
+
+		for (String elementName : new String[] { "Tp", "XtndedTp", "ChrgBsis", "Amt", "Rate", "RcptId" }) {
+			XSParticle[] xsParticlePath = JrxXmlModelUtil.getXsParticlePathFromParentBlockByElementName(xsModelGroup,
+					elementName);
+			Assert.assertTrue(xsParticlePath.length > 0);
+			XSParticle xsLastParticle = xsParticlePath[xsParticlePath.length - 1];
+			Assert.assertEquals(elementName, xsLastParticle.getTerm().asElementDecl().getName());
+			for (int i = 0; i < xsParticlePath.length - 1; i++) {
+				Assert.assertTrue(xsParticlePath[i].getTerm().isModelGroup());
+			}
+		}
+	}
+
+	@Test
+	public void indexDoesNotKeepSchemaSet() throws Exception {
+		SchemaRegistry registry = SchemaRegistry.newInstance();
+		WeakReference<XSSchemaSet> schemaSetReference = indexSchemaSet(registry);
+
+		registry.invalidateAll();
+		Assert.assertTrue("Schema set is still referenced", isCollected(schemaSetReference));
+	}
+
+	private WeakReference<XSSchemaSet> indexSchemaSet(SchemaRegistry registry) throws Exception {
+		URL schemaUrl = getClass().getClassLoader().getResource("schema/aaachoice.001.001.01.xsd");
+		XSSchemaSet schemaSet = registry.getEntry(schemaUrl).getSchemaSet();
+
+		Iterator<XSComplexType> it = schemaSet.iterateComplexTypes();
+		while (it.hasNext()) {
+			XSParticle xsParticle = it.next().getContentType().asParticle();
+			if (xsParticle != null && xsParticle.getTerm().isModelGroup()) {
+				Assert.assertNotNull(ContentModelIndex.getInstance(xsParticle.getTerm().asModelGroup()));
+			}
+		}
+
+		return new WeakReference<XSSchemaSet>(schemaSet);
+	}
+
+	/**
+	 * Collect the garbage until the referent is collected. The soft references are cleared by filling the heap.
+	 */
+	private static boolean isCollected(WeakReference<?> reference) {
+		System.gc();
+		List<byte[]> allocationList = new ArrayList<byte[]>();
+		try {
+			while (reference.get() != null) {
+				allocationList.add(new byte[1 << 24]);
+			}
+		} catch (OutOfMemoryError e) {
+			allocationList.clear();
+			System.gc();
+		}
+
+		return reference.get() == null;
+	}
+
+	private XSSchema loadSchema() throws Exception {
+		URL schemaUrl = getClass().getClassLoader().getResource("schema/aaachoice.001.001.01.xsd");
+		SchemaRegistry registry = SchemaRegistry.newInstance();
+		registry.loadSchemas(schemaUrl);
+
+		return registry.getSchema(AAACHOICE_NAMESPACE);
+	}
+
+	private XSModelGroup getContentModelGroup(XSSchema xsSchema, String complexTypeName) {
+		XSComplexType xsComplexType = xsSchema.getComplexType(complexTypeName);
+		Assert.assertNotNull(xsComplexType);
+
+		return xsComplexType.getContentType().asParticle().getTerm().asModelGroup();
+	}
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2016-2026 Jumin Rubin
+ * LinkedIn: https://www.linkedin.com/in/juminrubin/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jrtech.common.xsutils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StreamCorruptedException;
+
+import org.jrtech.common.xmlutils.XmlUtils;
+import org.jrtech.common.xsutils.model.JrxDocument;
+import org.jrtech.common.xsutils.model.JrxElement;
+import org.junit.Assert;
+import org.junit.Test;
+import org.w3c.dom.Element;
+
+public class TestDocumentCodec {
+
+	private static final String AAACHOICE_SCHEMA = "schema/aaachoice.001.001.01.xsd";
+
+	@Test
+	public void decodedDocumentMatchesEncodedDocument() throws Exception {
+		JrxXmlModelUtil util = JrxXmlModelUtil.newInstance();
+		util.setToStringWithValue(true);
+		util.addSchema(getClass().getClassLoader().getResource("input/SwInt.xsd"));
+		util.addSchema(getClass().getClassLoader().getResource("schema/setr.004.001.03.xsd"));
+		JrxDocument jrxDoc = util.enrichJrxDocument(util.convertXmlToJrxModel(XmlUtils.openDocumentNS(getClass()
+				.getClassLoader().getResource("input/setr.004.xml"))));
+
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		util.encodeDocument(jrxDoc, outputStream);
+		util.encodeDocument(jrxDoc, outputStream);
+
+		// Two documents on the same stream
+		InputStream inputStream = new ByteArrayInputStream(outputStream.toByteArray());
+		for (int i = 0; i < 2; i++) {
+			JrxDocument jrxDecodedDoc = util.decodeDocument(inputStream);
+			Assert.assertEquals(util.convertDocumentToString(jrxDoc), util.convertDocumentToString(jrxDecodedDoc));
+			Assert.assertEquals(XmlUtils.nodeToString(jrxDoc.getXmlDocument()), XmlUtils.nodeToString(jrxDecodedDoc
+					.getXmlDocument()));
+			Assert.assertSame(jrxDoc.getRootElement().getXsdDeclaration(), jrxDecodedDoc.getRootElement()
+					.getXsdDeclaration());
+
+			Element xmlRootElement = jrxDecodedDoc.getXmlDocument().getDocumentElement();
+			Assert.assertSame(xmlRootElement, jrxDecodedDoc.getRootElement().getXmlElement());
+			Assert.assertSame(jrxDecodedDoc.getRootElement(), jrxDecodedDoc.get(xmlRootElement));
+			Assert.assertEquals(jrxDoc.getElements().size(), jrxDecodedDoc.getElements().size());
+		}
+		Assert.assertEquals(-1, inputStream.read());
+	}
+
+	@Test
+	public void schemaDeclarationsAreTakenFromRegistry() throws Exception {
+		JrxXmlModelUtil util = JrxXmlModelUtil.newInstance();
+		util.setToStringWithValue(true);
+		util.addSchema(getClass().getClassLoader().getResource(AAACHOICE_SCHEMA));
+		JrxDocument jrxDoc = util.enrichJrxDocument(util.convertXmlToJrxModel(XmlUtils.openDocumentNS(getClass()
+				.getClassLoader().getResource("data/aaachoice.xml"))));
+		JrxElement jrxRoot = jrxDoc.getRootElement();
+		jrxRoot.setSchemaDocumentation("Changed");
+
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		util.encodeDocument(jrxDoc, outputStream);
+		byte[] bytes = outputStream.toByteArray();
+
+		SchemaRegistry schemaRegistry = SchemaRegistry.newInstance();
+		schemaRegistry.loadSchemas(getClass().getClassLoader().getResource(AAACHOICE_SCHEMA));
+		CacheableJrxXmlModelUtil registryUtil = CacheableJrxXmlModelUtil.newInstance(schemaRegistry);
+		registryUtil.setToStringWithValue(true);
+		JrxDocument jrxDecodedDoc = registryUtil.decodeDocument(new ByteArrayInputStream(bytes));
+
+		Assert.assertEquals(util.convertDocumentToString(jrxDoc), registryUtil.convertDocumentToString(jrxDecodedDoc));
+		Assert.assertSame(schemaRegistry.getSchema(jrxRoot.getXsdDeclaration().getTargetNamespace()), jrxDecodedDoc
+				.getRootElement().getXsdDeclaration().getOwnerSchema());
+		Assert.assertNotSame(jrxRoot.getXsdDeclaration(), jrxDecodedDoc.getRootElement().getXsdDeclaration());
+		Assert.assertEquals("Changed", jrxDecodedDoc.getRootElement().getSchemaDocumentation());
+		Assert.assertEquals(util.validateDocument(jrxDoc).size(), registryUtil.validateDocument(jrxDecodedDoc).size());
+
+		try {
+			JrxXmlModelUtil.newInstance().decodeDocument(new ByteArrayInputStream(bytes));
+			Assert.fail("Document shall not be decoded without its schema");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void pendingEnrichmentIsKept() throws Exception {
+		JrxXmlModelUtil util = JrxXmlModelUtil.newInstance();
+		util.setLazyEnrichment(true);
+		util.addSchema(getClass().getClassLoader().getResource(AAACHOICE_SCHEMA));
+		JrxDocument jrxDoc = util.enrichJrxDocument(util.convertXmlToJrxModel(XmlUtils.openDocumentNS(getClass()
+				.getClassLoader().getResource("data/aaachoice.xml"))));
+
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		util.encodeDocument(jrxDoc, outputStream);
+		JrxDocument jrxDecodedDoc = util.decodeDocument(new ByteArrayInputStream(outputStream.toByteArray()));
+
+		JrxElement jrxChild = JrxXmlModelUtil.getChildElement(jrxDoc.getRootElement(), "ChoiceTestDocument");
+		JrxElement jrxDecodedChild = JrxXmlModelUtil.getChildElement(jrxDecodedDoc.getRootElement(),
+				"ChoiceTestDocument");
+		Assert.assertTrue(jrxDecodedChild.isEnrichmentPending());
+
+		jrxChild.ensureEnriched();
+		jrxDecodedChild.ensureEnriched();
+		Assert.assertFalse(jrxDecodedChild.isEnrichmentPending());
+		Assert.assertEquals(util.convertDocumentToString(jrxDoc), util.convertDocumentToString(jrxDecodedDoc));
+		Assert.assertEquals(XmlUtils.nodeToString(jrxDoc.getXmlDocument()), XmlUtils.nodeToString(jrxDecodedDoc
+				.getXmlDocument()));
+	}
+
+	@Test
+	public void corruptedDocumentIsRejected() throws Exception {
+		JrxXmlModelUtil util = JrxXmlModelUtil.newInstance();
+
+		// Header of a document with XML content, followed by its XML version
+		byte[] header = new byte[] { 'J', 'R', 'X', 'B', 1, 1 };
+		byte[] newString = new byte[] { 1 };
+		byte[] negativeVarInt = new byte[] { (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F };
+		byte[] maxVarInt = new byte[] { (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07 };
+
+		// Negative string length
+		assertCorrupted(util, concat(header, newString, negativeVarInt));
+
+		// Negative string table entry
+		assertCorrupted(util, concat(header, negativeVarInt));
+
+		// A huge string length fails with the end of the stream
+		try {
+			util.decodeDocument(new ByteArrayInputStream(concat(header, newString, maxVarInt, new byte[] { 'a' })));
+			Assert.fail("Document shall not be decoded");
+		} catch (EOFException e) {
+			// expected
+		}
+	}
+
+	private static void assertCorrupted(JrxXmlModelUtil util, byte[] bytes) throws Exception {
+		try {
+			util.decodeDocument(new ByteArrayInputStream(bytes));
+			Assert.fail("Document shall not be decoded");
+		} catch (StreamCorruptedException e) {
+			// expected
+		}
+	}
+
+	private static byte[] concat(byte[]... parts) {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		for (byte[] part : parts) {
+			outputStream.write(part, 0, part.length);
+		}
+
+		return outputStream.toByteArray();
+	}
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2016-2026 Jumin Rubin
+ * LinkedIn: https://www.linkedin.com/in/juminrubin/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jrtech.common.xsutils;
+
+import java.net.URL;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map.Entry;
+
+import org.jrtech.common.xmlutils.XmlUtils;
+import org.jrtech.common.xsutils.model.JrxDocument;
+import org.jrtech.common.xsutils.model.JrxElement;
+import org.junit.Assert;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+public class TestDocumentPrototype {
+
+	private static final String AAACHOICE_SCHEMA = "schema/aaachoice.001.001.01.xsd";
+
+	@Test
+	public void newDocumentsAreClonedFromPrototype() throws Exception {
+		URL schemaUrl = getClass().getClassLoader().getResource("input/complete-namespace2.xsd");
+		CacheableJrxXmlModelUtil util = CacheableJrxXmlModelUtil.newInstance(SchemaRegistry.newInstance());
+
+		JrxDocument jrxFirstDoc = util.convertXsdToJrxDoc(schemaUrl, "Doc", "Document");
+		JrxDocument jrxSecondDoc = util.convertXsdToJrxDoc(schemaUrl, "Doc", "Document");
+		Assert.assertNotSame(jrxFirstDoc.getXmlDocument(), jrxSecondDoc.getXmlDocument());
+		Assert.assertEquals(XmlUtils.documentToString(jrxFirstDoc.getXmlDocument()),
+				XmlUtils.documentToString(jrxSecondDoc.getXmlDocument()));
+
+		// Same result as a document created without prototype
+		JrxXmlModelUtil plainUtil = JrxXmlModelUtil.newInstance();
+		JrxDocument jrxPlainDoc = plainUtil.convertXsdToJrxDoc(schemaUrl, "Doc", "Document");
+		Assert.assertEquals(XmlUtils.documentToString(jrxPlainDoc.getXmlDocument()),
+				XmlUtils.documentToString(jrxSecondDoc.getXmlDocument()));
+		Assert.assertEquals(plainUtil.convertDocumentToString(jrxPlainDoc, true),
+				util.convertDocumentToString(jrxSecondDoc, true));
+		Assert.assertEquals(describe(plainUtil.validateDocument(jrxPlainDoc)),
+				describe(util.validateDocument(jrxSecondDoc)));
+
+		assertLinkedTo(jrxSecondDoc);
+
+		// Documents are independent of each other
+		Element xmlFirstRoot = jrxFirstDoc.getXmlDocument().getDocumentElement();
+		xmlFirstRoot.removeChild(xmlFirstRoot.getFirstChild());
+		Assert.assertEquals(XmlUtils.documentToString(jrxPlainDoc.getXmlDocument()),
+				XmlUtils.documentToString(util.convertXsdToJrxDoc(schemaUrl, "Doc", "Document").getXmlDocument()));
+	}
+
+	@Test
+	public void deepCloneCoversXmlAndJrxModel() throws Exception {
+		JrxXmlModelUtil util = JrxXmlModelUtil.newInstance();
+		util.addSchema(getClass().getClassLoader().getResource(AAACHOICE_SCHEMA));
+		JrxDocument jrxDoc = util.convertXmlToJrxModel(XmlUtils.openDocumentNS(getClass().getClassLoader()
+				.getResource("data/aaachoice.xml")));
+		util.enrichJrxDocument(jrxDoc);
+		String expectedText = util.convertDocumentToString(jrxDoc, true);
+		String expectedErrors = describe(util.validateDocument(jrxDoc));
+
+		JrxDocument jrxClone = jrxDoc.deepClone();
+		Assert.assertNotSame(jrxDoc.getRootElement(), jrxClone.getRootElement());
+		Assert.assertEquals(jrxDoc.getElements().size(), jrxClone.getElements().size());
+		assertLinkedTo(jrxClone);
+		Assert.assertEquals(expectedText, util.convertDocumentToString(jrxClone, true));
+		Assert.assertEquals(expectedErrors, describe(util.validateDocument(jrxClone)));
+
+		// Modifying the clone leaves the original untouched
+		JrxElement jrxCloneParent = JrxXmlModelUtil.getChildElement(jrxClone.getRootElement(), "ChoiceTestDocument");
+		util.addChildElement(jrxCloneParent, "AcctDsgnt", true);
+		Assert.assertEquals(expectedText, util.convertDocumentToString(jrxDoc, true));
+		Assert.assertNotEquals(expectedText, util.convertDocumentToString(jrxClone, true));
+	}
+
+	@Test
+	public void skeletonDocumentIsClonedFromPrototype() throws Exception {
+		URL schemaUrl = getClass().getClassLoader().getResource("input/complete-namespace2.xsd");
+		XsdToXmlUtil xsd2XmlUtil = XsdToXmlUtil.getInstance(SchemaRegistry.newInstance());
+
+		Document xmlFirstDoc = xsd2XmlUtil.convertSchema(schemaUrl, "Document", true);
+		Document xmlSecondDoc = xsd2XmlUtil.convertSchema(schemaUrl, "Document", true);
+		Assert.assertNotSame(xmlFirstDoc, xmlSecondDoc);
+		Assert.assertEquals(XmlUtils.documentToString(xmlFirstDoc), XmlUtils.documentToString(xmlSecondDoc));
+		Assert.assertEquals(XmlUtils.documentToString(XsdToXmlUtil.getInstance().convertSchema(schemaUrl, "Document",
+				true)), XmlUtils.documentToString(xmlSecondDoc));
+	}
+
+	private static void assertLinkedTo(JrxDocument jrxDoc) {
+		for (Entry<Element, JrxElement> entry : jrxDoc.getElementEntries()) {
+			Assert.assertSame(jrxDoc.getXmlDocument(), entry.getKey().getOwnerDocument());
+			Assert.assertSame(entry.getKey(), entry.getValue().getXmlElement());
+			Assert.assertSame(jrxDoc, entry.getValue().getOwnerDocument());
+		}
+	}
+
+	private static String describe(List<XmlValidationError> errors) {
+		StringBuilder sb = new StringBuilder();
+		for (XmlValidationError error : errors) {
+			sb.append(error.getMessage().getMessageKey()).append(' ').append(Arrays.toString(error.getParameters()))
+					.append('\n');
+		}
+
+		return sb.toString();
+	}
+}
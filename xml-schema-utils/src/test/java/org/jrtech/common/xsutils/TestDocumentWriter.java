@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2016-2026 Jumin Rubin
+ * LinkedIn: https://www.linkedin.com/in/juminrubin/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jrtech.common.xsutils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import org.jrtech.common.xmlutils.XmlUtils;
+import org.jrtech.common.xsutils.model.JrxDocument;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestDocumentWriter {
+
+	@Test
+	public void prettyFormatIndentsBlocks() {
+		Assert.assertEquals("a{}b{\n    x,\n    {},\n    y{\n        z\n    }\n}c{\n    ",
+				JrxXmlModelUtil.prettyFormat("a{ }b{x,{  },y{z}}c{"));
+	}
+
+	@Test
+	public void writerMatchesStringConversion() throws Exception {
+		JrxXmlModelUtil util = JrxXmlModelUtil.newInstance();
+		util.setToStringWithValue(true);
+		util.addSchema(getClass().getClassLoader().getResource("schema/aaachoice.001.001.01.xsd"));
+		JrxDocument jrxDoc = util.convertXmlToJrxModel(XmlUtils.openDocumentNS(getClass().getClassLoader()
+				.getResource("data/aaachoice.xml")));
+		util.enrichJrxDocument(jrxDoc);
+
+		StringWriter compactWriter = new StringWriter();
+		util.writeDocument(jrxDoc, compactWriter, null);
+		Assert.assertEquals(util.convertDocumentToString(jrxDoc), compactWriter.toString());
+
+		StringWriter prettyWriter = new StringWriter();
+		util.writeDocument(jrxDoc, prettyWriter, JrxXmlModelUtil.DEFAULT_INDENT);
+		Assert.assertEquals(util.convertDocumentToString(jrxDoc, true), prettyWriter.toString());
+		Assert.assertEquals(JrxXmlModelUtil.prettyFormat(compactWriter.toString()), prettyWriter.toString());
+
+		StringWriter tabWriter = new StringWriter();
+		util.writeDocument(jrxDoc, tabWriter, "\t");
+		Assert.assertEquals(prettyWriter.toString().replace(JrxXmlModelUtil.DEFAULT_INDENT, "\t"), tabWriter
+				.toString());
+
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		util.writeDocument(jrxDoc, outputStream, JrxXmlModelUtil.DEFAULT_INDENT);
+		Assert.assertEquals(prettyWriter.toString(), new String(outputStream.toByteArray(), StandardCharsets.UTF_8));
+	}
+}
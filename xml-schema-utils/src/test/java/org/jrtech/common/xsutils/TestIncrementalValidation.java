@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2016-2026 Jumin Rubin
+ * LinkedIn: https://www.linkedin.com/in/juminrubin/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jrtech.common.xsutils;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.jrtech.common.xmlutils.XmlUtils;
+import org.jrtech.common.xsutils.model.JrxDocument;
+import org.jrtech.common.xsutils.model.JrxElement;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+public class TestIncrementalValidation {
+
+	private static final String NAMESPACE_URI = "urn:test:xsd:aaachoice.001.001.01";
+
+	private JrxXmlModelUtil util;
+
+	private JrxDocument jrxDoc;
+
+	@Before
+	public void setUp() throws Exception {
+		StringBuilder sb = new StringBuilder();
+		sb.append("<Document xmlns=\"").append(NAMESPACE_URI).append("\"><ChoiceTestDocument>");
+		sb.append("<AcctId><Prtry><Id>jruac001</Id></Prtry></AcctId><AcctNm>Name</AcctNm>");
+		for (int i = 0; i < 200; i++) {
+			// Every third BIC is invalid
+			sb.append("<OwnrId><BICOrBEI>").append(i % 3 == 0 ? "invalid" + i : "DEUTDEFF").append("</BICOrBEI></OwnrId>");
+		}
+		sb.append("<Securities><ISIN>DE0001234567</ISIN></Securities>");
+		sb.append("<Order><SubAcctForHldg><Id><Prtry><Id>myac001</Id></Prtry></Id></SubAcctForHldg></Order>");
+		sb.append("</ChoiceTestDocument></Document>");
+
+		util = JrxXmlModelUtil.newInstance();
+		util.addSchema(getClass().getClassLoader().getResource("schema/aaachoice.001.001.01.xsd"));
+		jrxDoc = util.convertXmlToJrxModel(XmlUtils.createDocumentNS(sb.toString()));
+	}
+
+	@Test
+	public void unmodifiedDocumentIsNotValidatedAgain() throws Exception {
+		List<XmlValidationError> firstResult = util.revalidate(jrxDoc);
+		Assert.assertTrue(firstResult.size() >= 67);
+		Assert.assertFalse(jrxDoc.getRootElement().isDirty());
+		assertSameErrors(util.validateElement(jrxDoc.getRootElement(), "/"), firstResult);
+
+		List<XmlValidationError> secondResult = util.revalidate(jrxDoc);
+		assertSameErrors(firstResult, secondResult);
+	}
+
+	@Test
+	public void modifiedValueIsValidatedAgain() throws Exception {
+		int errorCount = util.revalidate(jrxDoc).size();
+
+		Element xmlBic = getXmlElement("BICOrBEI", 0);
+		xmlBic.setTextContent("DEUTDEFF");
+		JrxElement jrxBic = jrxDoc.get(xmlBic);
+		Assert.assertFalse(jrxBic.isDirty());
+		Assert.assertSame(jrxBic, util.markDirty(jrxDoc, xmlBic.getFirstChild()));
+		Assert.assertTrue(jrxBic.isDirty());
+		Assert.assertTrue(jrxDoc.get(getXmlElement("OwnrId", 0)).isDirty());
+		Assert.assertTrue(jrxDoc.getRootElement().isDirty());
+		Assert.assertFalse(jrxDoc.get(getXmlElement("OwnrId", 1)).isDirty());
+
+		List<XmlValidationError> result = util.revalidate(jrxDoc);
+		Assert.assertEquals(errorCount - 1, result.size());
+		assertSameErrors(util.validateElement(jrxDoc.getRootElement(), "/"), result);
+	}
+
+	@Test
+	public void modifiedStructureIsValidatedAgain() throws Exception {
+		int errorCount = util.revalidate(jrxDoc).size();
+
+		// Exceed the maximum occurrence of AcctDsgnt
+		JrxElement jrxParent = jrxDoc.get(getXmlElement("ChoiceTestDocument", 0));
+		JrxElement jrxAcctDsgnt = JrxXmlModelUtil.getChildElement(jrxParent, "AcctDsgnt");
+		jrxAcctDsgnt.getXmlElement().setTextContent("first");
+		jrxAcctDsgnt.markDirty();
+		JrxElement jrxAdded = util.addChildElement(jrxParent, "AcctDsgnt", true);
+		jrxAdded.getXmlElement().setTextContent("second");
+		jrxAdded.markDirty();
+
+		List<XmlValidationError> result = util.revalidate(jrxDoc);
+		assertSameErrors(util.validateElement(jrxDoc.getRootElement(), "/"), result);
+		Assert.assertEquals(errorCount + 2, result.size());
+
+		// Remove an invalid owner
+		util.removeChildElement(jrxParent, jrxDoc.get(getXmlElement("OwnrId", 0)));
+		result = util.revalidate(jrxDoc);
+		assertSameErrors(util.validateElement(jrxDoc.getRootElement(), "/"), result);
+		Assert.assertEquals(errorCount + 1, result.size());
+	}
+
+	@Test
+	public void detachedDocumentIsValidatedCompletely() throws Exception {
+		int errorCount = util.revalidate(jrxDoc).size();
+		Assert.assertTrue(util.detachIncrementalValidation(jrxDoc));
+		Assert.assertFalse(util.detachIncrementalValidation(jrxDoc));
+
+		// Not marked, but the cached results are gone
+		getXmlElement("BICOrBEI", 0).setTextContent("DEUTDEFF");
+		List<XmlValidationError> result = util.revalidate(jrxDoc);
+		Assert.assertEquals(errorCount - 1, result.size());
+		assertSameErrors(util.validateElement(jrxDoc.getRootElement(), "/"), result);
+	}
+
+	private Element getXmlElement(String localName, int index) {
+		NodeList xmlNodeList = jrxDoc.getXmlDocument().getElementsByTagNameNS(NAMESPACE_URI, localName);
+		return (Element) xmlNodeList.item(index);
+	}
+
+	private static void assertSameErrors(List<XmlValidationError> expected, List<XmlValidationError> actual) {
+		Assert.assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			Assert.assertSame(expected.get(i).getElement(), actual.get(i).getElement());
+			Assert.assertSame(expected.get(i).getMessage(), actual.get(i).getMessage());
+			Assert.assertTrue(Arrays.equals(expected.get(i).getParameters(), actual.get(i).getParameters()));
+		}
+	}
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2016-2026 Jumin Rubin
+ * LinkedIn: https://www.linkedin.com/in/juminrubin/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jrtech.common.xsutils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jrtech.common.xmlutils.XmlUtils;
+import org.jrtech.common.xsutils.model.JrxDocument;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestJrxDocumentDiff {
+
+	private static final String AAACHOICE_SCHEMA = "schema/aaachoice.001.001.01.xsd";
+
+	private static final String DOCUMENT_PATH = "/Document/ChoiceTestDocument";
+
+	@Test
+	public void equalDocumentsHaveNoChanges() throws Exception {
+		JrxXmlModelUtil util = newUtil();
+		String xml = createXml("Name", "<UnitsNb><Unit>10</Unit></UnitsNb>", "AAAADEFF", "BBBBDEFF");
+
+		// Optional elements added by the enrichment are ignored
+		JrxDocument enrichedDoc = util.enrichJrxDocument(convert(util, xml));
+		Assert.assertEquals(0, JrxDocumentDiff.newInstance().compare(convert(util, xml), enrichedDoc).size());
+		Assert.assertEquals(0, JrxDocumentDiff.newInstance().compare(enrichedDoc, enrichedDoc).size());
+		Assert.assertEquals(0, JrxDocumentDiff.newInstance().compare(null, null).size());
+	}
+
+	@Test
+	public void valuesAttributesAndChoicesAreCompared() throws Exception {
+		JrxXmlModelUtil util = newUtil();
+		JrxDocument originalDoc = convert(util, createXml("Name", "<UnitsNb><Unit>10</Unit></UnitsNb>", "AAAADEFF"));
+		JrxDocument revisedDoc = util.enrichJrxDocument(convert(util, createXml("Other name",
+				"<GrssAmt Ccy=\"EUR\">100</GrssAmt>", "AAAADEFF")));
+
+		List<JrxDocumentDiff.Change> changes = JrxDocumentDiff.newInstance().compare(originalDoc, revisedDoc);
+		Assert.assertEquals(Arrays.asList("~ " + DOCUMENT_PATH + "/AcctNm: 'Name' -> 'Other name'", "- " + DOCUMENT_PATH
+				+ "/Order/UnitsNb", "+ " + DOCUMENT_PATH + "/Order/GrssAmt = '100'"), toStrings(changes));
+		JrxDocumentDiff.Change change = changes.get(0);
+		Assert.assertEquals(JrxDocumentDiff.ChangeType.CHANGED, change.getType());
+		Assert.assertEquals("AcctNm", change.getOriginalElement().getName());
+		Assert.assertEquals("Other name", change.getRevisedElement().getXmlElement().getTextContent());
+
+		JrxDocument amendedDoc = convert(util, createXml("Other name", "<GrssAmt Ccy=\"USD\">100</GrssAmt>",
+				"AAAADEFF"));
+		Assert.assertEquals(Arrays.asList("~ " + DOCUMENT_PATH + "/Order/GrssAmt/@Ccy: 'EUR' -> 'USD'"), toStrings(
+				JrxDocumentDiff.newInstance().compare(revisedDoc, amendedDoc)));
+	}
+
+	@Test
+	public void repeatedElementsAreAligned() throws Exception {
+		JrxXmlModelUtil util = newUtil();
+		String order = "<UnitsNb><Unit>10</Unit></UnitsNb>";
+		JrxDocument originalDoc = convert(util, createXml("Name", order, "AAAADEFF", "BBBBDEFF", "CCCCDEFF"));
+
+		// Identical elements are aligned, whatever their position
+		JrxDocumentDiff diff = JrxDocumentDiff.newInstance();
+		Assert.assertEquals(Arrays.asList("- " + DOCUMENT_PATH + "/OwnrId[2]"), toStrings(diff.compare(originalDoc,
+				convert(util, createXml("Name", order, "AAAADEFF", "CCCCDEFF")))));
+
+		// The others by order
+		JrxDocument revisedDoc = convert(util, createXml("Name", order, "BBBBDEFF", "CCCCDEFF", "DDDDDEFF"));
+		Assert.assertEquals(Arrays.asList("~ " + DOCUMENT_PATH + "/OwnrId[3]/BICOrBEI: 'AAAADEFF' -> 'DDDDDEFF'"),
+				toStrings(diff.compare(originalDoc, revisedDoc)));
+
+		// Or by their key fields
+		diff.setKeyFields("OwnrId", "BICOrBEI");
+		Assert.assertEquals(Arrays.asList("BICOrBEI"), diff.getKeyFields("OwnrId"));
+		Assert.assertEquals(Arrays.asList("- " + DOCUMENT_PATH + "/OwnrId[1]", "+ " + DOCUMENT_PATH + "/OwnrId[3]"),
+				toStrings(diff.compare(originalDoc, revisedDoc)));
+	}
+
+	@Test
+	public void documentsWithoutSchemaAreCompared() throws Exception {
+		JrxXmlModelUtil util = JrxXmlModelUtil.newInstance();
+		JrxDocument originalDoc = util.convertXmlToJrxModel(XmlUtils.createDocument(
+				"<Msg><Item id=\"1\">a</Item><Item id=\"2\">b</Item><Note/></Msg>"));
+		JrxDocument revisedDoc = util.convertXmlToJrxModel(XmlUtils.createDocument(
+				"<Msg><Item id=\"2\">b</Item><Item id=\"3\">c</Item><Ref>x</Ref></Msg>"));
+
+		JrxDocumentDiff diff = JrxDocumentDiff.newInstance();
+		diff.setKeyFields("Item", "@id");
+		Assert.assertEquals(Arrays.asList("- /Msg/Item[1] = 'a'", "+ /Msg/Item[2] = 'c'", "+ /Msg/Ref = 'x'"),
+				toStrings(diff.compare(originalDoc, revisedDoc)));
+		Assert.assertEquals(Arrays.asList("- /Msg"), toStrings(diff.compare(originalDoc, null)));
+	}
+
+	private JrxXmlModelUtil newUtil() throws Exception {
+		JrxXmlModelUtil util = JrxXmlModelUtil.newInstance();
+		util.addSchema(getClass().getClassLoader().getResource(AAACHOICE_SCHEMA));
+
+		return util;
+	}
+
+	private static JrxDocument convert(JrxXmlModelUtil util, String xml) throws Exception {
+		return util.convertXmlToJrxModel(XmlUtils.createDocument(xml));
+	}
+
+	private static String createXml(String accountName, String order, String... owners) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("<Document xmlns=\"urn:test:xsd:aaachoice.001.001.01\"><ChoiceTestDocument>");
+		sb.append("<AcctId><Prtry><Id>jruac001</Id></Prtry></AcctId><AcctNm>").append(accountName).append("</AcctNm>");
+		for (String owner : owners) {
+			sb.append("<OwnrId><BICOrBEI>").append(owner).append("</BICOrBEI></OwnrId>");
+		}
+		sb.append("<Order>").append(order).append("</Order>");
+		sb.append("</ChoiceTestDocument></Document>");
+
+		return sb.toString();
+	}
+
+	private static List<String> toStrings(List<JrxDocumentDiff.Change> changes) {
+		List<String> changeStrings = new ArrayList<String>();
+		for (JrxDocumentDiff.Change change : changes) {
+			changeStrings.add(change.toString());
+		}
+
+		return changeStrings;
+	}
+}
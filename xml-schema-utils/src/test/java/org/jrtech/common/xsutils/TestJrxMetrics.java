@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2016-2026 Jumin Rubin
+ * LinkedIn: https://www.linkedin.com/in/juminrubin/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jrtech.common.xsutils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.jrtech.common.xmlutils.XmlUtils;
+import org.jrtech.common.xsutils.model.JrxDocument;
+import org.junit.Assert;
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+public class TestJrxMetrics {
+
+	private static final String AAACHOICE_SCHEMA = "schema/aaachoice.001.001.01.xsd";
+
+	private static final String AAACHOICE_MESSAGE_TYPE = "{urn:test:xsd:aaachoice.001.001.01}Document";
+
+	@Test
+	public void phasesAreRecordedPerDocument() throws Exception {
+		List<JrxPhaseMetrics> metricsList = new ArrayList<JrxPhaseMetrics>();
+		JrxXmlModelUtil util = newUtil();
+		util.setMetricsSink(metricsList::add);
+
+		Document xmlDoc = createDocument(10);
+		int xmlElementCount = xmlDoc.getElementsByTagName("*").getLength();
+		List<XmlValidationError> result = util.validateDocument(util.convertXmlToJrxModel(xmlDoc));
+
+		Assert.assertEquals(3, metricsList.size());
+		JrxPhaseMetrics conversion = metricsList.get(0);
+		Assert.assertEquals(JrxPhaseMetrics.Phase.CONVERSION, conversion.getPhase());
+		Assert.assertEquals(AAACHOICE_MESSAGE_TYPE, conversion.getMessageType());
+		Assert.assertEquals(xmlElementCount, conversion.getNodeCount());
+		Assert.assertEquals(1, conversion.getSchemaLookupCount());
+		Assert.assertTrue(conversion.getParticleLookupCount() > 0);
+		Assert.assertTrue(conversion.getElapsedNanos() > 0);
+		Assert.assertTrue(conversion.getAllocatedBytes() != 0);
+
+		JrxPhaseMetrics enrichment = metricsList.get(1);
+		Assert.assertEquals(JrxPhaseMetrics.Phase.ENRICHMENT, enrichment.getPhase());
+		Assert.assertEquals(AAACHOICE_MESSAGE_TYPE, enrichment.getMessageType());
+		Assert.assertTrue(enrichment.getNodeCount() >= xmlElementCount);
+		Assert.assertEquals(0, enrichment.getValidationErrorCount());
+
+		JrxPhaseMetrics validation = metricsList.get(2);
+		Assert.assertEquals(JrxPhaseMetrics.Phase.VALIDATION, validation.getPhase());
+		Assert.assertEquals(AAACHOICE_MESSAGE_TYPE, validation.getMessageType());
+		Assert.assertTrue(validation.getNodeCount() > 0);
+		Assert.assertTrue(validation.getFacetLookupCount() > 0);
+		Assert.assertTrue(validation.getFacetLookupMissCount() <= validation.getFacetLookupCount());
+		Assert.assertEquals(result.size(), validation.getValidationErrorCount());
+		Assert.assertTrue(validation.getValidationErrorCount() >= 4);
+	}
+
+	@Test
+	public void parallelValidationIsRecordedLikeSequentialValidation() throws Exception {
+		List<JrxPhaseMetrics> metricsList = Collections.synchronizedList(new ArrayList<JrxPhaseMetrics>());
+		JrxXmlModelUtil util = newUtil();
+		util.setMetricsSink(metricsList::add);
+		util.setParallelValidationThreshold(100);
+
+		util.validateDocument(util.convertXmlToJrxModel(createDocument(1000)));
+		JrxPhaseMetrics sequential = metricsList.get(metricsList.size() - 1);
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			util.validateDocumentInParallel(util.convertXmlToJrxModel(createDocument(1000)), pool);
+		} finally {
+			pool.shutdown();
+		}
+		JrxPhaseMetrics parallel = metricsList.get(metricsList.size() - 1);
+
+		Assert.assertEquals(JrxPhaseMetrics.Phase.VALIDATION, parallel.getPhase());
+		Assert.assertEquals(sequential.getNodeCount(), parallel.getNodeCount());
+		Assert.assertEquals(sequential.getFacetLookupCount(), parallel.getFacetLookupCount());
+		Assert.assertEquals(sequential.getValidationErrorCount(), parallel.getValidationErrorCount());
+	}
+
+	@Test
+	public void creationRecordsSchemaLookup() throws Exception {
+		List<JrxPhaseMetrics> metricsList = new ArrayList<JrxPhaseMetrics>();
+		JrxXmlModelUtil util = JrxXmlModelUtil.newInstance();
+		util.setMetricsSink(metricsList::add);
+
+		JrxDocument jrxDoc = util.convertXsdToJrxDoc(getClass().getClassLoader().getResource(AAACHOICE_SCHEMA), "",
+				"Document");
+		Assert.assertNotNull(jrxDoc);
+
+		// The conversion of the skeleton document is nested
+		JrxPhaseMetrics creation = metricsList.get(metricsList.size() - 1);
+		Assert.assertEquals(JrxPhaseMetrics.Phase.CREATION, creation.getPhase());
+		Assert.assertEquals(AAACHOICE_MESSAGE_TYPE, creation.getMessageType());
+		Assert.assertEquals(1, creation.getSchemaLookupCount());
+		Assert.assertTrue(creation.getSchemaLookupNanos() > 0);
+		Assert.assertTrue(creation.getElapsedNanos() >= creation.getSchemaLookupNanos());
+		Assert.assertTrue(creation.getNodeCount() > 0);
+		Assert.assertTrue(metricsList.size() > 1);
+		Assert.assertEquals(JrxPhaseMetrics.Phase.CONVERSION, metricsList.get(0).getPhase());
+	}
+
+	@Test
+	public void failingSinkDoesNotFailProcessing() throws Exception {
+		JrxXmlModelUtil util = newUtil();
+		util.setMetricsSink(phaseMetrics -> {
+			throw new IllegalStateException("Sink unavailable");
+		});
+		List<XmlValidationError> result = util.validateDocument(util.convertXmlToJrxModel(createDocument(10)));
+
+		util.setMetricsSink(null);
+		Assert.assertEquals(result.size(), util.validateDocument(util.convertXmlToJrxModel(createDocument(10)))
+				.size());
+		Assert.assertNull(PhaseRecorder.current());
+	}
+
+	private JrxXmlModelUtil newUtil() throws Exception {
+		JrxXmlModelUtil util = JrxXmlModelUtil.newInstance();
+		util.addSchema(getClass().getClassLoader().getResource(AAACHOICE_SCHEMA));
+
+		return util;
+	}
+
+	private static Document createDocument(int ownerCount) throws Exception {
+		StringBuilder sb = new StringBuilder();
+		sb.append("<Document xmlns=\"urn:test:xsd:aaachoice.001.001.01\"><ChoiceTestDocument>");
+		sb.append("<AcctId><Prtry><Id>jruac001</Id></Prtry></AcctId><AcctNm>Name</AcctNm>");
+		for (int i = 0; i < ownerCount; i++) {
+			// Every third BIC is invalid
+			sb.append("<OwnrId><BICOrBEI>").append(i % 3 == 0 ? "invalid" + i : "DEUTDEFF").append("</BICOrBEI></OwnrId>");
+		}
+		sb.append("<Order><SubAcctForHldg><Id><Prtry><Id>myac001</Id></Prtry></Id></SubAcctForHldg></Order>");
+		sb.append("</ChoiceTestDocument></Document>");
+
+		return XmlUtils.createDocument(sb.toString());
+	}
+}
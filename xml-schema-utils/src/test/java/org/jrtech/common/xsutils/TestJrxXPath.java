@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2016-2026 Jumin Rubin
+ * LinkedIn: https://www.linkedin.com/in/juminrubin/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jrtech.common.xsutils;
+
+import java.util.List;
+
+import javax.xml.xpath.XPathExpressionException;
+
+import org.jrtech.common.xmlutils.XmlUtils;
+import org.jrtech.common.xsutils.model.JrxDocument;
+import org.jrtech.common.xsutils.model.JrxElement;
+import org.junit.Assert;
+import org.junit.Test;
+import org.w3c.dom.Element;
+
+public class TestJrxXPath {
+
+	private static final String[][] SETR_004_NAMESPACES = new String[][] {
+			{ "Doc", "urn:swift:xsd:setr.004.001.03" }, { "SwInt", "urn:swift:snl:ns.SwInt" },
+			{ "xsi", "http://www.w3.org/2001/XMLSchema-instance" } };
+
+	private static final String[] SETR_004_EXPRESSIONS = new String[] { "//Doc:OrdrRef", "//Doc:Id[2]",
+			"//Doc:IndvOrdrDtls[1]/Doc:OrdrRef", "//Doc:IndvOrdrDtls[last()]//Doc:Id", "/*/*/*[1]", "//SwInt:*",
+			"/SwInt:ExchangeRequest/SwInt:Request/SwInt:RequestPayload/Doc:Document/*", "//Doc:*[@Ccy]",
+			"//Doc:*[@Ccy='EUR']", "//Doc:Document//Doc:Id[1]", "//*", "//Doc:Unknown" };
+
+	@Test
+	public void nativeEvaluationMatchesXmlEvaluation() throws Exception {
+		for (boolean enrich : new boolean[] { false, true }) {
+			JrxXmlModelUtil util = JrxXmlModelUtil.newInstance();
+			util.addSchema(getClass().getClassLoader().getResource("input/SwInt.xsd"));
+			util.addSchema(getClass().getClassLoader().getResource("schema/setr.004.001.03.xsd"));
+			JrxDocument jrxDoc = util.convertXmlToJrxModel(XmlUtils.openDocumentNS(getClass().getClassLoader()
+					.getResource("input/setr.004.xml")));
+			if (enrich) {
+				util.enrichJrxDocument(jrxDoc);
+			}
+			Assert.assertFalse(JrxXPath.hasUnexpectedElements(jrxDoc));
+
+			for (String xPathExpression : SETR_004_EXPRESSIONS) {
+				JrxXPath jrxXPath = JrxXPath.compile(xPathExpression, SETR_004_NAMESPACES);
+				Assert.assertNotNull(xPathExpression, jrxXPath);
+				assertSameElements(xPathExpression, util.getElementListByXPath(jrxDoc, SETR_004_NAMESPACES,
+						xPathExpression), jrxXPath.evaluate(jrxDoc));
+
+				String relativeExpression = xPathExpression.startsWith("//") ? "." + xPathExpression
+						: xPathExpression;
+				assertSameElements(relativeExpression, util.getElementListByXPath(jrxDoc.getRootElement(),
+						SETR_004_NAMESPACES, relativeExpression), util.getElementListByNativeXPath(jrxDoc
+								.getRootElement(), SETR_004_NAMESPACES, relativeExpression));
+			}
+		}
+	}
+
+	@Test
+	public void elementsInModelOrderDifferentFromXmlOrder() throws Exception {
+		// The enrichment inserts the XML element of OrderingCustomer after the one of Charging
+		JrxXmlModelUtil util = JrxXmlModelUtil.newInstance();
+		util.addSchema(getClass().getClassLoader().getResource("schema/complete-choice.xsd"));
+		JrxDocument jrxDoc = util.enrichJrxDocument(util.convertXmlToJrxModel(XmlUtils.openDocumentNS(getClass()
+				.getClassLoader().getResource("input/complete-choice.xml"))));
+		String[][] namespaces = new String[][] { { "c", "urn:acme:choice:complete" } };
+
+		for (String xPathExpression : new String[] { "//*", "/c:Document/c:ChoiceTestDocument/*[last()]",
+				"//c:ChoiceTestDocument/*[9]" }) {
+			assertSameElements(xPathExpression, util.getElementListByXPath(jrxDoc, namespaces, xPathExpression),
+					util.getElementListByNativeXPath(jrxDoc, namespaces, xPathExpression));
+		}
+	}
+
+	@Test
+	public void unexpectedElementsAreCheckedAgainAfterChange() throws Exception {
+		JrxXmlModelUtil util = JrxXmlModelUtil.newInstance();
+		util.addSchema(getClass().getClassLoader().getResource("input/SwInt.xsd"));
+		util.addSchema(getClass().getClassLoader().getResource("schema/setr.004.001.03.xsd"));
+		JrxDocument jrxDoc = util.enrichJrxDocument(util.convertXmlToJrxModel(XmlUtils.openDocumentNS(getClass()
+				.getClassLoader().getResource("input/setr.004.xml"))));
+		Assert.assertFalse(JrxXPath.hasUnexpectedElements(jrxDoc));
+		int structureModificationCount = jrxDoc.getStructureModificationCount();
+		Assert.assertFalse(JrxXPath.hasUnexpectedElements(jrxDoc));
+		Assert.assertEquals(structureModificationCount, jrxDoc.getStructureModificationCount());
+
+		// An element the schema does not declare, added below the first order reference
+		JrxElement jrxParent = util.getElementListByNativeXPath(jrxDoc, SETR_004_NAMESPACES, "//Doc:OrdrRef[1]")
+				.get(0).getParentElement();
+		Element xmlUnknown = jrxDoc.getXmlDocument().createElementNS("urn:swift:xsd:setr.004.001.03", "Unknown");
+		jrxParent.getXmlElement().appendChild(xmlUnknown);
+		JrxElement jrxUnknown = new JrxElement();
+		jrxUnknown.setXmlElement(xmlUnknown);
+		jrxUnknown.setOwnerDocument(jrxDoc);
+		jrxUnknown.setParentBlock(jrxParent.getChildrenBlock());
+		Assert.assertTrue(JrxXPath.hasUnexpectedElements(jrxDoc));
+		assertSameElements("//Doc:Unknown", util.getElementListByXPath(jrxDoc, SETR_004_NAMESPACES,
+				"//Doc:Unknown"), util.getElementListByNativeXPath(jrxDoc, SETR_004_NAMESPACES, "//Doc:Unknown"));
+
+		jrxUnknown.setParentBlock(null);
+		jrxUnknown.setOwnerDocument(null);
+		jrxParent.getXmlElement().removeChild(xmlUnknown);
+		Assert.assertFalse(JrxXPath.hasUnexpectedElements(jrxDoc));
+	}
+
+	@Test
+	public void compiledExpressionsAreCached() throws Exception {
+		Assert.assertSame(JrxXPath.compile("//Doc:Id[1]", SETR_004_NAMESPACES), JrxXPath.compile("//Doc:Id[1]",
+				SETR_004_NAMESPACES));
+		Assert.assertTrue(JrxXPath.compile("//Doc:Acct/@Ccy", SETR_004_NAMESPACES).isAttributeExpression());
+
+		// Outside of the supported subset
+		Assert.assertNull(JrxXPath.compile("//Doc:Id/text()", SETR_004_NAMESPACES));
+		Assert.assertNull(JrxXPath.compile("//Doc:Id[position() > 1]", SETR_004_NAMESPACES));
+		Assert.assertNull(JrxXPath.compile("../Doc:Id", SETR_004_NAMESPACES));
+
+		try {
+			JrxXPath.compile("//Undeclared:Id", SETR_004_NAMESPACES);
+			Assert.fail("Undeclared prefix shall not be accepted");
+		} catch (XPathExpressionException e) {
+			// expected
+		}
+	}
+
+	private static void assertSameElements(String message, List<JrxElement> jrxExpectedElements,
+			List<JrxElement> jrxActualElements) {
+		Assert.assertEquals(message, jrxExpectedElements.size(), jrxActualElements.size());
+		for (int i = 0; i < jrxExpectedElements.size(); i++) {
+			Assert.assertSame(message, jrxExpectedElements.get(i), jrxActualElements.get(i));
+		}
+	}
+}
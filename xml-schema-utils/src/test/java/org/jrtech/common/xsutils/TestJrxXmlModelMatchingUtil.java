@@ -17,6 +17,8 @@
 package org.jrtech.common.xsutils;
 
 import java.net.URL;
+import java.util.Arrays;
+import java.util.List;
 
 import org.jrtech.common.xsutils.model.JrxDocument;
 import org.jrtech.common.xsutils.model.JrxElement;
@@ -54,6 +56,31 @@ public class TestJrxXmlModelMatchingUtil {
                 "//Doc:ChoiceTestDocument/Doc:testNode");
     }
 
+    @Test
+    public void batchMatchingSharesCompiledTables() throws Exception {
+        modelUtil.addSchema(getClass().getResource("/schema/aaachoice.001.001.01.xsd"));
+        List<JrxDocument> jrxDocs = Arrays.asList(modelUtil.convertXmlToJrxModel(XmlUtils.openDocumentNS(getClass()
+                .getResource("/data/matching-choice.xml"))), modelUtil.convertXmlToJrxModel(XmlUtils.openDocumentNS(
+                        getClass().getResource("/data/aaachoice.xml"))), null);
+
+        List<JrxXmlModelMatchingUtil> matchingList = JrxXmlModelMatchingUtil.match(jrxDocs,
+                jrxDoc -> JrxXmlModelUtil.getChildElement(jrxDoc.getRootElement(), "ChoiceTestDocument"));
+        Assert.assertEquals(3, matchingList.size());
+        Assert.assertNull(matchingList.get(2));
+        Assert.assertSame(matchingList.get(0).getSchemaParticleArray(), matchingList.get(1).getSchemaParticleArray());
+
+        for (int i = 0; i < 2; i++) {
+            JrxXmlModelMatchingUtil matching = matchingList.get(i);
+            JrxXmlModelMatchingUtil singleMatching = JrxXmlModelMatchingUtil.getInstance();
+            Assert.assertTrue(singleMatching.performMatching(JrxXmlModelUtil.getChildElement(jrxDocs.get(i)
+                    .getRootElement(), "ChoiceTestDocument")));
+            Assert.assertArrayEquals(singleMatching.getNewParticleArray(), matching.getNewParticleArray());
+            Assert.assertArrayEquals(singleMatching.getExistingTermArray(), matching.getExistingTermArray());
+            Assert.assertEquals(singleMatching.isMergeRequired(), matching.isMergeRequired());
+        }
+        Assert.assertTrue(matchingList.get(0).getNewParticleArray().length > 0);
+    }
+
     @SuppressWarnings("static-access")
     private void performMatching(String inputXml, String inputXsd, String[][] namespaces, String xpath)
 	        throws Exception {
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2016-2026 Jumin Rubin
+ * LinkedIn: https://www.linkedin.com/in/juminrubin/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jrtech.common.xsutils;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.jrtech.common.xmlutils.XmlUtils;
+import org.jrtech.common.xsutils.model.JrxChoiceGroup;
+import org.jrtech.common.xsutils.model.JrxDocument;
+import org.jrtech.common.xsutils.model.JrxElement;
+import org.jrtech.common.xsutils.model.JrxElementGroup;
+import org.jrtech.common.xsutils.model.JrxTerm;
+import org.junit.Assert;
+import org.junit.Test;
+import org.w3c.dom.Element;
+
+public class TestLazyEnrichment {
+
+	private static final String AAACHOICE_SCHEMA = "schema/aaachoice.001.001.01.xsd";
+
+	@Test
+	public void lazyValidationMatchesEagerValidation() throws Exception {
+		compareValidation("input/incomplete-setr.010.xml", "schema/$ahV10.xsd", "schema/setr.010.001.03.xsd");
+		compareValidation("data/validate-amount.xml", "schema/$ahV10.xsd", "schema/setr.010.001.03.xsd");
+		compareValidation("input/simple1.xml", AAACHOICE_SCHEMA);
+		compareValidation("data/aaachoice.xml", AAACHOICE_SCHEMA);
+	}
+
+	@Test
+	public void visitedDocumentMatchesEagerEnrichment() throws Exception {
+		JrxXmlModelUtil eagerUtil = createModelUtil(false, AAACHOICE_SCHEMA);
+		JrxDocument eagerDoc = eagerUtil.enrichJrxDocument(open(eagerUtil, "data/aaachoice.xml"));
+
+		JrxXmlModelUtil lazyUtil = createModelUtil(true, AAACHOICE_SCHEMA);
+		JrxDocument lazyDoc = lazyUtil.enrichJrxDocument(open(lazyUtil, "data/aaachoice.xml"));
+		visit(lazyDoc.getRootElement());
+
+		Assert.assertEquals(eagerUtil.convertDocumentToString(eagerDoc), lazyUtil.convertDocumentToString(lazyDoc));
+	}
+
+	@Test
+	public void unvisitedElementsAreNotEnriched() throws Exception {
+		JrxXmlModelUtil eagerUtil = createModelUtil(false, AAACHOICE_SCHEMA);
+		JrxDocument eagerDoc = eagerUtil.enrichJrxDocument(open(eagerUtil, "data/aaachoice.xml"));
+
+		JrxXmlModelUtil lazyUtil = createModelUtil(true, AAACHOICE_SCHEMA);
+		JrxDocument lazyDoc = lazyUtil.enrichJrxDocument(open(lazyUtil, "data/aaachoice.xml"));
+
+		JrxElement jrxRoot = lazyDoc.getRootElement();
+		Assert.assertFalse(jrxRoot.isEnrichmentPending());
+		JrxElement jrxChild = JrxXmlModelUtil.getChildElement(jrxRoot, "ChoiceTestDocument");
+		Assert.assertTrue(jrxChild.isEnrichmentPending());
+		Assert.assertTrue(countXmlElements(lazyDoc.getXmlDocument().getDocumentElement()) < countXmlElements(eagerDoc
+				.getXmlDocument().getDocumentElement()));
+
+		// Reading the model does not enrich it
+		int childCount = jrxChild.getChildrenBlock().getElements().size();
+		Assert.assertTrue(jrxChild.isEnrichmentPending());
+
+		jrxChild.ensureEnriched();
+		Assert.assertFalse(jrxChild.isEnrichmentPending());
+		Assert.assertTrue(jrxChild.getChildrenBlock().getElements().size() > childCount);
+		boolean pendingGrandChild = false;
+		for (JrxTerm<?> jrxTerm : jrxChild.getChildrenBlock().getElements()) {
+			if (jrxTerm instanceof JrxElement && ((JrxElement) jrxTerm).isEnrichmentPending()) {
+				pendingGrandChild = true;
+			}
+		}
+		Assert.assertTrue(pendingGrandChild);
+	}
+
+	@Test
+	public void documentationIsResolvedOnFirstAccess() throws Exception {
+		JrxXmlModelUtil util = createModelUtil(true, "schema/choice4.xsd");
+		JrxDocument jrxDoc = util.enrichJrxDocument(open(util, "input/choice4.xml"));
+		visit(jrxDoc.getRootElement());
+
+		Element xmlCode = (Element) jrxDoc.getXmlDocument().getElementsByTagNameNS("*", "code").item(0);
+		JrxElement jrxCode = jrxDoc.get(xmlCode);
+		Assert.assertEquals("Code", jrxCode.getSchemaDocumentation());
+		Assert.assertNotNull(jrxCode.getSchemaAppInfoElement());
+
+		jrxCode.setSchemaDocumentation("Changed");
+		Assert.assertEquals("Changed", jrxCode.getSchemaDocumentation());
+	}
+
+	private void compareValidation(String resource, String... schemaFiles) throws Exception {
+		JrxXmlModelUtil eagerUtil = createModelUtil(false, schemaFiles);
+		List<XmlValidationError> expected = eagerUtil.validateDocument(open(eagerUtil, resource));
+
+		JrxXmlModelUtil lazyUtil = createModelUtil(true, schemaFiles);
+		List<XmlValidationError> actual = lazyUtil.validateDocument(open(lazyUtil, resource));
+
+		Assert.assertEquals(resource, describe(expected), describe(actual));
+	}
+
+	private JrxDocument open(JrxXmlModelUtil util, String resource) throws Exception {
+		return util.convertXmlToJrxModel(XmlUtils.openDocumentNS(getClass().getClassLoader().getResource(resource)));
+	}
+
+	private JrxXmlModelUtil createModelUtil(boolean lazyEnrichment, String... schemaFiles) throws Exception {
+		JrxXmlModelUtil util = JrxXmlModelUtil.newInstance();
+		util.setLazyEnrichment(lazyEnrichment);
+		for (String schemaFile : schemaFiles) {
+			util.addSchema(getClass().getClassLoader().getResource(schemaFile));
+		}
+
+		return util;
+	}
+
+	private static void visit(JrxTerm<?> jrxTerm) {
+		if (jrxTerm instanceof JrxChoiceGroup) {
+			visit(((JrxChoiceGroup) jrxTerm).getSelection());
+		} else if (jrxTerm instanceof JrxElementGroup) {
+			for (int i = 0; i < ((JrxElementGroup) jrxTerm).getElements().size(); i++) {
+				visit(((JrxElementGroup) jrxTerm).getElements().get(i));
+			}
+		} else if (jrxTerm instanceof JrxElement) {
+			((JrxElement) jrxTerm).ensureEnriched();
+			visit(((JrxElement) jrxTerm).getChildrenBlock());
+		}
+	}
+
+	private static int countXmlElements(Element xmlElement) {
+		return xmlElement.getElementsByTagName("*").getLength();
+	}
+
+	private static String describe(List<XmlValidationError> errors) {
+		StringBuilder sb = new StringBuilder();
+		for (XmlValidationError error : errors) {
+			sb.append(error.getMessage().getMessageKey()).append(' ').append(Arrays.toString(error.getParameters()))
+					.append('\n');
+		}
+
+		return sb.toString();
+	}
+}
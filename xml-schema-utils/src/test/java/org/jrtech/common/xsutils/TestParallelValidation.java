@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2016-2026 Jumin Rubin
+ * LinkedIn: https://www.linkedin.com/in/juminrubin/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jrtech.common.xsutils;
+
+import java.net.URL;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.jrtech.common.xmlutils.XmlUtils;
+import org.jrtech.common.xsutils.model.JrxDocument;
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+
+public class TestParallelValidation {
+
+	private static final Logger log = LoggerFactory.getLogger(TestParallelValidation.class);
+
+	@Test
+	public void parallelMatchesSequentialOnSamples() throws Exception {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			compare(XmlUtils.openDocumentNS(getClass().getClassLoader().getResource("input/incomplete-setr.010.xml")),
+					pool, 1, "schema/$ahV10.xsd", "schema/setr.010.001.03.xsd");
+			compare(XmlUtils.openDocumentNS(getClass().getClassLoader().getResource("data/validate-amount.xml")),
+					pool, 2, "schema/$ahV10.xsd", "schema/setr.010.001.03.xsd");
+			compare(XmlUtils.openDocumentNS(getClass().getClassLoader().getResource("input/simple1.xml")), pool, 1,
+					"schema/aaachoice.001.001.01.xsd");
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void parallelMatchesSequentialOnLargeDocument() throws Exception {
+		StringBuilder sb = new StringBuilder();
+		sb.append("<Document xmlns=\"urn:test:xsd:aaachoice.001.001.01\"><ChoiceTestDocument>");
+		sb.append("<AcctId><Prtry><Id>jruac001</Id></Prtry></AcctId><AcctNm>Name</AcctNm>");
+		for (int i = 0; i < 2000; i++) {
+			// Every third BIC is invalid
+			sb.append("<OwnrId><BICOrBEI>").append(i % 3 == 0 ? "invalid" + i : "DEUTDEFF").append("</BICOrBEI></OwnrId>");
+		}
+		sb.append("<Order><SubAcctForHldg><Id><Prtry><Id>myac001</Id></Prtry></Id></SubAcctForHldg></Order>");
+		sb.append("</ChoiceTestDocument></Document>");
+
+		List<XmlValidationError> result = compare(XmlUtils.createDocument(sb.toString()), ForkJoinPool.commonPool(),
+				100, "schema/aaachoice.001.001.01.xsd");
+		Assert.assertTrue(result.size() >= 667);
+	}
+
+	@Test
+	public void registrySchemasAreNotAddedDuringValidation() throws Exception {
+		SchemaRegistry registry = SchemaRegistry.newInstance();
+		registry.loadSchemas(getClass().getClassLoader().getResource("schema/$ahV10.xsd"));
+		registry.loadSchemas(getClass().getClassLoader().getResource("schema/setr.010.001.03.xsd"));
+
+		// The schemas are looked up in the registry only, the worker threads must not add them to the util
+		JrxXmlModelUtil util = CacheableJrxXmlModelUtil.newInstance(registry);
+		JrxDocument jrxDoc = util.convertXmlToJrxModel(XmlUtils.openDocumentNS(getClass().getClassLoader()
+				.getResource("input/incomplete-setr.010.xml")));
+		jrxDoc = util.enrichJrxDocument(jrxDoc);
+		List<XmlValidationError> sequentialResult = util.validateElement(jrxDoc.getRootElement(), "/");
+
+		util.setParallelValidationThreshold(1);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			List<XmlValidationError> parallelResult = util.validateElementInParallel(jrxDoc.getRootElement(), "/",
+					pool);
+			Assert.assertEquals(sequentialResult.toString(), parallelResult.toString());
+		} finally {
+			pool.shutdown();
+		}
+		Assert.assertTrue(util.compileSchemaSet().isEmpty());
+	}
+
+	private List<XmlValidationError> compare(Document xmlDoc, ForkJoinPool pool, int threshold, String... schemaFiles)
+			throws Exception {
+		JrxXmlModelUtil util = JrxXmlModelUtil.newInstance();
+		for (String schemaFile : schemaFiles) {
+			URL schemaUrl = getClass().getClassLoader().getResource(schemaFile);
+			util.addSchema(schemaUrl);
+		}
+
+		JrxDocument jrxDoc = util.convertXmlToJrxModel(xmlDoc);
+		jrxDoc = util.enrichJrxDocument(jrxDoc);
+
+		List<XmlValidationError> sequentialResult = util.validateElement(jrxDoc.getRootElement(), "/");
+
+		util.setParallelValidationThreshold(threshold);
+		List<XmlValidationError> parallelResult = util.validateElementInParallel(jrxDoc.getRootElement(), "/", pool);
+
+		log.debug("Sequential: " + sequentialResult.size() + " error(s), parallel: " + parallelResult.size()
+				+ " error(s)");
+		Assert.assertEquals(sequentialResult.size(), parallelResult.size());
+		for (int i = 0; i < sequentialResult.size(); i++) {
+			XmlValidationError expected = sequentialResult.get(i);
+			XmlValidationError actual = parallelResult.get(i);
+			Assert.assertSame(expected.getElement(), actual.getElement());
+			Assert.assertSame(expected.getMessage(), actual.getMessage());
+			Assert.assertTrue(Arrays.equals(expected.getParameters(), actual.getParameters()));
+		}
+
+		return parallelResult;
+	}
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2016-2026 Jumin Rubin
+ * LinkedIn: https://www.linkedin.com/in/juminrubin/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jrtech.common.xsutils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jrtech.common.xmlutils.XmlUtils;
+import org.jrtech.common.xsutils.JrxProcessingPipeline.Result;
+import org.jrtech.common.xsutils.JrxProcessingPipeline.Stage;
+import org.jrtech.common.xsutils.model.JrxDocument;
+import org.jrtech.common.xsutils.model.JrxElement;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestProcessingPipeline {
+
+	private static final String AAACHOICE_SCHEMA = "schema/aaachoice.001.001.01.xsd";
+
+	@Test
+	public void resultsMatchSequentialProcessing() throws Exception {
+		SchemaRegistry registry = SchemaRegistry.newInstance();
+		registry.loadSchemas(getClass().getClassLoader().getResource(AAACHOICE_SCHEMA));
+
+		Map<Integer, Result<Integer>> resultMap = new ConcurrentHashMap<Integer, Result<Integer>>();
+		JrxProcessingPipeline<Integer> pipeline = JrxProcessingPipeline.newInstance(
+				() -> CacheableJrxXmlModelUtil.newInstance(registry), result -> resultMap.put(result.getKey(), result));
+		pipeline.setParallelism(Stage.CONVERT, 2);
+		pipeline.setParallelism(Stage.VALIDATE, 3);
+		pipeline.setQueueCapacity(2);
+		pipeline.start();
+		for (int i = 0; i < 20; i++) {
+			pipeline.submit(i, createDocument(i));
+		}
+		pipeline.submit(20, "<Document xmlns=\"urn:test:xsd:aaachoice.001.001.01\">");
+		pipeline.close();
+		Assert.assertTrue(pipeline.awaitTermination(0, TimeUnit.SECONDS));
+
+		Assert.assertEquals(21, resultMap.size());
+		JrxXmlModelUtil util = CacheableJrxXmlModelUtil.newInstance(registry);
+		for (int i = 0; i < 20; i++) {
+			Result<Integer> result = resultMap.get(i);
+			Assert.assertNull(result.getFailure());
+			JrxDocument jrxDoc = util.convertXmlToJrxModel(XmlUtils.createDocumentNS(createDocument(i)));
+			Assert.assertEquals(util.validateDocument(jrxDoc).toString(), result.getValidationErrors().toString());
+			Assert.assertEquals(result.getValidationErrors().isEmpty(), result.isValid());
+			if (i > 0) {
+				Assert.assertTrue(result.getValidationErrors().size() > resultMap.get(i - 1).getValidationErrors().size());
+			}
+			Assert.assertTrue(result.getStageNanos(Stage.VALIDATE) > 0);
+			Assert.assertTrue(result.getTotalNanos() >= result.getStageNanos(Stage.CONVERT));
+		}
+
+		// Malformed document
+		Result<Integer> result = resultMap.get(20);
+		Assert.assertEquals(Stage.PARSE, result.getFailedStage());
+		Assert.assertNotNull(result.getFailure());
+		Assert.assertNull(result.getValidationErrors());
+		Assert.assertEquals(0, result.getStageNanos(Stage.CONVERT));
+
+		try {
+			pipeline.submit(21, createDocument(0));
+			Assert.fail("Closed pipeline accepted a document");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void slowConsumerBlocksProducer() throws Exception {
+		SchemaRegistry registry = SchemaRegistry.newInstance();
+		registry.loadSchemas(getClass().getClassLoader().getResource(AAACHOICE_SCHEMA));
+
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger resultCount = new AtomicInteger();
+		JrxProcessingPipeline<Integer> pipeline = JrxProcessingPipeline.newInstance(
+				() -> CacheableJrxXmlModelUtil.newInstance(registry), result -> {
+					try {
+						release.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					resultCount.incrementAndGet();
+				});
+		pipeline.setQueueCapacity(1);
+		pipeline.start();
+
+		AtomicInteger submitCount = new AtomicInteger();
+		Thread producer = new Thread(() -> {
+			try {
+				for (int i = 0; i < 20; i++) {
+					pipeline.submit(i, createDocument(i));
+					submitCount.incrementAndGet();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		producer.start();
+
+		// One document per queue and one per worker
+		producer.join(1000);
+		Assert.assertTrue(producer.isAlive());
+		Assert.assertTrue(submitCount.get() <= 8);
+		Assert.assertEquals(0, resultCount.get());
+
+		release.countDown();
+		producer.join(30000);
+		Assert.assertEquals(20, submitCount.get());
+		pipeline.close();
+		Assert.assertEquals(20, resultCount.get());
+	}
+
+	@Test
+	public void errorsDoNotStopThePipeline() throws Exception {
+		SchemaRegistry registry = SchemaRegistry.newInstance();
+		registry.loadSchemas(getClass().getClassLoader().getResource(AAACHOICE_SCHEMA));
+
+		Map<Integer, Result<Integer>> resultMap = new ConcurrentHashMap<Integer, Result<Integer>>();
+		JrxProcessingPipeline<Integer> pipeline = JrxProcessingPipeline.newInstance(
+				() -> new CacheableJrxXmlModelUtil(registry) {
+
+					@Override
+					public List<XmlValidationError> validateElement(JrxElement jrxElement, String path) {
+						throw new StackOverflowError("validation");
+					}
+				}, result -> {
+					resultMap.put(result.getKey(), result);
+					if (result.getKey() % 2 == 0) {
+						throw new AssertionError("handler");
+					}
+				});
+		pipeline.setQueueCapacity(1);
+		pipeline.start();
+		for (int i = 0; i < 10; i++) {
+			pipeline.submit(i, createDocument(i));
+		}
+		pipeline.shutdown();
+		Assert.assertTrue(pipeline.awaitTermination(30, TimeUnit.SECONDS));
+
+		Assert.assertEquals(10, resultMap.size());
+		for (Result<Integer> result : resultMap.values()) {
+			Assert.assertEquals(Stage.VALIDATE, result.getFailedStage());
+			Assert.assertTrue(result.getFailure() instanceof StackOverflowError);
+			Assert.assertFalse(result.isValid());
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void lazyEnrichmentIsRejected() throws Exception {
+		JrxProcessingPipeline<Integer> pipeline = JrxProcessingPipeline.newInstance(() -> {
+			JrxXmlModelUtil util = JrxXmlModelUtil.newInstance();
+			util.setLazyEnrichment(true);
+			return util;
+		}, result -> {
+		});
+		pipeline.start();
+	}
+
+	private static String createDocument(int invalidCount) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("<Document xmlns=\"urn:test:xsd:aaachoice.001.001.01\"><ChoiceTestDocument>");
+		sb.append("<AcctId><Prtry><Id>jruac001</Id></Prtry></AcctId><AcctNm>Name</AcctNm>");
+		for (int i = 0; i < 10 + invalidCount; i++) {
+			sb.append("<OwnrId><BICOrBEI>").append(i < invalidCount ? "invalid" + i : "DEUTDEFF").append(
+					"</BICOrBEI></OwnrId>");
+		}
+		sb.append("<Order><SubAcctForHldg><Id><Prtry><Id>myac001</Id></Prtry></Id></SubAcctForHldg></Order>");
+		sb.append("</ChoiceTestDocument></Document>");
+
+		return sb.toString();
+	}
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2016-2026 Jumin Rubin
+ * LinkedIn: https://www.linkedin.com/in/juminrubin/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jrtech.common.xsutils;
+
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.jrtech.common.xmlutils.XmlUtils;
+import org.jrtech.common.xsutils.model.JrxDocument;
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+
+import com.sun.xml.xsom.XSSchema;
+import com.sun.xml.xsom.XSSchemaSet;
+
+public class TestSchemaRegistry {
+
+	private static final Logger log = LoggerFactory.getLogger(TestSchemaRegistry.class);
+
+	private static final String SWIFT_INTERACT_XSD_URL = "schema/SwInt.xsd";
+
+	private static final String SWIFT_INTERACT_NAMESPACE = "urn:swift:snl:ns.SwInt";
+
+	private static final String SWIFT_SECURITY_XSD_URL = "schema/SwSec.xsd";
+
+	private static final String SWIFT_SECURITY_NAMESPACE = "urn:swift:snl:ns.SwSec";
+
+	@Test
+	public void concurrentLoadParsesOnce() throws Exception {
+		final SchemaRegistry registry = SchemaRegistry.newInstance();
+		final URL schemaUrl = getClass().getClassLoader().getResource(SWIFT_INTERACT_XSD_URL);
+		int threadCount = 8;
+		final CountDownLatch startSignal = new CountDownLatch(1);
+
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		try {
+			List<Future<String[]>> resultList = new ArrayList<Future<String[]>>();
+			for (int i = 0; i < threadCount; i++) {
+				resultList.add(executor.submit(new Callable<String[]>() {
+					@Override
+					public String[] call() throws Exception {
+						startSignal.await();
+						return registry.loadSchemas(schemaUrl);
+					}
+				}));
+			}
+			startSignal.countDown();
+
+			for (Future<String[]> result : resultList) {
+				Assert.assertArrayEquals(resultList.get(0).get(), result.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		SchemaRegistry.Statistics statistics = registry.getStatistics();
+		log.info("Registry statistics: " + statistics);
+		Assert.assertEquals(1, statistics.getMissCount());
+		Assert.assertEquals(threadCount - 1, statistics.getHitCount());
+		Assert.assertTrue(statistics.getTotalLoadTime() > 0);
+		Assert.assertTrue(registry.hasSchema(SWIFT_INTERACT_NAMESPACE));
+	}
+
+	@Test
+	public void invalidateAndReload() throws Exception {
+		SchemaRegistry registry = SchemaRegistry.newInstance();
+		URL schemaUrl = getClass().getClassLoader().getResource(SWIFT_INTERACT_XSD_URL);
+
+		registry.loadSchemas(schemaUrl);
+		XSSchema firstSchema = registry.getSchema(SWIFT_INTERACT_NAMESPACE);
+		Assert.assertNotNull(firstSchema);
+		Assert.assertTrue(registry.isLoaded(schemaUrl));
+
+		Assert.assertTrue(registry.invalidate(schemaUrl));
+		Assert.assertFalse(registry.isLoaded(schemaUrl));
+		Assert.assertFalse(registry.hasSchema(SWIFT_INTERACT_NAMESPACE));
+		Assert.assertFalse(registry.invalidate(schemaUrl));
+
+		registry.reload(schemaUrl);
+		XSSchema reloadedSchema = registry.getSchema(SWIFT_INTERACT_NAMESPACE);
+		Assert.assertNotNull(reloadedSchema);
+		Assert.assertNotSame(firstSchema, reloadedSchema);
+
+		registry.reload(schemaUrl);
+		Assert.assertEquals(3, registry.getStatistics().getMissCount());
+		Assert.assertEquals(0, registry.getStatistics().getHitCount());
+	}
+
+	@Test
+	public void invalidateKeepsSharedNamespaces() throws Exception {
+		SchemaRegistry registry = SchemaRegistry.newInstance();
+		URL interActSchemaUrl = getClass().getClassLoader().getResource(SWIFT_INTERACT_XSD_URL);
+		URL securitySchemaUrl = getClass().getClassLoader().getResource(SWIFT_SECURITY_XSD_URL);
+
+		registry.loadSchemas(interActSchemaUrl);
+		String[] securityNamespaceUris = registry.loadSchemas(securitySchemaUrl);
+		Assert.assertTrue(securityNamespaceUris.length > 1);
+
+		// The namespaces imported by both schema sets are taken over by the one still loaded
+		Assert.assertTrue(registry.invalidate(interActSchemaUrl));
+		XSSchema[] securitySchemas = new XSSchema[securityNamespaceUris.length];
+		for (int i = 0; i < securityNamespaceUris.length; i++) {
+			securitySchemas[i] = registry.getSchema(securityNamespaceUris[i]);
+			Assert.assertNotNull(securityNamespaceUris[i], securitySchemas[i]);
+		}
+
+		CacheableJrxXmlModelUtil util = CacheableJrxXmlModelUtil.newInstance(registry);
+		util.addSchema(securitySchemaUrl);
+		Assert.assertNotNull(util.getSchema(SWIFT_SECURITY_NAMESPACE));
+
+		// Invalidating the remaining schema set removes all of its namespaces
+		Assert.assertTrue(registry.invalidate(securitySchemaUrl));
+		for (int i = 0; i < securityNamespaceUris.length; i++) {
+			Assert.assertNotSame(securitySchemas[i], registry.getSchema(securityNamespaceUris[i]));
+		}
+		Assert.assertFalse(registry.hasSchemas());
+	}
+
+	@Test
+	public void failedLoadIsRetried() throws Exception {
+		SchemaRegistry registry = SchemaRegistry.newInstance();
+		URL schemaUrl = getClass().getClassLoader().getResource("input/simple1.xml");
+
+		for (int i = 0; i < 2; i++) {
+			try {
+				registry.loadSchemas(schemaUrl);
+				Assert.fail("Loading non schema document should fail");
+			} catch (Exception e) {
+				log.debug("Expected failure: " + e.getMessage());
+			}
+		}
+
+		Assert.assertEquals(2, registry.getStatistics().getLoadFailureCount());
+		Assert.assertFalse(registry.isLoaded(schemaUrl));
+	}
+
+	@Test
+	public void cacheableUtilSharesRegistry() throws Exception {
+		SchemaRegistry registry = SchemaRegistry.newInstance();
+		URL schemaUrl = getClass().getClassLoader().getResource("schema/aaachoice.001.001.01.xsd");
+		URL xmlUrl = getClass().getClassLoader().getResource("input/simple1.xml");
+
+		for (int i = 0; i < 3; i++) {
+			CacheableJrxXmlModelUtil util = CacheableJrxXmlModelUtil.newInstance(registry);
+			util.addSchema(schemaUrl);
+
+			Document xmlDoc = XmlUtils.openDocumentNS(xmlUrl);
+			JrxDocument jrxDoc = util.convertXmlToJrxModel(xmlDoc);
+			Assert.assertNotNull(jrxDoc.getRootElement().getXsdDeclaration());
+		}
+
+		Assert.assertEquals(1, registry.getStatistics().getMissCount());
+		Assert.assertEquals(2, registry.getStatistics().getHitCount());
+	}
+
+	@Test
+	public void invalidatedSchemaSetIsCollected() throws Exception {
+		SchemaRegistry registry = SchemaRegistry.newInstance();
+		WeakReference<XSSchemaSet> schemaSetReference = processDocument(registry);
+
+		registry.invalidateAll();
+		Assert.assertTrue("Schema set is still referenced", isCollected(schemaSetReference));
+	}
+
+	@Test
+	public void bulkLoadAddsAllSchemas() throws Exception {
+		List<URL> schemaUrls = getResources("schema/setr.004.001.03.xsd", "schema/setr.010.001.03.xsd",
+				"schema/$ahV10.xsd", "schema/aaachoice.001.001.01.xsd", SWIFT_INTERACT_XSD_URL);
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			JrxXmlModelUtil util = JrxXmlModelUtil.newInstance();
+			List<SchemaRegistry.Entry> entryList = util.addSchemas(schemaUrls, executor);
+			assertEntries(schemaUrls, entryList);
+			for (SchemaRegistry.Entry entry : entryList) {
+				for (String namespaceUri : entry.getNamespaceUris()) {
+					Assert.assertNotNull(util.getSchema(namespaceUri));
+				}
+			}
+
+			SchemaRegistry registry = SchemaRegistry.newInstance();
+			CacheableJrxXmlModelUtil cacheableUtil = CacheableJrxXmlModelUtil.newInstance(registry);
+			entryList = cacheableUtil.addSchemas(schemaUrls, executor);
+			assertEntries(schemaUrls, entryList);
+			for (SchemaRegistry.Entry entry : entryList) {
+				Assert.assertTrue(registry.isLoaded(entry.getUrl()));
+				for (String namespaceUri : entry.getNamespaceUris()) {
+					Assert.assertSame(registry.getSchema(namespaceUri), cacheableUtil.getSchema(namespaceUri));
+				}
+			}
+			Assert.assertEquals(schemaUrls.size(), registry.getStatistics().getMissCount());
+
+			// Loaded before, not parsed again
+			Assert.assertEquals(entryList.get(0), registry.loadSchemas(schemaUrls, executor).get(0));
+			Assert.assertEquals(schemaUrls.size(), registry.getStatistics().getMissCount());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void failedBulkLoadAddsNothing() throws Exception {
+		List<URL> schemaUrls = getResources("schema/aaachoice.001.001.01.xsd", "input/simple1.xml");
+
+		JrxXmlModelUtil util = JrxXmlModelUtil.newInstance();
+		try {
+			util.addSchemas(schemaUrls);
+			Assert.fail("Loading non schema document should fail");
+		} catch (Exception e) {
+			log.debug("Expected failure: " + e.getMessage());
+		}
+		Assert.assertNull(util.getSchema("urn:test:xsd:aaachoice.001.001.01"));
+	}
+
+	private WeakReference<XSSchemaSet> processDocument(SchemaRegistry registry) throws Exception {
+		URL schemaUrl = getClass().getClassLoader().getResource("schema/aaachoice.001.001.01.xsd");
+		URL xmlUrl = getClass().getClassLoader().getResource("input/simple1.xml");
+
+		CacheableJrxXmlModelUtil util = CacheableJrxXmlModelUtil.newInstance(registry);
+		util.addSchema(schemaUrl);
+		JrxDocument jrxDoc = util.convertXmlToJrxModel(XmlUtils.openDocumentNS(xmlUrl));
+		util.validateDocument(jrxDoc);
+		Assert.assertNotNull(util.convertXsdToJrxDoc(schemaUrl, "Doc", "Document"));
+
+		return new WeakReference<XSSchemaSet>(registry.getEntry(schemaUrl).getSchemaSet());
+	}
+
+	/**
+	 * Collect the garbage until the referent is collected. The soft references are cleared by filling the heap.
+	 */
+	private static boolean isCollected(WeakReference<?> reference) {
+		System.gc();
+		List<byte[]> allocationList = new ArrayList<byte[]>();
+		try {
+			while (reference.get() != null) {
+				allocationList.add(new byte[1 << 24]);
+			}
+		} catch (OutOfMemoryError e) {
+			allocationList.clear();
+			System.gc();
+		}
+
+		return reference.get() == null;
+	}
+
+	private List<URL> getResources(String... resourceNames) {
+		List<URL> urlList = new ArrayList<URL>();
+		for (String resourceName : resourceNames) {
+			urlList.add(getClass().getClassLoader().getResource(resourceName));
+		}
+
+		return urlList;
+	}
+
+	private static void assertEntries(List<URL> schemaUrls, List<SchemaRegistry.Entry> entryList) {
+		Assert.assertEquals(schemaUrls.size(), entryList.size());
+		for (int i = 0; i < schemaUrls.size(); i++) {
+			SchemaRegistry.Entry entry = entryList.get(i);
+			Assert.assertEquals(schemaUrls.get(i).toString(), entry.getUrl().toString());
+			Assert.assertTrue(entry.getLoadTime() > 0);
+			Assert.assertTrue(entry.getNamespaceUris().length > 0);
+		}
+	}
+}
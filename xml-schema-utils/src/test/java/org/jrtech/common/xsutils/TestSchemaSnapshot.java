@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2016-2026 Jumin Rubin
+ * LinkedIn: https://www.linkedin.com/in/juminrubin/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jrtech.common.xsutils;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.TreeSet;
+
+import org.jrtech.common.xmlutils.XmlUtils;
+import org.jrtech.common.xsutils.model.JrxDocument;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.sun.xml.xsom.XSSchema;
+import com.sun.xml.xsom.XSSchemaSet;
+
+public class TestSchemaSnapshot {
+
+	private static final String[] SWIFT_XSD_FILES = { "SwInt.xsd", "Sw.xsd", "SwGbl.xsd", "SwSec.xsd", "Doc.xsd" };
+
+	private static final String AAACHOICE_SCHEMA = "schema/aaachoice.001.001.01.xsd";
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void snapshotMatchesParsedSchema() throws Exception {
+		File schemaDir = copySchemas(SWIFT_XSD_FILES);
+		URL schemaUrl = new File(schemaDir, "SwInt.xsd").toURI().toURL();
+		File snapshotFile = new File(schemaDir, "SwInt.jrxs");
+
+		String[] namespaceUris = JrxXmlModelUtil.newInstance().addSchema(schemaUrl, snapshotFile);
+		Assert.assertTrue(snapshotFile.isFile());
+		Assert.assertTrue(SchemaSnapshot.isUpToDate(schemaUrl, snapshotFile));
+
+		// Built from the snapshot
+		JrxXmlModelUtil snapshotUtil = JrxXmlModelUtil.newInstance();
+		Assert.assertArrayEquals(namespaceUris, snapshotUtil.addSchema(schemaUrl, snapshotFile));
+
+		XSSchemaSet parsedSchemaSet = JrxXmlModelUtil.parseSchemaSet(schemaUrl);
+		Iterator<XSSchema> it = parsedSchemaSet.iterateSchema();
+		while (it.hasNext()) {
+			XSSchema xsParsedSchema = it.next();
+			XSSchema xsSnapshotSchema = snapshotUtil.getSchema(xsParsedSchema.getTargetNamespace());
+			Assert.assertEquals(new TreeSet<String>(xsParsedSchema.getElementDecls().keySet()), new TreeSet<String>(
+					xsSnapshotSchema.getElementDecls().keySet()));
+			Assert.assertEquals(new TreeSet<String>(xsParsedSchema.getTypes().keySet()), new TreeSet<String>(
+					xsSnapshotSchema.getTypes().keySet()));
+		}
+
+		File aaachoiceSchemaDir = copySchemas("aaachoice.001.001.01.xsd");
+		URL aaachoiceSchemaUrl = new File(aaachoiceSchemaDir, "aaachoice.001.001.01.xsd").toURI().toURL();
+		File aaachoiceSnapshotFile = new File(aaachoiceSchemaDir, "aaachoice.jrxs");
+		JrxXmlModelUtil.newInstance().addSchema(aaachoiceSchemaUrl, aaachoiceSnapshotFile);
+
+		JrxXmlModelUtil util = JrxXmlModelUtil.newInstance();
+		util.setToStringWithValue(true);
+		util.addSchema(getClass().getClassLoader().getResource(AAACHOICE_SCHEMA));
+		snapshotUtil = JrxXmlModelUtil.newInstance();
+		snapshotUtil.setToStringWithValue(true);
+		snapshotUtil.addSchema(aaachoiceSchemaUrl, aaachoiceSnapshotFile);
+
+		JrxDocument jrxDoc = openDocument(util, "data/aaachoice.xml");
+		JrxDocument jrxSnapshotDoc = openDocument(snapshotUtil, "data/aaachoice.xml");
+		Assert.assertEquals(util.convertDocumentToString(jrxDoc), snapshotUtil.convertDocumentToString(jrxSnapshotDoc));
+		Assert.assertEquals(util.validateDocument(jrxDoc).toString(), snapshotUtil.validateDocument(jrxSnapshotDoc)
+				.toString());
+	}
+
+	@Test
+	public void changedSchemaIsParsedAgain() throws Exception {
+		File schemaDir = copySchemas(SWIFT_XSD_FILES);
+		URL schemaUrl = new File(schemaDir, "SwInt.xsd").toURI().toURL();
+		File snapshotFile = new File(schemaDir, "SwInt.jrxs");
+		SchemaSnapshot.write(schemaUrl, snapshotFile);
+
+		// Change an imported document
+		File docSchemaFile = new File(schemaDir, "Doc.xsd");
+		String docSchema = new String(Files.readAllBytes(docSchemaFile.toPath()), StandardCharsets.UTF_8);
+		Files.write(docSchemaFile.toPath(), docSchema.replace("</xs:schema>",
+				"<xs:element name=\"SnapshotTest\" type=\"xs:string\"/></xs:schema>").getBytes(StandardCharsets.UTF_8));
+		Assert.assertFalse(SchemaSnapshot.isUpToDate(schemaUrl, snapshotFile));
+
+		JrxXmlModelUtil util = JrxXmlModelUtil.newInstance();
+		util.addSchema(schemaUrl, snapshotFile);
+		Assert.assertNotNull(util.getSchema("urn:swift:snl:ns.Doc").getElementDecl("SnapshotTest"));
+		Assert.assertTrue(SchemaSnapshot.isUpToDate(schemaUrl, snapshotFile));
+	}
+
+	@Test
+	public void corruptedSnapshotIsIgnored() throws Exception {
+		File schemaDir = copySchemas("aaachoice.001.001.01.xsd");
+		URL schemaUrl = new File(schemaDir, "aaachoice.001.001.01.xsd").toURI().toURL();
+		File snapshotFile = new File(schemaDir, "aaachoice.jrxs");
+		SchemaSnapshot.write(schemaUrl, snapshotFile);
+
+		RandomAccessFile randomAccessFile = new RandomAccessFile(snapshotFile, "rw");
+		try {
+			long position = randomAccessFile.length() / 2;
+			randomAccessFile.seek(position);
+			int value = randomAccessFile.read();
+			randomAccessFile.seek(position);
+			randomAccessFile.write(value ^ 0xFF);
+		} finally {
+			randomAccessFile.close();
+		}
+		Assert.assertFalse(SchemaSnapshot.isUpToDate(schemaUrl, snapshotFile));
+
+		JrxXmlModelUtil util = JrxXmlModelUtil.newInstance();
+		util.addSchema(schemaUrl, snapshotFile);
+		Assert.assertNotNull(util.getSchema("urn:test:xsd:aaachoice.001.001.01").getElementDecl("Document"));
+		Assert.assertTrue(SchemaSnapshot.isUpToDate(schemaUrl, snapshotFile));
+	}
+
+	@Test
+	public void registryKeepsSnapshots() throws Exception {
+		File schemaDir = copySchemas(SWIFT_XSD_FILES);
+		URL schemaUrl = new File(schemaDir, "SwInt.xsd").toURI().toURL();
+		File snapshotDir = new File(schemaDir, "snapshots");
+
+		SchemaRegistry registry = SchemaRegistry.newInstance();
+		registry.setSnapshotDirectory(snapshotDir);
+		String[] namespaceUris = registry.loadSchemas(schemaUrl);
+		Assert.assertEquals(1, snapshotDir.listFiles().length);
+		Assert.assertTrue(SchemaSnapshot.isUpToDate(schemaUrl, snapshotDir.listFiles()[0]));
+
+		SchemaRegistry snapshotRegistry = SchemaRegistry.newInstance();
+		snapshotRegistry.setSnapshotDirectory(snapshotDir);
+		Assert.assertArrayEquals(namespaceUris, snapshotRegistry.loadSchemas(schemaUrl));
+		Assert.assertNotNull(snapshotRegistry.getSchema("urn:swift:snl:ns.SwInt"));
+	}
+
+	private File copySchemas(String... fileNames) throws Exception {
+		File schemaDir = temporaryFolder.newFolder();
+		for (String fileName : fileNames) {
+			InputStream is = getClass().getClassLoader().getResourceAsStream("schema/" + fileName);
+			try {
+				Files.copy(is, new File(schemaDir, fileName).toPath(), StandardCopyOption.REPLACE_EXISTING);
+			} finally {
+				is.close();
+			}
+		}
+
+		return schemaDir;
+	}
+
+	private JrxDocument openDocument(JrxXmlModelUtil util, String resourceName) throws Exception {
+		return util.enrichJrxDocument(util.convertXmlToJrxModel(XmlUtils.openDocumentNS(getClass().getClassLoader()
+				.getResource(resourceName))));
+	}
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2016-2026 Jumin Rubin
+ * LinkedIn: https://www.linkedin.com/in/juminrubin/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jrtech.common.xsutils;
+
+import java.net.URL;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.sun.xml.xsom.XSSchema;
+import com.sun.xml.xsom.XSSimpleType;
+
+public class TestSimpleTypeValidator {
+
+	private static final String AAACHOICE_NAMESPACE = "urn:test:xsd:aaachoice.001.001.01";
+
+	@Test
+	public void translateXsdRegex() {
+		Assert.assertEquals("[A-Z]{3,3}", SimpleTypeValidator.translateXsdRegex("[A-Z]{3,3}"));
+		Assert.assertEquals("\\^[0-9]+\\$", SimpleTypeValidator.translateXsdRegex("^[0-9]+$"));
+		Assert.assertEquals("[^0-9]", SimpleTypeValidator.translateXsdRegex("[^0-9]"));
+		Assert.assertEquals("[a-z&&[^aeiou]]", SimpleTypeValidator.translateXsdRegex("[a-z-[aeiou]]"));
+		Assert.assertEquals("[+\\-]?[0-9]", SimpleTypeValidator.translateXsdRegex("[+\\-]?[0-9]"));
+
+		Assert.assertTrue("bcd".matches(SimpleTypeValidator.translateXsdRegex("[a-z-[aeiou]]+")));
+		Assert.assertFalse("bad".matches(SimpleTypeValidator.translateXsdRegex("[a-z-[aeiou]]+")));
+		Assert.assertTrue("_x1.y".matches(SimpleTypeValidator.translateXsdRegex("\\i\\c*")));
+		Assert.assertFalse("1x".matches(SimpleTypeValidator.translateXsdRegex("\\i\\c*")));
+	}
+
+	@Test
+	public void validatorIsCompiledOnce() throws Exception {
+		XSSimpleType xsSimpleType = loadSchema().getSimpleType("AnyBICIdentifier");
+
+		SimpleTypeValidator validator = SimpleTypeValidator.getInstance(xsSimpleType);
+		Assert.assertSame(validator, SimpleTypeValidator.getInstance(xsSimpleType));
+		Assert.assertNotNull(validator.getPattern());
+		Assert.assertFalse(validator.hasEnumeration());
+
+		Assert.assertTrue(validator.validate(null, "DEUTDEFF").isEmpty());
+		Assert.assertTrue(validator.validate(null, "DEUTDEFF500").isEmpty());
+		List<XmlValidationError> errors = validator.validate(null, "deutdeff");
+		Assert.assertEquals(1, errors.size());
+		Assert.assertEquals(XmlValidationMessage.ERROR_INVALID_CONTENT_PATTERN, errors.get(0).getMessage());
+	}
+
+	@Test
+	public void enumerationAndBounds() throws Exception {
+		XSSchema xsSchema = loadSchema();
+
+		SimpleTypeValidator codeValidator = SimpleTypeValidator.getInstance(xsSchema.getSimpleType("ChargeType11Code"));
+		Assert.assertTrue(codeValidator.hasEnumeration());
+		Assert.assertTrue(codeValidator.validate(null, "SWIT").isEmpty());
+		List<XmlValidationError> errors = codeValidator.validate(null, "XXXX");
+		Assert.assertEquals(1, errors.size());
+		Assert.assertEquals(XmlValidationMessage.ERROR_INVALID_CONTENT_ALLOWED_VALUE, errors.get(0).getMessage());
+
+		SimpleTypeValidator textValidator = SimpleTypeValidator.getInstance(xsSchema.getSimpleType("Max35Text"));
+		Assert.assertEquals(1, textValidator.getMinLength());
+		Assert.assertEquals(35, textValidator.getMaxLength());
+		Assert.assertTrue(textValidator.validate(null, "Text").isEmpty());
+		Assert.assertEquals(XmlValidationMessage.ERROR_INVALID_CONTENT_MAX_LENGTH,
+				textValidator.validate(null, "123456789012345678901234567890123456").get(0).getMessage());
+
+		SimpleTypeValidator amountValidator = SimpleTypeValidator.getInstance(xsSchema
+				.getSimpleType("ActiveCurrencyAndAmount_SimpleType"));
+		Assert.assertEquals(5, amountValidator.getFractionDigits());
+		Assert.assertTrue(amountValidator.validate(null, "10.12345").isEmpty());
+		Assert.assertEquals(XmlValidationMessage.ERROR_INVALID_CONTENT_DECIMAL_PLACE,
+				amountValidator.validate(null, "10.123456").get(0).getMessage());
+	}
+
+	private XSSchema loadSchema() throws Exception {
+		URL schemaUrl = getClass().getClassLoader().getResource("schema/aaachoice.001.001.01.xsd");
+		SchemaRegistry registry = SchemaRegistry.newInstance();
+		registry.loadSchemas(schemaUrl);
+
+		return registry.getSchema(AAACHOICE_NAMESPACE);
+	}
+}
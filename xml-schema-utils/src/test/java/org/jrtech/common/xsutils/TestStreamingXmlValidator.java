@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2016-2026 Jumin Rubin
+ * LinkedIn: https://www.linkedin.com/in/juminrubin/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jrtech.common.xsutils;
+
+import java.io.InputStream;
+import java.io.StringReader;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jrtech.common.xmlutils.XmlUtils;
+import org.jrtech.common.xsutils.model.JrxDocument;
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class TestStreamingXmlValidator {
+
+	private static final Logger log = LoggerFactory.getLogger(TestStreamingXmlValidator.class);
+
+	private static final String AAACHOICE_SCHEMA = "schema/aaachoice.001.001.01.xsd";
+
+	private static final String HEADER = "<Document xmlns=\"urn:test:xsd:aaachoice.001.001.01\"><ChoiceTestDocument>";
+
+	private static final String TRAILER = "</ChoiceTestDocument></Document>";
+
+	@Test
+	public void streamingMatchesJrxOnSamples() throws Exception {
+		compareResource("input/incomplete-setr.010.xml", "schema/$ahV10.xsd", "schema/setr.010.001.03.xsd");
+		compareResource("data/validate-amount.xml", "schema/$ahV10.xsd", "schema/setr.010.001.03.xsd");
+		compareResource("input/simple1.xml", AAACHOICE_SCHEMA);
+		compareResource("data/aaachoice.xml", AAACHOICE_SCHEMA);
+	}
+
+	@Test
+	public void streamingMatchesJrxOnInvalidDocuments() throws Exception {
+		// Missing mandatory element, unknown element
+		compare(HEADER + "<AcctId><Prtry><Id>x</Id></Prtry></AcctId><AcctNm>Name</AcctNm><Order><Unknown>1</Unknown>"
+				+ "<UnitsNb><Unit>1</Unit></UnitsNb></Order>" + TRAILER, AAACHOICE_SCHEMA);
+		// Empty mandatory element, exceeded occurrence, choice without selection
+		compare(HEADER + "<AcctId><Prtry><Id>x</Id></Prtry></AcctId><AcctNm></AcctNm><AcctDsgnt>a</AcctDsgnt>"
+				+ "<AcctDsgnt>b</AcctDsgnt><Order><SubAcctForHldg><Id><Prtry><Id>a</Id></Prtry></Id></SubAcctForHldg>"
+				+ "</Order>" + TRAILER, AAACHOICE_SCHEMA);
+		// Pattern, enumeration, decimal places and attributes
+		compare(HEADER + "<AcctId><Prtry><Id>x</Id></Prtry></AcctId><AcctNm>n</AcctNm><OwnrId><BICOrBEI>bad</BICOrBEI>"
+				+ "</OwnrId><OwnrId><BICOrBEI>DEUTDEFF</BICOrBEI></OwnrId><Order><GrssAmt Ccy=\"eur\">1.1234567</GrssAmt>"
+				+ "</Order><testNode><Tp>XXX</Tp><Amt Ccy=\"\">-1</Amt></testNode>" + TRAILER, AAACHOICE_SCHEMA);
+		// Empty mandatory root child
+		compare(HEADER + TRAILER, AAACHOICE_SCHEMA);
+	}
+
+	@Test
+	public void streamingMatchesJrxOnLargeDocument() throws Exception {
+		StringBuilder sb = new StringBuilder(HEADER);
+		sb.append("<AcctId><Prtry><Id>jruac001</Id></Prtry></AcctId><AcctNm>Name</AcctNm>");
+		for (int i = 0; i < 2000; i++) {
+			// Every third BIC is invalid
+			sb.append("<OwnrId><BICOrBEI>").append(i % 3 == 0 ? "invalid" + i : "DEUTDEFF").append("</BICOrBEI></OwnrId>");
+		}
+		sb.append("<Order><SubAcctForHldg><Id><Prtry><Id>myac001</Id></Prtry></Id></SubAcctForHldg></Order>");
+		sb.append(TRAILER);
+
+		List<XmlValidationError> result = compare(sb.toString(), AAACHOICE_SCHEMA);
+		Assert.assertTrue(result.size() >= 667);
+	}
+
+	@Test
+	public void errorsCarryPath() throws Exception {
+		StreamingXmlValidator validator = StreamingXmlValidator.newInstance(createModelUtil(AAACHOICE_SCHEMA));
+		List<XmlValidationError> result = validator.validate(new StringReader(HEADER
+				+ "<AcctId><Prtry><Id>x</Id></Prtry></AcctId><AcctNm></AcctNm><Bogus/>"
+				+ "<Securities><ISIN>DE0001234567</ISIN></Securities><Order><UnitsNb><Unit>1</Unit></UnitsNb></Order>" + TRAILER));
+
+		Assert.assertEquals(result.toString(), 1, result.size());
+		Assert.assertSame(XmlValidationMessage.ERROR_NODE_MANDATORY, result.get(0).getMessage());
+		Assert.assertEquals("/Document/ChoiceTestDocument/AcctNm", result.get(0).getPath());
+		Assert.assertNull(result.get(0).getElement());
+
+		validator.setReportUndeclaredElements(true);
+		result = validator.validate(new StringReader(HEADER
+				+ "<AcctId><Prtry><Id>x</Id></Prtry></AcctId><AcctNm>Name</AcctNm><Bogus/>"
+				+ "<Securities><ISIN>DE0001234567</ISIN></Securities><Order><UnitsNb><Unit>1</Unit></UnitsNb></Order>" + TRAILER));
+
+		Assert.assertEquals(1, result.size());
+		Assert.assertSame(XmlValidationMessage.ERROR_NODE_INVALID_CHILD, result.get(0).getMessage());
+		Assert.assertEquals("/Document/ChoiceTestDocument/Bogus", result.get(0).getPath());
+	}
+
+	private void compareResource(String resource, String... schemaFiles) throws Exception {
+		JrxXmlModelUtil util = createModelUtil(schemaFiles);
+		URL xmlUrl = getClass().getClassLoader().getResource(resource);
+		List<XmlValidationError> expected = util.validateDocument(util.convertXmlToJrxModel(XmlUtils
+				.openDocumentNS(xmlUrl)));
+
+		try (InputStream in = xmlUrl.openStream()) {
+			assertSameErrors(expected, StreamingXmlValidator.newInstance(util).validate(in));
+		}
+	}
+
+	private List<XmlValidationError> compare(String xml, String... schemaFiles) throws Exception {
+		JrxXmlModelUtil util = createModelUtil(schemaFiles);
+		JrxDocument jrxDoc = util.convertXmlToJrxModel(XmlUtils.createDocumentNS(xml));
+		List<XmlValidationError> expected = util.validateDocument(jrxDoc);
+
+		List<XmlValidationError> actual = StreamingXmlValidator.newInstance(util).validate(new StringReader(xml));
+		assertSameErrors(expected, actual);
+
+		return actual;
+	}
+
+	private JrxXmlModelUtil createModelUtil(String... schemaFiles) throws Exception {
+		JrxXmlModelUtil util = JrxXmlModelUtil.newInstance();
+		for (String schemaFile : schemaFiles) {
+			util.addSchema(getClass().getClassLoader().getResource(schemaFile));
+		}
+
+		return util;
+	}
+
+	private void assertSameErrors(List<XmlValidationError> expected, List<XmlValidationError> actual) {
+		log.debug("Jrx: " + expected + ", streaming: " + actual);
+		Assert.assertEquals(describe(expected), describe(actual));
+	}
+
+	private static String describe(List<XmlValidationError> errors) {
+		StringBuilder sb = new StringBuilder();
+		for (XmlValidationError error : errors) {
+			sb.append(error.getMessage().getMessageKey()).append(' ').append(Arrays.toString(error.getParameters()))
+					.append('\n');
+		}
+
+		return sb.toString();
+	}
+}
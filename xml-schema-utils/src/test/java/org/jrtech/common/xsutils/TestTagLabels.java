@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2016-2026 Jumin Rubin
+ * LinkedIn: https://www.linkedin.com/in/juminrubin/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jrtech.common.xsutils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.jrtech.common.xmlutils.XmlUtils;
+import org.jrtech.common.xsutils.labels.TagLabelCatalogManager;
+import org.jrtech.common.xsutils.labels.TagLabelResourceLocationInfo;
+import org.jrtech.common.xsutils.labels.XmlTagLabelUtil;
+import org.jrtech.common.xsutils.model.JrxDocument;
+import org.jrtech.common.xsutils.model.JrxElement;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestTagLabels {
+
+	private static final String AAACHOICE_NAMESPACE_URI = "urn:test:xsd:aaachoice.001.001.01";
+
+	@Test
+	public void mostSpecificLabelIsResolved() throws Exception {
+		Map<String, String> labelCatalog = new Hashtable<String, String>();
+		labelCatalog.put("element.Document", "Document Element");
+		labelCatalog.put("type.Document", "Document Type");
+		labelCatalog.put("element.AcctId.Prtry", "Proprietary Account");
+		labelCatalog.put("type.SimpleIdentificationInformation", "Simple Identification");
+		labelCatalog.put("type.AccountIdentification1", "Account Identification");
+		labelCatalog.put("element.AcctId", "Account");
+		labelCatalog.put("element.Id", "Identifier");
+		// Same hash codes
+		labelCatalog.put("element.Aa", "Aa");
+		labelCatalog.put("element.BB", "BB");
+		XmlTagLabelUtil.registerNamespaceLabelCatalog(AAACHOICE_NAMESPACE_URI, labelCatalog);
+		labelCatalog.put("element.AcctNm", "Changed after registration");
+
+		JrxXmlModelUtil util = JrxXmlModelUtil.newInstance();
+		util.addSchema(getClass().getClassLoader().getResource("schema/aaachoice.001.001.01.xsd"));
+		JrxDocument jrxDoc = util.enrichJrxDocument(util.convertXmlToJrxModel(XmlUtils.openDocumentNS(getClass()
+				.getClassLoader().getResource("data/aaachoice.xml"))));
+		JrxElement jrxRoot = jrxDoc.getRootElement();
+		JrxElement jrxChoiceTestDocument = JrxXmlModelUtil.getChildElement(jrxRoot, "ChoiceTestDocument");
+		JrxElement jrxAcctId = JrxXmlModelUtil.getChildElement(jrxChoiceTestDocument, "AcctId");
+		JrxElement jrxPrtry = JrxXmlModelUtil.getChildElement(jrxAcctId, "Prtry");
+
+		XmlTagLabelUtil labelUtil = new XmlTagLabelUtil(null);
+		Assert.assertEquals("Document Element", labelUtil.getTagLabel(jrxRoot));
+		Assert.assertEquals("Account Identification", labelUtil.getTagLabel(jrxAcctId));
+		Assert.assertEquals("Proprietary Account", labelUtil.getTagLabel(jrxPrtry));
+		Assert.assertEquals("Identifier", labelUtil.getTagLabel(JrxXmlModelUtil.getChildElement(jrxPrtry, "Id")));
+		Assert.assertEquals("AcctNm", labelUtil.getTagLabel(JrxXmlModelUtil.getChildElement(jrxChoiceTestDocument,
+				"AcctNm")));
+
+		Assert.assertEquals("Proprietary Account", labelUtil.getTagLabel(AAACHOICE_NAMESPACE_URI,
+				"element.AcctId.Prtry", ""));
+		Assert.assertEquals("Aa", labelUtil.getTagLabel(AAACHOICE_NAMESPACE_URI, "element.Aa", ""));
+		Assert.assertEquals("BB", labelUtil.getTagLabel(AAACHOICE_NAMESPACE_URI, "element.BB", ""));
+		Assert.assertEquals("default", labelUtil.getTagLabel(AAACHOICE_NAMESPACE_URI, "element.Cc", "default"));
+		Assert.assertEquals("default", labelUtil.getTagLabel("urn:test:unknown", "element.AcctId", "default"));
+	}
+
+	@Test
+	public void catalogIsLoadedFromResource() throws Exception {
+		XmlTagLabelUtil.addLabelsResourcePath("urn:test:labels", "classpath:/labels");
+		XmlTagLabelUtil labelUtil = new XmlTagLabelUtil(new TagLabelResourceLocationInfo[] {
+				new TagLabelResourceLocationInfo("urn:test:labels", 0) });
+
+		Assert.assertEquals("Account Identifier", labelUtil.getTagLabel("urn:test:labels:sample", "element.Acct.Id",
+				"default"));
+		Assert.assertEquals("Identifier", labelUtil.getTagLabel("urn:test:labels:sample", "element.Id", "default"));
+		Assert.assertTrue(XmlTagLabelUtil.hasNamespaceLabelCatalog("urn:test:labels:sample"));
+
+		// No resource available, the catalog is empty
+		Assert.assertEquals("default", labelUtil.getTagLabel("urn:test:labels:missing", "element.Id", "default"));
+		Assert.assertTrue(XmlTagLabelUtil.hasNamespaceLabelCatalog("urn:test:labels:missing"));
+	}
+
+	@Test
+	public void managedCatalogsAreReloadedOnChange() throws Exception {
+		File catalogDir = Files.createTempDirectory("jrx-labels").toFile();
+		File catalogFile = new File(catalogDir, "catalog.properties");
+		writeCatalog(catalogFile, "element.Id=First Identifier\n");
+		writeCatalog(new File(catalogDir, "other.properties"), "element.Id=Other Identifier\n");
+
+		String catalogDirUrl = catalogDir.toURI().toString();
+		XmlTagLabelUtil.addLabelsResourcePath("urn:test:managed", catalogDirUrl.substring(0, catalogDirUrl.length()
+				- 1));
+		XmlTagLabelUtil labelUtil = new XmlTagLabelUtil(new TagLabelResourceLocationInfo[] {
+				new TagLabelResourceLocationInfo("urn:test:managed", 0) });
+		TagLabelCatalogManager catalogManager = new TagLabelCatalogManager(labelUtil);
+		labelUtil.setCatalogManager(catalogManager);
+		try {
+			catalogManager.preload(Arrays.asList("urn:test:managed:catalog")).get(10, TimeUnit.SECONDS);
+			Assert.assertTrue(catalogManager.hasCatalog("urn:test:managed:catalog"));
+			Assert.assertEquals("First Identifier", labelUtil.getTagLabel("urn:test:managed:catalog", "element.Id",
+					"default"));
+
+			// Not preloaded, loaded in the background
+			Assert.assertEquals("default", labelUtil.getTagLabel("urn:test:managed:other", "element.Id", "default"));
+			Assert.assertEquals("Other Identifier", awaitLabel(labelUtil, "urn:test:managed:other",
+					"Other Identifier"));
+
+			catalogManager.startWatching();
+			writeCatalog(catalogFile, "element.Id=Second Identifier\n");
+			Assert.assertEquals("Second Identifier", awaitLabel(labelUtil, "urn:test:managed:catalog",
+					"Second Identifier"));
+		} finally {
+			catalogManager.close();
+			for (File file : catalogDir.listFiles()) {
+				file.delete();
+			}
+			catalogDir.delete();
+		}
+	}
+
+	private static String awaitLabel(XmlTagLabelUtil labelUtil, String namespaceUri, String expectedLabel)
+			throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 30000;
+		String label = labelUtil.getTagLabel(namespaceUri, "element.Id", "default");
+		while (!expectedLabel.equals(label) && System.currentTimeMillis() < deadline) {
+			Thread.sleep(50);
+			label = labelUtil.getTagLabel(namespaceUri, "element.Id", "default");
+		}
+
+		return label;
+	}
+
+	private static void writeCatalog(File catalogFile, String content) throws IOException {
+		OutputStream os = Files.newOutputStream(catalogFile.toPath());
+		try {
+			os.write(content.getBytes(StandardCharsets.UTF_8));
+		} finally {
+			os.close();
+		}
+	}
+}
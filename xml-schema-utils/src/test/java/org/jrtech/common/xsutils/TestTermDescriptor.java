@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2016-2026 Jumin Rubin
+ * LinkedIn: https://www.linkedin.com/in/juminrubin/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jrtech.common.xsutils;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.jrtech.common.xmlutils.XmlUtils;
+import org.jrtech.common.xsutils.model.JrxDocument;
+import org.jrtech.common.xsutils.model.JrxElement;
+import org.jrtech.common.xsutils.model.JrxTermDescriptor;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.sun.xml.xsom.XSElementDecl;
+
+public class TestTermDescriptor {
+
+	@Test
+	public void elementsOfSameDeclarationShareDescriptor() throws Exception {
+		JrxDocument jrxDoc = loadSample();
+
+		Map<JrxTermDescriptor<?>, Boolean> descriptorMap = new IdentityHashMap<JrxTermDescriptor<?>, Boolean>();
+		Map<Map<String, String>, Boolean> namespaceMap = new IdentityHashMap<Map<String, String>, Boolean>();
+		Map<XSElementDecl, JrxElement> declarationMap = new IdentityHashMap<XSElementDecl, JrxElement>();
+		for (JrxElement jrxElement : jrxDoc.getElements()) {
+			descriptorMap.put(jrxElement.getDescriptor(), Boolean.TRUE);
+			namespaceMap.put(jrxElement.getNamespace(), Boolean.TRUE);
+
+			JrxElement jrxOtherElement = declarationMap.get(jrxElement.getXsdDeclaration());
+			if (jrxOtherElement == null) {
+				declarationMap.put(jrxElement.getXsdDeclaration(), jrxElement);
+			} else if (jrxOtherElement.getMinOccurs() == jrxElement.getMinOccurs()
+					&& jrxOtherElement.getMaxOccurs() == jrxElement.getMaxOccurs()) {
+				Assert.assertSame(jrxOtherElement.getDescriptor(), jrxElement.getDescriptor());
+			}
+		}
+
+		Assert.assertTrue(descriptorMap.size() < jrxDoc.getElements().size());
+		Assert.assertEquals(1, namespaceMap.size());
+	}
+
+	@Test
+	public void explicitDocumentationIsNotShared() throws Exception {
+		JrxDocument jrxDoc = loadSample();
+
+		JrxElement jrxElement = null;
+		JrxElement jrxSibling = null;
+		for (JrxElement jrxCandidate : jrxDoc.getElements()) {
+			for (JrxElement jrxOther : jrxDoc.getElements()) {
+				if (jrxOther != jrxCandidate && jrxOther.getDescriptor() == jrxCandidate.getDescriptor()) {
+					jrxElement = jrxCandidate;
+					jrxSibling = jrxOther;
+				}
+			}
+		}
+		Assert.assertNotNull(jrxElement);
+
+		String schemaDocumentation = jrxSibling.getSchemaDocumentation();
+		jrxElement.setSchemaDocumentation("Changed");
+		Assert.assertEquals("Changed", jrxElement.getSchemaDocumentation());
+		Assert.assertEquals(schemaDocumentation, jrxSibling.getSchemaDocumentation());
+		Assert.assertTrue(jrxElement.getDescriptor().isAnnotationOverridden());
+		Assert.assertNotSame(jrxSibling.getDescriptor(), jrxElement.getDescriptor());
+
+		// Occurrences are kept along with the documentation
+		jrxElement.setMaxOccurs(jrxElement.getMaxOccurs() + 5);
+		Assert.assertEquals("Changed", jrxElement.getSchemaDocumentation());
+		Assert.assertSame(jrxSibling.getXsdDeclaration(), jrxElement.getXsdDeclaration());
+	}
+
+	@Test
+	public void namespaceIsCopiedOnWrite() throws Exception {
+		JrxDocument jrxDoc = loadSample();
+
+		JrxElement jrxRootElement = jrxDoc.getRootElement();
+		JrxElement jrxElement = jrxDoc.getElements().stream().filter(e -> e != jrxRootElement).findFirst()
+				.get();
+		Assert.assertSame(jrxRootElement.getNamespace(), jrxElement.getNamespace());
+
+		jrxElement.setNamespaceUri("other", "urn:other");
+		Assert.assertEquals("urn:other", jrxElement.getNamespaceUri("other"));
+		Assert.assertNull(jrxRootElement.getNamespaceUri("other"));
+	}
+
+	private JrxDocument loadSample() throws Exception {
+		JrxXmlModelUtil util = JrxXmlModelUtil.newInstance();
+		util.addSchema(getClass().getClassLoader().getResource("schema/aaachoice.001.001.01.xsd"));
+		JrxDocument jrxDoc = util.convertXmlToJrxModel(XmlUtils.openDocumentNS(getClass().getClassLoader()
+				.getResource("data/aaachoice.xml")));
+		util.enrichJrxDocument(jrxDoc);
+
+		return jrxDoc;
+	}
+}
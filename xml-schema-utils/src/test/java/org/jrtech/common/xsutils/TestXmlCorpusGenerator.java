@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2016-2026 Jumin Rubin
+ * LinkedIn: https://www.linkedin.com/in/juminrubin/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jrtech.common.xsutils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.net.URL;
+import java.nio.file.Files;
+
+import javax.xml.XMLConstants;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+
+import org.jrtech.common.xmlutils.XmlUtils;
+import org.jrtech.common.xsutils.XmlCorpusGenerator.ChoiceSelection;
+import org.jrtech.common.xsutils.model.JrxDocument;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestXmlCorpusGenerator {
+
+	private static final String SETR004_NAMESPACE = "urn:swift:xsd:setr.004.001.03";
+
+	// Schema, namespace, root element and whether the Jrx validation is compared. It is not for SwInt, as the Jrx
+	// matching does not resolve the nested choices of SwSec:Crypto.
+	private static final String[][] SCHEMA_ROOTS = {
+			{ "schema/setr.004.001.03.xsd", SETR004_NAMESPACE, "Document", "true" },
+			{ "schema/setr.010.001.03.xsd", "urn:swift:xsd:setr.010.001.03", "Document", "true" },
+			{ "schema/aaachoice.001.001.01.xsd", "urn:test:xsd:aaachoice.001.001.01", "Document", "true" },
+			{ "schema/SwInt.xsd", "urn:swift:snl:ns.SwInt", "Request", "false" } };
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void generatedDocumentsAreValid() throws Exception {
+		for (String[] schemaRoot : SCHEMA_ROOTS) {
+			URL schemaUrl = getClass().getClassLoader().getResource(schemaRoot[0]);
+			Schema schema = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI).newSchema(schemaUrl);
+			JrxXmlModelUtil util = JrxXmlModelUtil.newInstance();
+			util.addSchema(schemaUrl);
+			XmlCorpusGenerator generator = XmlCorpusGenerator.newInstance(util, schemaRoot[1], schemaRoot[2]);
+
+			for (ChoiceSelection choiceSelection : ChoiceSelection.values()) {
+				generator.setChoiceSelection(choiceSelection);
+				for (int i = 0; i < 5; i++) {
+					generator.setOptionalProbability(i / 4.0);
+					byte[] document = generate(generator, i);
+					String message = schemaRoot[0] + " " + choiceSelection + " " + i + ": " + new String(document,
+							"UTF-8");
+					try {
+						schema.newValidator().validate(new StreamSource(new ByteArrayInputStream(document)));
+					} catch (Exception e) {
+						throw new AssertionError(message, e);
+					}
+					if (!Boolean.parseBoolean(schemaRoot[3]))
+						continue;
+					JrxDocument jrxDoc = util.convertXmlToJrxModel(XmlUtils.createDocumentNS(new String(document,
+							"UTF-8")));
+					Assert.assertEquals(message, "[]", util.validateDocument(jrxDoc).toString());
+				}
+			}
+		}
+	}
+
+	@Test
+	public void documentsAreDeterministic() throws Exception {
+		JrxXmlModelUtil util = JrxXmlModelUtil.newInstance();
+		util.addSchema(getClass().getClassLoader().getResource("schema/setr.004.001.03.xsd"));
+		XmlCorpusGenerator generator = XmlCorpusGenerator.newInstance(util, SETR004_NAMESPACE, "Document");
+		generator.setSeed(42);
+
+		File directory = temporaryFolder.newFolder();
+		long size = generator.generateCorpus(directory, 3);
+		Assert.assertEquals(3, directory.listFiles().length);
+		File documentFile = new File(directory, "Document-00000002.xml");
+		Assert.assertArrayEquals(Files.readAllBytes(documentFile.toPath()), generate(generator, 2));
+		Assert.assertTrue(size > documentFile.length());
+
+		Assert.assertFalse(new String(generate(generator, 1), "UTF-8").equals(new String(generate(generator, 2),
+				"UTF-8")));
+		generator.setSeed(43);
+		Assert.assertFalse(Files.readAllBytes(documentFile.toPath()).length == generate(generator, 2).length
+				&& new String(Files.readAllBytes(documentFile.toPath()), "UTF-8").equals(new String(generate(generator,
+						2), "UTF-8")));
+	}
+
+	@Test
+	public void documentReachesTargetSize() throws Exception {
+		URL schemaUrl = getClass().getClassLoader().getResource("schema/setr.004.001.03.xsd");
+		JrxXmlModelUtil util = JrxXmlModelUtil.newInstance();
+		util.addSchema(schemaUrl);
+		XmlCorpusGenerator generator = XmlCorpusGenerator.newInstance(util, SETR004_NAMESPACE, "Document");
+		generator.setTargetSize(1024 * 1024);
+
+		byte[] document = generate(generator, 0);
+		Assert.assertTrue(document.length >= 1024 * 1024);
+		Assert.assertTrue(document.length < 1024 * 1024 + 64 * 1024);
+		SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI).newSchema(schemaUrl).newValidator().validate(
+				new StreamSource(new ByteArrayInputStream(document)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void undeclaredRootIsRejected() throws Exception {
+		JrxXmlModelUtil util = JrxXmlModelUtil.newInstance();
+		util.addSchema(getClass().getClassLoader().getResource("schema/aaachoice.001.001.01.xsd"));
+		XmlCorpusGenerator.newInstance(util, "urn:test:xsd:aaachoice.001.001.01", "Undeclared");
+	}
+
+	private static byte[] generate(XmlCorpusGenerator generator, int documentIndex) throws Exception {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		long size = generator.generate(outputStream, documentIndex);
+		Assert.assertEquals(outputStream.size(), size);
+
+		return outputStream.toByteArray();
+	}
+}